@@ -0,0 +1,130 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple.connection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.rptools.maptool.model.GUID;
+import net.rptools.maptool.model.Token;
+import net.rptools.maptool.server.proto.Message;
+import net.rptools.maptool.server.proto.PutTokenMsg;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the CPU time of broadcasting a token update to every client when the message is
+ * compressed for each connection, as broadcasts used to be, with compressing it once and sharing
+ * the bytes.
+ *
+ * <p>The connections don't have sockets. Each one empties its outbound queue as soon as a message
+ * is queued, so only compressing and queueing is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BroadcastBenchmark {
+  @Param({"5", "20", "50"})
+  public int clientCount;
+
+  private final List<Connection> connections = new ArrayList<>();
+  private byte[] message;
+
+  /** A connection that throws its messages away instead of sending them. */
+  private static final class DiscardingConnection extends AbstractConnection {
+    private final String id;
+
+    private DiscardingConnection(String id) {
+      this.id = id;
+    }
+
+    @Override
+    protected void onMessageQueued() {
+      while (nextMessage() != null) {
+        // Discard.
+      }
+    }
+
+    @Override
+    public void open() {}
+
+    @Override
+    public void close() {}
+
+    @Override
+    public boolean isAlive() {
+      return true;
+    }
+
+    @Override
+    public String getId() {
+      return id;
+    }
+
+    @Override
+    public String getError() {
+      return null;
+    }
+  }
+
+  @Setup
+  public void setup() {
+    for (int i = 0; i < clientCount; i++) {
+      connections.add(new DiscardingConnection("client" + i));
+    }
+
+    var token = new Token();
+    token.setName("Goblin Archer");
+    token.setGMNotes("Hides behind the barrels until the party reaches the bridge.");
+    token.setX(1250);
+    token.setY(2300);
+    message =
+        Message.newBuilder()
+            .setPutTokenMsg(
+                PutTokenMsg.newBuilder()
+                    .setZoneGuid(new GUID().toString())
+                    .setToken(token.toDto())
+                    .setTokenVersion(42))
+            .build()
+            .toByteArray();
+  }
+
+  @Benchmark
+  public void compressPerConnection() {
+    for (var connection : connections) {
+      connection.sendMessage(null, message, null);
+    }
+  }
+
+  @Benchmark
+  public void compressOnce() {
+    var compressed = MessageCompressor.compress(message, false);
+    for (var connection : connections) {
+      connection.sendCompressedMessage(null, compressed, null);
+    }
+  }
+}
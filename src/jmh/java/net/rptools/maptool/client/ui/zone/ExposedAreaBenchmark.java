@@ -0,0 +1,97 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import java.awt.geom.Area;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import net.rptools.maptool.client.MapTool;
+import net.rptools.maptool.client.ui.zone.vbl.VisionScenes;
+import net.rptools.maptool.model.ExposedAreaMetaData;
+import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.Zone;
+import net.rptools.maptool.model.player.Player;
+import net.rptools.maptool.server.ServerPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link ZoneView#getExposedArea(PlayerView)} for a view of several tokens, each of which
+ * has explored part of the generated dungeon, with individual fog of war.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExposedAreaBenchmark {
+  /** How many places each token has seen the dungeon from. */
+  private static final int STEPS_PER_TOKEN = 16;
+
+  @Param({"1", "6", "12"})
+  public int tokenCount;
+
+  private ZoneView zoneView;
+  private PlayerView view;
+
+  @Setup
+  public void setup() {
+    final var policy = new ServerPolicy();
+    policy.setUseIndividualFOW(true);
+    MapTool.setServerPolicy(policy);
+
+    final var fixture = VisionScenes.create(VisionScenes.Scene.DUNGEON);
+    final var trees = fixture.createTrees();
+    final var origins = fixture.origins();
+
+    final var zone = new Zone();
+    zone.setVisionType(Zone.VisionType.DAY);
+    final var tokens = new ArrayList<Token>();
+    for (int i = 0; i < tokenCount; ++i) {
+      final var token = new Token();
+      token.setHasSight(true);
+      tokens.add(token);
+
+      // Each token wanders through its own stretch of rooms.
+      final var meta = new ExposedAreaMetaData();
+      for (int step = 0; step < STEPS_PER_TOKEN; ++step) {
+        final var origin = origins.get((i * STEPS_PER_TOKEN + step * 3) % origins.size());
+        final Area visible =
+            FogUtil.calculateVisibility(origin, fixture.createVision(origin), trees);
+        meta.addToExposedAreaHistory(visible);
+      }
+      zone.setExposedAreaMetaData(token.getExposedAreaGUID(), meta);
+    }
+
+    zoneView = new ZoneView(zone);
+    view = new PlayerView(Player.Role.PLAYER, tokens);
+  }
+
+  @Benchmark
+  public Area getExposedArea() {
+    zoneView.flushFog();
+    return zoneView.getExposedArea(view);
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.rptools.maptool.client.ui.zone.Illumination.LumensLevel;
+import net.rptools.maptool.client.ui.zone.Illuminator.LitArea;
+import net.rptools.maptool.client.ui.zone.vbl.VisionScenes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures combining lights with an {@link Illuminator}, from lights placed around the generated
+ * dungeon and blocked by its topology.
+ *
+ * <p>Most lights have a bright and a dim range, and some are darkness.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IlluminationBenchmark {
+  @Param({"32", "128", "256"})
+  public int lightCount;
+
+  private final Illuminator illuminator = new Illuminator();
+  private final List<LitArea> litAreas = new ArrayList<>();
+  private int light;
+
+  @Setup
+  public void setup() {
+    final var fixture = VisionScenes.create(VisionScenes.Scene.DUNGEON);
+    final var trees = fixture.createTrees();
+    final var random = new Random(42);
+
+    final var origins = fixture.origins();
+    for (int i = 0; i < lightCount; ++i) {
+      final var origin = origins.get(i * origins.size() / lightCount);
+      final var visible =
+          FogUtil.calculateVisibility(origin, fixture.createVision(origin), trees);
+      final var isDarkness = random.nextInt(8) == 0;
+      final var lumens = (1 + random.nextInt(3)) * 100;
+
+      // The bright range is the visible area near the light, the dim range is all of it.
+      final var bright = new Area(visible);
+      bright.intersect(new Area(new Rectangle(origin.x - 300, origin.y - 300, 600, 600)));
+      litAreas.add(new LitArea(isDarkness ? -lumens : lumens, bright));
+      if (!isDarkness) {
+        litAreas.add(new LitArea(lumens / 2, visible));
+      }
+    }
+    litAreas.forEach(illuminator::add);
+  }
+
+  @Benchmark
+  public Illumination getIllumination() {
+    return illuminator.getIllumination();
+  }
+
+  @Benchmark
+  public List<LumensLevel> getDisjointObscuredLumensLevels() {
+    return illuminator.getIllumination().getDisjointObscuredLumensLevels();
+  }
+
+  /** A light is taken away and put back, as when its token moves, and the result is needed. */
+  @Benchmark
+  public Illumination changeLight() {
+    light = (light + 1) % litAreas.size();
+    final var litArea = litAreas.get(light);
+    illuminator.remove(litArea);
+    illuminator.add(litArea);
+    return illuminator.getIllumination();
+  }
+}
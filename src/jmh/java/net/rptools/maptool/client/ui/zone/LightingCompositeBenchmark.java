@@ -0,0 +1,112 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import java.awt.CompositeContext;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares blending a light overlay the size of the viewport with the scalar {@link
+ * LightingComposite.ScreenBlender}, with the Vector API blender, and with the Vector API blender
+ * split into bands of rows on several threads. This is what {@code LightsRenderer} does each frame
+ * in environmental lighting mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LightingCompositeBenchmark {
+  @Param({"1920x1080", "3840x2160"})
+  public String viewport;
+
+  private BufferedImage lights;
+  private BufferedImage base;
+  private CompositeContext scalar;
+  private CompositeContext vector;
+  private CompositeContext vectorParallel;
+
+  @Setup
+  public void setup() {
+    final var size = viewport.split("x");
+    final var width = Integer.parseInt(size[0]);
+    final var height = Integer.parseInt(size[1]);
+    lights = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    base = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+    final var random = new Random(42);
+    for (int y = 0; y < height; ++y) {
+      for (int x = 0; x < width; ++x) {
+        lights.setRGB(x, y, random.nextInt());
+        base.setRGB(x, y, random.nextInt());
+      }
+    }
+
+    final var vectorBlender = LightingComposite.createVectorBlender("ScreenBlender");
+    if (vectorBlender == null) {
+      throw new IllegalStateException("Run with --add-modules jdk.incubator.vector");
+    }
+    scalar = createContext(new LightingComposite(new LightingComposite.ScreenBlender(), false));
+    vector = createContext(new LightingComposite(vectorBlender, false));
+    vectorParallel = createContext(new LightingComposite(vectorBlender, true));
+  }
+
+  @TearDown
+  public void tearDown() {
+    scalar.dispose();
+    vector.dispose();
+    vectorParallel.dispose();
+  }
+
+  private CompositeContext createContext(LightingComposite composite) {
+    return composite.createContext(lights.getColorModel(), base.getColorModel(), null);
+  }
+
+  private BufferedImage compose(CompositeContext context) {
+    // Blending onto the same image again is fine, the cost doesn't depend on the pixel values.
+    context.compose(lights.getRaster(), base.getRaster(), base.getRaster());
+    return base;
+  }
+
+  @Benchmark
+  public BufferedImage scalar() {
+    return compose(scalar);
+  }
+
+  @Benchmark
+  public BufferedImage vector() {
+    return compose(vector);
+  }
+
+  @Benchmark
+  public BufferedImage vectorParallel() {
+    return compose(vectorParallel);
+  }
+}
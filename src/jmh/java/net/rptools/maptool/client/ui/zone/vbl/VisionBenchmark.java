@@ -0,0 +1,126 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone.vbl;
+
+import java.awt.Point;
+import java.awt.geom.Area;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import net.rptools.lib.GeometryUtil;
+import net.rptools.maptool.client.ui.zone.FogUtil;
+import net.rptools.maptool.model.Zone;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the steps of calculating vision through topology: building the topology trees, finding
+ * the segments that block vision and solving the sweep, and the whole of {@link
+ * FogUtil#calculateVisibility(Point, Area, java.util.Collection)}.
+ *
+ * <p>Each invocation looks from the next of the scene's origins, so the results are averaged over
+ * all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VisionBenchmark {
+  @Param public VisionScenes.Scene scene;
+
+  private final GeometryFactory geometryFactory = GeometryUtil.getGeometryFactory();
+  private VisionScenes.Fixture fixture;
+  private List<Map.Entry<Zone.TopologyType, AreaTree>> trees;
+  private AreaTree wallTree;
+  private Area[] visions;
+  private PreparedGeometry[] visionGeometries;
+  private List<List<LineString>> wallSegments;
+  private int origin;
+
+  @Setup
+  public void setup() {
+    fixture = VisionScenes.create(scene);
+    trees = fixture.createTrees();
+    wallTree = new AreaTree(fixture.topology().get(Zone.TopologyType.WALL_VBL));
+
+    final var origins = fixture.origins();
+    visions = new Area[origins.size()];
+    visionGeometries = new PreparedGeometry[origins.size()];
+    wallSegments = new ArrayList<>();
+    for (int i = 0; i < origins.size(); ++i) {
+      visions[i] = fixture.createVision(origins.get(i));
+      visionGeometries[i] = PreparedGeometryFactory.prepare(GeometryUtil.toJts(visions[i]));
+      wallSegments.add(findWallSegments(i));
+    }
+  }
+
+  private int next() {
+    origin = (origin + 1) % visions.length;
+    return origin;
+  }
+
+  private List<LineString> findWallSegments(int i) {
+    final var accumulator =
+        new VisionBlockingAccumulator(
+            geometryFactory, fixture.origins().get(i), visionGeometries[i]);
+    accumulator.add(Zone.TopologyType.WALL_VBL, wallTree);
+    return accumulator.getVisionBlockingSegments();
+  }
+
+  @Benchmark
+  public List<Map.Entry<Zone.TopologyType, AreaTree>> buildAreaTrees() {
+    return fixture.createTrees();
+  }
+
+  @Benchmark
+  public List<LineString> accumulateWallSegments() {
+    return findWallSegments(next());
+  }
+
+  @Benchmark
+  public Geometry solveWallVisibility() {
+    final var i = next();
+    final var point = fixture.origins().get(i);
+    final var problem =
+        new VisibilityProblem(
+            geometryFactory, new Coordinate(point.getX(), point.getY()), visionGeometries[i]);
+    wallSegments.get(i).forEach(problem::add);
+    return problem.solve();
+  }
+
+  @Benchmark
+  public Area calculateVisibility() {
+    final var i = next();
+    return FogUtil.calculateVisibility(fixture.origins().get(i), visions[i], trees);
+  }
+}
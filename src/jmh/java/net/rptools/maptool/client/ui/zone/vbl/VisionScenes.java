@@ -0,0 +1,171 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone.vbl;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import net.rptools.maptool.model.Zone;
+import net.rptools.maptool.util.GraphicsUtil;
+
+/**
+ * The topology and viewpoints the vision and lighting benchmarks run against.
+ *
+ * <p>The small scenes are the ones {@link VisibilityInspector} shows, which each stress a
+ * particular part of the visibility sweep. The dungeon is a generated map the size of a large
+ * campaign map, with rooms joined by corridors and furnished with pillars, hills and pits. It is
+ * seeded so that every run gets the same dungeon.
+ */
+public final class VisionScenes {
+  /** The scenes that can be benchmarked. */
+  public enum Scene {
+    REPEATED_SQUARES,
+    TRIPLE_INTERSECTION,
+    SINGLE_PILLAR,
+    DUNGEON
+  }
+
+  /**
+   * The topology of a scene, and where to look from.
+   *
+   * @param topology the area of each type of topology.
+   * @param origins the points to look from, all inside open space.
+   * @param visionRange the radius of the vision to look with.
+   */
+  public record Fixture(
+      Map<Zone.TopologyType, Area> topology, List<Point> origins, int visionRange) {
+    /**
+     * @param origin the point to look from.
+     * @return the unobstructed vision at {@code origin}.
+     */
+    public Area createVision(Point origin) {
+      final var vision =
+          GraphicsUtil.createLineSegmentEllipse(
+              -visionRange, -visionRange, visionRange, visionRange, 60);
+      vision.transform(AffineTransform.getTranslateInstance(origin.x, origin.y));
+      return vision;
+    }
+
+    /**
+     * @return a tree of each type of topology.
+     */
+    public List<Map.Entry<Zone.TopologyType, AreaTree>> createTrees() {
+      final var trees = new ArrayList<Map.Entry<Zone.TopologyType, AreaTree>>();
+      for (final var entry : topology.entrySet()) {
+        trees.add(Map.entry(entry.getKey(), new AreaTree(entry.getValue())));
+      }
+      return trees;
+    }
+  }
+
+  private static final int DUNGEON_ROOMS = 16;
+  private static final int DUNGEON_CELL = 600;
+
+  private VisionScenes() {}
+
+  public static Fixture create(Scene scene) {
+    return switch (scene) {
+      case REPEATED_SQUARES ->
+          fromInspector(VisibilityInspector.buildRepeatedSquaredTopology(), 75, 375, 675);
+      case TRIPLE_INTERSECTION ->
+          fromInspector(VisibilityInspector.buildTripleIntersectionTopology(), 100, 200, 600);
+      case SINGLE_PILLAR ->
+          fromInspector(VisibilityInspector.buildSinglePillarTopology(), 100, 200, 600);
+      case DUNGEON -> createDungeon();
+    };
+  }
+
+  /** Makes a fixture of an inspector scene, looking from a grid of points inside its walls. */
+  private static Fixture fromInspector(VisibilityInspector.Scene scene, int... coordinates) {
+    final var topology = new EnumMap<Zone.TopologyType, Area>(Zone.TopologyType.class);
+    topology.put(Zone.TopologyType.WALL_VBL, scene.wallVbl());
+    topology.put(Zone.TopologyType.HILL_VBL, scene.hillVbl());
+    topology.put(Zone.TopologyType.PIT_VBL, scene.pitVbl());
+    topology.put(Zone.TopologyType.COVER_VBL, scene.coverVbl());
+
+    final var origins = new ArrayList<Point>();
+    for (final var x : coordinates) {
+      for (final var y : coordinates) {
+        origins.add(new Point(x, y));
+      }
+    }
+    return new Fixture(topology, origins, 400);
+  }
+
+  private static Fixture createDungeon() {
+    final var random = new Random(7);
+    final var size = DUNGEON_ROOMS * DUNGEON_CELL;
+    final var wall = new Area(new Rectangle(-50, -50, size + 100, size + 100));
+    final var hill = new Area();
+    final var pit = new Area();
+    final var cover = new Area();
+    final var origins = new ArrayList<Point>();
+
+    for (int roomX = 0; roomX < DUNGEON_ROOMS; ++roomX) {
+      for (int roomY = 0; roomY < DUNGEON_ROOMS; ++roomY) {
+        final var width = 250 + random.nextInt(250);
+        final var height = 250 + random.nextInt(250);
+        final var room =
+            new Rectangle(
+                roomX * DUNGEON_CELL + random.nextInt(DUNGEON_CELL - width),
+                roomY * DUNGEON_CELL + random.nextInt(DUNGEON_CELL - height),
+                width,
+                height);
+        wall.subtract(new Area(room));
+        origins.add(new Point(room.x + 20, room.y + 20));
+
+        // Corridors to the next room along and the next room down.
+        final var centerX = roomX * DUNGEON_CELL + DUNGEON_CELL / 2;
+        final var centerY = roomY * DUNGEON_CELL + DUNGEON_CELL / 2;
+        if (roomX + 1 < DUNGEON_ROOMS) {
+          wall.subtract(new Area(new Rectangle(centerX, centerY - 25, DUNGEON_CELL, 50)));
+        }
+        if (roomY + 1 < DUNGEON_ROOMS) {
+          wall.subtract(new Area(new Rectangle(centerX - 25, centerY, 50, DUNGEON_CELL)));
+        }
+
+        // Furnishings, away from the corner that is looked from.
+        for (int i = 0; i < 4; ++i) {
+          final var piece =
+              new Area(
+                  new Rectangle(
+                      room.x + 60 + random.nextInt(width - 100),
+                      room.y + 60 + random.nextInt(height - 100),
+                      30,
+                      30));
+          switch (random.nextInt(4)) {
+            case 0 -> wall.add(piece);
+            case 1 -> hill.add(piece);
+            case 2 -> pit.add(piece);
+            default -> cover.add(piece);
+          }
+        }
+      }
+    }
+
+    final var topology = new EnumMap<Zone.TopologyType, Area>(Zone.TopologyType.class);
+    topology.put(Zone.TopologyType.WALL_VBL, wall);
+    topology.put(Zone.TopologyType.HILL_VBL, hill);
+    topology.put(Zone.TopologyType.PIT_VBL, pit);
+    topology.put(Zone.TopologyType.COVER_VBL, cover);
+    return new Fixture(topology, origins, 1200);
+  }
+}
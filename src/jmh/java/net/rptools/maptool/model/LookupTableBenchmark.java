@@ -0,0 +1,81 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.rptools.maptool.model.LookupTable.LookupEntry;
+import net.rptools.parser.ParserException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the two ways the renderer can find the image of tokens with an image table, for 200
+ * tokens facing in random directions, as happens for each frame the renderer draws.
+ *
+ * <p>The table has an image for each of eight directions, like a typical facing table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LookupTableBenchmark {
+  private static final int TOKENS = 200;
+
+  private final LookupTable table = new LookupTable();
+  private final int[] facings = new int[TOKENS];
+
+  @Setup
+  public void setup() {
+    table.addEntry(-180, -158, "W", null);
+    for (int i = 0; i < 7; ++i) {
+      int min = -157 + i * 45;
+      table.addEntry(min, min + 44, "direction" + i, null);
+    }
+    table.addEntry(158, 180, "W", null);
+
+    var random = new Random(42);
+    for (int i = 0; i < TOKENS; ++i) {
+      facings[i] = random.nextInt(360) - 180;
+    }
+  }
+
+  /** Evaluates each facing as a roll, as the renderer used to. */
+  @Benchmark
+  public void lookupRoll(Blackhole blackhole) throws ParserException {
+    for (int facing : facings) {
+      LookupEntry entry = table.getLookup(Integer.toString(facing));
+      blackhole.consume(entry);
+    }
+  }
+
+  @Benchmark
+  public void lookupDirect(Blackhole blackhole) {
+    for (int facing : facings) {
+      blackhole.consume(table.getLookupDirect(facing));
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares token lookups through {@link TokenSpatialIndex} with going through every token, as
+ * happens for each frame the renderer draws and for each hit test.
+ *
+ * <p>Tokens are one to three cells of 50 pixels, spread over a map with roughly ten cells per
+ * token. The rectangle query is the size of a 1920x1080 screen at 100% zoom.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenSpatialIndexBenchmark {
+  private static final int CELL_SIZE = 50;
+  private static final int QUERIES = 64;
+
+  @Param({"5000", "10000", "20000"})
+  public int tokenCount;
+
+  private final List<Token> tokens = new ArrayList<>();
+  private final List<Rectangle> bounds = new ArrayList<>();
+  private final TokenSpatialIndex index = new TokenSpatialIndex();
+  private Rectangle[] screens;
+  private int[][] points;
+  private int query;
+
+  @Setup
+  public void setup() {
+    var random = new Random(42);
+    int mapSize = (int) Math.sqrt(tokenCount * 10.0) * CELL_SIZE;
+    for (int i = 0; i < tokenCount; i++) {
+      var token = new Token();
+      int size = (1 + random.nextInt(3)) * CELL_SIZE;
+      var rect = new Rectangle(random.nextInt(mapSize), random.nextInt(mapSize), size, size);
+      token.setX(rect.x);
+      token.setY(rect.y);
+      tokens.add(token);
+      bounds.add(rect);
+      index.put(token, Zone.Layer.TOKEN, rect);
+    }
+
+    screens = new Rectangle[QUERIES];
+    points = new int[QUERIES][];
+    for (int i = 0; i < QUERIES; i++) {
+      screens[i] = new Rectangle(random.nextInt(mapSize), random.nextInt(mapSize), 1920, 1080);
+      points[i] = new int[] {random.nextInt(mapSize), random.nextInt(mapSize)};
+    }
+  }
+
+  private int next() {
+    query = (query + 1) % QUERIES;
+    return query;
+  }
+
+  @Benchmark
+  public List<Token> rectangleIndexed() {
+    return index.getTokens(Zone.Layer.TOKEN, screens[next()]);
+  }
+
+  @Benchmark
+  public List<Token> rectangleLinear() {
+    var area = screens[next()];
+    var result = new ArrayList<Token>();
+    for (int i = 0; i < tokens.size(); i++) {
+      if (bounds.get(i).intersects(area)) {
+        result.add(tokens.get(i));
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  public List<Token> pointIndexed() {
+    var point = points[next()];
+    return index.getTokensAt(Zone.Layer.TOKEN, point[0], point[1]);
+  }
+
+  @Benchmark
+  public List<Token> pointLinear() {
+    var point = points[next()];
+    var result = new ArrayList<Token>();
+    for (int i = 0; i < tokens.size(); i++) {
+      if (bounds.get(i).contains(point[0], point[1])) {
+        result.add(tokens.get(i));
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  public void move() {
+    int i = next() * (tokenCount / QUERIES);
+    var rect = bounds.get(i);
+    rect.translate(CELL_SIZE, 0);
+    index.put(tokens.get(i), Zone.Layer.TOKEN, rect);
+    rect.translate(-CELL_SIZE, 0);
+    index.put(tokens.get(i), Zone.Layer.TOKEN, rect);
+  }
+}
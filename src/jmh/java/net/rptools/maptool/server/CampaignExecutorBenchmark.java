@@ -0,0 +1,149 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.server;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.Zone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares how many token moves from clients the server applies per second when they are applied
+ * on the EDT, as they used to be, with applying them on a campaign executor like the one {@link
+ * MapToolServer} uses.
+ *
+ * <p>While measuring, the EDT is kept busy with paint-like tasks of {@link #paintMillis}
+ * milliseconds, one after the other, as it is when the host's map is busy repainting lights.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class CampaignExecutorBenchmark {
+  private static final int TOKENS = 200;
+  private static final int MESSAGES = 100;
+
+  /** How long each paint keeps the EDT busy, {@code 0} for an idle EDT. */
+  @Param({"0", "15"})
+  public int paintMillis;
+
+  private final Zone zone = new Zone();
+  private final List<Token> tokens = new ArrayList<>();
+  private ExecutorService campaignExecutor;
+  private Thread painter;
+  private volatile boolean isPainting;
+  private int move;
+
+  @Setup
+  public void setup() {
+    for (int i = 0; i < TOKENS; i++) {
+      var token = new Token();
+      token.setX(i * 50);
+      token.setY(i * 50);
+      zone.putToken(token);
+      tokens.add(token);
+    }
+
+    campaignExecutor =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("CampaignExecutorBenchmark.CampaignExecutor")
+                .setDaemon(true)
+                .build());
+
+    if (paintMillis > 0) {
+      isPainting = true;
+      painter = new Thread(this::paintContinuously, "CampaignExecutorBenchmark.Painter");
+      painter.setDaemon(true);
+      painter.start();
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    isPainting = false;
+    if (painter != null) {
+      painter.join();
+    }
+    campaignExecutor.shutdown();
+  }
+
+  /** Queues paints on the EDT one after the other, like a renderer that can't keep up. */
+  private void paintContinuously() {
+    while (isPainting) {
+      try {
+        EventQueue.invokeAndWait(
+            () -> {
+              final var end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(paintMillis);
+              while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+              }
+            });
+      } catch (Exception e) {
+        return;
+      }
+    }
+  }
+
+  /** Applies a burst of token moves on an executor and waits until all of them are applied. */
+  private void applyMoves(Executor executor) throws InterruptedException {
+    final var applied = new CountDownLatch(MESSAGES);
+    for (int i = 0; i < MESSAGES; i++) {
+      final var token = tokens.get(move++ % TOKENS);
+      final var x = move;
+      executor.execute(
+          () -> {
+            token.setX(x);
+            zone.putToken(token);
+            applied.countDown();
+          });
+    }
+    applied.await();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MESSAGES)
+  public void applyOnEventQueue() throws InterruptedException {
+    applyMoves(EventQueue::invokeLater);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MESSAGES)
+  public void applyOnCampaignExecutor() throws InterruptedException {
+    applyMoves(campaignExecutor);
+  }
+}
@@ -16,95 +16,205 @@
 
 import java.io.*;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import net.rptools.clientserver.ActivityListener;
 import net.rptools.clientserver.simple.DisconnectHandler;
 import net.rptools.clientserver.simple.MessageHandler;
-import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
-import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 public abstract class AbstractConnection implements Connection {
   private static final Logger log = LogManager.getLogger(AbstractConnection.class);
 
-  private final Map<Object, List<byte[]>> outQueueMap = new HashMap<>();
-  private final List<List<byte[]>> outQueueList = new LinkedList<>();
+  /** Compressed bytes that may wait to be sent before the peer may be considered stalled. */
+  private static final long MAX_QUEUED_BYTES = 64L * 1024 * 1024;
+
+  /** Compressed bytes that may wait to be sent before senders of bulk messages are held back. */
+  private static final long MAX_QUEUED_BULK_BYTES = 16L * 1024 * 1024;
+
+  /**
+   * How long a full outbound queue may go without sending anything before the peer is considered
+   * stalled and dropped.
+   */
+  private static final long STALL_TIMEOUT_MILLIS = 30_000;
+
+  private final OutboundMessageQueue outQueue = new OutboundMessageQueue();
   private final List<DisconnectHandler> disconnectHandlers = new CopyOnWriteArrayList<>();
   private final List<ActivityListener> listeners = new CopyOnWriteArrayList<>();
   private final List<MessageHandler> messageHandlers = new CopyOnWriteArrayList<>();
+  private volatile boolean compressionDictionaryEnabled = false;
 
-  private List<byte[]> getOutQueue(Object channel) {
-    // Ordinarily I would synchronize this method, but I imagine the channels will be initialized
-    // once
-    // at the beginning of execution.  Thus get(channel) will only return once right at the
-    // beginning
-    // no sense incurring the cost of synchronizing the method on the class for that.
-    List<byte[]> queue = outQueueMap.get(channel);
-    if (queue == null) {
-      queue = Collections.synchronizedList(new ArrayList<byte[]>());
-      outQueueMap.put(channel, queue);
-    }
-    return queue;
+  private final ReentrantLock backpressureLock = new ReentrantLock();
+  private final Condition queueDrained = backpressureLock.newCondition();
+  private volatile int blockedSenders = 0;
+
+  private final long maxQueuedBytes;
+  private final long maxQueuedBulkBytes;
+  private final long stallTimeoutNanos;
+
+  /** When the outbound queue last became non-empty or sent anything, as {@link System#nanoTime}. */
+  private volatile long lastProgressNanos = System.nanoTime();
+
+  protected AbstractConnection() {
+    this(MAX_QUEUED_BYTES, MAX_QUEUED_BULK_BYTES, STALL_TIMEOUT_MILLIS);
   }
 
-  private byte[] compress(byte[] message) {
-    try {
-      ByteArrayOutputStream baos = new ByteArrayOutputStream(message.length);
-      OutputStream ios = new ZstdCompressorOutputStream(baos);
-      ios.write(message);
-      ios.close();
-      var compressedMessage = baos.toByteArray();
-      return compressedMessage;
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+  /**
+   * @param maxQueuedBytes compressed bytes that may wait to be sent before the peer may be
+   *     considered stalled.
+   * @param maxQueuedBulkBytes compressed bytes that may wait to be sent before senders of bulk
+   *     messages are held back.
+   * @param stallTimeoutMillis how long a full outbound queue may go without sending anything before
+   *     the peer is considered stalled.
+   */
+  AbstractConnection(long maxQueuedBytes, long maxQueuedBulkBytes, long stallTimeoutMillis) {
+    this.maxQueuedBytes = maxQueuedBytes;
+    this.maxQueuedBulkBytes = maxQueuedBulkBytes;
+    this.stallTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(stallTimeoutMillis);
+  }
+
+  @Override
+  public void sendMessage(Object channel, byte[] message, Object coalesceKey) {
+    MessageCompressor.capture(message);
+    enqueue(
+        channel, MessageCompressor.compress(message, compressionDictionaryEnabled), coalesceKey);
+  }
+
+  @Override
+  public void setCompressionDictionaryEnabled(boolean enabled) {
+    compressionDictionaryEnabled = enabled;
+  }
+
+  @Override
+  public boolean isCompressionDictionaryEnabled() {
+    return compressionDictionaryEnabled;
+  }
+
+  @Override
+  public void sendCompressedMessage(Object channel, byte[] compressedMessage, Object coalesceKey) {
+    enqueue(channel, compressedMessage, coalesceKey);
+  }
+
+  /** Called after a message has been added to the outbound queue, e.g. to wake a send thread. */
+  protected abstract void onMessageQueued();
+
+  /**
+   * Adds a message to the outbound queue. Only messages on {@link PrioritizedChannel.Priority#BULK}
+   * channels wait for room in the queue, as they are sent from threads dedicated to them. Other
+   * messages are sent from threads shared by all connections, such as the EDT or the server's
+   * message thread, which must never be held up by one slow peer. Those are queued even if the
+   * queue is full, unless nothing was sent for {@link #STALL_TIMEOUT_MILLIS}, in which case the
+   * peer is considered stalled and the connection is closed right away.
+   */
+  private void enqueue(Object channel, byte[] compressedMessage, Object coalesceKey) {
+    if (OutboundMessageQueue.priorityOf(channel) == PrioritizedChannel.Priority.BULK) {
+      if (!awaitQueueCapacity(compressedMessage.length)) {
+        log.warn(
+            "Outbound queue for " + getId() + " did not drain in time, closing the connection.");
+        close();
+        return;
+      }
+    } else if (!hasQueueCapacity(compressedMessage.length, maxQueuedBytes) && isStalled()) {
+      log.warn("Outbound queue for " + getId() + " is full and stalled, closing the connection.");
+      close();
+      return;
     }
+    if (outQueue.isEmpty()) {
+      lastProgressNanos = System.nanoTime();
+    }
+    outQueue.add(channel, compressedMessage, coalesceKey);
+    onMessageQueued();
   }
 
-  private byte[] inflate(byte[] compressedMessage) {
-    InputStream bytesIn = new ByteArrayInputStream(compressedMessage);
+  /**
+   * Holds a bulk sender back while the outbound queue is full so that a slow peer can't make the
+   * queue grow without bounds. Bulk messages stop well short of {@link #MAX_QUEUED_BYTES}, so that
+   * other messages still have room. A single message is always accepted into an empty queue,
+   * however large it is. The sender waits for as long as the queue keeps sending.
+   *
+   * @param size the size of the message about to be queued.
+   * @return {@code true} if there is room for the message, {@code false} if the queue stalled.
+   */
+  private boolean awaitQueueCapacity(int size) {
+    if (hasQueueCapacity(size, maxQueuedBulkBytes)) {
+      return true;
+    }
+
+    backpressureLock.lock();
+    blockedSenders++;
     try {
-      InputStream ios = new ZstdCompressorInputStream(bytesIn);
-      var decompressed = ios.readAllBytes();
-      ios.close();
-      return decompressed;
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+      while (!hasQueueCapacity(size, maxQueuedBulkBytes)) {
+        long remaining = lastProgressNanos + stallTimeoutNanos - System.nanoTime();
+        if (remaining <= 0 || !isAlive()) {
+          return false;
+        }
+        queueDrained.awaitNanos(remaining);
+      }
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      blockedSenders--;
+      backpressureLock.unlock();
     }
   }
 
-  protected synchronized void addMessage(Object channel, byte[] message) {
-    List<byte[]> queue = getOutQueue(channel);
-    queue.add(compress(message));
-    // Queue up for sending
-    outQueueList.add(queue);
+  private boolean hasQueueCapacity(int size, long maxBytes) {
+    long queued = outQueue.getBytes();
+    return queued == 0 || queued + size <= maxBytes;
   }
 
-  protected synchronized boolean hasMoreMessages() {
-    return !outQueueList.isEmpty();
+  /** Whether nothing was sent for {@link #STALL_TIMEOUT_MILLIS} while messages were waiting. */
+  private boolean isStalled() {
+    return System.nanoTime() - lastProgressNanos > stallTimeoutNanos;
   }
 
-  protected synchronized byte[] nextMessage() {
-    if (!hasMoreMessages()) {
-      return null;
+  private void releaseQueueCapacity() {
+    if (blockedSenders > 0) {
+      backpressureLock.lock();
+      try {
+        queueDrained.signalAll();
+      } finally {
+        backpressureLock.unlock();
+      }
     }
-    List<byte[]> queue = outQueueList.remove(0);
+  }
 
-    if (queue.isEmpty()) return null;
+  protected boolean hasMoreMessages() {
+    return !outQueue.isEmpty();
+  }
 
-    byte[] message = queue.remove(0);
-    if (!queue.isEmpty()) {
-      outQueueList.add(queue);
+  /**
+   * Removes the next message to send from the outbound queue. Must only be called from the
+   * connection's send thread.
+   *
+   * @return the next message, or {@code null} if there is none.
+   */
+  protected byte[] nextMessage() {
+    byte[] message = outQueue.poll();
+    if (message != null) {
+      lastProgressNanos = System.nanoTime();
+      releaseQueueCapacity();
     }
     return message;
   }
 
+  /**
+   * Returns the depth of the outbound queue of each channel, keyed by channel ({@code null} for the
+   * default channel).
+   *
+   * @return the outbound queue statistics.
+   */
+  public Map<Object, OutboundMessageQueue.ChannelStats> getOutboundQueueStats() {
+    return outQueue.getStats();
+  }
+
   public final void addMessageHandler(MessageHandler handler) {
     messageHandlers.add(handler);
   }
@@ -124,53 +234,65 @@ private void dispatchMessage(String id, byte[] message) {
   }
 
   protected final void dispatchCompressedMessage(String id, byte[] compressedMessage) {
-    var message = inflate(compressedMessage);
+    var message = MessageCompressor.inflate(compressedMessage);
     dispatchMessage(id, message);
   }
 
+  /**
+   * Writes a length prefixed message. The stream is not flushed, so that callers can batch several
+   * messages into a single write to the underlying socket.
+   *
+   * @param out the stream to write to.
+   * @param message the message to write.
+   * @throws IOException if the message could not be written.
+   */
   protected final void writeMessage(OutputStream out, byte[] message) throws IOException {
     int length = message.length;
 
     notifyListeners(ActivityListener.Direction.Outbound, ActivityListener.State.Start, length, 0);
 
-    out.write(length >> 24);
-    out.write(length >> 16);
-    out.write(length >> 8);
-    out.write(length);
+    out.write(ByteBuffer.allocate(Integer.BYTES).putInt(length).array());
 
-    for (int i = 0; i < message.length; i++) {
-      out.write(message[i]);
+    for (int offset = 0; offset < length; offset += ActivityListener.CHUNK_SIZE) {
+      int count = Math.min(ActivityListener.CHUNK_SIZE, length - offset);
+      out.write(message, offset, count);
+      // A large message takes a while to write, but is progress all the same.
+      lastProgressNanos = System.nanoTime();
 
-      if (i != 0 && i % ActivityListener.CHUNK_SIZE == 0) {
+      if (offset + count < length) {
         notifyListeners(
-            ActivityListener.Direction.Outbound, ActivityListener.State.Progress, length, i);
+            ActivityListener.Direction.Outbound,
+            ActivityListener.State.Progress,
+            length,
+            offset + count);
       }
     }
-    out.flush();
     notifyListeners(
         ActivityListener.Direction.Outbound, ActivityListener.State.Complete, length, length);
   }
 
   protected final byte[] readMessage(InputStream in) throws IOException {
-    int b32 = in.read();
-    int b24 = in.read();
-    int b16 = in.read();
-    int b8 = in.read();
-
-    if (b32 < 0) {
+    byte[] header = in.readNBytes(Integer.BYTES);
+    if (header.length < Integer.BYTES) {
       throw new IOException("Stream closed");
     }
-    int length = (b32 << 24) + (b24 << 16) + (b16 << 8) + b8;
+    int length = ByteBuffer.wrap(header).getInt();
 
     notifyListeners(ActivityListener.Direction.Inbound, ActivityListener.State.Start, length, 0);
 
     byte[] ret = new byte[length];
-    for (int i = 0; i < length; i++) {
-      ret[i] = (byte) in.read();
+    for (int offset = 0; offset < length; offset += ActivityListener.CHUNK_SIZE) {
+      int count = Math.min(ActivityListener.CHUNK_SIZE, length - offset);
+      if (in.readNBytes(ret, offset, count) < count) {
+        throw new IOException("Stream closed");
+      }
 
-      if (i != 0 && i % ActivityListener.CHUNK_SIZE == 0) {
+      if (offset + count < length) {
         notifyListeners(
-            ActivityListener.Direction.Inbound, ActivityListener.State.Progress, length, i);
+            ActivityListener.Direction.Inbound,
+            ActivityListener.State.Progress,
+            length,
+            offset + count);
       }
     }
     notifyListeners(
@@ -28,7 +28,52 @@ default void sendMessage(byte[] message) {
     sendMessage(null, message);
   }
 
-  void sendMessage(Object channel, byte[] message);
+  default void sendMessage(Object channel, byte[] message) {
+    sendMessage(channel, message, null);
+  }
+
+  /**
+   * Queues a message, dropping any message queued with an equal coalescing key that hasn't been
+   * sent yet. The new message is queued after everything already waiting, so it must describe the
+   * complete latest state of whatever the key identifies.
+   *
+   * @param channel the channel to send the message on.
+   * @param message the message.
+   * @param coalesceKey the coalescing key, or {@code null} if the message must always be sent.
+   */
+  void sendMessage(Object channel, byte[] message, Object coalesceKey);
+
+  /**
+   * Queues a message that was already compressed with {@link MessageCompressor#compress(byte[],
+   * boolean)}. This lets the same compressed bytes be shared by every connection a message is
+   * broadcast to.
+   *
+   * @param channel the channel to send the message on.
+   * @param compressedMessage the compressed message, which must not be modified afterwards.
+   */
+  default void sendCompressedMessage(Object channel, byte[] compressedMessage) {
+    sendCompressedMessage(channel, compressedMessage, null);
+  }
+
+  /**
+   * Queues an already compressed message with a coalescing key, see {@link #sendMessage(Object,
+   * byte[], Object)}.
+   *
+   * @param channel the channel to send the message on.
+   * @param compressedMessage the compressed message, which must not be modified afterwards.
+   * @param coalesceKey the coalescing key, or {@code null} if the message must always be sent.
+   */
+  void sendCompressedMessage(Object channel, byte[] compressedMessage, Object coalesceKey);
+
+  /**
+   * Sets whether outgoing messages are compressed with the message dictionary. This should only be
+   * enabled once the handshake has established that the other end has the same dictionary.
+   *
+   * @param enabled {@code true} to compress with the message dictionary.
+   */
+  void setCompressionDictionaryEnabled(boolean enabled);
+
+  boolean isCompressionDictionaryEnabled();
 
   boolean isAlive();
 
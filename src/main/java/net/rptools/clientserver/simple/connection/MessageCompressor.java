@@ -0,0 +1,239 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple.connection;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Compresses messages for the wire. This is kept apart from {@link AbstractConnection} so that a
+ * server can compress a broadcast message once and hand the same bytes to every connection via
+ * {@link Connection#sendCompressedMessage(Object, byte[])}.
+ *
+ * <p>Every encoded message starts with a single byte saying how the rest is encoded:
+ *
+ * <ul>
+ *   <li>{@link #ENCODING_RAW}: messages smaller than {@link #MIN_COMPRESS_SIZE} are sent as is,
+ *       since Zstd can't do anything useful with them.
+ *   <li>{@link #ENCODING_ZSTD}: a plain Zstd frame.
+ *   <li>{@link #ENCODING_ZSTD_DICTIONARY}: a Zstd frame compressed with the message dictionary
+ *       bundled at {@link #DICTIONARY_RESOURCE}. Only used once both ends have agreed during the
+ *       handshake that they have the same dictionary.
+ * </ul>
+ *
+ * <p>The dictionary can be retrained with {@code net.rptools.maptool.tool.MessageDictionaryTrainer}
+ * from a capture file, which is recorded when the {@value #CAPTURE_PROPERTY} system property names
+ * a file to write to. Each message is recorded once by {@link #capture(byte[])}, however many
+ * times and encodings it is compressed in, and the file is closed when the JVM shuts down.
+ */
+public final class MessageCompressor {
+  private static final Logger log = LogManager.getLogger(MessageCompressor.class);
+
+  /** The message follows uncompressed. */
+  public static final byte ENCODING_RAW = 0;
+
+  /** The message follows as a Zstd frame. */
+  public static final byte ENCODING_ZSTD = 1;
+
+  /** The message follows as a Zstd frame using the message dictionary. */
+  public static final byte ENCODING_ZSTD_DICTIONARY = 2;
+
+  /** Messages smaller than this many bytes are not compressed. */
+  public static final int MIN_COMPRESS_SIZE = 128;
+
+  /** Classpath location of the trained message dictionary. */
+  public static final String DICTIONARY_RESOURCE = "/net/rptools/clientserver/message.dict";
+
+  /** System property naming a file to record outgoing messages to for dictionary training. */
+  public static final String CAPTURE_PROPERTY = "maptool.messageCapture";
+
+  private static final int COMPRESSION_LEVEL = Zstd.defaultCompressionLevel();
+
+  private static final Dictionary dictionary = Dictionary.load();
+  private static final DataOutputStream capture = openCapture();
+
+  /** Whether the capture file was closed, after which nothing more is recorded. */
+  private static boolean captureClosed = false;
+
+  private MessageCompressor() {}
+
+  /**
+   * Returns the id of the bundled message dictionary, which is exchanged during the handshake.
+   *
+   * @return the dictionary id, or 0 if there is no dictionary available.
+   */
+  public static long getDictionaryId() {
+    return dictionary == null ? 0 : dictionary.id;
+  }
+
+  /**
+   * Compresses a message without the message dictionary.
+   *
+   * @param message the message to compress.
+   * @return the encoded message. Callers must not modify the returned array as it may be shared
+   *     between connections.
+   */
+  public static byte[] compress(byte[] message) {
+    return compress(message, false);
+  }
+
+  /**
+   * Compresses a message.
+   *
+   * @param message the message to compress.
+   * @param useDictionary whether to compress with the message dictionary. Ignored if there is no
+   *     dictionary available.
+   * @return the encoded message. Callers must not modify the returned array as it may be shared
+   *     between connections.
+   */
+  public static byte[] compress(byte[] message, boolean useDictionary) {
+    if (message.length < MIN_COMPRESS_SIZE) {
+      return encode(ENCODING_RAW, message);
+    }
+    if (useDictionary && dictionary != null) {
+      return encode(ENCODING_ZSTD_DICTIONARY, Zstd.compress(message, dictionary.compress));
+    }
+    return encode(ENCODING_ZSTD, Zstd.compress(message, COMPRESSION_LEVEL));
+  }
+
+  /**
+   * Decodes a message produced by {@link #compress(byte[], boolean)}.
+   *
+   * @param compressedMessage the encoded message.
+   * @return the original message.
+   */
+  public static byte[] inflate(byte[] compressedMessage) {
+    byte encoding = compressedMessage[0];
+    byte[] payload = Arrays.copyOfRange(compressedMessage, 1, compressedMessage.length);
+    return switch (encoding) {
+      case ENCODING_RAW -> payload;
+      case ENCODING_ZSTD -> Zstd.decompress(payload, getContentSize(payload));
+      case ENCODING_ZSTD_DICTIONARY -> {
+        if (dictionary == null) {
+          throw new IllegalStateException("Received dictionary compressed message, no dictionary");
+        }
+        yield Zstd.decompress(payload, dictionary.decompress, getContentSize(payload));
+      }
+      default -> throw new IllegalStateException("Unknown message encoding: " + encoding);
+    };
+  }
+
+  private static int getContentSize(byte[] frame) {
+    long size = Zstd.getFrameContentSize(frame);
+    if (size < 0 || size > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Invalid compressed message content size: " + size);
+    }
+    return (int) size;
+  }
+
+  private static byte[] encode(byte encoding, byte[] payload) {
+    byte[] encoded = new byte[payload.length + 1];
+    encoded[0] = encoding;
+    System.arraycopy(payload, 0, encoded, 1, payload.length);
+    return encoded;
+  }
+
+  /**
+   * Records an outgoing message to the capture file for dictionary training, if {@value
+   * #CAPTURE_PROPERTY} is set. Call once per message, before compressing it.
+   *
+   * @param message the uncompressed message.
+   */
+  public static void capture(byte[] message) {
+    if (capture == null) {
+      return;
+    }
+    synchronized (capture) {
+      if (captureClosed) {
+        return;
+      }
+      try {
+        capture.writeInt(message.length);
+        capture.write(message);
+        capture.flush();
+      } catch (IOException e) {
+        log.warn("Unable to record message to capture file", e);
+      }
+    }
+  }
+
+  private static DataOutputStream openCapture() {
+    String file = System.getProperty(CAPTURE_PROPERTY);
+    if (file == null || file.isEmpty()) {
+      return null;
+    }
+    try {
+      log.info("Recording outgoing messages to " + file);
+      var stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+      Runtime.getRuntime()
+          .addShutdownHook(new Thread(() -> closeCapture(stream), "MessageCaptureCloser"));
+      return stream;
+    } catch (IOException e) {
+      log.warn("Unable to open message capture file " + file, e);
+      return null;
+    }
+  }
+
+  private static void closeCapture(DataOutputStream stream) {
+    synchronized (stream) {
+      captureClosed = true;
+      try {
+        stream.close();
+      } catch (IOException e) {
+        log.warn("Unable to close message capture file", e);
+      }
+    }
+  }
+
+  /** The bundled message dictionary, prepared for both compression and decompression. */
+  private static final class Dictionary {
+    private final long id;
+    private final ZstdDictCompress compress;
+    private final ZstdDictDecompress decompress;
+
+    private Dictionary(byte[] data) {
+      this.id = Zstd.getDictIdFromDict(data);
+      this.compress = new ZstdDictCompress(data, COMPRESSION_LEVEL);
+      this.decompress = new ZstdDictDecompress(data);
+    }
+
+    private static Dictionary load() {
+      try (InputStream is = MessageCompressor.class.getResourceAsStream(DICTIONARY_RESOURCE)) {
+        if (is == null) {
+          log.info("No message compression dictionary found, using plain compression");
+          return null;
+        }
+        var dictionary = new Dictionary(is.readAllBytes());
+        if (dictionary.id == 0) {
+          log.warn("Message compression dictionary has no id, ignoring it");
+          return null;
+        }
+        return dictionary;
+      } catch (IOException e) {
+        log.warn("Unable to load message compression dictionary", e);
+        return null;
+      }
+    }
+  }
+}
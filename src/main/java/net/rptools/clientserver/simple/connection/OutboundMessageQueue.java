@@ -0,0 +1,254 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple.connection;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import net.rptools.clientserver.simple.connection.PrioritizedChannel.Priority;
+
+/**
+ * The outbound messages of a connection, kept in one lock-free queue per channel.
+ *
+ * <p>Any number of threads may {@link #add(Object, byte[], Object)} messages, but only a single
+ * thread (the connection's send thread) may {@link #poll()} them. Messages on the same channel are
+ * sent in the order they were added. Channels of the same {@link Priority} take turns, and {@link
+ * Priority#INTERACTIVE} channels go ahead of {@link Priority#BULK} ones. So that bulk transfers
+ * still make progress while there is a steady stream of interactive traffic, one bulk message is
+ * let through after every {@link #BULK_INTERVAL} interactive ones.
+ *
+ * <p>A message may be added with a coalescing key. If a message with the same key is still waiting
+ * it is dropped, and the new one is queued at the end instead of in its place. Queuing at the end
+ * keeps the result correct when other messages about the same thing were queued in between, as
+ * the newer message always describes the latest state.
+ */
+public final class OutboundMessageQueue {
+  /** Stands in for the {@code null} channel, as {@link ConcurrentHashMap} has no null keys. */
+  private static final Object DEFAULT_CHANNEL = new Object();
+
+  /** Number of interactive messages sent before a waiting bulk message gets a turn. */
+  static final int BULK_INTERVAL = 16;
+
+  /** Depth and size of a single channel's queue. */
+  public record ChannelStats(
+      Priority priority, int depth, long bytes, int maxDepth, long coalesced) {}
+
+  private final Map<Object, ChannelQueue> channels = new ConcurrentHashMap<>();
+  private final Map<Priority, List<ChannelQueue>> channelsByPriority =
+      new EnumMap<>(Priority.class);
+  private final Map<Object, Entry> pendingByKey = new ConcurrentHashMap<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicLong bytes = new AtomicLong();
+
+  // Only touched by the polling thread.
+  private final int[] nextChannel = new int[Priority.values().length];
+  private int interactiveSinceBulk = 0;
+
+  OutboundMessageQueue() {
+    for (Priority priority : Priority.values()) {
+      channelsByPriority.put(priority, new CopyOnWriteArrayList<>());
+    }
+  }
+
+  void add(Object channel, byte[] message) {
+    add(channel, message, null);
+  }
+
+  /**
+   * Adds a message to the end of its channel's queue.
+   *
+   * @param channel the channel, may be {@code null}.
+   * @param message the message.
+   * @param coalesceKey if not {@code null}, any waiting message added with an equal key is dropped.
+   */
+  void add(Object channel, byte[] message, Object coalesceKey) {
+    ChannelQueue queue =
+        channels.computeIfAbsent(
+            Objects.requireNonNullElse(channel, DEFAULT_CHANNEL),
+            key -> {
+              var newQueue = new ChannelQueue(priorityOf(channel));
+              channelsByPriority.get(newQueue.priority).add(newQueue);
+              return newQueue;
+            });
+    var entry = new Entry(queue, message, coalesceKey);
+    if (coalesceKey != null) {
+      Entry superseded = pendingByKey.put(coalesceKey, entry);
+      if (superseded != null) {
+        byte[] dropped = superseded.take();
+        if (dropped != null) {
+          superseded.queue.dropped(dropped);
+          bytes.addAndGet(-dropped.length);
+          size.decrementAndGet();
+        }
+      }
+    }
+    queue.add(entry, message.length);
+    bytes.addAndGet(message.length);
+    size.incrementAndGet();
+  }
+
+  /**
+   * Removes the next message to send. Must only be called from one thread at a time.
+   *
+   * @return the next message, or {@code null} if there is none.
+   */
+  byte[] poll() {
+    // The count can briefly trail the queues while a message is being added, never lead them.
+    if (size.get() <= 0) {
+      return null;
+    }
+
+    byte[] message;
+    if (interactiveSinceBulk >= BULK_INTERVAL) {
+      message = poll(Priority.BULK);
+      if (message == null) {
+        message = poll(Priority.INTERACTIVE);
+      }
+    } else {
+      message = poll(Priority.INTERACTIVE);
+      if (message == null) {
+        message = poll(Priority.BULK);
+      }
+    }
+    if (message != null) {
+      size.decrementAndGet();
+      bytes.addAndGet(-message.length);
+    }
+    return message;
+  }
+
+  private byte[] poll(Priority priority) {
+    List<ChannelQueue> queues = channelsByPriority.get(priority);
+    int count = queues.size();
+    int start = nextChannel[priority.ordinal()];
+    for (int i = 0; i < count; i++) {
+      int index = (start + i) % count;
+      byte[] message = queues.get(index).poll(pendingByKey);
+      if (message != null) {
+        nextChannel[priority.ordinal()] = (index + 1) % count;
+        interactiveSinceBulk = priority == Priority.INTERACTIVE ? interactiveSinceBulk + 1 : 0;
+        return message;
+      }
+    }
+    return null;
+  }
+
+  boolean isEmpty() {
+    return size.get() <= 0;
+  }
+
+  /**
+   * @return the total size in bytes of the queued messages.
+   */
+  long getBytes() {
+    return bytes.get();
+  }
+
+  /**
+   * @return the depth of each channel's queue, keyed by channel ({@code null} for the default).
+   */
+  Map<Object, ChannelStats> getStats() {
+    var stats = new HashMap<Object, ChannelStats>();
+    channels.forEach(
+        (channel, queue) ->
+            stats.put(
+                channel == DEFAULT_CHANNEL ? null : channel,
+                new ChannelStats(
+                    queue.priority,
+                    queue.depth.get(),
+                    queue.bytes.get(),
+                    queue.maxDepth.get(),
+                    queue.coalesced.get())));
+    return stats;
+  }
+
+  static Priority priorityOf(Object channel) {
+    if (channel instanceof PrioritizedChannel prioritizedChannel) {
+      return prioritizedChannel.getPriority();
+    }
+    return Priority.INTERACTIVE;
+  }
+
+  /** A queued message, which is emptied when it is sent or superseded. */
+  private static final class Entry {
+    private final ChannelQueue queue;
+    private final Object coalesceKey;
+    private final AtomicReference<byte[]> message;
+
+    private Entry(ChannelQueue queue, byte[] message, Object coalesceKey) {
+      this.queue = queue;
+      this.coalesceKey = coalesceKey;
+      this.message = new AtomicReference<>(message);
+    }
+
+    /**
+     * @return the message, or {@code null} if it was already sent or superseded.
+     */
+    private byte[] take() {
+      return message.getAndSet(null);
+    }
+  }
+
+  private static final class ChannelQueue {
+    private final Priority priority;
+    private final ConcurrentLinkedQueue<Entry> entries = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    private ChannelQueue(Priority priority) {
+      this.priority = priority;
+    }
+
+    private void add(Entry entry, int length) {
+      entries.add(entry);
+      bytes.addAndGet(length);
+      maxDepth.accumulateAndGet(depth.incrementAndGet(), Math::max);
+    }
+
+    private void dropped(byte[] message) {
+      depth.decrementAndGet();
+      bytes.addAndGet(-message.length);
+      coalesced.incrementAndGet();
+    }
+
+    private byte[] poll(Map<Object, Entry> pendingByKey) {
+      Entry entry;
+      while ((entry = entries.poll()) != null) {
+        byte[] message = entry.take();
+        if (message == null) {
+          // Superseded by a newer message further back in the queue.
+          continue;
+        }
+        if (entry.coalesceKey != null) {
+          pendingByKey.remove(entry.coalesceKey, entry);
+        }
+        depth.decrementAndGet();
+        bytes.addAndGet(-message.length);
+        return message;
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple.connection;
+
+/**
+ * Implemented by channel objects passed to {@link Connection#sendMessage(Object, byte[])} to say
+ * how urgently their messages need to go out. Channels that don't implement this, including the
+ * default {@code null} channel, are {@link Priority#INTERACTIVE}.
+ */
+public interface PrioritizedChannel {
+  enum Priority {
+    /** Messages a user is waiting on, such as token moves and chat. */
+    INTERACTIVE,
+    /**
+     * Large transfers, such as asset chunks, that may be delayed for interactive traffic. Sending
+     * on a bulk channel may block while the peer catches up, so it must only be done from a
+     * thread dedicated to the transfer.
+     */
+    BULK
+  }
+
+  Priority getPriority();
+}
@@ -16,18 +16,28 @@
 
 import java.io.*;
 import java.net.Socket;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
+ * A connection over a plain TCP socket.
+ *
+ * <p>Sending and receiving each run on a virtual thread, so a server with many clients doesn't tie
+ * up two platform threads per connection. The send loop drains everything that is queued into a
+ * buffered stream before flushing, so a burst of small messages goes out in as few socket writes
+ * as possible.
+ *
  * @author drice
- *     <p>TODO To change the template for this generated type comment go to Window - Preferences -
- *     Java - Code Style - Code Templates
  */
 public class SocketConnection extends AbstractConnection implements Connection {
   /** Instance used for log messages. */
   private static final Logger log = LogManager.getLogger(SocketConnection.class);
 
+  /** Size of the socket stream buffers, which bounds how much is batched into a single write. */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
   private final String id;
   private SendThread send;
   private ReceiveThread receive;
@@ -50,8 +60,11 @@ public SocketConnection(String id, Socket socket) throws IOException {
 
   private void initialize(Socket socket) throws IOException {
     this.socket = socket;
-    this.send = new SendThread(new BufferedOutputStream(socket.getOutputStream()));
-    this.receive = new ReceiveThread(this, socket.getInputStream());
+    this.socket.setTcpNoDelay(true);
+    this.send =
+        new SendThread(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+    this.receive =
+        new ReceiveThread(this, new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
     this.send.start();
     this.receive.start();
   }
@@ -65,11 +78,9 @@ public void open() throws IOException {
     initialize(new Socket(hostName, port));
   }
 
-  public void sendMessage(Object channel, byte[] message) {
-    addMessage(channel, message);
-    synchronized (send) {
-      send.notify();
-    }
+  @Override
+  protected void onMessageQueued() {
+    send.wakeUp();
   }
 
   protected boolean isStopRequested() {
@@ -102,45 +113,54 @@ public String getError() {
   // /////////////////////////////////////////////////////////////////////////
   // send thread
   // /////////////////////////////////////////////////////////////////////////
-  private class SendThread extends Thread {
+  private class SendThread implements Runnable {
     private final OutputStream out;
-    private boolean stopRequested = false;
+    // Virtual threads must not block in Object.wait() as that pins their carrier thread.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition messagesQueued = lock.newCondition();
+    private volatile boolean stopRequested = false;
 
     public SendThread(OutputStream out) {
-      setName("SocketConnection.SendThread");
       this.out = out;
     }
 
+    public void start() {
+      Thread.ofVirtual().name("SocketConnection.SendThread-" + id).start(this);
+    }
+
+    public void wakeUp() {
+      lock.lock();
+      try {
+        messagesQueued.signal();
+      } finally {
+        lock.unlock();
+      }
+    }
+
     public void requestStop() {
       this.stopRequested = true;
-      synchronized (this) {
-        this.notify();
-      }
+      wakeUp();
     }
 
     @Override
     public void run() {
       try {
         while (!stopRequested && SocketConnection.this.isAlive()) {
+          byte[] message;
+          while ((message = SocketConnection.this.nextMessage()) != null) {
+            SocketConnection.this.writeMessage(out, message);
+          }
+          out.flush();
+
+          lock.lock();
           try {
-            while (SocketConnection.this.hasMoreMessages()) {
-              try {
-                byte[] message = SocketConnection.this.nextMessage();
-                if (message == null) {
-                  continue;
-                }
-                SocketConnection.this.writeMessage(out, message);
-              } catch (IndexOutOfBoundsException e) {
-                // just ignore and wait
-              }
-            }
-            synchronized (this) {
-              if (!stopRequested) {
-                this.wait();
-              }
+            while (!stopRequested && !SocketConnection.this.hasMoreMessages()) {
+              messagesQueued.await();
             }
           } catch (InterruptedException e) {
             // do nothing
+          } finally {
+            lock.unlock();
           }
         }
       } catch (IOException e) {
@@ -153,17 +173,20 @@ public void run() {
   // /////////////////////////////////////////////////////////////////////////
   // receive thread
   // /////////////////////////////////////////////////////////////////////////
-  private class ReceiveThread extends Thread {
+  private class ReceiveThread implements Runnable {
     private final SocketConnection conn;
     private final InputStream in;
-    private boolean stopRequested = false;
+    private volatile boolean stopRequested = false;
 
     public ReceiveThread(SocketConnection conn, InputStream in) {
-      setName("SocketConnection.ReceiveThread");
       this.conn = conn;
       this.in = in;
     }
 
+    public void start() {
+      Thread.ofVirtual().name("SocketConnection.ReceiveThread-" + id).start(this);
+    }
+
     public void requestStop() {
       stopRequested = true;
     }
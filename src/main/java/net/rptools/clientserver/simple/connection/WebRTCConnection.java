@@ -195,9 +195,8 @@ private void init() {
   }
 
   @Override
-  public void sendMessage(Object channel, byte[] message) {
+  protected void onMessageQueued() {
     log.debug(prefix() + "added message");
-    addMessage(channel, message);
     if (peerConnection != null
         && peerConnection.getConnectionState() == RTCPeerConnectionState.CONNECTED) {
       synchronized (sendThread) {
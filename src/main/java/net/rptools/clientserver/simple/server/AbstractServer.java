@@ -19,6 +19,7 @@
 import net.rptools.clientserver.simple.DisconnectHandler;
 import net.rptools.clientserver.simple.MessageHandler;
 import net.rptools.clientserver.simple.connection.Connection;
+import net.rptools.clientserver.simple.connection.MessageCompressor;
 import net.rptools.maptool.server.Handshake;
 import net.rptools.maptool.server.HandshakeObserver;
 import org.apache.logging.log4j.LogManager;
@@ -50,31 +51,41 @@ public void removeObserver(ServerObserver observer) {
     observerList.remove(observer);
   }
 
-  public void broadcastMessage(byte[] message) {
-    synchronized (clients) {
-      for (Connection conn : clients.values()) {
-        conn.sendMessage(message);
-      }
-    }
-  }
-
-  public void broadcastMessage(String[] exclude, byte[] message) {
+  public void broadcastMessage(String[] exclude, byte[] message, Object coalesceKey) {
     Set<String> excludeSet = new HashSet<String>();
     for (String e : exclude) {
       excludeSet.add(e);
     }
+    // Compress once for each encoding the clients use and share the result, rather than
+    // compressing again for every client. This is done before taking the lock on the clients so
+    // that compressing doesn't hold up other threads adding or removing clients.
+    List<Connection> recipients;
+    synchronized (clients) {
+      recipients = new ArrayList<>(clients.size());
+      for (Map.Entry<String, Connection> entry : clients.entrySet()) {
+        if (!excludeSet.contains(entry.getKey())) {
+          recipients.add(entry.getValue());
+        }
+      }
+    }
+    var compressedMessage = new SharedCompressedMessage(message);
+    for (Connection conn : recipients) {
+      compressedMessage.compressFor(conn);
+    }
+
     synchronized (clients) {
       for (Map.Entry<String, Connection> entry : clients.entrySet()) {
         if (!excludeSet.contains(entry.getKey())) {
-          entry.getValue().sendMessage(message);
+          Connection conn = entry.getValue();
+          conn.sendCompressedMessage(null, compressedMessage.forConnection(conn), coalesceKey);
         }
       }
     }
   }
 
-  public void sendMessage(String id, Object channel, byte[] message) {
+  public void sendMessage(String id, Object channel, byte[] message, Object coalesceKey) {
     Connection client = clients.get(id);
-    client.sendMessage(channel, message);
+    client.sendMessage(channel, message, coalesceKey);
   }
 
   public void close() {
@@ -159,4 +170,46 @@ public void onCompleted(Handshake handshake) {
       conn.close();
     }
   }
+
+  /**
+   * A broadcast message compressed at most once per encoding, as connections may differ in whether
+   * they have agreed to use the message dictionary.
+   */
+  private static final class SharedCompressedMessage {
+    private final byte[] message;
+    private byte[] plain;
+    private byte[] withDictionary;
+
+    private SharedCompressedMessage(byte[] message) {
+      MessageCompressor.capture(message);
+      this.message = message;
+    }
+
+    /** Compresses the message in the encoding a connection uses, unless that is already done. */
+    private void compressFor(Connection conn) {
+      get(conn.isCompressionDictionaryEnabled());
+    }
+
+    /**
+     * Returns the message compressed in the encoding a connection uses. The encoding is normally
+     * compressed up front by {@link #compressFor(Connection)}, and is only compressed here if the
+     * connection joined or finished agreeing on the dictionary in the meantime.
+     */
+    private byte[] forConnection(Connection conn) {
+      return get(conn.isCompressionDictionaryEnabled());
+    }
+
+    private byte[] get(boolean useDictionary) {
+      if (useDictionary) {
+        if (withDictionary == null) {
+          withDictionary = MessageCompressor.compress(message, true);
+        }
+        return withDictionary;
+      }
+      if (plain == null) {
+        plain = MessageCompressor.compress(message, false);
+      }
+      return plain;
+    }
+  }
 }
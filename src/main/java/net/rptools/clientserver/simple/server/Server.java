@@ -25,13 +25,32 @@ public interface Server extends AutoCloseable {
 
   void removeObserver(ServerObserver observer);
 
-  void broadcastMessage(byte[] message);
+  default void broadcastMessage(byte[] message) {
+    broadcastMessage(new String[0], message, null);
+  }
+
+  default void broadcastMessage(String[] exclude, byte[] message) {
+    broadcastMessage(exclude, message, null);
+  }
 
-  void broadcastMessage(String[] exclude, byte[] message);
+  /**
+   * Sends a message to every client except the excluded ones.
+   *
+   * @param exclude the ids of the clients not to send the message to.
+   * @param message the message.
+   * @param coalesceKey the coalescing key, or {@code null} if the message must always be sent. See
+   *     {@link net.rptools.clientserver.simple.connection.Connection#sendMessage(Object, byte[],
+   *     Object)}.
+   */
+  void broadcastMessage(String[] exclude, byte[] message, Object coalesceKey);
 
   default void sendMessage(String id, byte[] message) {
     sendMessage(id, null, message);
   }
 
-  void sendMessage(String id, Object channel, byte[] message);
+  default void sendMessage(String id, Object channel, byte[] message) {
+    sendMessage(id, channel, message, null);
+  }
+
+  void sendMessage(String id, Object channel, byte[] message, Object coalesceKey);
 }
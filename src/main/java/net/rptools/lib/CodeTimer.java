@@ -60,6 +60,7 @@ public static CodeTimer get() {
   }
 
   private final Map<String, Timer> timeMap = new LinkedHashMap<>();
+  private final Map<String, Long> countMap = new LinkedHashMap<>();
   private final String name;
   private boolean enabled;
   private int threshold = 1;
@@ -108,8 +109,22 @@ public void stop(String id, Object... parameters) {
     timer.stop();
   }
 
+  /**
+   * Adds to a count that is reported along with the timers, such as the hits of a cache.
+   *
+   * @param id the name of the count.
+   * @param amount the amount to add.
+   */
+  public void count(String id, long amount) {
+    if (!enabled) {
+      return;
+    }
+    countMap.merge(id, amount, Long::sum);
+  }
+
   public void clear() {
     timeMap.clear();
+    countMap.clear();
   }
 
   @Override
@@ -134,6 +149,9 @@ public String toString() {
       }
       builder.append(String.format("  %3d.  %6d ms  %s\n", i, elapsed, id));
     }
+    for (var entry : countMap.entrySet()) {
+      builder.append(String.format("        %6d    %s\n", entry.getValue(), entry.getKey()));
+    }
     return builder.toString();
   }
 
@@ -0,0 +1,524 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.io.function.IOConsumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A container of named entries, like {@link PackedFile}, that is only ever appended to. Saving
+ * again only writes the entries that changed, rather than the whole container.
+ *
+ * <p>Changes are grouped by {@link #commit()}. Everything written since the last commit is
+ * discarded when the file is opened again, so a crash part way through saving leaves the previous
+ * state intact. Each entry carries a SHA-256 digest of its data, which is both used to spot torn
+ * writes and to skip rewriting entries that haven't changed.
+ *
+ * <p>Replaced and removed entries stay in the file until it is {@link #compact() compacted}, which
+ * rewrites only the live entries to a new file and then swaps it in.
+ *
+ * <p>The file consists of a header followed by records:
+ *
+ * <pre>
+ *   entry:   1 | key length (int) | key (UTF-8) | data length (int) | data | SHA-256 of data
+ *   removed: 2 | key length (int) | key (UTF-8)
+ *   commit:  3
+ * </pre>
+ */
+public class JournalFile implements AutoCloseable {
+  private static final Logger log = LogManager.getLogger(JournalFile.class);
+
+  private static final byte[] MAGIC = {'M', 'T', 'J', '1'};
+
+  private static final byte ENTRY = 1;
+  private static final byte REMOVED = 2;
+  private static final byte COMMIT = 3;
+
+  private static final int DIGEST_LENGTH = 32;
+  private static final int MAX_KEY_LENGTH = 64 * 1024;
+
+  /** Files smaller than this are never worth compacting. */
+  private static final long MIN_COMPACT_SIZE = 1024 * 1024;
+
+  /** Where an entry's data is in the file. */
+  private record Location(long recordOffset, long dataOffset, int length, byte[] digest) {
+    long recordEnd() {
+      return dataOffset + length + DIGEST_LENGTH;
+    }
+  }
+
+  private final File file;
+  private FileChannel channel;
+
+  /** The entries as of the last commit. */
+  private final Map<String, Location> committed = new LinkedHashMap<>();
+
+  /** The entries changed since the last commit, {@code null} for removed ones. */
+  private final Map<String, Location> pending = new LinkedHashMap<>();
+
+  private long committedEnd;
+
+  /**
+   * Checks whether a file is a journal, as opposed to e.g. a {@link PackedFile}.
+   *
+   * @param file the file to check.
+   * @return {@code true} if the file exists and starts with the journal header.
+   */
+  public static boolean isJournal(File file) {
+    if (!file.isFile()) {
+      return false;
+    }
+    try (InputStream is = new FileInputStream(file)) {
+      return Arrays.equals(MAGIC, is.readNBytes(MAGIC.length));
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Opens a journal, creating it if it doesn't exist.
+   *
+   * @param file the journal file.
+   * @throws IOException if the file exists but isn't a journal, or can't be read.
+   */
+  public JournalFile(File file) throws IOException {
+    this.file = file;
+    if (file.exists() && file.length() > 0 && !isJournal(file)) {
+      throw new IOException("Not a journal file: " + file);
+    }
+    open();
+  }
+
+  private void open() throws IOException {
+    channel =
+        FileChannel.open(
+            file.toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    if (channel.size() == 0) {
+      write(ByteBuffer.wrap(MAGIC));
+      channel.force(true);
+      committedEnd = MAGIC.length;
+      return;
+    }
+    scan();
+  }
+
+  /** Reads the index of committed entries, dropping anything written after the last commit. */
+  private void scan() throws IOException {
+    committed.clear();
+    pending.clear();
+    var uncommitted = new LinkedHashMap<String, Location>();
+    long position = MAGIC.length;
+    committedEnd = position;
+
+    var digest = newDigest();
+    var buffer = new byte[64 * 1024];
+    try (var in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+      in.skipNBytes(MAGIC.length);
+      while (true) {
+        int type = in.read();
+        if (type < 0) {
+          break;
+        }
+        if (type == COMMIT) {
+          position += 1;
+          applyChanges(committed, uncommitted);
+          uncommitted.clear();
+          committedEnd = position;
+          continue;
+        }
+        if (type != ENTRY && type != REMOVED) {
+          break;
+        }
+        int keyLength = in.readInt();
+        if (keyLength < 0 || keyLength > MAX_KEY_LENGTH) {
+          break;
+        }
+        String key = new String(in.readNBytes(keyLength), StandardCharsets.UTF_8);
+        long recordOffset = position;
+        position += 1 + 4 + keyLength;
+        if (type == REMOVED) {
+          uncommitted.put(key, null);
+          continue;
+        }
+
+        int length = in.readInt();
+        if (length < 0) {
+          break;
+        }
+        long dataOffset = position + 4;
+        int remaining = length;
+        while (remaining > 0) {
+          int read = in.read(buffer, 0, Math.min(buffer.length, remaining));
+          if (read < 0) {
+            throw new EOFException();
+          }
+          digest.update(buffer, 0, read);
+          remaining -= read;
+        }
+        byte[] expected = digest.digest();
+        if (!Arrays.equals(expected, in.readNBytes(DIGEST_LENGTH))) {
+          break;
+        }
+        var location = new Location(recordOffset, dataOffset, length, expected);
+        uncommitted.put(key, location);
+        position = location.recordEnd();
+      }
+    } catch (EOFException e) {
+      // A torn write at the end, handled below.
+    }
+
+    if (channel.size() > committedEnd) {
+      log.warn(
+          "Discarding "
+              + (channel.size() - committedEnd)
+              + " uncommitted bytes at the end of "
+              + file);
+      channel.truncate(committedEnd);
+      channel.force(true);
+    }
+  }
+
+  private Location find(String key) {
+    if (pending.containsKey(key)) {
+      return pending.get(key);
+    }
+    return committed.get(key);
+  }
+
+  /**
+   * @param key the key of the entry.
+   * @return {@code true} if there is an entry with the key.
+   */
+  public boolean contains(String key) {
+    return find(key) != null;
+  }
+
+  /**
+   * @return the keys of all entries, in the order they were first added.
+   */
+  public Set<String> keys() {
+    var keys = new LinkedHashMap<String, Location>(committed);
+    applyChanges(keys, pending);
+    return Collections.unmodifiableSet(keys.keySet());
+  }
+
+  private static void applyChanges(Map<String, Location> target, Map<String, Location> changes) {
+    changes.forEach(
+        (key, location) -> {
+          if (location == null) {
+            target.remove(key);
+          } else {
+            target.put(key, location);
+          }
+        });
+  }
+
+  /**
+   * Reads an entry.
+   *
+   * @param key the key of the entry.
+   * @return the data, or {@code null} if there is no entry with the key.
+   * @throws IOException if the entry can't be read.
+   */
+  public byte[] get(String key) throws IOException {
+    var location = find(key);
+    if (location == null) {
+      return null;
+    }
+    var data = ByteBuffer.allocate(location.length());
+    long position = location.dataOffset();
+    while (data.hasRemaining()) {
+      int read = channel.read(data, position);
+      if (read < 0) {
+        throw new EOFException("Journal entry " + key + " is truncated");
+      }
+      position += read;
+    }
+    return data.array();
+  }
+
+  /**
+   * Writes an entry, unless there already is an entry with the same key and data.
+   *
+   * @param key the key of the entry.
+   * @param data the data.
+   * @return {@code true} if the entry was written, {@code false} if it was unchanged.
+   * @throws IOException if the entry can't be written.
+   */
+  public boolean put(String key, byte[] data) throws IOException {
+    var digest = newDigest().digest(data);
+    var existing = find(key);
+    if (existing != null && Arrays.equals(existing.digest(), digest)) {
+      return false;
+    }
+
+    var keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    long recordOffset = channel.size();
+    var header = ByteBuffer.allocate(1 + 4 + keyBytes.length + 4);
+    header.put(ENTRY).putInt(keyBytes.length).put(keyBytes).putInt(data.length).flip();
+    write(header);
+    write(ByteBuffer.wrap(data));
+    write(ByteBuffer.wrap(digest));
+    pending.put(
+        key, new Location(recordOffset, recordOffset + header.limit(), data.length, digest));
+    return true;
+  }
+
+  /**
+   * Writes an entry produced by {@code writer}, unless there already is an entry with the same key
+   * and data. The data is never held in memory as a whole: {@code writer} is called once to find
+   * out whether the data changed, and if so once more to write it.
+   *
+   * @param key the key of the entry.
+   * @param writer writes the data to the stream it is given. It shouldn't close the stream.
+   * @return {@code true} if the entry was written, {@code false} if it was unchanged.
+   * @throws IOException if the entry can't be written.
+   */
+  public boolean put(String key, IOConsumer<OutputStream> writer) throws IOException {
+    var digest = newDigest();
+    try (var out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+      writer.accept(out);
+    }
+    var expected = digest.digest();
+    var existing = find(key);
+    if (existing != null && Arrays.equals(existing.digest(), expected)) {
+      return false;
+    }
+
+    var keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    long recordOffset = channel.size();
+    try {
+      // The length isn't known until the data has been written, so it is filled in afterwards.
+      var header = ByteBuffer.allocate(1 + 4 + keyBytes.length + 4);
+      header.put(ENTRY).putInt(keyBytes.length).put(keyBytes).putInt(0).flip();
+      write(header);
+
+      long dataOffset = channel.size();
+      var out =
+          new DigestOutputStream(
+              new BufferedOutputStream(new AppendingStream(), 64 * 1024), digest);
+      writer.accept(out);
+      out.flush();
+      long length = channel.size() - dataOffset;
+      if (length > Integer.MAX_VALUE) {
+        throw new IOException("Journal entry " + key + " is too large");
+      }
+      var written = digest.digest();
+      write(ByteBuffer.wrap(written));
+      channel.write(ByteBuffer.allocate(4).putInt(0, (int) length), dataOffset - 4);
+      pending.put(key, new Location(recordOffset, dataOffset, (int) length, written));
+      return true;
+    } catch (IOException | RuntimeException e) {
+      // Don't leave a partial record behind for the next commit to pick up.
+      channel.truncate(recordOffset);
+      throw e;
+    }
+  }
+
+  /**
+   * Removes an entry.
+   *
+   * @param key the key of the entry.
+   * @throws IOException if the removal can't be written.
+   */
+  public void remove(String key) throws IOException {
+    if (!contains(key)) {
+      return;
+    }
+    var keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    var record = ByteBuffer.allocate(1 + 4 + keyBytes.length);
+    record.put(REMOVED).putInt(keyBytes.length).put(keyBytes).flip();
+    write(record);
+    pending.put(key, null);
+  }
+
+  /**
+   * Makes everything written since the last commit durable. Nothing written before a commit is
+   * visible after the file is opened again.
+   *
+   * @throws IOException if the commit can't be written.
+   */
+  public void commit() throws IOException {
+    if (pending.isEmpty()) {
+      return;
+    }
+    // The entries must be on disk before the commit that makes them valid.
+    channel.force(false);
+    write(ByteBuffer.wrap(new byte[] {COMMIT}));
+    channel.force(false);
+    committedEnd = channel.size();
+    applyChanges(committed, pending);
+    pending.clear();
+  }
+
+  /**
+   * @return the size of the file in bytes.
+   * @throws IOException if the size can't be read.
+   */
+  public long getSize() throws IOException {
+    return channel.size();
+  }
+
+  /**
+   * @return the number of bytes taken up by the committed entries.
+   */
+  public long getLiveSize() {
+    long size = MAGIC.length + 1;
+    for (var location : committed.values()) {
+      size += location.recordEnd() - location.recordOffset();
+    }
+    return size;
+  }
+
+  /**
+   * @return {@code true} if more than half of the file is taken up by replaced or removed entries.
+   * @throws IOException if the size can't be read.
+   */
+  public boolean isCompactionNeeded() throws IOException {
+    long size = getSize();
+    return size > MIN_COMPACT_SIZE && getLiveSize() < size / 2;
+  }
+
+  /**
+   * Rewrites the file with only the committed entries. The new file is written next to the old one
+   * and then moved over it, so a crash during compaction leaves the old file intact.
+   *
+   * @throws IOException if the file can't be compacted.
+   * @throws IllegalStateException if there are uncommitted changes.
+   */
+  public void compact() throws IOException {
+    if (!pending.isEmpty()) {
+      throw new IllegalStateException("Can't compact a journal with uncommitted changes");
+    }
+
+    var compactFile = new File(file.getParentFile(), file.getName() + ".compact");
+    var compacted = new LinkedHashMap<String, Location>();
+    try (var out =
+        FileChannel.open(
+            compactFile.toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      out.write(ByteBuffer.wrap(MAGIC));
+      for (var entry : committed.entrySet()) {
+        var location = entry.getValue();
+        long newOffset = out.position();
+        long recordLength = location.recordEnd() - location.recordOffset();
+        long copied = 0;
+        while (copied < recordLength) {
+          copied +=
+              channel.transferTo(location.recordOffset() + copied, recordLength - copied, out);
+        }
+        compacted.put(
+            entry.getKey(),
+            new Location(
+                newOffset,
+                newOffset + (location.dataOffset() - location.recordOffset()),
+                location.length(),
+                location.digest()));
+      }
+      out.write(ByteBuffer.wrap(new byte[] {COMMIT}));
+      out.force(true);
+    }
+
+    channel.close();
+    try {
+      Files.move(
+          compactFile.toPath(),
+          file.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(compactFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      channel =
+          FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+    committed.clear();
+    committed.putAll(compacted);
+    committedEnd = channel.size();
+  }
+
+  /** Closes the file, discarding anything that wasn't committed. */
+  @Override
+  public void close() throws IOException {
+    try {
+      pending.clear();
+      if (channel.size() > committedEnd) {
+        channel.truncate(committedEnd);
+      }
+    } finally {
+      channel.close();
+    }
+  }
+
+  private void write(ByteBuffer buffer) throws IOException {
+    long position = channel.size();
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+  /** Appends to the end of the file. */
+  private class AppendingStream extends OutputStream {
+    @Override
+    public void write(int b) throws IOException {
+      JournalFile.this.write(ByteBuffer.wrap(new byte[] {(byte) b}));
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      JournalFile.this.write(ByteBuffer.wrap(b, off, len));
+    }
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java implementation is required to support SHA-256.
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -96,6 +96,18 @@ public class AppPreferences {
   private static final String KEY_LUMENS_OVERLAY_SHOW_BY_DEFAULT = "lumensOverlayShowByDefault";
   private static final boolean DEFAULT_LUMENS_OVERLAY_SHOW_BY_DEFAULT = false;
 
+  private static final String KEY_USE_RASTER_LIGHTMAP = "useRasterLightmap";
+  private static final boolean DEFAULT_USE_RASTER_LIGHTMAP = false;
+
+  private static final String KEY_RASTER_LIGHTMAP_CELL_SIZE = "rasterLightmapCellSize";
+  private static final int DEFAULT_RASTER_LIGHTMAP_CELL_SIZE = 5;
+
+  private static final String KEY_USE_PRECOMPUTED_VISIBILITY = "usePrecomputedVisibility";
+  private static final boolean DEFAULT_USE_PRECOMPUTED_VISIBILITY = false;
+
+  private static final String KEY_IMAGE_CACHE_BUDGET_MB = "imageCacheBudgetMB";
+  private static final int DEFAULT_IMAGE_CACHE_BUDGET_MB = 0;
+
   private static final String KEY_LIGHTS_SHOW_BY_DEFAULT = "lightsShowByDefault";
   private static final boolean DEFAULT_LIGHTS_SHOW_BY_DEFAULT = true;
 
@@ -116,6 +128,9 @@ public class AppPreferences {
   private static final String KEY_NEW_MAPS_HAVE_FOW = "newMapsHaveFow";
   private static final boolean DEFAULT_NEW_MAPS_HAVE_FOW = false;
 
+  private static final String KEY_NEW_MAPS_FOG_CELL_SIZE = "newMapsFogCellSize";
+  private static final int DEFAULT_NEW_MAPS_FOG_CELL_SIZE = 0;
+
   private static final String KEY_NEW_TOKENS_VISIBLE = "newTokensVisible";
   private static final boolean DEFAULT_NEW_TOKENS_VISIBLE = true;
 
@@ -389,6 +404,53 @@ public static boolean getLumensOverlayShowByDefault() {
         KEY_LUMENS_OVERLAY_SHOW_BY_DEFAULT, DEFAULT_LUMENS_OVERLAY_SHOW_BY_DEFAULT);
   }
 
+  public static void setUseRasterLightmap(boolean use) {
+    prefs.putBoolean(KEY_USE_RASTER_LIGHTMAP, use);
+  }
+
+  /**
+   * @return whether lumens lookups use a raster of the lights rather than their areas. Only {@code
+   *     getIllumination()} looks at the raster; visibility is still worked out from the areas.
+   */
+  public static boolean getUseRasterLightmap() {
+    return prefs.getBoolean(KEY_USE_RASTER_LIGHTMAP, DEFAULT_USE_RASTER_LIGHTMAP);
+  }
+
+  public static void setRasterLightmapCellSize(int cellSize) {
+    prefs.putInt(KEY_RASTER_LIGHTMAP_CELL_SIZE, Math.max(1, cellSize));
+  }
+
+  /**
+   * @return the size of the cells of the raster lightmap, in zone pixels.
+   */
+  public static int getRasterLightmapCellSize() {
+    return Math.max(
+        1, prefs.getInt(KEY_RASTER_LIGHTMAP_CELL_SIZE, DEFAULT_RASTER_LIGHTMAP_CELL_SIZE));
+  }
+
+  public static void setUsePrecomputedVisibility(boolean use) {
+    prefs.putBoolean(KEY_USE_PRECOMPUTED_VISIBILITY, use);
+  }
+
+  /**
+   * @return whether the Wall VBL of square grid maps is precomputed into visibility fields.
+   */
+  public static boolean getUsePrecomputedVisibility() {
+    return prefs.getBoolean(KEY_USE_PRECOMPUTED_VISIBILITY, DEFAULT_USE_PRECOMPUTED_VISIBILITY);
+  }
+
+  public static void setImageCacheBudgetMB(int budget) {
+    prefs.putInt(KEY_IMAGE_CACHE_BUDGET_MB, Math.max(0, budget));
+  }
+
+  /**
+   * @return the memory that loaded images may use, in megabytes, or {@code 0} to use a quarter of
+   *     the maximum heap size.
+   */
+  public static int getImageCacheBudgetMB() {
+    return Math.max(0, prefs.getInt(KEY_IMAGE_CACHE_BUDGET_MB, DEFAULT_IMAGE_CACHE_BUDGET_MB));
+  }
+
   public static void setLightsShowByDefault(boolean show) {
     prefs.putBoolean(KEY_LIGHTS_SHOW_BY_DEFAULT, show);
   }
@@ -890,6 +952,18 @@ public static boolean getNewMapsHaveFOW() {
     return prefs.getBoolean(KEY_NEW_MAPS_HAVE_FOW, DEFAULT_NEW_MAPS_HAVE_FOW);
   }
 
+  public static void setNewMapsFogCellSize(int cellSize) {
+    prefs.putInt(KEY_NEW_MAPS_FOG_CELL_SIZE, Math.max(0, cellSize));
+  }
+
+  /**
+   * @return the size of the bitmap fog cells of new maps, in zone pixels, or {@code 0} if new maps
+   *     keep exposed areas as areas.
+   */
+  public static int getNewMapsFogCellSize() {
+    return Math.max(0, prefs.getInt(KEY_NEW_MAPS_FOG_CELL_SIZE, DEFAULT_NEW_MAPS_FOG_CELL_SIZE));
+  }
+
   public static void setNewTokensVisible(boolean flag) {
     prefs.putBoolean(KEY_NEW_TOKENS_VISIBLE, flag);
   }
@@ -16,9 +16,15 @@
 
 import java.io.File;
 import javax.swing.*;
+import net.rptools.lib.CodeTimer;
+import net.rptools.maptool.client.ui.Scale;
+import net.rptools.maptool.client.ui.zone.renderer.ZoneRenderer;
 import net.rptools.maptool.language.I18N;
 import net.rptools.maptool.model.Campaign;
+import net.rptools.maptool.model.GUID;
+import net.rptools.maptool.server.proto.CampaignDto;
 import net.rptools.maptool.util.PersistenceUtil;
+import net.rptools.maptool.util.PersistenceUtil.PersistedCampaign;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -91,31 +97,42 @@ private boolean executeAndContinue() {
 
     MapTool.getFrame().setStatusMessage(I18N.getString("AutoSaveManager.status.autoSaving"));
 
-    long startCopy = System.currentTimeMillis();
-    // This occurs on the event dispatch thread, so it's ok to mess with the models.  (XXX Is this
-    // true?  What about
-    // updates coming in on the network?)
-    // We need to clone the campaign so that we can save in the background, but
-    // not have concurrency issues with the original model.
-    //
-    // NOTE: This is a cheesy way to clone the campaign, but it makes it so that I
-    // don't have to keep all the various models' clone methods updated on each change.
-    final Campaign campaign = new Campaign(MapTool.getCampaign());
-    log.info(
-        "Time to copy Campaign object (ms): "
-            + (System.currentTimeMillis() - startCopy)); // $NON-NLS-1$
-
-    new SaveWorker(campaign).execute();
+    // This occurs on the event dispatch thread, so it's ok to read the models, but anything done
+    // here stalls the UI. So all that is done here is taking an immutable snapshot of the
+    // campaign, which the SaveWorker turns back into a campaign and saves in the background.
+    CodeTimer.using(
+        "AutoSave",
+        timer -> {
+          timer.setThreshold(0);
+          timer.start("Snapshot (EDT stall)");
+          var snapshot = new Snapshot();
+          snapshot.campaign = MapTool.getCampaign().toDto();
+          ZoneRenderer currentZoneRenderer = MapTool.getFrame().getCurrentZoneRenderer();
+          if (currentZoneRenderer != null) {
+            snapshot.currentZoneId = currentZoneRenderer.getZone().getId();
+            snapshot.currentView = new Scale(currentZoneRenderer.getZoneScale());
+          }
+          timer.stop("Snapshot (EDT stall)");
+
+          new SaveWorker(snapshot).execute();
+        });
 
     return false;
   }
 
+  /** What is captured on the event dispatch thread for the {@link SaveWorker}. */
+  private static class Snapshot {
+    private CampaignDto campaign;
+    private GUID currentZoneId;
+    private Scale currentView;
+  }
+
   private class SaveWorker extends SwingWorker<String, String> {
 
-    private Campaign campaign;
+    private final Snapshot snapshot;
 
-    private SaveWorker(Campaign campaign) {
-      this.campaign = campaign;
+    private SaveWorker(Snapshot snapshot) {
+      this.snapshot = snapshot;
     }
 
     @Override
@@ -126,7 +143,17 @@ protected String doInBackground() throws Exception {
       try {
         long startSave = System.currentTimeMillis();
         log.info("Starting autosave..."); // $NON-NLS-1$
-        PersistenceUtil.saveCampaign(campaign, AUTOSAVE_FILE);
+        var persistedCampaign = new PersistedCampaign();
+        CodeTimer.using(
+            "AutoSaveWorker",
+            timer -> {
+              timer.start("Restore snapshot");
+              persistedCampaign.campaign = Campaign.fromDto(snapshot.campaign);
+              persistedCampaign.currentZoneId = snapshot.currentZoneId;
+              persistedCampaign.currentView = snapshot.currentView;
+              timer.stop("Restore snapshot");
+            });
+        PersistenceUtil.saveCampaignJournal(persistedCampaign, AUTOSAVE_FILE);
         String msg =
             I18N.getText(
                 "AutoSaveManager.status.autoSaveComplete", System.currentTimeMillis() - startSave);
@@ -140,15 +167,22 @@ protected String doInBackground() throws Exception {
 
     @Override
     protected void done() {
-
-      try {
-        MapTool.getFrame().setStatusMessage(get());
-      } catch (Throwable t) {
-        log.debug("Throwable during autosave: " + t.getCause());
-        if (t.getCause() instanceof AppState.FailedToAcquireLockException)
-          MapTool.getFrame().setStatusMessage(I18N.getText("AutoSaveManager.status.lockFailed"));
-        else MapTool.showError("AutoSaveManager.failed", t.getCause());
-      }
+      CodeTimer.using(
+          "AutoSave",
+          timer -> {
+            timer.setThreshold(0);
+            timer.start("Done (EDT stall)");
+            try {
+              MapTool.getFrame().setStatusMessage(get());
+            } catch (Throwable t) {
+              log.debug("Throwable during autosave: " + t.getCause());
+              if (t.getCause() instanceof AppState.FailedToAcquireLockException)
+                MapTool.getFrame()
+                    .setStatusMessage(I18N.getText("AutoSaveManager.status.lockFailed"));
+              else MapTool.showError("AutoSaveManager.failed", t.getCause());
+            }
+            timer.stop("Done (EDT stall)");
+          });
 
       next(true);
     }
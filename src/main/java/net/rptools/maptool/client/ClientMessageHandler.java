@@ -42,6 +42,7 @@
 import net.rptools.maptool.model.CampaignProperties;
 import net.rptools.maptool.model.CellPoint;
 import net.rptools.maptool.model.ExposedAreaMetaData;
+import net.rptools.maptool.model.FogBitmap;
 import net.rptools.maptool.model.GUID;
 import net.rptools.maptool.model.Grid;
 import net.rptools.maptool.model.InitiativeList;
@@ -70,6 +71,7 @@
 import net.rptools.maptool.server.Mapper;
 import net.rptools.maptool.server.ServerMessageHandler;
 import net.rptools.maptool.server.ServerPolicy;
+import net.rptools.maptool.server.TokenPatches;
 import net.rptools.maptool.server.proto.*;
 import net.rptools.maptool.transfer.AssetConsumer;
 import net.rptools.maptool.transfer.AssetHeader;
@@ -103,6 +105,7 @@ public void handleMessage(String id, byte[] message) {
         case DRAW_MSG -> handle(msg.getDrawMsg());
         case EDIT_TOKEN_MSG -> handle(msg.getEditTokenMsg());
         case PUT_TOKEN_MSG -> handle(msg.getPutTokenMsg());
+        case TOKEN_PATCH_MSG -> handle(msg.getTokenPatchMsg());
         case ENFORCE_NOTIFICATION_MSG -> handle(msg.getEnforceNotificationMsg());
         case ENFORCE_ZONE_MSG -> handle(msg.getEnforceZoneMsg());
         case ENFORCE_ZONE_VIEW_MSG -> handle(msg.getEnforceZoneViewMsg());
@@ -188,7 +191,10 @@ private void handle(UpdateExposedAreaMetaMsg msg) {
         () -> {
           var zoneGUID = GUID.valueOf(msg.getZoneGuid());
           var tokenGUID = msg.hasTokenGuid() ? GUID.valueOf(msg.getTokenGuid().getValue()) : null;
-          ExposedAreaMetaData meta = new ExposedAreaMetaData(Mapper.map(msg.getArea()));
+          ExposedAreaMetaData meta =
+              msg.hasFog()
+                  ? new ExposedAreaMetaData(FogBitmap.fromDto(msg.getFog()))
+                  : new ExposedAreaMetaData(Mapper.map(msg.getArea()));
           var zone = MapTool.getCampaign().getZone(zoneGUID);
           zone.setExposedAreaMetaData(tokenGUID, meta);
         });
@@ -633,6 +639,10 @@ private void handle(SetCampaignMsg msg) {
     EventQueue.invokeLater(
         () -> {
           Campaign campaign = Campaign.fromDto(msg.getCampaign());
+          var connection = MapTool.getConnection();
+          if (connection != null) {
+            connection.getTokenSyncState().clear();
+          }
           MapTool.setCampaign(campaign);
 
           // Hide the "Connecting" overlay
@@ -713,6 +723,7 @@ private void handle(RemoveTokensMsg msg) {
           var tokenGUIDs =
               msg.getTokenGuidList().stream().map(GUID::valueOf).collect(Collectors.toList());
           zone.removeTokens(tokenGUIDs);
+          ServerCommandClientImpl.forgetTokens(tokenGUIDs);
           MapTool.getFrame().refresh();
         });
   }
@@ -724,6 +735,7 @@ private void handle(RemoveTokenMsg msg) {
           var zone = MapTool.getCampaign().getZone(zoneGUID);
           var tokenGUID = GUID.valueOf(msg.getTokenGuid());
           zone.removeToken(tokenGUID);
+          ServerCommandClientImpl.forgetTokens(List.of(tokenGUID));
           MapTool.getFrame().refresh();
         });
   }
@@ -923,6 +935,7 @@ private void handle(PutTokenMsg putTokenMsg) {
           var zoneGUID = GUID.valueOf(putTokenMsg.getZoneGuid());
           var zone = MapTool.getCampaign().getZone(zoneGUID);
           var token = Token.fromDto(putTokenMsg.getToken());
+          syncToken(token.getId(), putTokenMsg.getTokenVersion(), putTokenMsg.getToken());
           zone.putToken(token);
           MapTool.getFrame().refresh();
         });
@@ -934,11 +947,50 @@ private void handle(EditTokenMsg editTokenMsg) {
           var zoneGUID = GUID.valueOf(editTokenMsg.getZoneGuid());
           var zone = MapTool.getCampaign().getZone(zoneGUID);
           var token = Token.fromDto(editTokenMsg.getToken());
+          syncToken(token.getId(), editTokenMsg.getTokenVersion(), editTokenMsg.getToken());
           zone.editToken(token);
           MapTool.getFrame().refresh();
         });
   }
 
+  private void handle(TokenPatchMsg msg) {
+    EventQueue.invokeLater(
+        () -> {
+          var zoneGUID = GUID.valueOf(msg.getZoneGuid());
+          var tokenGUID = GUID.valueOf(msg.getTokenGuid());
+          var connection = MapTool.getConnection();
+          var base =
+              connection == null
+                  ? null
+                  : connection.getTokenSyncState().get(msg.getTokenGuid(), msg.getBaseVersion());
+          if (base == null) {
+            // We missed the state the patch is based on, so ask for the whole token.
+            log.debug("Token " + tokenGUID + " is out of sync, requesting it from the server");
+            MapTool.serverCommand().getToken(zoneGUID, tokenGUID);
+            return;
+          }
+
+          var dto = TokenPatches.apply(base, msg);
+          syncToken(tokenGUID, msg.getTokenVersion(), dto);
+          var zone = MapTool.getCampaign().getZone(zoneGUID);
+          var token = Token.fromDto(dto);
+          if (msg.getEdit()) {
+            zone.editToken(token);
+          } else {
+            zone.putToken(token);
+          }
+          MapTool.getFrame().refresh();
+        });
+  }
+
+  /** Records the state of a token received from the server, so later patches can be applied. */
+  private static void syncToken(GUID tokenGUID, long version, TokenDto token) {
+    var connection = MapTool.getConnection();
+    if (connection != null) {
+      connection.getTokenSyncState().put(tokenGUID.toString(), version, token);
+    }
+  }
+
   private void handle(DrawMsg drawMsg) {
     EventQueue.invokeLater(
         () -> {
@@ -22,7 +22,9 @@
 import net.rptools.maptool.model.player.LocalPlayer;
 import net.rptools.maptool.server.ClientHandshake;
 import net.rptools.maptool.server.Handshake;
+import net.rptools.maptool.server.MessageCoalescing;
 import net.rptools.maptool.server.ServerConfig;
+import net.rptools.maptool.server.TokenSyncState;
 import net.rptools.maptool.server.proto.Message;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -39,6 +41,7 @@ public class MapToolConnection {
   private Connection connection;
   private Handshake handshake;
   private Runnable onCompleted;
+  private final TokenSyncState tokenSyncState = new TokenSyncState();
 
   public MapToolConnection(ServerConfig config, LocalPlayer player) throws IOException {
 
@@ -78,6 +81,14 @@ public void start() throws IOException, ExecutionException, InterruptedException
     handshake.startHandshake();
   }
 
+  /**
+   * @return the tokens last sent to or received from the server, for creating and applying token
+   *     patches.
+   */
+  public TokenSyncState getTokenSyncState() {
+    return tokenSyncState;
+  }
+
   public void addMessageHandler(ClientMessageHandler handler) {
     connection.addMessageHandler(handler);
   }
@@ -100,6 +111,6 @@ public void close() throws IOException {
 
   public void sendMessage(Message msg) {
     log.debug(player.getName() + " sent " + msg.getMessageTypeCase());
-    connection.sendMessage(msg.toByteArray());
+    connection.sendMessage(null, msg.toByteArray(), MessageCoalescing.keyFor(msg));
   }
 }
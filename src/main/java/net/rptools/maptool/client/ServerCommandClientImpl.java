@@ -40,6 +40,8 @@
 import net.rptools.maptool.server.ServerCommand;
 import net.rptools.maptool.server.ServerMessageHandler;
 import net.rptools.maptool.server.ServerPolicy;
+import net.rptools.maptool.server.TokenPatches;
+import net.rptools.maptool.server.TokenSyncState;
 import net.rptools.maptool.server.proto.*;
 import net.rptools.maptool.server.proto.drawing.IntPointDto;
 import org.apache.logging.log4j.LogManager;
@@ -112,6 +114,14 @@ public void getZone(GUID zoneGUID) {
     makeServerCall(Message.newBuilder().setGetZoneMsg(msg).build());
   }
 
+  public void getToken(GUID zoneGUID, GUID tokenGUID) {
+    var msg =
+        GetTokenMsg.newBuilder()
+            .setZoneGuid(zoneGUID.toString())
+            .setTokenGuid(tokenGUID.toString());
+    makeServerCall(Message.newBuilder().setGetTokenMsg(msg).build());
+  }
+
   public void putZone(Zone zone) {
     var msg = PutZoneMsg.newBuilder().setZone(zone.toDto());
     makeServerCall(Message.newBuilder().setPutZoneMsg(msg).build());
@@ -167,8 +177,7 @@ public void restoreZoneView(GUID zoneGUID) {
 
   public void editToken(GUID zoneGUID, Token token) {
     MapTool.getCampaign().getZone(zoneGUID).editToken(token);
-    var msg = EditTokenMsg.newBuilder().setZoneGuid(zoneGUID.toString()).setToken(token.toDto());
-    makeServerCall(Message.newBuilder().setEditTokenMsg(msg).build());
+    sendToken(zoneGUID, token, true);
   }
 
   public void putToken(GUID zoneGUID, Token token) {
@@ -176,14 +185,85 @@ public void putToken(GUID zoneGUID, Token token) {
     // after changing the token. But they don't tell the zone about it so classes
     // waiting for the zone change event don't get it.
     MapTool.getCampaign().getZone(zoneGUID).putToken(token);
-    var msg = PutTokenMsg.newBuilder().setZoneGuid(zoneGUID.toString()).setToken(token.toDto());
-    makeServerCall(Message.newBuilder().setPutTokenMsg(msg).build());
+    sendToken(zoneGUID, token, false);
+  }
+
+  /**
+   * Forgets the synchronised state of tokens that were removed, whether here or by someone else.
+   *
+   * @param tokenGUIDs the ids of the tokens.
+   */
+  static void forgetTokens(List<GUID> tokenGUIDs) {
+    var connection = MapTool.getConnection();
+    if (connection != null) {
+      tokenGUIDs.forEach(id -> connection.getTokenSyncState().remove(id.toString()));
+    }
+  }
+
+  /**
+   * Sends a token to the server. If the server already has an earlier state of the token only the
+   * fields that changed since are sent.
+   *
+   * @param zoneGUID the id of the zone the token is on.
+   * @param token the token.
+   * @param edit whether the token was edited rather than put.
+   */
+  private void sendToken(GUID zoneGUID, Token token, boolean edit) {
+    var connection = MapTool.getConnection();
+    if (connection == null) {
+      return;
+    }
+    var tokenId = token.getId().toString();
+    var dto = token.toDto();
+    long version = TokenSyncState.newVersion();
+    var syncState = connection.getTokenSyncState();
+    var base = syncState.get(tokenId);
+    syncState.put(tokenId, version, dto);
+
+    if (base != null) {
+      var patch =
+          TokenPatches.diff(base.token(), dto)
+              .setZoneGuid(zoneGUID.toString())
+              .setTokenGuid(tokenId)
+              .setBaseVersion(base.version())
+              .setTokenVersion(version)
+              .setEdit(edit)
+              .build();
+      if (patch.getSerializedSize() < dto.getSerializedSize()) {
+        log.debug(
+            "Sending patch for token "
+                + tokenId
+                + ": "
+                + patch.getSerializedSize()
+                + " bytes instead of "
+                + dto.getSerializedSize());
+        makeServerCall(Message.newBuilder().setTokenPatchMsg(patch).build());
+        return;
+      }
+    }
+
+    if (edit) {
+      var msg =
+          EditTokenMsg.newBuilder()
+              .setZoneGuid(zoneGUID.toString())
+              .setToken(dto)
+              .setTokenVersion(version);
+      makeServerCall(Message.newBuilder().setEditTokenMsg(msg).build());
+    } else {
+      var msg =
+          PutTokenMsg.newBuilder()
+              .setZoneGuid(zoneGUID.toString())
+              .setToken(dto)
+              .setTokenVersion(version);
+      makeServerCall(Message.newBuilder().setPutTokenMsg(msg).build());
+    }
   }
 
   @Override
   public void removeToken(GUID zoneGUID, GUID tokenGUID) {
     // delete local token immediately
     MapTool.getCampaign().getZone(zoneGUID).removeToken(tokenGUID);
+    forgetTokens(List.of(tokenGUID));
     var msg =
         RemoveTokenMsg.newBuilder()
             .setZoneGuid(zoneGUID.toString())
@@ -195,6 +275,7 @@ public void removeToken(GUID zoneGUID, GUID tokenGUID) {
   public void removeTokens(GUID zoneGUID, List<GUID> tokenGUIDs) {
     // delete local tokens immediately
     MapTool.getCampaign().getZone(zoneGUID).removeTokens(tokenGUIDs);
+    forgetTokens(tokenGUIDs);
     var msg = RemoveTokensMsg.newBuilder().setZoneGuid(zoneGUID.toString());
     msg.addAllTokenGuid(tokenGUIDs.stream().map(t -> t.toString()).collect(Collectors.toList()));
     makeServerCall(Message.newBuilder().setRemoveTokensMsg(msg).build());
@@ -547,10 +628,14 @@ public void setBoard(GUID zoneGUID, MD5Key mapAssetId, int x, int y) {
    */
   public void updateExposedAreaMeta(
       GUID zoneGUID, GUID tokenExposedAreaGUID, ExposedAreaMetaData meta) {
-    var msg =
-        UpdateExposedAreaMetaMsg.newBuilder()
-            .setZoneGuid(zoneGUID.toString())
-            .setArea(Mapper.map(meta.getExposedAreaHistory()));
+    var msg = UpdateExposedAreaMetaMsg.newBuilder().setZoneGuid(zoneGUID.toString());
+    var fog = meta.getFogBitmap();
+    if (fog != null) {
+      // The run-length encoded cells are much smaller than the area built from them.
+      msg.setFog(fog.toDto());
+    } else {
+      msg.setArea(Mapper.map(meta.getExposedAreaHistory()));
+    }
     if (tokenExposedAreaGUID != null) {
       msg.setTokenGuid(StringValue.of(tokenExposedAreaGUID.toString()));
     }
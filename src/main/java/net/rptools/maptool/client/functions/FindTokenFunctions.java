@@ -598,8 +598,15 @@ private static Object getTokenList(
       if (range.has("metric")) {
         metric = range.get("metric").getAsString();
       }
+      List<Token> candidates = tokenList;
+      if (upto != Integer.MAX_VALUE) {
+        Set<Token> nearby = getTokensNear(zone, token, upto, useDistancePerCell);
+        if (nearby != null) {
+          candidates = tokenList.stream().filter(nearby::contains).toList();
+        }
+      }
       List<Token> inrange = new LinkedList<Token>();
-      for (Token targetToken : tokenList) {
+      for (Token targetToken : candidates) {
         double distance = instance.getDistance(token, targetToken, useDistancePerCell, metric);
         if (distance <= upto && distance >= from && token != targetToken) {
           inrange.add(targetToken);
@@ -790,6 +797,35 @@ private static List<Token> getTokenList(
     return tokenList;
   }
 
+  /**
+   * Looks up the tokens that may be within a distance of a token, so the exact distance only has
+   * to be calculated for those. The area searched is padded so that no metric can have tokens in
+   * range outside it.
+   *
+   * @param zone the zone of the token.
+   * @param token the token to measure from.
+   * @param upto the maximum distance.
+   * @param useDistancePerCell whether the distance is in map units rather than cells.
+   * @return the tokens, or {@code null} if the area can't be worked out.
+   */
+  private static Set<Token> getTokensNear(
+      Zone zone, Token token, int upto, boolean useDistancePerCell) {
+    Grid grid = zone.getGrid();
+    double cells = useDistancePerCell ? upto / zone.getUnitsPerCell() : upto;
+    double margin = (Math.max(cells, 0) + 2) * Math.max(grid.getCellWidth(), grid.getCellHeight());
+    if (Double.isNaN(margin) || margin > Integer.MAX_VALUE / 4) {
+      return null;
+    }
+    Rectangle bounds = token.getBounds(zone);
+    bounds.grow((int) Math.ceil(margin), (int) Math.ceil(margin));
+
+    Set<Token> nearby = new HashSet<>();
+    for (Zone.Layer layer : Zone.Layer.values()) {
+      nearby.addAll(zone.getTokensInBounds(layer, bounds));
+    }
+    return nearby;
+  }
+
   private static List<Token> getTokensFiltered(Zone.Filter filter, List<Token> originalList) {
     List<Token> tokenList = new ArrayList<Token>(originalList.size());
 
@@ -65,6 +65,11 @@ private int getIllumination(String functionName, List<Object> parameters) throws
     final var renderer = FunctionUtil.getZoneRendererFromParam(functionName, parameters, 2);
     final var playerView = getPlayerView(functionName, renderer, parameters, 3);
 
+    final var rasterLumens = renderer.getZoneView().getRasterLumens(playerView, x, y);
+    if (rasterLumens.isPresent()) {
+      return rasterLumens.getAsInt();
+    }
+
     for (final var lumensLevel :
         renderer.getZoneView().getDisjointObscuredLumensLevels(playerView)) {
       if (lumensLevel.darknessArea().contains(point)) {
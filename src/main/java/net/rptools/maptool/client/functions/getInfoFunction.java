@@ -165,6 +165,9 @@ private JsonObject getMapInfo() throws ParserException {
     minfo.addProperty("lighting style", zone.getLightingStyle().name());
     minfo.addProperty("has fog", zone.hasFog());
     minfo.addProperty("ai rounding", zone.getAStarRounding().name());
+    minfo.addProperty(
+        "precomputed visibility",
+        MapTool.getFrame().getCurrentZoneRenderer().getZoneView().hasVisibilityField() ? 1 : 0);
 
     JsonObject ginfo = new JsonObject();
     Grid grid = zone.getGrid();
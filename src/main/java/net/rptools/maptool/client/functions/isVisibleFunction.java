@@ -94,6 +94,11 @@ public Object childEvaluate(
     int x = ((BigDecimal) param.get(0)).intValue();
     int y = ((BigDecimal) param.get(1)).intValue();
 
+    // Walls that certainly hide the point save solving the token's vision.
+    if (zr.getZoneView().isHiddenByWalls(token, x, y)) {
+      return BigDecimal.ZERO;
+    }
+
     Area visArea = zr.getZoneView().getVisibleArea(token, zr.getPlayerView());
     if (visArea == null) {
       return BigDecimal.ZERO;
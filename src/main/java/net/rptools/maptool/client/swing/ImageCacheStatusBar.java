@@ -15,6 +15,7 @@
 package net.rptools.maptool.client.swing;
 
 import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.io.File;
 import java.util.concurrent.TimeUnit;
 import javax.swing.Icon;
@@ -24,6 +25,7 @@
 import net.rptools.maptool.client.ui.theme.Icons;
 import net.rptools.maptool.client.ui.theme.RessourceManager;
 import net.rptools.maptool.language.I18N;
+import net.rptools.maptool.util.ImageManager;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -46,7 +48,7 @@ public ImageCacheStatusBar() {
     addMouseListener(
         new MouseAdapter() {
           @Override
-          public void mouseClicked(java.awt.event.MouseEvent e) {
+          public void mouseClicked(MouseEvent e) {
             if (e.getClickCount() == 2) {
               LOGGER.info("Clearing imageThumbs cache...");
               MapTool.getThumbnailManager().clearImageThumbCache();
@@ -60,6 +62,28 @@ public void mouseClicked(java.awt.event.MouseEvent e) {
         this::update, POLLING_INTERVAL, POLLING_INTERVAL, TimeUnit.MILLISECONDS);
   }
 
+  /**
+   * Adds the statistics of the images loaded in memory to the tool tip, as of when it is shown.
+   *
+   * @param event the mouse event that shows the tool tip.
+   * @return the tool tip.
+   */
+  @Override
+  public String getToolTipText(MouseEvent event) {
+    final var statistics = ImageManager.getCacheStatistics();
+    return "<html>"
+        + I18N.getString("ImageCacheStatusBar.toolTip")
+        + "<br>"
+        + I18N.getText(
+            "ImageCacheStatusBar.toolTip.memory",
+            statistics.usedBytes() / (1024 * 1024),
+            statistics.budgetBytes() / (1024 * 1024),
+            statistics.hits(),
+            statistics.misses(),
+            statistics.evictions())
+        + "</html>";
+  }
+
   public void clear() {
     setText("");
   }
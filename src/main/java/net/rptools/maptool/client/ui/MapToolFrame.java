@@ -1578,9 +1578,13 @@ public void setCurrentZoneRenderer(ZoneRenderer renderer) {
     if (renderer != null) {
       new MapToolEventBus().getMainEventBus().post(new ZoneLoading(renderer.getZone()));
 
-      ImageManager.flush(renderer.getZone().getAllAssetIds());
+      Set<MD5Key> assetIds = renderer.getZone().getAllAssetIds();
+      ImageManager.flush(assetIds);
+      // Keep the new map's images loaded even when others need the memory.
+      ImageManager.pinImages(assetIds);
     } else {
       ImageManager.flush();
+      ImageManager.pinImages(Set.of());
       // zoneRendererList.remove(currentRenderer);
     }
     // Handle new renderers
@@ -242,7 +242,7 @@ public void actionPerformed(ActionEvent e) {
         Token targetToken = zone.getToken(tok);
         ExposedAreaMetaData targetMeta =
             zone.getExposedAreaMetaData(targetToken.getExposedAreaGUID());
-        targetMeta.addToExposedAreaHistory(sourceMeta.getExposedAreaHistory());
+        targetMeta.addToExposedAreaHistory(sourceMeta);
         getRenderer().flush(targetToken);
         zone.setExposedAreaMetaData(targetToken.getExposedAreaGUID(), targetMeta);
         MapTool.serverCommand()
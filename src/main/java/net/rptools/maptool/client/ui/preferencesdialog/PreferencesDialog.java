@@ -449,24 +449,79 @@ public PreferencesDialog() {
       checkboxConstraints.fill = GridBagConstraints.HORIZONTAL;
 
       for (final var option : DeveloperOptions.Toggle.values()) {
-        labelConstraints.gridy += 1;
-        checkboxConstraints.gridy += 1;
-
-        final var label = new JLabel(option.getLabel());
-        label.setToolTipText(option.getTooltip());
-        label.setHorizontalAlignment(SwingConstants.LEADING);
-        label.setHorizontalTextPosition(SwingConstants.TRAILING);
-
         final var checkbox = new JCheckBox();
         checkbox.setName(option.getKey());
         checkbox.setModel(new DeveloperToggleModel(option));
         checkbox.addActionListener(e -> option.setEnabled(!checkbox.isSelected()));
 
-        label.setLabelFor(checkbox);
-
-        developerOptionToggles.add(label, labelConstraints);
-        developerOptionToggles.add(checkbox, checkboxConstraints);
+        addDeveloperOption(
+            developerOptionToggles,
+            labelConstraints,
+            checkboxConstraints,
+            option.getLabel(),
+            option.getTooltip(),
+            checkbox);
       }
+
+      // Experimental rendering and memory settings, which are kept in the main preferences.
+      final var useRasterLightmap = new JCheckBox();
+      useRasterLightmap.setSelected(AppPreferences.getUseRasterLightmap());
+      useRasterLightmap.addActionListener(
+          e -> AppPreferences.setUseRasterLightmap(useRasterLightmap.isSelected()));
+      addDeveloperSetting(
+          developerOptionToggles,
+          labelConstraints,
+          checkboxConstraints,
+          "useRasterLightmap",
+          useRasterLightmap);
+
+      final var rasterLightmapCellSize =
+          new JSpinner(
+              new SpinnerNumberModel(AppPreferences.getRasterLightmapCellSize(), 1, 100, 1));
+      rasterLightmapCellSize.addChangeListener(
+          e ->
+              AppPreferences.setRasterLightmapCellSize(
+                  (Integer) rasterLightmapCellSize.getValue()));
+      addDeveloperSetting(
+          developerOptionToggles,
+          labelConstraints,
+          checkboxConstraints,
+          "rasterLightmapCellSize",
+          rasterLightmapCellSize);
+
+      final var usePrecomputedVisibility = new JCheckBox();
+      usePrecomputedVisibility.setSelected(AppPreferences.getUsePrecomputedVisibility());
+      usePrecomputedVisibility.addActionListener(
+          e -> AppPreferences.setUsePrecomputedVisibility(usePrecomputedVisibility.isSelected()));
+      addDeveloperSetting(
+          developerOptionToggles,
+          labelConstraints,
+          checkboxConstraints,
+          "usePrecomputedVisibility",
+          usePrecomputedVisibility);
+
+      final var newMapsFogCellSize =
+          new JSpinner(new SpinnerNumberModel(AppPreferences.getNewMapsFogCellSize(), 0, 1000, 1));
+      newMapsFogCellSize.addChangeListener(
+          e -> AppPreferences.setNewMapsFogCellSize((Integer) newMapsFogCellSize.getValue()));
+      addDeveloperSetting(
+          developerOptionToggles,
+          labelConstraints,
+          checkboxConstraints,
+          "newMapsFogCellSize",
+          newMapsFogCellSize);
+
+      final var imageCacheBudgetMB =
+          new JSpinner(
+              new SpinnerNumberModel(AppPreferences.getImageCacheBudgetMB(), 0, 65536, 64));
+      imageCacheBudgetMB.addChangeListener(
+          e -> AppPreferences.setImageCacheBudgetMB((Integer) imageCacheBudgetMB.getValue()));
+      addDeveloperSetting(
+          developerOptionToggles,
+          labelConstraints,
+          checkboxConstraints,
+          "imageCacheBudgetMB",
+          imageCacheBudgetMB);
     }
 
     File appCfgFile = AppUtil.getAppCfgFile();
@@ -1297,6 +1352,47 @@ private void setInitialState() {
         });
   }
 
+  /**
+   * Adds a labelled setting from the main preferences to the developer tab, with its label and
+   * tooltip from the {@code Preferences.developer.<key>} entries.
+   */
+  private static void addDeveloperSetting(
+      JPanel panel,
+      GridBagConstraints labelConstraints,
+      GridBagConstraints controlConstraints,
+      String key,
+      JComponent control) {
+    control.setName(key);
+    addDeveloperOption(
+        panel,
+        labelConstraints,
+        controlConstraints,
+        I18N.getText(String.format("Preferences.developer.%s.label", key)),
+        I18N.getText(String.format("Preferences.developer.%s.tooltip", key)),
+        control);
+  }
+
+  /** Adds a row with a label and a control to the developer tab. */
+  private static void addDeveloperOption(
+      JPanel panel,
+      GridBagConstraints labelConstraints,
+      GridBagConstraints controlConstraints,
+      String labelText,
+      String tooltip,
+      JComponent control) {
+    labelConstraints.gridy += 1;
+    controlConstraints.gridy += 1;
+
+    final var label = new JLabel(labelText);
+    label.setToolTipText(tooltip);
+    label.setHorizontalAlignment(SwingConstants.LEADING);
+    label.setHorizontalTextPosition(SwingConstants.TRAILING);
+    label.setLabelFor(control);
+
+    panel.add(label, labelConstraints);
+    panel.add(control, controlConstraints);
+  }
+
   /** Utility method to create and set the selected item for LocalizedComboItem combo box models. */
   private ComboBoxModel<LocalizedComboItem> getLocalizedModel(
       LocalizedComboItem[] items, String currPref) {
@@ -25,6 +25,16 @@ public interface DrawableRenderer {
   public void renderDrawables(
       Graphics g, List<DrawnElement> drawableList, Rectangle viewport, double scale);
 
+  /**
+   * Renders the drawables like {@link #renderDrawables(Graphics, List, Rectangle, double)}, but may
+   * leave out parts that aren't ready yet and finish them in the background. Only meant for
+   * painting on screen, where the missing parts show up in a later frame.
+   */
+  public default void renderDrawablesProgressively(
+      Graphics g, List<DrawnElement> drawableList, Rectangle viewport, double scale) {
+    renderDrawables(g, drawableList, viewport, scale);
+  }
+
   public void flush();
 
   public void setDirty();
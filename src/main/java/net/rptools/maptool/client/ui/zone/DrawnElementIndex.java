@@ -0,0 +1,177 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import net.rptools.maptool.model.drawing.DrawnElement;
+
+/**
+ * Finds the drawn elements of a layer by location, so that each chunk drawn by {@link
+ * PartitionedDrawableRenderer} only has to look at the elements it overlaps.
+ *
+ * <p>Like {@link net.rptools.maptool.model.TokenSpatialIndex}, the zone is divided into square
+ * buckets and each element is put into every bucket its bounds overlap, with elements that would
+ * span a lot of buckets kept in a separate list. The index keeps its own lists, so it can be used
+ * from other threads while the layer changes, but it doesn't notice when the elements change.
+ */
+final class DrawnElementIndex {
+  /** Elements spanning more buckets than this in either direction go into the large list. */
+  private static final int MAX_BUCKET_SPAN = 8;
+
+  /**
+   * An element in the index.
+   *
+   * @param order the position of the element in the element list.
+   * @param element the element.
+   * @param bounds the area the element covers including its pen, in zone coordinates.
+   */
+  private record Entry(int order, DrawnElement element, Rectangle2D bounds) {}
+
+  private final int bucketSize;
+  private final Map<Long, List<Entry>> buckets = new HashMap<>();
+  private final List<Entry> large = new ArrayList<>();
+
+  /**
+   * @param elements the elements, in the order they are drawn.
+   * @param bucketSize the size of the buckets, in zone pixels.
+   */
+  DrawnElementIndex(List<DrawnElement> elements, int bucketSize) {
+    this.bucketSize = bucketSize;
+    for (int i = 0; i < elements.size(); ++i) {
+      final var element = elements.get(i);
+      final var bounds = getBounds(element);
+      if (bounds == null) {
+        continue;
+      }
+
+      final var entry = new Entry(i, element, bounds);
+      int minX = bucket(bounds.getMinX());
+      int minY = bucket(bounds.getMinY());
+      int maxX = bucket(bounds.getMaxX());
+      int maxY = bucket(bounds.getMaxY());
+      if (maxX - minX >= MAX_BUCKET_SPAN || maxY - minY >= MAX_BUCKET_SPAN) {
+        large.add(entry);
+        continue;
+      }
+      for (int x = minX; x <= maxX; x++) {
+        for (int y = minY; y <= maxY; y++) {
+          buckets.computeIfAbsent(key(x, y), k -> new ArrayList<>(4)).add(entry);
+        }
+      }
+    }
+  }
+
+  /**
+   * @param element a drawn element.
+   * @return the area the element covers including its pen, or {@code null} if it has no bounds.
+   */
+  @Nullable
+  static Rectangle2D getBounds(DrawnElement element) {
+    final var drawableBounds = element.getDrawable().getBounds();
+    if (drawableBounds == null) {
+      return null;
+    }
+    final var pen = element.getPen();
+    final var penSize = (int) (pen.getThickness() / 2 + 1);
+    return new Rectangle2D.Double(
+        drawableBounds.getX() - penSize,
+        drawableBounds.getY() - penSize,
+        drawableBounds.getWidth() + pen.getThickness(),
+        drawableBounds.getHeight() + pen.getThickness());
+  }
+
+  /**
+   * Finds the elements whose bounds intersect an area.
+   *
+   * @param area the area, in zone coordinates.
+   * @return the elements, in the order they are drawn.
+   */
+  List<DrawnElement> getElements(Rectangle2D area) {
+    final var found = new ArrayList<Entry>();
+    for (final var entry : large) {
+      if (entry.bounds().intersects(area)) {
+        found.add(entry);
+      }
+    }
+
+    int minX = bucket(area.getMinX());
+    int minY = bucket(area.getMinY());
+    int maxX = bucket(area.getMaxX());
+    int maxY = bucket(area.getMaxY());
+    if ((long) (maxX - minX + 1) * (maxY - minY + 1) > buckets.size()) {
+      // The area covers more buckets than there are, so only look at those that exist.
+      for (final var bucket : buckets.entrySet()) {
+        long key = bucket.getKey();
+        int x = (int) (key >> 32);
+        int y = (int) key;
+        if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+          addIntersecting(bucket.getValue(), x, y, minX, minY, area, found);
+        }
+      }
+    } else {
+      for (int x = minX; x <= maxX; x++) {
+        for (int y = minY; y <= maxY; y++) {
+          final var bucket = buckets.get(key(x, y));
+          if (bucket != null) {
+            addIntersecting(bucket, x, y, minX, minY, area, found);
+          }
+        }
+      }
+    }
+
+    found.sort(Comparator.comparingInt(Entry::order));
+    final var result = new ArrayList<DrawnElement>(found.size());
+    for (final var entry : found) {
+      result.add(entry.element());
+    }
+    return result;
+  }
+
+  /**
+   * Adds the elements of a bucket that intersect an area. An element in several buckets is only
+   * added from the first of its buckets that is within the area, so it is only added once.
+   */
+  private void addIntersecting(
+      List<Entry> bucket,
+      int bucketX,
+      int bucketY,
+      int minX,
+      int minY,
+      Rectangle2D area,
+      List<Entry> found) {
+    for (final var entry : bucket) {
+      final var bounds = entry.bounds();
+      if (Math.max(bucket(bounds.getMinX()), minX) == bucketX
+          && Math.max(bucket(bounds.getMinY()), minY) == bucketY
+          && bounds.intersects(area)) {
+        found.add(entry);
+      }
+    }
+  }
+
+  private int bucket(double coordinate) {
+    return (int) Math.floor(coordinate / bucketSize);
+  }
+
+  private static long key(int x, int y) {
+    return ((long) x << 32) | (y & 0xFFFFFFFFL);
+  }
+}
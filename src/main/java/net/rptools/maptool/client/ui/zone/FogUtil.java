@@ -17,13 +17,16 @@
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.Area;
-import java.util.ArrayList;
-import java.util.EnumMap;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import javax.annotation.Nonnull;
 import net.rptools.lib.CodeTimer;
 import net.rptools.lib.GeometryUtil;
@@ -56,6 +59,35 @@ public class FogUtil {
   private static final Logger log = LogManager.getLogger(FogUtil.class);
   private static final GeometryFactory geometryFactory = GeometryUtil.getGeometryFactory();
 
+  /**
+   * The pool vision and light calculations are spread over. The calling thread waits for the
+   * results, so one worker per processor is enough.
+   */
+  private static final ForkJoinPool visionPool =
+      new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+  /** Marks a topology type that blocks all vision. Compared by identity. */
+  private static final Geometry COMPLETELY_BLOCKED = geometryFactory.createPolygon();
+
+  /**
+   * Applies a function to each item, spreading the work over the vision pool. The function must be
+   * safe to run from several threads at once.
+   *
+   * @param items the items.
+   * @param function the function to apply.
+   * @return the results, in the same order as the items.
+   */
+  static <T, R> List<R> computeInParallel(Collection<T> items, Function<T, R> function) {
+    if (items.size() <= 1) {
+      return items.stream().map(function).toList();
+    }
+    if (ForkJoinTask.inForkJoinPool()) {
+      // Already part of a parallel calculation, so the work is shared with the current pool.
+      return items.parallelStream().map(function).toList();
+    }
+    return visionPool.submit(() -> items.parallelStream().map(function).toList()).join();
+  }
+
   /**
    * Return the visible area for an origin, a lightSourceArea and a VBL.
    *
@@ -71,6 +103,32 @@ public class FogUtil {
       AreaTree hillVbl,
       AreaTree pitVbl,
       AreaTree coverVbl) {
+    return calculateVisibility(
+        origin,
+        vision,
+        List.of(
+            Map.entry(Zone.TopologyType.WALL_VBL, wallVbl),
+            Map.entry(Zone.TopologyType.HILL_VBL, hillVbl),
+            Map.entry(Zone.TopologyType.PIT_VBL, pitVbl),
+            Map.entry(Zone.TopologyType.COVER_VBL, coverVbl)));
+  }
+
+  /**
+   * Return the visible area for an origin and a lightSourceArea, blocked by any number of topology
+   * trees.
+   *
+   * <p>A type of topology may be split over several trees, as long as the area visible through
+   * their combined topology is the area visible through each of them.
+   *
+   * @param origin the vision origin.
+   * @param vision the lightSourceArea.
+   * @param topologies the topology trees, each with the type of topology it holds.
+   * @return the visible area.
+   */
+  public static @Nonnull Area calculateVisibility(
+      Point origin,
+      Area vision,
+      Collection<Map.Entry<Zone.TopologyType, AreaTree>> topologies) {
     // We could use the vision envelope instead, but vision geometry tends to be pretty simple.
     final var visionGeometry = PreparedGeometryFactory.prepare(GeometryUtil.toJts(vision));
 
@@ -83,34 +141,35 @@ public class FogUtil {
      * we combine them.
      */
 
-    var topologies = new EnumMap<Zone.TopologyType, AreaTree>(Zone.TopologyType.class);
-    topologies.put(Zone.TopologyType.WALL_VBL, wallVbl);
-    topologies.put(Zone.TopologyType.HILL_VBL, hillVbl);
-    topologies.put(Zone.TopologyType.PIT_VBL, pitVbl);
-    topologies.put(Zone.TopologyType.COVER_VBL, coverVbl);
-
-    List<Geometry> visibleAreas = new ArrayList<>();
-    for (final var topology : topologies.entrySet()) {
-      final var solver =
-          new VisibilityProblem(
-              geometryFactory, new Coordinate(origin.getX(), origin.getY()), visionGeometry);
-      final var accumulator =
-          new VisionBlockingAccumulator(geometryFactory, origin, visionGeometry);
-      final var isVisionCompletelyBlocked = accumulator.add(topology.getKey(), topology.getValue());
-      if (!isVisionCompletelyBlocked) {
-        // Vision has been completely blocked by this topology. Short circuit.
-        return new Area();
-      }
+    // The topology types are independent of each other, so they are solved in parallel.
+    final var results =
+        computeInParallel(
+            topologies,
+            topology -> {
+              final var solver =
+                  new VisibilityProblem(
+                      geometryFactory,
+                      new Coordinate(origin.getX(), origin.getY()),
+                      visionGeometry);
+              final var accumulator =
+                  new VisionBlockingAccumulator(geometryFactory, origin, visionGeometry);
+              final var isVisionCompletelyBlocked =
+                  accumulator.add(topology.getKey(), topology.getValue());
+              if (!isVisionCompletelyBlocked) {
+                // Vision has been completely blocked by this topology.
+                return COMPLETELY_BLOCKED;
+              }
 
-      for (var string : accumulator.getVisionBlockingSegments()) {
-        solver.add(string);
-      }
+              for (var string : accumulator.getVisionBlockingSegments()) {
+                solver.add(string);
+              }
 
-      final var visibleArea = solver.solve();
-      if (visibleArea != null) {
-        visibleAreas.add(visibleArea);
-      }
+              return solver.solve();
+            });
+    if (results.stream().anyMatch(result -> result == COMPLETELY_BLOCKED)) {
+      return new Area();
     }
+    List<Geometry> visibleAreas = results.stream().filter(Objects::nonNull).toList();
 
     // We have to intersect all the results in order to find the true remaining visible area.
     vision = new Area(vision);
@@ -355,7 +414,7 @@ public static void exposeLastPath(final ZoneRenderer renderer, final Set<GUID> t
             Map<GUID, ExposedAreaMetaData> fullMeta = zone.getExposedAreaMetaData();
             GUID exposedGUID = token.getExposedAreaGUID();
             final ExposedAreaMetaData meta =
-                fullMeta.computeIfAbsent(exposedGUID, guid -> new ExposedAreaMetaData());
+                fullMeta.computeIfAbsent(exposedGUID, guid -> zone.createExposedAreaMetaData());
 
             final Token tokenClone = new Token(token);
             final ZoneView zoneView = renderer.getZoneView();
@@ -22,6 +22,7 @@
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
 import net.rptools.maptool.model.GUID;
 import net.rptools.maptool.model.Light;
 import net.rptools.maptool.model.LightSource;
@@ -61,6 +62,9 @@ public record LightInfo(LightSource lightSource, Light light) {}
    */
   private final Illuminator illuminator = new Illuminator();
 
+  /** The same lit areas as {@link #illuminator}, as a raster. {@code null} if not wanted. */
+  private final @Nullable LumensRaster lumensRaster;
+
   /**
    * The list of all non-personal lights contributing to the the illuminator.
    *
@@ -70,6 +74,18 @@ public record LightInfo(LightSource lightSource, Light light) {}
    */
   private final Map<GUID, List<ContributedLight>> contributedLightsByToken = new HashMap<>();
 
+  public IlluminationModel() {
+    this(null);
+  }
+
+  /**
+   * @param lumensRaster the raster to keep up to date with the lit areas, or {@code null} to only
+   *     keep the areas.
+   */
+  public IlluminationModel(@Nullable LumensRaster lumensRaster) {
+    this.lumensRaster = lumensRaster;
+  }
+
   public void removeToken(GUID tokenId) {
     final var contributions =
         Objects.requireNonNullElse(
@@ -77,6 +93,9 @@ public void removeToken(GUID tokenId) {
     // Remove each contribution from the illuminator as well.
     for (final var contributedLight : contributions) {
       illuminator.remove(contributedLight.litArea());
+      if (lumensRaster != null) {
+        lumensRaster.remove(contributedLight.litArea());
+      }
     }
   }
 
@@ -87,6 +106,9 @@ public boolean hasToken(GUID tokenId) {
   public void addToken(GUID tokenId, List<ContributedLight> contributions) {
     for (final var contribution : contributions) {
       illuminator.add(contribution.litArea());
+      if (lumensRaster != null) {
+        lumensRaster.add(contribution.litArea());
+      }
       contributedLightsByToken.computeIfAbsent(tokenId, id -> new ArrayList<>()).add(contribution);
     }
   }
@@ -98,4 +120,8 @@ public Stream<ContributedLight> getContributions() {
   public Illumination getIllumination() {
     return illuminator.getIllumination();
   }
+
+  public @Nullable LumensRaster getLumensRaster() {
+    return lumensRaster;
+  }
 }
@@ -16,10 +16,14 @@
 
 import com.google.common.collect.Lists;
 import java.awt.geom.Area;
-import java.awt.geom.Path2D;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
 import net.rptools.maptool.client.ui.zone.Illumination.LumensLevel;
 
 /**
@@ -60,11 +64,7 @@ public void add(LitArea litArea) {
     }
 
     node.contributingLitAreas.add(litArea);
-
-    if (node.isValidated) {
-      // We can easily keep it validated, so do so.
-      extendPath(node, litArea);
-    }
+    node.getUnion(litArea).add(litArea);
   }
 
   public void remove(LitArea litArea) {
@@ -78,44 +78,7 @@ public void remove(LitArea litArea) {
       // Node exists, so modify it as needed.
       final var node = nodes.get(index);
       node.contributingLitAreas.remove(litArea);
-
-      node.isValidated = false;
-    }
-  }
-
-  /**
-   * Utility method for adding a {@link net.rptools.maptool.client.ui.zone.Illuminator.LitArea}'s
-   * area to {@link net.rptools.maptool.client.ui.zone.Illuminator.IlluminationNode}'s union paths.
-   *
-   * <p>If the lit area is darkness, it will be added to {@code node.totalDarknessArea}, otherwise
-   * it will be added to {@code node.totalLightArea}.
-   *
-   * @param node The node to extend.
-   * @param litArea The area to add to the node.
-   */
-  private void extendPath(IlluminationNode node, LitArea litArea) {
-    final var isDarkness = litArea.lumens() < 0;
-    final var path = isDarkness ? node.totalDarknessArea : node.totalLightArea;
-    path.append(litArea.area().getPathIterator(null, 1), false);
-  }
-
-  private void revalidateNode(IlluminationNode node) {
-    if (node.isValidated) {
-      return;
-    }
-
-    node.totalLightArea = new Path2D.Double();
-    node.totalDarknessArea = new Path2D.Double();
-    for (final var litArea : node.contributingLitAreas) {
-      extendPath(node, litArea);
-    }
-
-    node.isValidated = true;
-  }
-
-  private void revalidateAggregations() {
-    for (final var node : nodes) {
-      revalidateNode(node);
+      node.getUnion(litArea).remove(litArea);
     }
   }
 
@@ -124,14 +87,12 @@ public Illumination getIllumination() {
     // that the order is the same as {@link #nodes}.
     final var lumensLevels = new ArrayList<LumensLevel>();
 
-    revalidateAggregations();
-
     for (final var node : nodes) {
       // Darkness and light have been completely aggregated, so we can work off the final
       // result for the most part.
 
-      final var currentLitArea = new Area(node.totalLightArea);
-      final var currentDarknessArea = new Area(node.totalDarknessArea);
+      final var currentLitArea = node.totalLightArea.getUnion();
+      final var currentDarknessArea = node.totalDarknessArea.getUnion();
 
       // Note: lumens levels are not guaranteed to be disjoint. Otherwise, we would also have
       // to punch out strong light from weak light and strong darkness from weak darkness.
@@ -149,10 +110,9 @@ public Illumination getIllumination() {
    * darkness of the same magnitude are collected in the same node as it make certain operations
    * easier.
    *
-   * <p>The node also holds the union of all light and the union of all darkness, represented as a
-   * {@link java.awt.geom.Path2D}. This allows us to - relatively quickly - keep the unioned area
-   * up-to-date as {@code LitArea}s are added. Any removals invalidate the node and require the
-   * union to be recalculated.
+   * <p>The node also holds the union of all light and the union of all darkness, each as an {@link
+   * AreaUnion}. This allows us to keep the unioned areas up-to-date as {@code LitArea}s are added
+   * and removed, without recalculating the union of every area in the node.
    */
   private static final class IlluminationNode {
     /** The absolute value of the lumens of all lights represented by this node. */
@@ -166,22 +126,110 @@ private static final class IlluminationNode {
 
     // region The following are cached to quickly rebuild results after a change, but can themselves
     //        be recalculated at any time from {@link #contributingLitAreas}.
-    /**
-     * true if {@link #totalLightArea} and {@link #totalDarknessArea} agree with {@link
-     * #contributingLitAreas}.
-     */
-    public boolean isValidated = false;
 
     /** The union of all light areas in this node. */
-    public Path2D totalLightArea = new Path2D.Double();
+    public final AreaUnion totalLightArea = new AreaUnion();
 
     /** The union of all darkness areas in this node. */
-    public Path2D totalDarknessArea = new Path2D.Double();
+    public final AreaUnion totalDarknessArea = new AreaUnion();
 
     // endregion
 
     public IlluminationNode(int lumensStrength) {
       this.lumensStrength = lumensStrength;
     }
+
+    /**
+     * @param litArea a lit area of this node.
+     * @return the union that {@code litArea} belongs to.
+     */
+    public AreaUnion getUnion(LitArea litArea) {
+      return litArea.lumens() < 0 ? totalDarknessArea : totalLightArea;
+    }
+  }
+
+  /**
+   * The union of a changing set of lit areas.
+   *
+   * <p>The areas are the leaves of a binary tree where each inner node caches the union of its
+   * children. Adding or removing an area only invalidates the unions on the path from its leaf to
+   * the root, so only those have to be recalculated. The tree is stored as an array, with the
+   * children of node {@code i} at {@code 2i} and {@code 2i + 1}, and the leaves from {@code
+   * capacity} onwards.
+   */
+  private static final class AreaUnion {
+    private final Map<LitArea, Integer> slots = new IdentityHashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private int capacity = 1;
+    private int usedSlots = 0;
+    private @Nullable Area[] unions = new Area[2];
+    private boolean[] isValid = new boolean[2];
+
+    public void add(LitArea litArea) {
+      Integer slot = freeSlots.poll();
+      if (slot == null) {
+        if (usedSlots == capacity) {
+          grow();
+        }
+        slot = usedSlots++;
+      }
+      slots.put(litArea, slot);
+      unions[capacity + slot] = litArea.area();
+      invalidate(slot);
+    }
+
+    public void remove(LitArea litArea) {
+      final var slot = slots.remove(litArea);
+      if (slot == null) {
+        return;
+      }
+      unions[capacity + slot] = null;
+      freeSlots.push(slot);
+      invalidate(slot);
+    }
+
+    /**
+     * @return a copy of the union of all areas.
+     */
+    public Area getUnion() {
+      final var union = getUnion(1);
+      return union == null ? new Area() : new Area(union);
+    }
+
+    private @Nullable Area getUnion(int node) {
+      if (node >= capacity || isValid[node]) {
+        return unions[node];
+      }
+
+      final var left = getUnion(2 * node);
+      final var right = getUnion(2 * node + 1);
+      final Area union;
+      if (left == null) {
+        union = right;
+      } else if (right == null) {
+        union = left;
+      } else {
+        union = new Area(left);
+        union.add(right);
+      }
+      unions[node] = union;
+      isValid[node] = true;
+      return union;
+    }
+
+    private void invalidate(int slot) {
+      for (int node = (capacity + slot) / 2; node >= 1; node /= 2) {
+        isValid[node] = false;
+      }
+    }
+
+    private void grow() {
+      final var newCapacity = capacity * 2;
+      final var newUnions = new Area[2 * newCapacity];
+      System.arraycopy(unions, capacity, newUnions, newCapacity, capacity);
+      unions = newUnions;
+      isValid = new boolean[2 * newCapacity];
+      capacity = newCapacity;
+    }
   }
 }
@@ -23,6 +23,10 @@
 import java.awt.image.Raster;
 import java.awt.image.RasterFormatException;
 import java.awt.image.WritableRaster;
+import java.util.stream.IntStream;
+import javax.annotation.Nullable;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 /**
  * A custom Composite class to replace AlphaComposite for the purposes of mixing lights, auras, and
@@ -30,6 +34,8 @@
  * href="http://www.java2s.com/Code/Java/2D-Graphics-GUI/BlendCompositeDemo.htm">...</a>
  */
 public class LightingComposite implements Composite {
+  private static final Logger log = LogManager.getLogger(LightingComposite.class);
+
   /**
    * Used to blend lights together to give an additive effect.
    *
@@ -37,17 +43,76 @@ public class LightingComposite implements Composite {
    * #OverlaidLights}) or clear (when used with {@link java.awt.AlphaComposite}) and then lights
    * should be added to it one-by-one.
    */
-  public static final Composite BlendedLights = new LightingComposite(new ScreenBlender());
+  public static final Composite BlendedLights = new LightingComposite(createScreenBlender());
 
   /** Used to blend lighting results with an underlying image. */
   public static final Composite OverlaidLights =
-      new LightingComposite(new ConstrainedBrightenBlender());
+      new LightingComposite(createConstrainedBrightenBlender());
+
+  /** Images with at least this many pixels are split into bands of rows that blend in parallel. */
+  private static final int PARALLEL_THRESHOLD = 256 * 256;
+
+  /** The fewest rows in a band, so that each band is worth handing to another thread. */
+  private static final int MIN_BAND_HEIGHT = 32;
 
   // Blenders are stateless, so no point making new ones all the time.
   private final Blender blender;
+  private final boolean allowParallel;
 
   public LightingComposite(Blender blender) {
+    this(blender, true);
+  }
+
+  /**
+   * @param blender the blender to mix the pixels with.
+   * @param allowParallel whether large images may be blended by several threads at once.
+   */
+  LightingComposite(Blender blender, boolean allowParallel) {
     this.blender = blender;
+    this.allowParallel = allowParallel;
+  }
+
+  /**
+   * Checks whether the Vector API is available. It is an incubator module, so it is only there when
+   * the JVM is started with {@code --add-modules jdk.incubator.vector}, and {@link VectorBlenders}
+   * must not even be loaded otherwise.
+   *
+   * @return whether the blenders in {@link VectorBlenders} can be used.
+   */
+  static boolean isVectorApiAvailable() {
+    return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+  }
+
+  /**
+   * Creates one of the blenders in {@link VectorBlenders}. They are in their own source set that is
+   * compiled with the incubator module, so they are looked up by name rather than referenced here.
+   *
+   * @param name the simple name of the blender class, e.g. {@code "ScreenBlender"}.
+   * @return the blender, or {@code null} if the Vector API or the blender isn't available.
+   */
+  static @Nullable Blender createVectorBlender(String name) {
+    if (!isVectorApiAvailable()) {
+      return null;
+    }
+    try {
+      return (Blender)
+          Class.forName(LightingComposite.class.getPackageName() + ".VectorBlenders$" + name)
+              .getDeclaredConstructor()
+              .newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      log.warn("Unable to load the Vector API blender {}, using the scalar one", name, e);
+      return null;
+    }
+  }
+
+  private static Blender createScreenBlender() {
+    final var blender = createVectorBlender("ScreenBlender");
+    return blender != null ? blender : new ScreenBlender();
+  }
+
+  private static Blender createConstrainedBrightenBlender() {
+    final var blender = createVectorBlender("ConstrainedBrightenBlender");
+    return blender != null ? blender : new ConstrainedBrightenBlender();
   }
 
   private static void checkComponentsOrder(ColorModel cm) throws RasterFormatException {
@@ -73,22 +138,26 @@ public CompositeContext createContext(
     checkComponentsOrder(srcColorModel);
     checkComponentsOrder(dstColorModel);
 
-    return new BlenderContext(blender);
+    return new BlenderContext(blender, allowParallel);
   }
 
   private static final class BlenderContext implements CompositeContext {
-    // Technically contexts can be multithreaded, but not in practice. If need be, the buffers could
-    // be made thread-local. A length of 4K was chosen as the size since it is larger than most
-    // screen widths (a little more than 4K resolution) while not be too high for this sort of use.
-    // So this should support typical cases without needing to blend rows in chunks.
+    // A length of 4K was chosen as the size since it is larger than most screen widths (a little
+    // more than 4K resolution) while not be too high for this sort of use. So this should support
+    // typical cases without needing to blend rows in chunks. Each thread gets its own buffers, as
+    // bands of rows are blended on several threads.
     private static final int BUFFER_LENGTH = 4 * 1024;
-    private static final int[] SRC_BUFFER = new int[BUFFER_LENGTH];
-    private static final int[] DST_BUFFER = new int[BUFFER_LENGTH];
+    private static final ThreadLocal<int[]> SRC_BUFFER =
+        ThreadLocal.withInitial(() -> new int[BUFFER_LENGTH]);
+    private static final ThreadLocal<int[]> DST_BUFFER =
+        ThreadLocal.withInitial(() -> new int[BUFFER_LENGTH]);
 
     private final Blender blender;
+    private final boolean allowParallel;
 
-    public BlenderContext(Blender blender) {
+    public BlenderContext(Blender blender, boolean allowParallel) {
       this.blender = blender;
+      this.allowParallel = allowParallel;
     }
 
     @Override
@@ -96,10 +165,35 @@ public void compose(Raster src, Raster dstIn, WritableRaster dstOut) {
       final int w = Math.min(src.getWidth(), dstIn.getWidth());
       final int h = Math.min(src.getHeight(), dstIn.getHeight());
 
-      final int[] srcPixels = SRC_BUFFER;
-      final int[] dstPixels = DST_BUFFER;
+      final var bandCount =
+          allowParallel && (long) w * h >= PARALLEL_THRESHOLD
+              ? Math.min(Runtime.getRuntime().availableProcessors(), h / MIN_BAND_HEIGHT)
+              : 1;
+      if (bandCount <= 1) {
+        composeRows(src, dstIn, dstOut, w, 0, h);
+        return;
+      }
+
+      // Each band only reads and writes its own rows, so the bands don't interfere.
+      IntStream.range(0, bandCount)
+          .parallel()
+          .forEach(
+              band ->
+                  composeRows(
+                      src,
+                      dstIn,
+                      dstOut,
+                      w,
+                      (int) ((long) h * band / bandCount),
+                      (int) ((long) h * (band + 1) / bandCount)));
+    }
+
+    private void composeRows(
+        Raster src, Raster dstIn, WritableRaster dstOut, int w, int fromY, int toY) {
+      final int[] srcPixels = SRC_BUFFER.get();
+      final int[] dstPixels = DST_BUFFER.get();
 
-      for (int y = 0; y < h; y++) {
+      for (int y = fromY; y < toY; y++) {
         // region "Fast path". If w < BUFFER_LENGTH, this just blends in one go.
         final var firstChunkLength = (w - 1) % BUFFER_LENGTH + 1;
         src.getDataElements(src.getMinX(), y + src.getMinY(), firstChunkLength, 1, srcPixels);
@@ -170,7 +264,7 @@ public interface Blender {
    *   <li>When either the top component or the bottom component is maxed, the result is maxed.
    * </ul>
    */
-  private static final class ScreenBlender implements Blender {
+  static final class ScreenBlender implements Blender {
     public void blendRow(int[] dstPixels, int[] srcPixels, int samples) {
       for (int x = 0; x < samples; ++x) {
         final int srcPixel = srcPixels[x];
@@ -231,7 +325,7 @@ public void blendRow(int[] dstPixels, int[] srcPixels, int samples) {
    *   <li>When the top component is 0, the result is the bottom component.
    * </ul>
    */
-  private static final class ConstrainedBrightenBlender implements Blender {
+  static final class ConstrainedBrightenBlender implements Blender {
     public void blendRow(int[] dstPixels, int[] srcPixels, int samples) {
       for (int x = 0; x < samples; ++x) {
         final int srcPixel = srcPixels[x];
@@ -0,0 +1,248 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+import net.rptools.maptool.client.ui.zone.Illuminator.LitArea;
+
+/**
+ * A raster of the strongest lumens at each point, as an alternative to the areas of an {@link
+ * Illuminator} for looking up the lumens at a point.
+ *
+ * <p>The zone is divided into square cells of {@link #getCellSize()} zone pixels, and the cells are
+ * grouped into tiles. Only the tiles that some lit area overlaps exist. Adding or removing a lit
+ * area marks the tiles it overlaps as dirty, and a dirty tile is drawn again from its lit areas the
+ * next time it is looked at, so changing a light never touches the rest of the zone.
+ *
+ * <p>The lumens of a cell are those of the strongest light or darkness covering the center of the
+ * cell, with darkness winning over light of the same strength. This is the same as the strongest
+ * level of {@link Illumination#getDisjointObscuredLumensLevels()} covering the point.
+ *
+ * <p>The raster only answers lumens lookups, i.e. {@code getIllumination()} through {@link
+ * ZoneView#getRasterLumens}. Visibility and the lumens overlays still use the areas, since they
+ * need the exact shapes rather than a lumens value per cell.
+ */
+public final class LumensRaster {
+  /** The width and height of a tile, in cells. */
+  private static final int TILE_CELLS = 64;
+
+  /** A tile of the raster, with the lit areas overlapping it. */
+  private static final class Tile {
+    private final List<LitArea> litAreas = new ArrayList<>();
+
+    /** The {@link #encode(int) encoded} lumens of each cell, row by row. */
+    private final int[] cells = new int[TILE_CELLS * TILE_CELLS];
+
+    private boolean isDirty = true;
+  }
+
+  private final int cellSize;
+  private final Map<Long, Tile> tiles = new HashMap<>();
+
+  /** Where lit areas are drawn to find the cells of a tile they cover. */
+  private final BufferedImage mask =
+      new BufferedImage(TILE_CELLS, TILE_CELLS, BufferedImage.TYPE_BYTE_GRAY);
+
+  /**
+   * @param cellSize the width and height of a cell, in zone pixels.
+   */
+  public LumensRaster(int cellSize) {
+    if (cellSize <= 0) {
+      throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+    }
+    this.cellSize = cellSize;
+  }
+
+  /**
+   * @return the width and height of a cell, in zone pixels.
+   */
+  public int getCellSize() {
+    return cellSize;
+  }
+
+  public synchronized void add(LitArea litArea) {
+    forEachTile(
+        litArea,
+        key -> {
+          final var tile = tiles.computeIfAbsent(key, k -> new Tile());
+          tile.litAreas.add(litArea);
+          tile.isDirty = true;
+        });
+  }
+
+  public synchronized void remove(LitArea litArea) {
+    forEachTile(
+        litArea,
+        key -> {
+          final var tile = tiles.get(key);
+          if (tile != null && tile.litAreas.remove(litArea)) {
+            if (tile.litAreas.isEmpty()) {
+              tiles.remove(key);
+            } else {
+              tile.isDirty = true;
+            }
+          }
+        });
+  }
+
+  public synchronized void clear() {
+    tiles.clear();
+  }
+
+  /**
+   * Looks up the lumens at a point.
+   *
+   * @param x the x coordinate of the point, in zone pixels.
+   * @param y the y coordinate of the point, in zone pixels.
+   * @return the lumens of the strongest light or darkness at the point, negative for darkness. If
+   *     there is no light or darkness at the point, {@code 0}.
+   */
+  public synchronized int getLumens(double x, double y) {
+    final var cellX = (long) Math.floor(x / cellSize);
+    final var cellY = (long) Math.floor(y / cellSize);
+    final var tileX = Math.floorDiv(cellX, TILE_CELLS);
+    final var tileY = Math.floorDiv(cellY, TILE_CELLS);
+    final var tile = tiles.get(key(tileX, tileY));
+    if (tile == null) {
+      return 0;
+    }
+
+    if (tile.isDirty) {
+      draw(tile, tileX, tileY);
+    }
+    final var index =
+        (int) (Math.floorMod(cellY, TILE_CELLS) * TILE_CELLS + Math.floorMod(cellX, TILE_CELLS));
+    return decode(tile.cells[index]);
+  }
+
+  /**
+   * Looks up whether a point is lit.
+   *
+   * @param x the x coordinate of the point, in zone pixels.
+   * @param y the y coordinate of the point, in zone pixels.
+   * @return {@code true} if the strongest light or darkness at the point is a light.
+   */
+  public boolean isLit(double x, double y) {
+    return getLumens(x, y) > 0;
+  }
+
+  /**
+   * Picks the lumens that win out where two lights or darknesses overlap.
+   *
+   * @param lhs some lumens, negative for darkness.
+   * @param rhs some other lumens, negative for darkness.
+   * @return the stronger of {@code lhs} and {@code rhs}, or the darkness if they are as strong.
+   */
+  public static int stronger(int lhs, int rhs) {
+    return encode(lhs) >= encode(rhs) ? lhs : rhs;
+  }
+
+  /**
+   * Encodes lumens so that stronger lumens are greater, and darkness is greater than light of the
+   * same strength. {@code 0} is left for cells without any light or darkness.
+   */
+  private static int encode(int lumens) {
+    return 2 * Math.abs(lumens) + (lumens < 0 ? 1 : 0) + 1;
+  }
+
+  private static int decode(int encoded) {
+    if (encoded == 0) {
+      return 0;
+    }
+    final var strength = (encoded - 1) / 2;
+    return (encoded - 1) % 2 == 1 ? -strength : strength;
+  }
+
+  /** Draws a tile again from its lit areas. */
+  private void draw(Tile tile, long tileX, long tileY) {
+    Arrays.fill(tile.cells, 0);
+    var remaining = tile.cells.length;
+
+    // Draw the strongest first, so that a cell is done as soon as anything covers it.
+    final var litAreas = new ArrayList<>(tile.litAreas);
+    litAreas.sort(
+        Comparator.comparingInt((LitArea litArea) -> encode(litArea.lumens())).reversed());
+
+    final var pixels = ((DataBufferByte) mask.getRaster().getDataBuffer()).getData();
+    final var g = mask.createGraphics();
+    try {
+      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+      g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+      // Pixels are filled when their center is inside, so each cell is sampled at its center. The
+      // shapes must not be nudged to pixel boundaries, as a pixel spans a whole cell.
+      final var transform = AffineTransform.getScaleInstance(1.0 / cellSize, 1.0 / cellSize);
+      transform.translate(-tileX * TILE_CELLS * cellSize, -tileY * TILE_CELLS * cellSize);
+
+      for (final var litArea : litAreas) {
+        if (remaining == 0) {
+          break;
+        }
+
+        g.setTransform(new AffineTransform());
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, TILE_CELLS, TILE_CELLS);
+        g.setTransform(transform);
+        g.setColor(Color.WHITE);
+        g.fill(litArea.area());
+
+        final var encoded = encode(litArea.lumens());
+        for (int i = 0; i < pixels.length; ++i) {
+          if (pixels[i] != 0 && tile.cells[i] == 0) {
+            tile.cells[i] = encoded;
+            --remaining;
+          }
+        }
+      }
+    } finally {
+      g.dispose();
+    }
+    tile.isDirty = false;
+  }
+
+  /** Calls {@code consumer} with the key of each tile the bounds of a lit area overlap. */
+  private void forEachTile(LitArea litArea, LongConsumer consumer) {
+    final Rectangle bounds = litArea.area().getBounds();
+    if (bounds.isEmpty()) {
+      return;
+    }
+
+    final var tileSize = (long) TILE_CELLS * cellSize;
+    final var minX = Math.floorDiv((long) bounds.x, tileSize);
+    final var minY = Math.floorDiv((long) bounds.y, tileSize);
+    final var maxX = Math.floorDiv((long) bounds.x + bounds.width, tileSize);
+    final var maxY = Math.floorDiv((long) bounds.y + bounds.height, tileSize);
+    for (var x = minX; x <= maxX; ++x) {
+      for (var y = minY; y <= maxY; ++y) {
+        consumer.accept(key(x, y));
+      }
+    }
+  }
+
+  private static long key(long tileX, long tileY) {
+    return (tileX << 32) | (tileY & 0xFFFFFFFFL);
+  }
+}
@@ -14,6 +14,7 @@
  */
 package net.rptools.maptool.client.ui.zone;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Composite;
@@ -26,26 +27,68 @@
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.Nullable;
+import javax.swing.SwingUtilities;
 import net.rptools.lib.CodeTimer;
 import net.rptools.lib.image.ImageUtil;
 import net.rptools.maptool.client.DeveloperOptions;
+import net.rptools.maptool.model.drawing.AbstractTemplate;
 import net.rptools.maptool.model.drawing.Drawable;
+import net.rptools.maptool.model.drawing.DrawableColorPaint;
+import net.rptools.maptool.model.drawing.DrawablePaint;
 import net.rptools.maptool.model.drawing.DrawablesGroup;
 import net.rptools.maptool.model.drawing.DrawnElement;
 import net.rptools.maptool.model.drawing.Pen;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-/** */
+/**
+ * Draws the drawables of a layer in chunks of the screen, keeping the chunks until the drawables or
+ * the scale change.
+ *
+ * <p>When painting the zone, chunks that haven't been drawn yet are drawn by a pool of worker
+ * threads and show up as they finish. Until then, the chunks drawn before the drawables last
+ * changed are shown in their place. Chunks with drawables that are only safe to draw on the EDT,
+ * such as templates and texture paints, are drawn on the EDT straight away.
+ */
 public class PartitionedDrawableRenderer implements DrawableRenderer {
   private static Logger log = LogManager.getLogger(PartitionedDrawableRenderer.class);
   private static boolean messageLogged = false;
 
   private static final int CHUNK_SIZE = 256;
-  private static List<BufferedImage> unusedChunkList = new LinkedList<BufferedImage>();
 
-  private final Set<String> noImageSet = new HashSet<String>();
-  private final List<Tuple> chunkList = new LinkedList<Tuple>();
+  /** The size of the buckets of the drawable index, in zone pixels. */
+  private static final int INDEX_BUCKET_SIZE = 512;
+
+  private static final Queue<BufferedImage> unusedChunkList = new ConcurrentLinkedQueue<>();
+
+  private static final ExecutorService chunkRenderer =
+      Executors.newFixedThreadPool(
+          Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)),
+          new ThreadFactoryBuilder()
+              .setNameFormat("drawable-chunk-renderer-%d")
+              .setDaemon(true)
+              .build());
+
+  /** Called on the EDT whenever a chunk has been drawn in the background. */
+  private final Runnable onChunkReady;
+
+  /** The chunks drawn for the current drawables and scale, least recently used first. */
+  private final LinkedHashMap<Long, BufferedImage> chunkMap = new LinkedHashMap<>(64, 0.75f, true);
+
+  /** The chunks drawn before the drawables last changed, shown until they are drawn again. */
+  private final Map<Long, BufferedImage> staleChunkMap = new HashMap<>();
+
+  private final Set<Long> noImageSet = new HashSet<>();
+  private final Set<Long> pendingChunkSet = new HashSet<>();
+
+  /** Counts the times the chunks were dropped, so that chunks drawn for older ones are ignored. */
+  private int generation;
+
+  private @Nullable DrawnElementIndex index;
   private int maxChunks;
 
   private double lastScale;
@@ -56,17 +99,17 @@ public class PartitionedDrawableRenderer implements DrawableRenderer {
 
   private boolean dirty = false;
 
+  /**
+   * @param onChunkReady called on the EDT whenever a chunk has been drawn in the background, so
+   *     that it can be shown.
+   */
+  public PartitionedDrawableRenderer(Runnable onChunkReady) {
+    this.onChunkReady = onChunkReady;
+  }
+
   public void flush() {
-    int unusedSize = unusedChunkList.size();
-    for (Tuple tuple : chunkList) {
-      // Reuse the images
-      if (unusedSize < maxChunks && tuple != null) {
-        unusedChunkList.add(tuple.image);
-        unusedSize++;
-      }
-    }
-    chunkList.clear();
-    noImageSet.clear();
+    dropChunks(true);
+    index = null;
     dirty = false;
   }
 
@@ -74,8 +117,55 @@ public void setDirty() {
     dirty = true;
   }
 
+  /**
+   * Drops the chunks, and ignores any chunks still being drawn.
+   *
+   * @param keepStale whether the chunks are still shown until they are drawn again.
+   */
+  private void dropChunks(boolean keepStale) {
+    recycle(staleChunkMap.values());
+    staleChunkMap.clear();
+    if (keepStale) {
+      staleChunkMap.putAll(chunkMap);
+    } else {
+      recycle(chunkMap.values());
+    }
+    chunkMap.clear();
+    noImageSet.clear();
+    pendingChunkSet.clear();
+    generation++;
+  }
+
+  private void recycle(Collection<BufferedImage> images) {
+    for (BufferedImage image : images) {
+      recycle(image);
+    }
+  }
+
+  private void recycle(BufferedImage image) {
+    // Reuse the images
+    if (unusedChunkList.size() < maxChunks) {
+      unusedChunkList.add(image);
+    }
+  }
+
   public void renderDrawables(
       Graphics g, List<DrawnElement> drawableList, Rectangle viewport, double scale) {
+    render(g, drawableList, viewport, scale, false);
+  }
+
+  @Override
+  public void renderDrawablesProgressively(
+      Graphics g, List<DrawnElement> drawableList, Rectangle viewport, double scale) {
+    render(g, drawableList, viewport, scale, true);
+  }
+
+  private void render(
+      Graphics g,
+      List<DrawnElement> drawableList,
+      Rectangle viewport,
+      double scale,
+      boolean progressive) {
     CodeTimer.using(
         "Renderer",
         timer -> {
@@ -84,13 +174,25 @@ public void renderDrawables(
 
           // NOTHING TO DO
           if (drawableList == null || drawableList.isEmpty()) {
-            if (dirty) flush();
+            if (dirty) {
+              dropChunks(false);
+              index = null;
+              dirty = false;
+            }
             return;
           }
           // View changed ?
-          if (dirty || lastScale != scale) {
+          if (lastScale != scale) {
+            dropChunks(false);
+          }
+          if (dirty) {
             flush();
           }
+          if (index == null) {
+            timer.start("render:index");
+            index = new DrawnElementIndex(drawableList, INDEX_BUCKET_SIZE);
+            timer.stop("render:index");
+          }
           if (lastViewport == null
               || viewport.width != lastViewport.width
               || viewport.height != lastViewport.height) {
@@ -115,29 +217,23 @@ public void renderDrawables(
               int cellX = gridx + col;
               int cellY = gridy + row;
 
-              String key = getKey(cellX, cellY);
+              long key = getKey(cellX, cellY);
               if (noImageSet.contains(key)) {
                 continue;
               }
-              Tuple chunk = findChunk(chunkList, key);
-              if (chunk == null) {
-                chunk = new Tuple(key, createChunk(drawableList, cellX, cellY, scale));
-
-                if (chunk.image == null) {
-                  noImageSet.add(key);
-                  continue;
+              BufferedImage image = chunkMap.get(key);
+              if (image == null && progressive) {
+                image = requestChunk(cellX, cellY, scale);
+                if (image == null) {
+                  // Show the chunk as it was until it has been drawn again.
+                  image = staleChunkMap.get(key);
                 }
+              } else if (image == null) {
+                image = createChunk(getElements(index, cellX, cellY, scale), cellX, cellY, scale);
+                putChunk(key, image);
               }
-              // Most recently used is at the front
-              chunkList.add(0, chunk);
-
-              // Trim to the right size
-              if (chunkList.size() > maxChunks) {
-                int chunkSize = chunkList.size();
-                // chunkList.subList(maxChunks, chunkSize).clear();
-                while (chunkSize > maxChunks) {
-                  chunkList.remove(--chunkSize);
-                }
+              if (image == null) {
+                continue;
               }
               int x =
                   col * CHUNK_SIZE
@@ -149,7 +245,7 @@ public void renderDrawables(
                       - (gridy < -1 ? CHUNK_SIZE : 0);
 
               timer.start("render:DrawImage");
-              g.drawImage(chunk.image, x, y, null);
+              g.drawImage(image, x, y, null);
               timer.stop("render:DrawImage");
 
               // DEBUG: Show partition boundaries
@@ -175,7 +271,7 @@ public void renderDrawables(
                   }
                 }
                 g.drawRect(x, y, CHUNK_SIZE - 1, CHUNK_SIZE - 1);
-                g.drawString(key, x + CHUNK_SIZE / 2, y + CHUNK_SIZE / 2);
+                g.drawString(cellX + "." + cellY, x + CHUNK_SIZE / 2, y + CHUNK_SIZE / 2);
               }
             }
           }
@@ -186,25 +282,120 @@ public void renderDrawables(
   }
 
   /**
-   * Given a List and a String key, find the element in the list that matches the key.
+   * Draws a chunk in the background, unless it is already being drawn.
+   *
+   * <p>The elements of the chunk are found here on the EDT. If any of them can't be drawn off the
+   * EDT, the chunk is drawn right away instead.
    *
-   * @param list
-   * @param key
-   * @return
+   * @return the chunk if it was drawn right away, otherwise {@code null}.
    */
-  private Tuple findChunk(List<Tuple> list, String key) {
-    ListIterator<Tuple> iter = list.listIterator();
-    while (iter.hasNext()) {
-      Tuple tuple = iter.next();
-      if (tuple.key.equals(key)) {
-        iter.remove();
-        return tuple;
-      }
+  private @Nullable BufferedImage requestChunk(int cellX, int cellY, double scale) {
+    final var key = getKey(cellX, cellY);
+    if (pendingChunkSet.contains(key)) {
+      return null;
+    }
+    final var elements = getElements(index, cellX, cellY, scale);
+    if (!elements.stream().allMatch(PartitionedDrawableRenderer::canDrawInBackground)) {
+      final var image = createChunk(elements, cellX, cellY, scale);
+      putChunk(key, image);
+      return image;
     }
+
+    pendingChunkSet.add(key);
+    final var chunkGeneration = generation;
+    chunkRenderer.execute(
+        () -> {
+          BufferedImage image = null;
+          boolean failed = false;
+          try {
+            image = createChunk(elements, cellX, cellY, scale);
+          } catch (RuntimeException e) {
+            log.error("Could not draw drawables for chunk {}.{}", cellX, cellY, e);
+            failed = true;
+          }
+          final var chunk = image;
+          final var chunkFailed = failed;
+          SwingUtilities.invokeLater(() -> chunkReady(chunkGeneration, key, chunk, chunkFailed));
+        });
     return null;
   }
 
-  private BufferedImage createChunk(
+  /**
+   * Checks whether an element can be drawn by the chunk renderers. Templates look up their zone
+   * through {@link net.rptools.maptool.client.MapTool}, and texture paints load their image with
+   * observers that flush the renderer, so both are only safe on the EDT.
+   */
+  private static boolean canDrawInBackground(DrawnElement element) {
+    final var drawable = element.getDrawable();
+    if (drawable instanceof AbstractTemplate) {
+      return false;
+    }
+    if (drawable instanceof DrawablesGroup group
+        && !group.getDrawableList().stream()
+            .allMatch(PartitionedDrawableRenderer::canDrawInBackground)) {
+      return false;
+    }
+    final var pen = element.getPen();
+    return pen == null || (isPlainPaint(pen.getPaint()) && isPlainPaint(pen.getBackgroundPaint()));
+  }
+
+  private static boolean isPlainPaint(@Nullable DrawablePaint paint) {
+    return paint == null || paint instanceof DrawableColorPaint;
+  }
+
+  private void chunkReady(
+      int chunkGeneration, long key, @Nullable BufferedImage image, boolean failed) {
+    if (chunkGeneration != generation || !pendingChunkSet.remove(key)) {
+      // The drawables or scale have changed since, or the chunk was drawn in the meantime.
+      if (image != null) {
+        recycle(image);
+      }
+      return;
+    }
+    if (failed) {
+      // Leave the chunk to be drawn again the next time it is painted.
+      return;
+    }
+    putChunk(key, image);
+    onChunkReady.run();
+  }
+
+  /** Keeps a chunk that has just been drawn, dropping the least recently used if there are many. */
+  private void putChunk(long key, @Nullable BufferedImage image) {
+    pendingChunkSet.remove(key);
+    final var stale = staleChunkMap.remove(key);
+    if (stale != null) {
+      recycle(stale);
+    }
+    if (image == null) {
+      noImageSet.add(key);
+      return;
+    }
+    chunkMap.put(key, image);
+
+    // Trim to the right size
+    final var iterator = chunkMap.values().iterator();
+    while (chunkMap.size() > maxChunks && iterator.hasNext()) {
+      final var eldest = iterator.next();
+      iterator.remove();
+      recycle(eldest);
+    }
+  }
+
+  /**
+   * @return the elements that overlap a chunk, in the order they are drawn.
+   */
+  private static List<DrawnElement> getElements(
+      DrawnElementIndex index, int gridx, int gridy, double scale) {
+    return index.getElements(
+        new Rectangle(
+            (int) (gridx * (CHUNK_SIZE / scale)),
+            (int) (gridy * (CHUNK_SIZE / scale)),
+            (int) (CHUNK_SIZE / scale),
+            (int) (CHUNK_SIZE / scale)));
+  }
+
+  private static BufferedImage createChunk(
       List<DrawnElement> drawableList, int gridx, int gridy, double scale) {
     final var timer = CodeTimer.get();
 
@@ -290,10 +481,9 @@ private BufferedImage createChunk(
     return image;
   }
 
-  private BufferedImage getNewChunk() {
-    BufferedImage image = null;
-    if (unusedChunkList.size() > 0) {
-      image = unusedChunkList.remove(0);
+  private static BufferedImage getNewChunk() {
+    BufferedImage image = unusedChunkList.poll();
+    if (image != null) {
       ImageUtil.clearImage(image);
     } else {
       image = new BufferedImage(CHUNK_SIZE, CHUNK_SIZE, Transparency.BITMASK);
@@ -302,30 +492,7 @@ private BufferedImage getNewChunk() {
     return image;
   }
 
-  private String getKey(int col, int row) {
-    return col + "." + row;
-  }
-
-  private static class Tuple {
-    String key;
-    BufferedImage image;
-
-    public Tuple(String key, BufferedImage image) {
-      this.key = key;
-      this.image = image;
-    }
-
-    @Override
-    public boolean equals(Object o) {
-      if (this == o) return true;
-      if (o == null || getClass() != o.getClass()) return false;
-      Tuple tuple = (Tuple) o;
-      return Objects.equals(key, tuple.key);
-    }
-
-    @Override
-    public int hashCode() {
-      return Objects.hash(key);
-    }
+  private static long getKey(int col, int row) {
+    return ((long) col << 32) | (row & 0xFFFFFFFFL);
   }
 }
@@ -0,0 +1,174 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import java.awt.geom.Area;
+import java.awt.geom.PathIterator;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import net.rptools.maptool.client.AppUtil;
+import net.rptools.maptool.client.ui.zone.vbl.AreaTree;
+import net.rptools.maptool.client.ui.zone.vbl.VisibilityField;
+import net.rptools.maptool.model.GUID;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps {@link VisibilityField}s on disk, so that each is only built once for the Wall VBL and grid
+ * of a zone.
+ *
+ * <p>The files are named after the zone and a hash of the Wall VBL and grid. Only the latest file
+ * of each zone is kept.
+ */
+final class VisibilityFieldCache {
+  private static final Logger log = LogManager.getLogger(VisibilityFieldCache.class);
+
+  private static final String EXTENSION = ".visfield";
+
+  private VisibilityFieldCache() {}
+
+  /**
+   * Loads the field for the Wall VBL and grid of a zone from disk, or builds it and saves it if
+   * there is none.
+   *
+   * @param zoneId the zone.
+   * @param wallVbl the Wall VBL of the zone.
+   * @param wallTree the tree of {@code wallVbl}.
+   * @param cellSize the size of the grid.
+   * @param offsetX the x offset of the grid.
+   * @param offsetY the y offset of the grid.
+   * @param isCancelled checked while building, to stop building a field that is no longer wanted.
+   * @return the field.
+   * @throws CancellationException if {@code isCancelled} returned {@code true} while building.
+   */
+  static VisibilityField loadOrBuild(
+      GUID zoneId,
+      Area wallVbl,
+      AreaTree wallTree,
+      int cellSize,
+      int offsetX,
+      int offsetY,
+      BooleanSupplier isCancelled) {
+    final var directory = AppUtil.getAppHome("visibilitycache");
+    final var hash = hash(wallVbl, cellSize, offsetX, offsetY);
+    final var path = new File(directory, zoneId + "-" + hash + EXTENSION);
+
+    if (path.isFile()) {
+      try (var in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+        return VisibilityField.read(in);
+      } catch (IOException e) {
+        log.warn("Could not read visibility field {}, building it again", path, e);
+      }
+    }
+
+    final var start = System.currentTimeMillis();
+    final var field =
+        VisibilityField.build(
+            wallTree, wallVbl.getBounds(), cellSize, offsetX, offsetY, isCancelled);
+    log.info(
+        "Built visibility field for zone {} in {} ms", zoneId, System.currentTimeMillis() - start);
+
+    // The Wall VBL of the zone has changed since any other field was saved.
+    final var others =
+        directory.listFiles(
+            (dir, name) -> name.startsWith(zoneId + "-") && name.endsWith(EXTENSION));
+    if (others != null) {
+      for (final var other : others) {
+        if (!other.delete()) {
+          log.debug("Could not delete old visibility field {}", other);
+        }
+      }
+    }
+    save(field, path);
+    return field;
+  }
+
+  /**
+   * Writes a field to a temporary file next to {@code path}, then moves it into place, so that no
+   * one reads a partly written field.
+   *
+   * @param field the field to save.
+   * @param path the file to save it to.
+   */
+  private static void save(VisibilityField field, File path) {
+    Path temp = null;
+    try {
+      temp = Files.createTempFile(path.getParentFile().toPath(), path.getName(), ".tmp");
+      try (var out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+        field.write(out);
+      }
+      Files.move(
+          temp, path.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      log.warn("Could not save visibility field {}", path, e);
+      if (temp != null) {
+        try {
+          Files.deleteIfExists(temp);
+        } catch (IOException deleteException) {
+          log.debug("Could not delete temporary file {}", temp, deleteException);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return a hash of everything a field depends on.
+   */
+  private static String hash(Area wallVbl, int cellSize, int offsetX, int offsetY) {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is always available", e);
+    }
+
+    final var buffer = ByteBuffer.allocate(7 * Double.BYTES);
+    buffer.putInt(cellSize).putInt(offsetX).putInt(offsetY);
+    digest.update(buffer.flip());
+
+    final var coordinates = new double[6];
+    for (var iterator = wallVbl.getPathIterator(null); !iterator.isDone(); iterator.next()) {
+      final var type = iterator.currentSegment(coordinates);
+      buffer.clear();
+      buffer.putInt(type);
+      final var count =
+          switch (type) {
+            case PathIterator.SEG_MOVETO, PathIterator.SEG_LINETO -> 2;
+            case PathIterator.SEG_QUADTO -> 4;
+            case PathIterator.SEG_CUBICTO -> 6;
+            default -> 0;
+          };
+      for (int i = 0; i < count; ++i) {
+        buffer.putDouble(coordinates[i]);
+      }
+      digest.update(buffer.flip());
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+}
@@ -14,17 +14,27 @@
  */
 package net.rptools.maptool.client.ui.zone;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.Lists;
 import com.google.common.eventbus.Subscribe;
 import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
+import java.awt.geom.Rectangle2D;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import net.rptools.maptool.client.AppPreferences;
 import net.rptools.maptool.client.AppUtil;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.client.ui.zone.Illumination.LumensLevel;
@@ -32,6 +42,7 @@
 import net.rptools.maptool.client.ui.zone.IlluminationModel.LightInfo;
 import net.rptools.maptool.client.ui.zone.Illuminator.LitArea;
 import net.rptools.maptool.client.ui.zone.vbl.AreaTree;
+import net.rptools.maptool.client.ui.zone.vbl.VisibilityField;
 import net.rptools.maptool.events.MapToolEventBus;
 import net.rptools.maptool.model.*;
 import net.rptools.maptool.model.player.Player;
@@ -42,7 +53,12 @@
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-/** Responsible for calculating lights and vision. */
+/**
+ * Responsible for calculating lights and vision.
+ *
+ * <p>The vision of each token and the lit areas of each light source are independent of each other,
+ * so they are calculated in parallel. The caches can therefore be filled from several threads.
+ */
 public class ZoneView {
   /**
    * Represents the important aspects of a sight for the purposes of calculating illumination.
@@ -68,11 +84,11 @@ private record LightSourceMapKey(Player.Role role, LightSource.Type type) {}
    * Map light source type to all tokens with that type. Will always have entries for each light
    * type, so no need to check whether they exist.
    */
-  private final Map<LightSourceMapKey, Set<GUID>> lightSourceMap = new HashMap<>();
+  private final Map<LightSourceMapKey, Set<GUID>> lightSourceMap = new ConcurrentHashMap<>();
 
   private Set<GUID> getLightSources(Player.Role role, LightSource.Type type) {
     return lightSourceMap.computeIfAbsent(
-        new LightSourceMapKey(role, type), key -> new HashSet<>());
+        new LightSourceMapKey(role, type), key -> ConcurrentHashMap.newKeySet());
   }
 
   private void addLightSourceToken(Token token, Set<Player.Role> roles) {
@@ -101,7 +117,7 @@ private void addLightSourceToken(Token token, Set<Player.Role> roles) {
    * incorporated into per-PlayerView results.
    */
   private final Map<GUID, List<ContributedLight>> contributedPersonalLightsByToken =
-      new HashMap<>();
+      new ConcurrentHashMap<>();
 
   /**
    * Map each token to the area they can see by themselves.
@@ -110,14 +126,49 @@ private void addLightSourceToken(Token token, Set<Player.Role> roles) {
    * vision. The results can be intersected with lighting results to produce the area that can
    * actually be seen by a token in a given view.
    */
-  private final Map<GUID, Area> tokenVisibleAreaCache = new HashMap<>();
+  private final Map<GUID, Area> tokenVisibleAreaCache = new ConcurrentHashMap<>();
+
+  /**
+   * What decides the area visible from a point, accounting only for topology.
+   *
+   * @param topologyVersion The {@link #topologyVersion} the area was calculated for.
+   * @param center The vision center.
+   * @param sightType The name of the sight type.
+   * @param shapeBounds The bounds of the vision shape around {@code center}, which account for the
+   *     vision range and anything else that scales the shape.
+   * @param facing The facing of the token if the shape depends on it, otherwise {@code null}.
+   */
+  private record VisionKey(
+      long topologyVersion,
+      Point center,
+      String sightType,
+      Rectangle2D shapeBounds,
+      @Nullable Integer facing) {}
+
+  /** The most entries kept in {@link #visionCache}. */
+  private static final int VISION_CACHE_SIZE = 512;
+
+  /**
+   * The area visible from a point, shared by all tokens with the same sight. Unlike {@link
+   * #tokenVisibleAreaCache}, this outlives token moves, so tokens moving back and forth between a
+   * few cells, or standing where another token stood, don't calculate the same vision again.
+   */
+  private final Cache<VisionKey, Area> visionCache =
+      CacheBuilder.newBuilder().maximumSize(VISION_CACHE_SIZE).recordStats().build();
+
+  /**
+   * Counts the changes to topology that blocks vision. Entries of {@link #visionCache} for older
+   * versions are never looked up again, and are left to be evicted.
+   */
+  private final AtomicLong topologyVersion = new AtomicLong();
 
   // endregion
 
   // region These fields cache information that is specific to certain illumination parameters. They
   //        only need to be flushed when something globally changes, such as light definitions.
 
-  private final Map<IlluminationKey, IlluminationModel> illuminationModels = new HashMap<>();
+  private final Map<IlluminationKey, IlluminationModel> illuminationModels =
+      new ConcurrentHashMap<>();
 
   // endregion
 
@@ -126,34 +177,95 @@ private void addLightSourceToken(Token token, Set<Player.Role> roles) {
   //        settings, light definitions).
 
   /** Map each token to their current vision, depending on other lights. */
-  private final Map<PlayerView, Map<GUID, Area>> tokenVisionCachePerView = new HashMap<>();
+  private final Map<PlayerView, Map<GUID, Area>> tokenVisionCachePerView =
+      new ConcurrentHashMap<>();
 
   /**
    * The illumination calculated for a view.
    *
    * <p>This includes personal lights and daylight in addition to normal lights.
    */
-  private final Map<PlayerView, Illumination> illuminationsPerView = new HashMap<>();
+  private final Map<PlayerView, Illumination> illuminationsPerView = new ConcurrentHashMap<>();
 
   /** Map the PlayerView to its exposed area. */
-  private final Map<PlayerView, Area> exposedAreaMap = new HashMap<>();
+  private final Map<PlayerView, Area> exposedAreaMap = new ConcurrentHashMap<>();
 
   /** Map the PlayerView to its visible area. */
-  private final Map<PlayerView, Area> visibleAreaMap = new HashMap<>();
+  private final Map<PlayerView, Area> visibleAreaMap = new ConcurrentHashMap<>();
 
   // endregion
 
   /** Caches the lights to be drawn for a each view. */
-  private final Map<PlayerView, List<DrawableLight>> drawableLights = new HashMap<>();
+  private final Map<PlayerView, List<DrawableLight>> drawableLights = new ConcurrentHashMap<>();
+
+  /**
+   * Caches the drawable light made from each contributed light for each view, so that only the
+   * lights near a change need to be made again. Empty if the light is not drawn.
+   */
+  private final Map<PlayerView, Map<ContributedLight, Optional<DrawableLight>>>
+      drawableLightsByContribution = new ConcurrentHashMap<>();
 
   /** Holds the auras from lightSourceMap after they have been combined. */
-  private final Map<PlayerView, List<DrawableLight>> drawableAuras = new HashMap<>();
+  private final Map<PlayerView, List<DrawableLight>> drawableAuras = new ConcurrentHashMap<>();
 
+  // region These fields hold the topology. Map topology and token topology are kept apart, so that
+  //        changes to token topology don't need the map topology to be processed again.
+
+  /**
+   * The transformed topology of each token with topology, as of the last time token topology was
+   * checked for changes. This is {@code null} until the topology is first needed.
+   */
+  private @Nullable Map<GUID, Map<Zone.TopologyType, Area>> tokenTopologies = null;
+
+  /** The trees of the map topology alone. */
+  private final Map<Zone.TopologyType, AreaTree> mapTopologyTrees =
+      new EnumMap<>(Zone.TopologyType.class);
+
+  /** The trees of the token topology alone. */
+  private final Map<Zone.TopologyType, AreaTree> tokenTopologyTrees =
+      new EnumMap<>(Zone.TopologyType.class);
+
+  /** The combined map and token topology. */
   private final Map<Zone.TopologyType, Area> topologyAreas = new EnumMap<>(Zone.TopologyType.class);
 
+  /** The trees of the combined map and token topology. */
   private final Map<Zone.TopologyType, AreaTree> topologyTrees =
       new EnumMap<>(Zone.TopologyType.class);
 
+  /** The trees vision is blocked by, or {@code null} if they need to be worked out again. */
+  private volatile @Nullable List<Map.Entry<Zone.TopologyType, AreaTree>> visionBlockingTrees =
+      null;
+
+  /**
+   * The bounds of the vision and lights calculated for each token. A topology change outside of
+   * them can't affect what was calculated for the token.
+   */
+  private final Map<GUID, Rectangle> topologyDependentBounds = new ConcurrentHashMap<>();
+
+  /**
+   * What can be seen from each cell through the map Wall VBL, or {@code null} if it isn't in use or
+   * isn't ready yet.
+   */
+  private volatile @Nullable VisibilityField visibilityField = null;
+
+  /**
+   * Loads and builds visibility fields. Building one keeps all of its threads busy for a while, so
+   * it gets its own pool rather than holding up the common pool, and leaves a core for the rest.
+   */
+  private static final ForkJoinPool visibilityFieldPool =
+      new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+  /** Loads or builds {@link #visibilityField}, or {@code null} if it isn't being made. */
+  private @Nullable CompletableFuture<?> visibilityFieldTask = null;
+
+  /**
+   * Counts the changes to the map Wall VBL and grid, so that a {@link #visibilityField} for an
+   * older version is thrown away.
+   */
+  private final AtomicLong visibilityFieldVersion = new AtomicLong();
+
+  // endregion
+
   /**
    * Construct ZoneView from zone. Build lightSourceMap, and add ZoneView to Zone as listener.
    *
@@ -210,15 +322,22 @@ public Area getExposedArea(PlayerView view) {
    * @return the visible area
    */
   public @Nonnull Area getVisibleArea(PlayerView view) {
-    return visibleAreaMap.computeIfAbsent(
-        view,
-        view2 -> {
-          final var visibleArea = new Area();
-          getTokensForView(view2)
-              .map(token -> this.getVisibleArea(token, view2))
-              .forEach(visibleArea::add);
-          return visibleArea;
-        });
+    final var cached = visibleAreaMap.get(view);
+    if (cached != null) {
+      return cached;
+    }
+
+    // Computed outside the map since the parallel work below reads the other caches.
+    final var tokens = getTokensForView(view).toList();
+    // Calculate the vision and personal lights of all tokens up front, in parallel.
+    prepareTopologyTrees();
+    FogUtil.computeInParallel(
+        tokens, token -> getPersonalTokenContributions(view.getRole(), token));
+
+    final var visibleArea = new Area();
+    tokens.stream().map(token -> this.getVisibleArea(token, view)).forEach(visibleArea::add);
+    final var existing = visibleAreaMap.putIfAbsent(view, visibleArea);
+    return existing != null ? existing : visibleArea;
   }
 
   /**
@@ -246,10 +365,11 @@ public synchronized Area getTopology(Zone.TopologyType topologyType) {
       log.debug("ZoneView topology area for {} is null, generating...", topologyType.name());
 
       topology = new Area(zone.getTopology(topologyType));
-      List<Token> topologyTokens =
-          MapTool.getFrame().getCurrentZoneRenderer().getZone().getTokensWithTopology(topologyType);
-      for (Token topologyToken : topologyTokens) {
-        topology.add(topologyToken.getTransformedTopology(topologyType));
+      for (var tokenTopology : getTokenTopologies().values()) {
+        var area = tokenTopology.get(topologyType);
+        if (area != null) {
+          topology.add(area);
+        }
       }
 
       topologyAreas.put(topologyType, topology);
@@ -285,9 +405,297 @@ private synchronized AreaTree getTopologyTree(Zone.TopologyType topologyType) {
     return topologyTree;
   }
 
+  private synchronized AreaTree getMapTopologyTree(Zone.TopologyType topologyType) {
+    return mapTopologyTrees.computeIfAbsent(
+        topologyType,
+        type -> {
+          log.debug("ZoneView map topology tree for {} is null, generating...", type.name());
+          return new AreaTree(zone.getTopology(type));
+        });
+  }
+
+  private synchronized AreaTree getTokenTopologyTree(Zone.TopologyType topologyType) {
+    return tokenTopologyTrees.computeIfAbsent(
+        topologyType,
+        type -> {
+          var topology = new Area();
+          for (var tokenTopology : getTokenTopologies().values()) {
+            var area = tokenTopology.get(type);
+            if (area != null) {
+              topology.add(area);
+            }
+          }
+          return new AreaTree(topology);
+        });
+  }
+
+  private synchronized boolean hasTokenTopology(Zone.TopologyType topologyType) {
+    return getTokenTopologies().values().stream()
+        .anyMatch(tokenTopology -> tokenTopology.containsKey(topologyType));
+  }
+
+  /**
+   * Get the topology trees that block vision.
+   *
+   * <p>Wall VBL blocks the same whether map and token walls are in one tree or in two, so they are
+   * kept in separate trees. That way moving a token with walls, such as a door, doesn't require the
+   * map walls to be processed again. The other types depend on how their islands nest, so map and
+   * token topology of those types are combined into one tree when both exist.
+   *
+   * @return the trees, each with the type of topology it holds.
+   */
+  private synchronized List<Map.Entry<Zone.TopologyType, AreaTree>> getVisionBlockingTrees() {
+    if (visionBlockingTrees == null) {
+      var trees = new ArrayList<Map.Entry<Zone.TopologyType, AreaTree>>();
+      for (var type :
+          List.of(
+              Zone.TopologyType.WALL_VBL,
+              Zone.TopologyType.HILL_VBL,
+              Zone.TopologyType.PIT_VBL,
+              Zone.TopologyType.COVER_VBL)) {
+        if (!hasTokenTopology(type)) {
+          trees.add(Map.entry(type, getMapTopologyTree(type)));
+        } else if (type == Zone.TopologyType.WALL_VBL) {
+          trees.add(Map.entry(type, getMapTopologyTree(type)));
+          trees.add(Map.entry(type, getTokenTopologyTree(type)));
+        } else {
+          trees.add(Map.entry(type, getTopologyTree(type)));
+        }
+      }
+      visionBlockingTrees = List.copyOf(trees);
+    }
+    return visionBlockingTrees;
+  }
+
+  /**
+   * Builds any missing vision blocking topology trees, so that they are ready before calculations
+   * are spread over other threads.
+   */
+  private void prepareTopologyTrees() {
+    getVisionBlockingTrees();
+  }
+
+  /**
+   * Calculates the area visible from a point, and remembers that what was calculated for a token
+   * depends on the topology within the area.
+   */
+  private Area calculateVisibility(GUID tokenId, Point origin, Area area) {
+    topologyDependentBounds.merge(tokenId, area.getBounds(), Rectangle::union);
+
+    final var field = getVisibilityField();
+    if (field != null) {
+      if (field.isBlind(origin)) {
+        return new Area();
+      }
+      // Vision spreads out from the origin, so none of it beyond the bounds can be visible.
+      final var visibleBounds = field.getVisibleBounds(origin);
+      if (visibleBounds != null && !visibleBounds.contains(area.getBounds())) {
+        area = new Area(area);
+        area.intersect(new Area(visibleBounds));
+      }
+    }
+
+    var trees = visionBlockingTrees;
+    return FogUtil.calculateVisibility(
+        origin, area, trees != null ? trees : getVisionBlockingTrees());
+  }
+
+  /**
+   * Gets the visibility field of the map Wall VBL, if precomputed visibility is on and the map has
+   * a square grid. The first call starts loading or building the field in the background.
+   *
+   * @return the field, or {@code null} if there is none or it isn't ready yet.
+   */
+  private @Nullable VisibilityField getVisibilityField() {
+    if (!AppPreferences.getUsePrecomputedVisibility()) {
+      return null;
+    }
+    final var field = visibilityField;
+    if (field != null) {
+      return field;
+    }
+
+    synchronized (this) {
+      if (visibilityFieldTask != null || !(zone.getGrid() instanceof SquareGrid grid)) {
+        return null;
+      }
+      // The zone's topology changes in place, so the background task gets a copy.
+      final var wallVbl = new Area(zone.getTopology(Zone.TopologyType.WALL_VBL));
+      if (wallVbl.isEmpty()) {
+        return null;
+      }
+      final var wallTree = getMapTopologyTree(Zone.TopologyType.WALL_VBL);
+      final var version = visibilityFieldVersion.get();
+      final var zoneId = zone.getId();
+      final var size = grid.getSize();
+      final var offsetX = grid.getOffsetX();
+      final var offsetY = grid.getOffsetY();
+      final var cellCount = VisibilityField.countCells(wallVbl.getBounds(), size, offsetX, offsetY);
+      if (cellCount > VisibilityField.MAX_CELLS) {
+        log.info(
+            "Not precomputing visibility for zone {}, its {} cells are more than {}",
+            zoneId,
+            cellCount,
+            VisibilityField.MAX_CELLS);
+        // Don't check again until the Wall VBL or grid changes.
+        visibilityFieldTask = CompletableFuture.completedFuture(null);
+        return null;
+      }
+      visibilityFieldTask =
+          CompletableFuture.runAsync(
+                  () -> {
+                    // A change to the Wall VBL or grid stops the build, since the field is stale.
+                    final var loaded =
+                        VisibilityFieldCache.loadOrBuild(
+                            zoneId,
+                            wallVbl,
+                            wallTree,
+                            size,
+                            offsetX,
+                            offsetY,
+                            () -> visibilityFieldVersion.get() != version);
+                    synchronized (this) {
+                      if (visibilityFieldVersion.get() == version) {
+                        visibilityField = loaded;
+                      }
+                    }
+                  },
+                  visibilityFieldPool)
+              .whenComplete(
+                  (result, e) -> {
+                    if (e != null && !(e.getCause() instanceof CancellationException)) {
+                      log.error("Could not precompute visibility for zone {}", zoneId, e);
+                    }
+                  });
+    }
+    return null;
+  }
+
+  /**
+   * Checks whether the map Wall VBL hides a point from a token, using the visibility field of the
+   * map. This doesn't solve any vision, so it can only tell when the point is certainly hidden.
+   *
+   * @param token the token.
+   * @param x the x coordinate of the point, in zone pixels.
+   * @param y the y coordinate of the point, in zone pixels.
+   * @return {@code true} if the point is certainly hidden from the token, {@code false} if it might
+   *     be visible or there is no visibility field.
+   */
+  public boolean isHiddenByWalls(Token token, double x, double y) {
+    final var field = getVisibilityField();
+    return field != null && field.isHidden(FogUtil.calculateVisionCenter(token, zone), x, y);
+  }
+
+  /**
+   * @return {@code true} if vision is pruned with a precomputed visibility field of the map.
+   */
+  public boolean hasVisibilityField() {
+    return getVisibilityField() != null;
+  }
+
+  private synchronized Map<GUID, Map<Zone.TopologyType, Area>> getTokenTopologies() {
+    if (tokenTopologies == null) {
+      tokenTopologies = new HashMap<>();
+      for (var token : zone.getTokensFiltered(Token::hasAnyTopology)) {
+        tokenTopologies.put(token.getId(), getTransformedTopologies(token));
+      }
+    }
+    return tokenTopologies;
+  }
+
+  private Map<Zone.TopologyType, Area> getTransformedTopologies(Token token) {
+    var topologies = new EnumMap<Zone.TopologyType, Area>(Zone.TopologyType.class);
+    for (var type : Zone.TopologyType.values()) {
+      if (token.hasTopology(type)) {
+        topologies.put(type, token.getTransformedTopology(type));
+      }
+    }
+    return topologies;
+  }
+
+  /**
+   * Checks tokens for changes to their topology since it was last checked. Only the trees of the
+   * topology types that changed are dropped, and only vision and lights near the changes are
+   * flushed.
+   *
+   * @param tokenIds the tokens to check, or {@code null} to check all tokens.
+   */
+  private synchronized void updateTokenTopology(@Nullable Collection<GUID> tokenIds) {
+    if (tokenTopologies == null) {
+      // Nothing has been calculated from token topology yet.
+      return;
+    }
+    if (tokenIds == null) {
+      var allTokenIds = new HashSet<>(tokenTopologies.keySet());
+      for (var token : zone.getTokensFiltered(Token::hasAnyTopology)) {
+        allTokenIds.add(token.getId());
+      }
+      tokenIds = allTokenIds;
+    }
+
+    var changedTypes = EnumSet.noneOf(Zone.TopologyType.class);
+    Rectangle changedBounds = null;
+    for (var tokenId : tokenIds) {
+      var token = zone.getToken(tokenId);
+      var oldTopologies = tokenTopologies.getOrDefault(tokenId, Map.of());
+      var newTopologies =
+          token == null || !token.hasAnyTopology()
+              ? Map.<Zone.TopologyType, Area>of()
+              : getTransformedTopologies(token);
+
+      for (var type : Zone.TopologyType.values()) {
+        var oldTopology = oldTopologies.get(type);
+        var newTopology = newTopologies.get(type);
+        if (oldTopology == null && newTopology == null) {
+          continue;
+        }
+        if (oldTopology != null && newTopology != null && oldTopology.equals(newTopology)) {
+          continue;
+        }
+
+        changedTypes.add(type);
+        for (var topology : new Area[] {oldTopology, newTopology}) {
+          if (topology != null && !topology.isEmpty()) {
+            var bounds = topology.getBounds();
+            changedBounds = changedBounds == null ? bounds : changedBounds.union(bounds);
+          }
+        }
+      }
+
+      if (newTopologies.isEmpty()) {
+        tokenTopologies.remove(tokenId);
+      } else {
+        tokenTopologies.put(tokenId, newTopologies);
+      }
+    }
+
+    if (changedTypes.isEmpty()) {
+      return;
+    }
+    for (var type : changedTypes) {
+      tokenTopologyTrees.remove(type);
+      topologyAreas.remove(type);
+      topologyTrees.remove(type);
+    }
+    visionBlockingTrees = null;
+    if (!EnumSet.of(Zone.TopologyType.MBL).containsAll(changedTypes)) {
+      topologyVersion.incrementAndGet();
+    }
+
+    if (changedBounds != null && !EnumSet.of(Zone.TopologyType.MBL).containsAll(changedTypes)) {
+      flush(changedBounds);
+    }
+  }
+
   private IlluminationModel getIlluminationModel(IlluminationKey illuminationKey) {
     final var illuminationModel =
-        illuminationModels.computeIfAbsent(illuminationKey, key -> new IlluminationModel());
+        illuminationModels.computeIfAbsent(
+            illuminationKey,
+            key ->
+                new IlluminationModel(
+                    AppPreferences.getUseRasterLightmap()
+                        ? new LumensRaster(AppPreferences.getRasterLightmapCellSize())
+                        : null));
     // Make sure it's up-to-date.
 
     // We need to get all lights ordered by lumens. From there, we can do darkness subtraction and
@@ -300,12 +708,17 @@ private IlluminationModel getIlluminationModel(IlluminationKey illuminationKey)
             .filter(Objects::nonNull)
             // No need to recalculate for tokens already contributing.
             .filter(token -> !illuminationModel.hasToken(token.getId()))
-            .collect(Collectors.toUnmodifiableSet());
+            .toList();
 
     // For each light source, extract all normal and darkness lights, adding them to the model.
-    for (final var lightSourceToken : lightSourceTokens) {
-      final var contributions = calculateLitAreas(lightSourceToken, illuminationKey.multiplier());
-      illuminationModel.addToken(lightSourceToken.getId(), contributions);
+    // The light sources are independent of each other, so their lit areas are found in parallel.
+    prepareTopologyTrees();
+    final var contributions =
+        FogUtil.computeInParallel(
+            lightSourceTokens,
+            lightSourceToken -> calculateLitAreas(lightSourceToken, illuminationKey.multiplier()));
+    for (int i = 0; i < lightSourceTokens.size(); i++) {
+      illuminationModel.addToken(lightSourceTokens.get(i).getId(), contributions.get(i));
     }
 
     return illuminationModel;
@@ -348,13 +761,7 @@ private List<ContributedLight> calculateLitAreaForLightSource(
     lightSourceArea.transform(translateTransform);
 
     final var lightSourceVisibleArea =
-        FogUtil.calculateVisibility(
-            p,
-            lightSourceArea,
-            getTopologyTree(Zone.TopologyType.WALL_VBL),
-            getTopologyTree(Zone.TopologyType.HILL_VBL),
-            getTopologyTree(Zone.TopologyType.PIT_VBL),
-            getTopologyTree(Zone.TopologyType.COVER_VBL));
+        calculateVisibility(lightSourceToken.getId(), p, lightSourceArea);
     if (lightSourceVisibleArea.isEmpty()) {
       // Nothing illuminated for this source.
       return Collections.emptyList();
@@ -555,12 +962,13 @@ public Illumination getIllumination(PlayerView view) {
       final var baseIllumination = getIllumination(illuminationKey);
 
       final var extraLights = new ArrayList<LitArea>();
-      getTokensForView(view)
+      prepareTopologyTrees();
+      FogUtil.computeInParallel(
+              getTokensForView(view).toList(),
+              token -> getPersonalTokenContributions(view.getRole(), token))
           .forEach(
-              token -> {
-                final var personalLights = getPersonalTokenContributions(view.getRole(), token);
-                extraLights.addAll(Lists.transform(personalLights, ContributedLight::litArea));
-              });
+              personalLights ->
+                  extraLights.addAll(Lists.transform(personalLights, ContributedLight::litArea)));
 
       illumination = baseIllumination.withExtraLights(extraLights);
       illuminationsPerView.put(view, illumination);
@@ -568,6 +976,38 @@ public Illumination getIllumination(PlayerView view) {
     return illumination;
   }
 
+  /**
+   * Looks up the lumens at a point from the raster lightmap, without building the areas of the
+   * illumination.
+   *
+   * <p>The lights shared by all tokens come from the raster, so the result is only as precise as
+   * the cells of the raster. The personal lights and daylight of the tokens in the view are checked
+   * exactly.
+   *
+   * @param view the view to look up the lumens for.
+   * @param x the x coordinate of the point, in zone pixels.
+   * @param y the y coordinate of the point, in zone pixels.
+   * @return the lumens of the strongest light or darkness at the point, negative for darkness and
+   *     {@code 0} if there is none. Empty if the raster lightmap is not in use.
+   */
+  public OptionalInt getRasterLumens(PlayerView view, double x, double y) {
+    final var lumensRaster = getIlluminationModel(illuminationKeyFromView(view)).getLumensRaster();
+    if (lumensRaster == null) {
+      return OptionalInt.empty();
+    }
+
+    var lumens = lumensRaster.getLumens(x, y);
+    for (final var token : getTokensForView(view).toList()) {
+      for (final var contribution : getPersonalTokenContributions(view.getRole(), token)) {
+        final var litArea = contribution.litArea();
+        if (litArea.area().contains(x, y)) {
+          lumens = LumensRaster.stronger(lumens, litArea.lumens());
+        }
+      }
+    }
+    return OptionalInt.of(lumens);
+  }
+
   /**
    * Gets the areas dominated by each level of lumens.
    *
@@ -586,7 +1026,8 @@ public List<LumensLevel> getDisjointObscuredLumensLevels(PlayerView view) {
   /**
    * Get the area that is visible to a token itself, accounting only for topology.
    *
-   * <p>The results are cached in {@link #tokenVisibleAreaCache}
+   * <p>The results are cached in {@link #tokenVisibleAreaCache}, and in {@link #visionCache} for
+   * any token with the same sight at the same place.
    *
    * @param token The token to find the visible area for.
    * @return The visible area for the token.
@@ -608,17 +1049,28 @@ private Area getTokenVisibleArea(@Nonnull Token token) {
 
     if (tokenVisibleArea == null) {
       // Not cached yet.
+      // Read the version before the topology is, so a concurrent change can't be missed.
+      final var version = topologyVersion.get();
       Point p = FogUtil.calculateVisionCenter(token, zone);
       Area visibleArea = sight.getVisionShape(token, zone);
       visibleArea.transform(AffineTransform.getTranslateInstance(p.x, p.y));
-      tokenVisibleArea =
-          FogUtil.calculateVisibility(
+
+      final var isDirectional =
+          sight.getShape() == ShapeType.CONE || sight.getShape() == ShapeType.BEAM;
+      final var key =
+          new VisionKey(
+              version,
               p,
-              visibleArea,
-              getTopologyTree(Zone.TopologyType.WALL_VBL),
-              getTopologyTree(Zone.TopologyType.HILL_VBL),
-              getTopologyTree(Zone.TopologyType.PIT_VBL),
-              getTopologyTree(Zone.TopologyType.COVER_VBL));
+              sight.getName(),
+              visibleArea.getBounds2D(),
+              isDirectional ? token.getFacing() : null);
+      tokenVisibleArea = visionCache.getIfPresent(key);
+      if (tokenVisibleArea == null) {
+        tokenVisibleArea = calculateVisibility(token.getId(), p, visibleArea);
+        visionCache.put(key, tokenVisibleArea);
+      } else {
+        topologyDependentBounds.merge(token.getId(), visibleArea.getBounds(), Rectangle::union);
+      }
       tokenVisibleAreaCache.put(token.getId(), tokenVisibleArea);
     }
 
@@ -635,7 +1087,7 @@ private Area getTokenVisibleArea(@Nonnull Token token) {
   public Area getVisibleArea(@Nonnull Token token, PlayerView view) {
     // Cache ?
     Map<GUID, Area> tokenVisionCache =
-        tokenVisionCachePerView.computeIfAbsent(view, v -> new HashMap<>());
+        tokenVisionCachePerView.computeIfAbsent(view, v -> new ConcurrentHashMap<>());
     Area tokenVisibleArea = tokenVisionCache.get(token.getId());
     if (tokenVisibleArea != null) {
       return tokenVisibleArea;
@@ -664,130 +1116,147 @@ public Area getVisibleArea(@Nonnull Token token, PlayerView view) {
    * @return the list of drawable auras.
    */
   public List<DrawableLight> getDrawableAuras(PlayerView view) {
-    return Collections.unmodifiableList(
-        drawableAuras.computeIfAbsent(
-            view,
-            view2 -> {
-              List<DrawableLight> lightList = new LinkedList<DrawableLight>();
-              for (GUID lightSourceToken :
-                  getLightSources(view2.getRole(), LightSource.Type.AURA)) {
-                Token token = zone.getToken(lightSourceToken);
-                if (token == null) {
-                  continue;
-                }
-                if ((!token.isVisible()) && !view2.isGMView()) {
-                  continue;
-                }
-                // TODO This playerOwns check is not view-reactive. Specifically it always
-                //  returns true for GMs, even if !view2.isGMView(). Somehow want to check against
-                //  MapTool.getServerPolicy().useStrictTokenManagement() but not
-                //  MapTool.getPlayer().isGM().
-                if (token.isVisibleOnlyToOwner() && !AppUtil.playerOwns(token)) {
-                  continue;
-                }
-                boolean isOwner = token.isOwner(MapTool.getPlayer().getName());
-                Point p = FogUtil.calculateVisionCenter(token, zone);
-
-                for (AttachedLightSource als : token.getLightSources()) {
-                  LightSource lightSource = als.resolve(token, MapTool.getCampaign());
-                  if (lightSource == null) {
-                    continue;
-                  }
-                  // Token can also have non-auras lights, we don't want those.
-                  if (lightSource.getType() != LightSource.Type.AURA) {
-                    continue;
-                  }
-
-                  Area lightSourceArea = lightSource.getArea(token, zone);
-                  lightSourceArea.transform(AffineTransform.getTranslateInstance(p.x, p.y));
-                  Area visibleArea =
-                      FogUtil.calculateVisibility(
-                          p,
-                          lightSourceArea,
-                          getTopologyTree(Zone.TopologyType.WALL_VBL),
-                          getTopologyTree(Zone.TopologyType.HILL_VBL),
-                          getTopologyTree(Zone.TopologyType.PIT_VBL),
-                          getTopologyTree(Zone.TopologyType.COVER_VBL));
-
-                  // This needs to be cached somehow
-                  for (Light light : lightSource.getLightList()) {
-                    // If there is no paint, it's a "bright aura" that just shows whatever is
-                    // beneath it and doesn't need to be rendered.
-                    if (light.getPaint() == null) {
-                      continue;
-                    }
-                    if (light.isGM() && !view2.isGMView()) {
-                      continue;
-                    }
-                    if (light.isOwnerOnly() && !isOwner && !view2.isGMView()) {
-                      continue;
-                    }
+    var auras = drawableAuras.get(view);
+    if (auras == null) {
+      // Computed outside the map since working out the auras reads the other caches.
+      auras = computeDrawableAuras(view);
+      final var existing = drawableAuras.putIfAbsent(view, auras);
+      if (existing != null) {
+        auras = existing;
+      }
+    }
+    return Collections.unmodifiableList(auras);
+  }
 
-                    // Calculate the area covered by this particular range.
-                    Area lightArea = lightSource.getArea(token, zone, light);
-                    lightArea.transform(AffineTransform.getTranslateInstance(p.x, p.y));
-                    lightArea.intersect(visibleArea);
-                    lightList.add(
-                        new DrawableLight(light.getPaint(), lightArea, light.getLumens()));
-                  }
-                }
-              }
-              return lightList;
-            }));
+  private List<DrawableLight> computeDrawableAuras(PlayerView view) {
+    List<DrawableLight> lightList = new LinkedList<DrawableLight>();
+    for (GUID lightSourceToken : getLightSources(view.getRole(), LightSource.Type.AURA)) {
+      Token token = zone.getToken(lightSourceToken);
+      if (token == null) {
+        continue;
+      }
+      if ((!token.isVisible()) && !view.isGMView()) {
+        continue;
+      }
+      // TODO This playerOwns check is not view-reactive. Specifically it always
+      //  returns true for GMs, even if !view.isGMView(). Somehow want to check against
+      //  MapTool.getServerPolicy().useStrictTokenManagement() but not
+      //  MapTool.getPlayer().isGM().
+      if (token.isVisibleOnlyToOwner() && !AppUtil.playerOwns(token)) {
+        continue;
+      }
+      boolean isOwner = token.isOwner(MapTool.getPlayer().getName());
+      Point p = FogUtil.calculateVisionCenter(token, zone);
+
+      for (AttachedLightSource als : token.getLightSources()) {
+        LightSource lightSource = als.resolve(token, MapTool.getCampaign());
+        if (lightSource == null) {
+          continue;
+        }
+        // Token can also have non-auras lights, we don't want those.
+        if (lightSource.getType() != LightSource.Type.AURA) {
+          continue;
+        }
+
+        Area lightSourceArea = lightSource.getArea(token, zone);
+        lightSourceArea.transform(AffineTransform.getTranslateInstance(p.x, p.y));
+        Area visibleArea = calculateVisibility(token.getId(), p, lightSourceArea);
+
+        // This needs to be cached somehow
+        for (Light light : lightSource.getLightList()) {
+          // If there is no paint, it's a "bright aura" that just shows whatever is
+          // beneath it and doesn't need to be rendered.
+          if (light.getPaint() == null) {
+            continue;
+          }
+          if (light.isGM() && !view.isGMView()) {
+            continue;
+          }
+          if (light.isOwnerOnly() && !isOwner && !view.isGMView()) {
+            continue;
+          }
+
+          // Calculate the area covered by this particular range.
+          Area lightArea = lightSource.getArea(token, zone, light);
+          lightArea.transform(AffineTransform.getTranslateInstance(p.x, p.y));
+          lightArea.intersect(visibleArea);
+          lightList.add(new DrawableLight(light.getPaint(), lightArea, light.getLumens()));
+        }
+      }
+    }
+    return lightList;
   }
 
   public Collection<DrawableLight> getDrawableLights(PlayerView view) {
-    return Collections.unmodifiableList(
-        drawableLights.computeIfAbsent(
-            view,
-            view2 -> {
-              final var illuminationKey = illuminationKeyFromView(view2);
-              final var illuminationModel = getIlluminationModel(illuminationKey);
-
-              final Stream<ContributedLight> contributions = illuminationModel.getContributions();
-              final Stream<ContributedLight> personalContributions =
-                  getTokensForView(view2)
-                      .filter(token -> contributedPersonalLightsByToken.containsKey(token.getId()))
-                      .map(token -> contributedPersonalLightsByToken.get(token.getId()))
-                      .flatMap(Collection::stream);
-
-              final var illumination = getIllumination(view2);
-              return Stream.of(contributions, personalContributions)
-                  .flatMap(Function.identity())
-                  .filter(laud -> laud.lightInfo() != null)
-                  .map(
-                      (ContributedLight laud) -> {
-                        var isDarkness = laud.litArea().lumens() < 0;
-                        if (isDarkness && !view.isGMView()) {
-                          // Non-GM players do not render the light aspect of darkness.
-                          return null;
-                        }
-
-                        // Lights without a colour are "clear" and should not be rendered.
-                        var paint = laud.lightInfo().light().getPaint();
-                        if (paint == null) {
-                          return null;
-                        }
-
-                        // Make sure each drawable light is restricted to the area it covers,
-                        // accounting for darkness effects.
-                        final var obscuredArea = new Area(laud.litArea().area());
-                        final var lumensLevel =
-                            illumination.getObscuredLumensLevel(Math.abs(laud.litArea().lumens()));
-                        // Should always be present based on construction, but just in case.
-                        if (lumensLevel.isEmpty()) {
-                          return null;
-                        }
-
-                        obscuredArea.intersect(
-                            isDarkness
-                                ? lumensLevel.get().darknessArea()
-                                : lumensLevel.get().lightArea());
-                        return new DrawableLight(paint, obscuredArea, laud.litArea().lumens());
-                      })
-                  .filter(Objects::nonNull)
-                  .toList();
-            }));
+    var lights = drawableLights.get(view);
+    if (lights == null) {
+      // Computed outside the map since working out the lights reads the other caches.
+      lights = computeDrawableLights(view);
+      final var existing = drawableLights.putIfAbsent(view, lights);
+      if (existing != null) {
+        lights = existing;
+      }
+    }
+    return Collections.unmodifiableList(lights);
+  }
+
+  private List<DrawableLight> computeDrawableLights(PlayerView view) {
+    final var illuminationKey = illuminationKeyFromView(view);
+    final var illuminationModel = getIlluminationModel(illuminationKey);
+
+    final Stream<ContributedLight> contributions = illuminationModel.getContributions();
+    final Stream<ContributedLight> personalContributions =
+        getTokensForView(view)
+            .filter(token -> contributedPersonalLightsByToken.containsKey(token.getId()))
+            .map(token -> contributedPersonalLightsByToken.get(token.getId()))
+            .flatMap(Collection::stream);
+
+    final var illumination = getIllumination(view);
+    // Keep what was made for lights that haven't been flushed, and drop the rest.
+    final var previous = drawableLightsByContribution.getOrDefault(view, Collections.emptyMap());
+    final var current = new IdentityHashMap<ContributedLight, Optional<DrawableLight>>();
+    Stream.of(contributions, personalContributions)
+        .flatMap(Function.identity())
+        .filter(laud -> laud.lightInfo() != null)
+        .forEach(
+            laud -> {
+              var drawableLight = previous.get(laud);
+              if (drawableLight == null) {
+                drawableLight = Optional.ofNullable(createDrawableLight(view, illumination, laud));
+              }
+              current.put(laud, drawableLight);
+            });
+    drawableLightsByContribution.put(view, current);
+
+    return current.values().stream().flatMap(Optional::stream).toList();
+  }
+
+  private @Nullable DrawableLight createDrawableLight(
+      PlayerView view, Illumination illumination, ContributedLight laud) {
+    var isDarkness = laud.litArea().lumens() < 0;
+    if (isDarkness && !view.isGMView()) {
+      // Non-GM players do not render the light aspect of darkness.
+      return null;
+    }
+
+    // Lights without a colour are "clear" and should not be rendered.
+    var paint = laud.lightInfo().light().getPaint();
+    if (paint == null) {
+      return null;
+    }
+
+    // Make sure each drawable light is restricted to the area it covers,
+    // accounting for darkness effects.
+    final var obscuredArea = new Area(laud.litArea().area());
+    final var lumensLevel = illumination.getObscuredLumensLevel(Math.abs(laud.litArea().lumens()));
+    // Should always be present based on construction, but just in case.
+    if (lumensLevel.isEmpty()) {
+      return null;
+    }
+
+    obscuredArea.intersect(
+        isDarkness ? lumensLevel.get().darknessArea() : lumensLevel.get().lightArea());
+    return new DrawableLight(paint, obscuredArea, laud.litArea().lumens());
   }
 
   /**
@@ -805,6 +1274,10 @@ public void flush() {
 
     contributedPersonalLightsByToken.clear();
     tokenVisibleAreaCache.clear();
+    // Sight types or the grid may have changed, which the vision keys don't capture.
+    visionCache.invalidateAll();
+    topologyDependentBounds.clear();
+    resetVisibilityField();
 
     tokenVisionCachePerView.clear();
     illuminationsPerView.clear();
@@ -812,47 +1285,116 @@ public void flush() {
     visibleAreaMap.clear();
 
     drawableLights.clear();
+    drawableLightsByContribution.clear();
     drawableAuras.clear();
   }
 
+  /**
+   * Flush the vision and lights that a change of topology within an area can affect. Tokens whose
+   * vision and lights don't reach the area keep theirs.
+   *
+   * @param bounds the bounds of the changed topology.
+   */
+  private void flush(Rectangle bounds) {
+    final var affectedTokenIds =
+        topologyDependentBounds.entrySet().stream()
+            .filter(entry -> entry.getValue().intersects(bounds))
+            .map(Map.Entry::getKey)
+            .toList();
+    final var changedBounds = new Rectangle(bounds);
+    for (var tokenId : affectedTokenIds) {
+      final var tokenBounds = topologyDependentBounds.remove(tokenId);
+      if (tokenBounds != null) {
+        changedBounds.add(tokenBounds);
+      }
+      tokenVisibleAreaCache.remove(tokenId);
+      contributedPersonalLightsByToken.remove(tokenId);
+      illuminationModels.values().forEach(model -> model.removeToken(tokenId));
+    }
+
+    // The results combined from the tokens' vision and lights have to be combined again.
+    tokenVisionCachePerView.clear();
+    illuminationsPerView.clear();
+    exposedAreaMap.clear();
+    visibleAreaMap.clear();
+    // The lights of the tokens are calculated again, which can change the drawable lights of other
+    // tokens wherever they reach.
+    flushDrawableLights(changedBounds);
+    drawableAuras.clear();
+  }
+
+  /**
+   * @return the hit and miss counts of the vision shared between tokens, since the zone view was
+   *     created.
+   */
+  public CacheStats getVisionCacheStats() {
+    return visionCache.stats();
+  }
+
   public void flushFog() {
     exposedAreaMap.clear();
   }
 
   /**
    * Flush the ZoneView cache of the token. Remove token from {@link #tokenVisionCachePerView}, and
-   * {@link #illuminationModels}. Can clear {@link #tokenVisionCachePerView}, {@link
-   * #visibleAreaMap}, and {@link #exposedAreaMap} depending on the token.
+   * {@link #illuminationModels}.
+   *
+   * <p>A token's lights and sight only reach so far, so only the vision of other tokens and the
+   * drawable lights within where they were and where they are now are flushed.
    *
    * @param token the token to flush.
    */
   public void flush(Token token) {
-    for (final var cache : tokenVisionCachePerView.values()) {
-      cache.remove(token.getId());
+    final var tokenId = token.getId();
+    final var previousBounds = topologyDependentBounds.remove(tokenId);
+    tokenVisibleAreaCache.remove(tokenId);
+    final var changedViews = new HashSet<PlayerView>();
+    for (final var entry : tokenVisionCachePerView.entrySet()) {
+      if (entry.getValue().remove(tokenId) != null) {
+        changedViews.add(entry.getKey());
+      }
     }
-    tokenVisibleAreaCache.remove(token.getId());
 
-    // TODO Split logic for light and sight, since the sight portion is entirely duplicated.
     final var modelsWithToken =
-        illuminationModels.values().stream()
-            .filter(model -> model.hasToken(token.getId()))
-            .toList();
-    if (!modelsWithToken.isEmpty() || token.hasLightSources()) {
-      modelsWithToken.forEach(model -> model.removeToken(token.getId()));
-      contributedPersonalLightsByToken.remove(token.getId());
-      tokenVisionCachePerView.clear();
-      illuminationsPerView.clear();
-      exposedAreaMap.clear();
-      visibleAreaMap.clear();
-      // TODO Could we instead only clear those views that include the token?
-      drawableLights.clear();
-    } else if (token.getHasSight()) {
-      contributedPersonalLightsByToken.remove(token.getId());
-      // TODO Could we instead only clear those views that include the token?
+        illuminationModels.values().stream().filter(model -> model.hasToken(tokenId)).toList();
+    final var hasLights = !modelsWithToken.isEmpty() || token.hasLightSources();
+    if (hasLights || token.getHasSight()) {
+      modelsWithToken.forEach(model -> model.removeToken(tokenId));
+      contributedPersonalLightsByToken.remove(tokenId);
+
+      final var changedBounds = estimateBounds(token);
+      if (previousBounds != null) {
+        if (changedBounds.isEmpty()) {
+          changedBounds.setBounds(previousBounds);
+        } else {
+          changedBounds.add(previousBounds);
+        }
+      }
+
+      if (hasLights) {
+        // Other tokens see by the token's lights, but only within the reach of the lights.
+        for (final var entry : tokenVisionCachePerView.entrySet()) {
+          final var removed =
+              entry
+                  .getValue()
+                  .keySet()
+                  .removeIf(
+                      otherTokenId -> {
+                        final var bounds = topologyDependentBounds.get(otherTokenId);
+                        return bounds == null || bounds.intersects(changedBounds);
+                      });
+          if (removed) {
+            changedViews.add(entry.getKey());
+          }
+        }
+      }
+
       illuminationsPerView.clear();
-      exposedAreaMap.clear();
-      visibleAreaMap.clear();
-      drawableLights.clear();
+      flushDrawableLights(changedBounds);
+    }
+    for (final var view : changedViews) {
+      exposedAreaMap.remove(view);
+      visibleAreaMap.remove(view);
     }
 
     // If the token had auras as well, we'll need to recompute them. This could be more precise
@@ -866,15 +1408,97 @@ public void flush(Token token) {
     }
   }
 
+  /**
+   * Estimates the bounds the token's lights and sight will reach from where it is now, without
+   * accounting for topology.
+   *
+   * @param token the token.
+   * @return the bounds, which are empty if the token has no lights or sight.
+   */
+  private Rectangle estimateBounds(Token token) {
+    final var areas = new ArrayList<Area>();
+    var multiplier =
+        illuminationModels.keySet().stream()
+            .mapToDouble(IlluminationKey::multiplier)
+            .reduce(1.0, Math::max);
+
+    final var sight =
+        token.getHasSight() ? MapTool.getCampaign().getSightType(token.getSightType()) : null;
+    if (sight != null) {
+      multiplier = Math.max(multiplier, sight.getMultiplier());
+      areas.add(sight.getVisionShape(token, zone));
+      if (sight.getPersonalLightSource() != null) {
+        areas.add(sight.getPersonalLightSource().getArea(token, zone));
+      }
+    }
+    for (final var attachedLightSource : token.getLightSources()) {
+      final var lightSource = attachedLightSource.resolve(token, MapTool.getCampaign());
+      if (lightSource != null && lightSource.getType() == LightSource.Type.NORMAL) {
+        areas.add(lightSource.getArea(token, zone));
+      }
+    }
+
+    final var center = FogUtil.calculateVisionCenter(token, zone);
+    final var transform = AffineTransform.getTranslateInstance(center.x, center.y);
+    transform.scale(multiplier, multiplier);
+    final var result = new Rectangle();
+    for (final var area : areas) {
+      final var bounds = transform.createTransformedShape(area.getBounds2D()).getBounds();
+      if (result.isEmpty()) {
+        result.setBounds(bounds);
+      } else {
+        result.add(bounds);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Flush the drawable lights made from lights within an area. The lists of drawable lights are
+   * made again from what is left.
+   *
+   * @param bounds the area in which lights or darkness changed.
+   */
+  private void flushDrawableLights(Rectangle bounds) {
+    drawableLights.clear();
+    for (final var cache : drawableLightsByContribution.values()) {
+      cache
+          .keySet()
+          .removeIf(contribution -> contribution.litArea().area().getBounds().intersects(bounds));
+    }
+  }
+
   @Subscribe
   private void onTopologyChanged(TopologyChanged event) {
     if (event.zone() != this.zone) {
       return;
     }
 
-    flush();
-    topologyAreas.clear();
-    topologyTrees.clear();
+    final var mapTopologyBounds = event.mapTopologyBounds();
+    if (mapTopologyBounds == null) {
+      updateTokenTopology(null);
+      return;
+    }
+
+    synchronized (this) {
+      mapTopologyTrees.clear();
+      topologyAreas.clear();
+      topologyTrees.clear();
+      visionBlockingTrees = null;
+      topologyVersion.incrementAndGet();
+    }
+    resetVisibilityField();
+    flush(mapTopologyBounds);
+  }
+
+  /**
+   * Throws away the visibility field, so that it is made again for the current Wall VBL. A field
+   * still being built for the old Wall VBL stops once it sees the new version.
+   */
+  private synchronized void resetVisibilityField() {
+    visibilityFieldVersion.incrementAndGet();
+    visibilityField = null;
+    visibilityFieldTask = null;
   }
 
   private boolean flushExistingTokens(List<Token> tokens) {
@@ -895,6 +1519,8 @@ private void onTokensAdded(TokensAdded event) {
       return;
     }
 
+    // The new tokens' lights can change what other tokens see.
+    event.tokens().forEach(this::flush);
     processTokenAddChangeEvent(event.tokens());
   }
 
@@ -904,6 +1530,9 @@ private void onTokensRemoved(TokensRemoved event) {
       return;
     }
 
+    // The tokens don't exist anymore, so their lights and vision have to go.
+    event.tokens().forEach(this::flush);
+
     // The tokens don't exist anymore, so they should not be considered light sources.
     boolean anyLightingChanges = false;
     for (var lightSet : lightSourceMap.values()) {
@@ -917,11 +1546,7 @@ private void onTokensRemoved(TokensRemoved event) {
       drawableAuras.clear();
     }
 
-    if (event.tokens().stream().anyMatch(Token::hasAnyTopology)) {
-      flush();
-      topologyAreas.clear();
-      topologyTrees.clear();
-    }
+    updateTokenTopology(event.tokens().stream().map(Token::getId).toList());
   }
 
   @Subscribe
@@ -935,8 +1560,9 @@ private void onTokensChanged(TokensChanged event) {
   }
 
   /**
-   * Update {@link #lightSourceMap} with the light sources of the tokens, and clear {@link
-   * #visibleAreaMap} and {@link #exposedAreaMap} if one of the tokens has sight.
+   * Update {@link #lightSourceMap} with the light sources of the tokens, clear {@link
+   * #visibleAreaMap} and {@link #exposedAreaMap} if one of the tokens has sight, and pick up any
+   * changes to the tokens' topology.
    *
    * @param tokens the list of tokens
    */
@@ -948,11 +1574,7 @@ private void processTokenAddChangeEvent(List<Token> tokens) {
       visibleAreaMap.clear();
     }
 
-    if (tokens.stream().anyMatch(Token::hasAnyTopology)) {
-      flush();
-      topologyAreas.clear();
-      topologyTrees.clear();
-    }
+    updateTokenTopology(tokens.stream().map(Token::getId).toList());
   }
 
   private void updateLightSourcesFromTokens(Iterable<Token> tokens) {
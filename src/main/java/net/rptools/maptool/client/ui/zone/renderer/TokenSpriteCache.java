@@ -0,0 +1,222 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone.renderer;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import net.rptools.lib.MD5Key;
+import net.rptools.maptool.client.ui.token.AbstractTokenOverlay;
+import net.rptools.maptool.model.Campaign;
+import net.rptools.maptool.model.GUID;
+
+/**
+ * Caches each token drawn on screen with its halo, facing arrow, states and bars, so that a token
+ * that hasn't changed is drawn with a single image.
+ *
+ * <p>A sprite holds the pixels the token would have been drawn with, so it is only valid for the
+ * token as it was. The renderer invalidates the sprites of a token whenever it flushes the token,
+ * and everything else that changes the pixels is part of the {@link Key}.
+ *
+ * <p>A sprite is only painted for a key that is asked for a second time, so that a token whose key
+ * changes every frame, e.g. while zooming, is painted directly rather than into a new sprite each
+ * frame. Tokens are flushed from other threads than the EDT, so the cache is synchronized.
+ */
+class TokenSpriteCache {
+  /** The most memory the sprites may use, in bytes. */
+  static final long MAX_BYTES = 64L * 1024 * 1024;
+
+  /** How many keys are remembered as asked for once, to tell whether a key comes up again. */
+  private static final int MAX_SEEN_KEYS = 4096;
+
+  /** Fractions of a pixel are rounded to this many steps, so that panning reuses sprites. */
+  private static final int FRACTION_STEPS = 4;
+
+  /** Sprites larger than this many pixels are not worth keeping. */
+  static final int MAX_SPRITE_PIXELS = 1024 * 1024;
+
+  /**
+   * What the pixels of a sprite depend on, other than the token's own properties.
+   *
+   * @param tokenId the token.
+   * @param imageId the asset of the image of the token. Flipping the token flushes it, so the
+   *     flipped image needs no key of its own.
+   * @param imageWidth the width of the image that is drawn, which tells its mipmap levels apart.
+   * @param imageHeight the height of the image that is drawn.
+   * @param scale the scale of the zone.
+   * @param scaledWidth the width of the token on screen.
+   * @param scaledHeight the height of the token on screen.
+   * @param fractionX the fraction of a pixel the token is off the pixel grid horizontally, see
+   *     {@link TokenSpriteCache#quantize(double)}.
+   * @param fractionY the fraction of a pixel the token is off the pixel grid vertically, see
+   *     {@link TokenSpriteCache#quantize(double)}.
+   * @param opacity the opacity of the token image.
+   * @param isUnderMouse whether overlays shown on mouseover are drawn.
+   * @param haloLineWidth the width of the halo line, or {@code 0} if there is no halo.
+   * @param isFacingArrowForced whether the facing arrow is always drawn.
+   * @param isIsometric whether the grid is isometric, which changes the facing arrow.
+   */
+  record Key(
+      GUID tokenId,
+      MD5Key imageId,
+      int imageWidth,
+      int imageHeight,
+      double scale,
+      double scaledWidth,
+      double scaledHeight,
+      double fractionX,
+      double fractionY,
+      float opacity,
+      boolean isUnderMouse,
+      int haloLineWidth,
+      boolean isFacingArrowForced,
+      boolean isIsometric) {}
+
+  /**
+   * A token drawn into an image.
+   *
+   * @param image the pixels.
+   * @param offsetX where the image is drawn, relative to the token's screen location rounded down.
+   * @param offsetY where the image is drawn, relative to the token's screen location rounded down.
+   */
+  record Sprite(BufferedImage image, int offsetX, int offsetY) {}
+
+  private final Cache<Key, Sprite> sprites;
+
+  /** The keys of the sprites of each token, so that a token's sprites are found quickly. */
+  private final Map<GUID, Set<Key>> keysByToken = new HashMap<>();
+
+  /** Keys that were asked for once, but have no sprite yet. */
+  private final Cache<Key, Boolean> seenKeys =
+      CacheBuilder.newBuilder().maximumSize(MAX_SEEN_KEYS).build();
+
+  /** The state and bar overlays of the campaign, as of when the sprites were drawn. */
+  private List<AbstractTokenOverlay> overlays = List.of();
+
+  TokenSpriteCache() {
+    this(MAX_BYTES);
+  }
+
+  /**
+   * @param maxBytes the most memory the sprites may use, in bytes.
+   */
+  TokenSpriteCache(long maxBytes) {
+    sprites =
+        CacheBuilder.newBuilder()
+            // A single segment, so that the least recently used sprite of all goes first.
+            .concurrencyLevel(1)
+            .maximumWeight(maxBytes)
+            .<Key, Sprite>weigher(
+                (key, sprite) -> sprite.image().getWidth() * sprite.image().getHeight() * 4)
+            .<Key, Sprite>removalListener(
+                notification -> {
+                  final var key = notification.getKey();
+                  final var keys = keysByToken.get(key.tokenId());
+                  if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                    keysByToken.remove(key.tokenId());
+                  }
+                })
+            .build();
+  }
+
+  /**
+   * Rounds the fraction of a pixel a token is off the pixel grid, so that a token panned by part of
+   * a pixel can use the same sprite. The sprite is then off by at most an eighth of a pixel.
+   *
+   * @param fraction the fraction, from 0 to 1.
+   * @return the rounded fraction.
+   */
+  static double quantize(double fraction) {
+    return Math.round(fraction * FRACTION_STEPS) / (double) FRACTION_STEPS;
+  }
+
+  /**
+   * @param key what the sprite depends on.
+   * @return the sprite, or {@code null} if there is none.
+   */
+  @Nullable
+  synchronized Sprite get(Key key) {
+    return sprites.getIfPresent(key);
+  }
+
+  /**
+   * Checks whether a sprite is worth painting for a key that has none, i.e. whether the key was
+   * asked for before. Each call remembers the key.
+   *
+   * @param key what the sprite would depend on.
+   * @return {@code true} if the key was asked for before.
+   */
+  synchronized boolean shouldPaint(Key key) {
+    if (seenKeys.getIfPresent(key) != null) {
+      return true;
+    }
+    seenKeys.put(key, Boolean.TRUE);
+    return false;
+  }
+
+  synchronized void put(Key key, Sprite sprite) {
+    seenKeys.invalidate(key);
+    sprites.put(key, sprite);
+    keysByToken.computeIfAbsent(key.tokenId(), id -> new HashSet<>()).add(key);
+  }
+
+  /**
+   * Drops the sprites of a token.
+   *
+   * @param tokenId the token.
+   */
+  synchronized void invalidate(GUID tokenId) {
+    final var keys = keysByToken.remove(tokenId);
+    if (keys != null) {
+      sprites.invalidateAll(keys);
+    }
+  }
+
+  synchronized void invalidateAll() {
+    sprites.invalidateAll();
+    seenKeys.invalidateAll();
+    keysByToken.clear();
+  }
+
+  /**
+   * Drops all sprites if the campaign's state or bar overlays have been replaced since they were
+   * drawn.
+   *
+   * @param campaign the campaign.
+   */
+  void checkOverlays(Campaign campaign) {
+    final var current =
+        new ArrayList<AbstractTokenOverlay>(
+            campaign.getTokenStatesMap().size() + campaign.getTokenBarsMap().size());
+    current.addAll(campaign.getTokenStatesMap().values());
+    current.addAll(campaign.getTokenBarsMap().values());
+
+    var isSame = current.size() == overlays.size();
+    for (int i = 0; isSame && i < current.size(); ++i) {
+      isSame = current.get(i) == overlays.get(i);
+    }
+    if (!isSame) {
+      overlays = current;
+      invalidateAll();
+    }
+  }
+}
@@ -14,6 +14,7 @@
  */
 package net.rptools.maptool.client.ui.zone.renderer;
 
+import com.google.common.cache.CacheStats;
 import com.google.common.eventbus.Subscribe;
 import java.awt.*;
 import java.awt.Rectangle;
@@ -33,6 +34,7 @@
 import java.util.List;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.imageio.ImageIO;
 import javax.swing.*;
 import net.rptools.lib.CodeTimer;
@@ -102,12 +104,14 @@ public class ZoneRenderer extends JComponent
   /** The ZoneView constructed from the zone. */
   private final ZoneView zoneView;
 
+  /** The vision cache stats as of the last frame, so each frame reports its own. */
+  private CacheStats lastVisionCacheStats = new CacheStats(0, 0, 0, 0, 0, 0);
+
   /** Manages the selected tokens on the zone. */
   private final SelectionModel selectionModel;
 
   private Scale zoneScale;
-  private final Map<Zone.Layer, DrawableRenderer> drawableRenderers =
-      CollectionUtil.newFilledEnumMap(Zone.Layer.class, layer -> new PartitionedDrawableRenderer());
+  private final Map<Zone.Layer, DrawableRenderer> drawableRenderers;
   private final List<ZoneOverlay> overlayList = new ArrayList<ZoneOverlay>();
   private final Map<Zone.Layer, List<TokenLocation>> tokenLocationMap =
       new HashMap<Zone.Layer, List<TokenLocation>>();
@@ -123,6 +127,9 @@ public class ZoneRenderer extends JComponent
   final Map<GUID, BufferedImage> labelRenderingCache = new HashMap<GUID, BufferedImage>();
   private final Map<Token, BufferedImage> flipImageMap = new HashMap<Token, BufferedImage>();
   private final Map<Token, BufferedImage> flipIsoImageMap = new HashMap<Token, BufferedImage>();
+
+  /** The tokens as last painted on screen, with everything painted on top of them. */
+  private final TokenSpriteCache tokenSprites = new TokenSpriteCache();
   private Token tokenUnderMouse;
 
   private ScreenPoint pointUnderMouse;
@@ -130,6 +137,9 @@ public class ZoneRenderer extends JComponent
   private String loadingProgress;
   private boolean isLoaded;
 
+  /** Whether the zone is being painted on screen, rather than rendered for an export. */
+  private boolean isPainting;
+
   private BufferedImage miniImage;
   private BufferedImage backbuffer;
   private boolean drawBackground = true;
@@ -183,6 +193,9 @@ public ZoneRenderer(Zone zone) {
     this.visionOverlayRenderer = new VisionOverlayRenderer(renderHelper, zone, zoneView);
     this.debugRenderer = new DebugRenderer(renderHelper);
     repaintDebouncer = new DebounceExecutor(1000 / AppPreferences.getFrameRateCap(), this::repaint);
+    drawableRenderers =
+        CollectionUtil.newFilledEnumMap(
+            Zone.Layer.class, layer -> new PartitionedDrawableRenderer(repaintDebouncer::dispatch));
 
     setFocusable(true);
     selectionModel = new SelectionModel(zone);
@@ -614,8 +627,8 @@ public void centerOn(CellPoint point) {
 
   /**
    * Remove the token from: {@link #tokenLocationCache}, {@link #flipImageMap}, {@link
-   * #flipIsoImageMap}, {@link #labelRenderingCache}. Set the {@link #visibleScreenArea}, {@link
-   * #tokenStackMap} to null. Flush the token from {@link #zoneView}.
+   * #flipIsoImageMap}, {@link #tokenSprites}, {@link #labelRenderingCache}. Set the {@link
+   * #visibleScreenArea}, {@link #tokenStackMap} to null. Flush the token from {@link #zoneView}.
    *
    * @param token the token to flush
    */
@@ -627,6 +640,7 @@ public void flush(Token token) {
     }
     flipImageMap.remove(token);
     flipIsoImageMap.remove(token);
+    tokenSprites.invalidate(token.getId());
     labelRenderingCache.remove(token.getId());
 
     // This should be smarter, but whatever
@@ -663,6 +677,7 @@ public void flush() {
     flushDrawableRenderer();
     flipImageMap.clear();
     flipIsoImageMap.clear();
+    tokenSprites.invalidateAll();
     zoneView.flushFog();
 
     isLoaded = false;
@@ -815,7 +830,20 @@ public void paintComponent(Graphics g) {
             PlayerView pl = getPlayerView();
             timer.stop("paintComponent:createView");
 
-            renderZone(bufferG2d, pl);
+            isPainting = true;
+            try {
+              renderZone(bufferG2d, pl);
+            } finally {
+              isPainting = false;
+            }
+
+            if (timer.isEnabled()) {
+              final var visionCacheStats = zoneView.getVisionCacheStats();
+              final var frameStats = visionCacheStats.minus(lastVisionCacheStats);
+              lastVisionCacheStats = visionCacheStats;
+              timer.count("ZoneView.visionCache:hit", frameStats.hitCount());
+              timer.count("ZoneView.visionCache:miss", frameStats.missCount());
+            }
 
             int noteVPos = 20;
             bufferG2d.setFont(AppStyle.labelFont);
@@ -1001,7 +1029,7 @@ public void renderZone(Graphics2D g2d, PlayerView view) {
       renderDrawableOverlay(g2d, drawableRenderers.get(Layer.BACKGROUND), view, drawables);
       timer.stop("drawableBackground");
       // }
-      List<Token> background = zone.getTokensOnLayer(Layer.BACKGROUND, false);
+      List<Token> background = getTokensOnScreen(Layer.BACKGROUND);
       if (!background.isEmpty()) {
         timer.start("tokensBackground");
         renderTokens(g2d, background, view);
@@ -1024,7 +1052,7 @@ public void renderZone(Graphics2D g2d, PlayerView view) {
 
     if (shouldRenderLayer(Zone.Layer.OBJECT, view)) {
       // ... Images on the object layer are always ABOVE the grid.
-      List<Token> stamps = zone.getTokensOnLayer(Layer.OBJECT, false);
+      List<Token> stamps = getTokensOnScreen(Layer.OBJECT);
       if (!stamps.isEmpty()) {
         timer.start("tokensStamp");
         renderTokens(g2d, stamps, view);
@@ -1075,19 +1103,18 @@ public void renderZone(Graphics2D g2d, PlayerView view) {
         renderDrawableOverlay(g2d, drawableRenderers.get(Layer.GM), view, drawables);
         timer.stop("drawableGM");
         // }
-        List<Token> stamps = zone.getTokensOnLayer(Layer.GM, false);
+        List<Token> stamps = getTokensOnScreen(Layer.GM);
         if (!stamps.isEmpty()) {
           timer.start("tokensGM");
           renderTokens(g2d, stamps, view);
           timer.stop("tokensGM");
         }
       }
-      List<Token> tokens = zone.getTokensOnLayer(Layer.TOKEN, false);
-      if (!tokens.isEmpty()) {
-        timer.start("tokens");
-        renderTokens(g2d, tokens, view);
-        timer.stop("tokens");
-      }
+      // Rendered even when no tokens are on screen, so the visible token set gets updated.
+      List<Token> tokens = getTokensOnScreen(Layer.TOKEN);
+      timer.start("tokens");
+      renderTokens(g2d, tokens, view);
+      timer.stop("tokens");
       timer.start("unowned movement");
       showBlockedMoves(g2d, view, getUnOwnedMovementSet(view));
       timer.stop("unowned movement");
@@ -1298,7 +1325,12 @@ protected void renderDrawableOverlay(
     // List<DrawnElement> list = new ArrayList<DrawnElement>();
     // list.addAll(drawnElements);
 
-    renderer.renderDrawables(g, drawnElements, viewport, getScale());
+    if (isPainting) {
+      // Anything not drawn yet is shown in a later frame.
+      renderer.renderDrawablesProgressively(g, drawnElements, viewport, getScale());
+    } else {
+      renderer.renderDrawables(g, drawnElements, viewport, getScale());
+    }
   }
 
   protected void renderBoard(Graphics2D g, PlayerView view) {
@@ -1340,7 +1372,7 @@ protected void renderBoard(Graphics2D g, PlayerView view) {
         BufferedImage mapImage = ImageManager.getImage(zone.getMapAssetId(), this);
         double scaleFactor = getScale();
         bbg.drawImage(
-            mapImage,
+            ImageManager.getMipmap(zone.getMapAssetId(), mapImage, scaleFactor, this),
             getViewOffsetX() + (int) (zone.getBoardX() * scaleFactor),
             getViewOffsetY() + (int) (zone.getBoardY() * scaleFactor),
             (int) (mapImage.getWidth() * scaleFactor),
@@ -2104,6 +2136,37 @@ protected Shape getSquareFacingArrow(int angle, int size) {
     return gp.createTransformedShape(AffineTransform.getScaleInstance(getScale(), getScale()));
   }
 
+  /**
+   * Returns the tokens on a layer that may be on screen, leaving out those that are always visible
+   * as they are rendered separately. Tokens further away are skipped without looking at them.
+   *
+   * @param layer the layer.
+   * @return the tokens, ordered by Z.
+   */
+  private List<Token> getTokensOnScreen(Zone.Layer layer) {
+    final var timer = CodeTimer.get();
+    timer.start("getTokensOnScreen");
+    try {
+      ZonePoint topLeft = new ScreenPoint(0, 0).convertToZone(this);
+      ZonePoint bottomRight =
+          new ScreenPoint(getSize().width, getSize().height).convertToZone(this);
+      // Tokens are indexed by the area they cover when drawn, so only leave room for what is
+      // stroked around them in screen pixels, such as halos and the outline of facing arrows.
+      int margin = (int) Math.ceil((AppPreferences.getHaloLineWidth() + 2) / getScale());
+      var bounds =
+          new Rectangle(
+              topLeft.x - margin,
+              topLeft.y - margin,
+              bottomRight.x - topLeft.x + 2 * margin,
+              bottomRight.y - topLeft.y + 2 * margin);
+      return zone.getTokensInBounds(layer, bounds).stream()
+          .filter(token -> !token.isAlwaysVisible())
+          .toList();
+    } finally {
+      timer.stop("getTokensOnScreen");
+    }
+  }
+
   protected void renderTokens(Graphics2D g, List<Token> tokenList, PlayerView view) {
     renderTokens(g, tokenList, view, false);
   }
@@ -2138,6 +2201,9 @@ protected void renderTokens(
     double scale = zoneScale.getScale();
     Set<GUID> tempVisTokens = new HashSet<GUID>();
 
+    // Sprites painted with states or bars that have since been redefined are out of date.
+    tokenSprites.checkOverlays(MapTool.getCampaign());
+
     // calculations
     boolean calculateStacks =
         !tokenList.isEmpty() && tokenList.get(0).getLayer().isTokenLayer() && tokenStackMap == null;
@@ -2192,7 +2258,9 @@ protected void renderTokens(
 
       timer.start("tokenlist-1b");
       // get token image, using image table if present
-      BufferedImage image = getTokenImage(token);
+      MD5Key imageId = getTokenImageId(token);
+      // Adds this as observer so we can repaint once the image is ready. Fixes #1700.
+      BufferedImage image = ImageManager.getImage(imageId, this);
       timer.stop("tokenlist-1b");
 
       timer.start("tokenlist-1c");
@@ -2442,238 +2510,87 @@ protected void renderTokens(
           at.scale(scaledWidth / workImage.getWidth(), scaledHeight / workImage.getHeight());
         }
       }
-      timer.stop("tokenlist-6");
 
-      // Render Halo
-      haloRenderer.renderHalo(tokenG, token, location);
+      // Zoomed out, draw a smaller copy of the image instead of scaling the whole image down. The
+      // flipped images are cached per token at full size, so they are drawn as they are.
+      if (workImage == image) {
+        final var drawnScale = Math.hypot(at.getScaleX(), at.getShearY());
+        final var mipmap = ImageManager.getMipmap(imageId, image, drawnScale, this);
+        if (mipmap != image) {
+          at.scale(
+              (double) image.getWidth() / mipmap.getWidth(),
+              (double) image.getHeight() / mipmap.getHeight());
+          workImage = mipmap;
+        }
+      }
+      timer.stop("tokenlist-6");
 
       // Calculate alpha Transparency from token and use opacity for indicating that token is moving
       float opacity = token.getTokenOpacity();
       if (isTokenMoving(token)) opacity = opacity / 2.0f;
 
-      // Finally render the token image
-      timer.start("tokenlist-7");
-      if (!isGMView && zoneView.isUsingVision() && (token.getShape() == Token.TokenShape.FIGURE)) {
-        Area cb = zone.getGrid().getTokenCellArea(tokenBounds);
-        if (GraphicsUtil.intersects(visibleScreenArea, cb)) {
-          // the cell intersects visible area so
-          if (zone.getGrid().checkCenterRegion(cb.getBounds(), visibleScreenArea)) {
-            // if we can see the centre, draw the whole token
-            Composite oldComposite = tokenG.getComposite();
-            if (opacity < 1.0f) {
-              tokenG.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, opacity));
-            }
-            tokenG.drawImage(workImage, at, this);
-            tokenG.setComposite(oldComposite);
-            // g.draw(cb); // debugging
-          } else {
-            // else draw the clipped token
-            Area cellArea = new Area(visibleScreenArea);
-            cellArea.intersect(cb);
-            tokenG.setClip(cellArea);
-            Composite oldComposite = tokenG.getComposite();
-            if (opacity < 1.0f) {
-              tokenG.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, opacity));
-            }
-            tokenG.drawImage(workImage, at, this);
-            tokenG.setComposite(oldComposite);
-          }
-        }
-      } else if (!isGMView && zoneView.isUsingVision() && token.isAlwaysVisible()) {
-        // Jamz: Always Visible tokens will get rendered again here to place on top of FoW
-        Area cb = zone.getGrid().getTokenCellArea(tokenBounds);
-        if (GraphicsUtil.intersects(visibleScreenArea, cb)) {
-          // if we can see a portion of the stamp/token, draw the whole thing, defaults to 2/9ths
-          if (zone.getGrid()
-              .checkRegion(cb.getBounds(), visibleScreenArea, token.getAlwaysVisibleTolerance())) {
-            Composite oldComposite = tokenG.getComposite();
-            if (opacity < 1.0f) {
-              tokenG.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, opacity));
-            }
-            tokenG.drawImage(workImage, at, this);
-            tokenG.setComposite(oldComposite);
-          } else {
-            // else draw the clipped stamp/token
-            // This will only show the part of the token that does not have VBL on it
-            // as any VBL on the token will block LOS, affecting the clipping.
-            Area cellArea = new Area(visibleScreenArea);
-            cellArea.intersect(cb);
-            tokenG.setClip(cellArea);
-            Composite oldComposite = tokenG.getComposite();
-            if (opacity < 1.0f) {
-              tokenG.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, opacity));
-            }
-            tokenG.drawImage(workImage, at, this);
-            tokenG.setComposite(oldComposite);
-          }
-        }
-      } else {
-        // fallthrough normal token rendered against visible area
-        Composite oldComposite = tokenG.getComposite();
-        if (opacity < 1.0f) {
-          tokenG.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, opacity));
-        }
-        tokenG.drawImage(workImage, at, this);
-        tokenG.setComposite(oldComposite);
-      }
-      timer.stop("tokenlist-7");
-
-      timer.start("tokenlist-8");
-      // Halo (SQUARE)
-      // XXX Why are square halos drawn separately?!
-      /*
-       * if (token.hasHalo() && token.getShape() == Token.TokenShape.SQUARE) { Stroke oldStroke = g.getStroke(); clippedG.setStroke(new BasicStroke(AppPreferences.getHaloLineWidth()));
-       * clippedG.setColor(token.getHaloColor()); clippedG.draw(new Rectangle2D.Double(location.x, location.y, location.scaledWidth, location.scaledHeight)); clippedG.setStroke(oldStroke); }
-       */
-
-      // Facing ?
-      // TODO: Optimize this by doing it once per token per facing
-      if (token.hasFacing()) {
-        Token.TokenShape tokenType = token.getShape();
-        switch (tokenType) {
-          case FIGURE:
-            if (token.getHasImageTable()
-                && token.hasFacing()
-                && AppPreferences.getForceFacingArrow() == false) {
-              break;
-            }
-            Shape arrow = getFigureFacingArrow(token.getFacing(), footprintBounds.width / 2);
-
-            if (!zone.getGrid().isIsometric()) {
-              arrow = getCircleFacingArrow(token.getFacing(), footprintBounds.width / 2);
-            }
-
-            double fx = location.x + location.scaledWidth / 2;
-            double fy = location.y + location.scaledHeight / 2;
-
-            tokenG.translate(fx, fy);
-            if (token.getFacing() < 0) {
-              tokenG.setColor(Color.yellow);
+      Shape facingArrow = getFacingArrow(token, location, footprintBounds);
+
+      if (!isGMView
+          && zoneView.isUsingVision()
+          && (token.getShape() == Token.TokenShape.FIGURE || token.isAlwaysVisible())) {
+        // Render Halo
+        haloRenderer.renderHalo(tokenG, token, location);
+
+        // Finally render the token image
+        timer.start("tokenlist-7");
+        if (token.getShape() == Token.TokenShape.FIGURE) {
+          Area cb = zone.getGrid().getTokenCellArea(tokenBounds);
+          if (GraphicsUtil.intersects(visibleScreenArea, cb)) {
+            // the cell intersects visible area so
+            if (zone.getGrid().checkCenterRegion(cb.getBounds(), visibleScreenArea)) {
+              // if we can see the centre, draw the whole token
+              paintTokenImage(tokenG, workImage, at, opacity);
+              // g.draw(cb); // debugging
             } else {
-              tokenG.setColor(ZoneRendererConstants.TRANSLUCENT_YELLOW);
-            }
-            tokenG.fill(arrow);
-            tokenG.setColor(Color.darkGray);
-            tokenG.draw(arrow);
-            tokenG.translate(-fx, -fy);
-            break;
-          case TOP_DOWN:
-            if (AppPreferences.getForceFacingArrow() == false) {
-              break;
-            }
-          case CIRCLE:
-            arrow = getCircleFacingArrow(token.getFacing(), footprintBounds.width / 2);
-            if (zone.getGrid().isIsometric()) {
-              arrow = getFigureFacingArrow(token.getFacing(), footprintBounds.width / 2);
+              // else draw the clipped token
+              Area cellArea = new Area(visibleScreenArea);
+              cellArea.intersect(cb);
+              tokenG.setClip(cellArea);
+              paintTokenImage(tokenG, workImage, at, opacity);
             }
-
-            double cx = location.x + location.scaledWidth / 2;
-            double cy = location.y + location.scaledHeight / 2;
-
-            tokenG.translate(cx, cy);
-            tokenG.setColor(Color.yellow);
-            tokenG.fill(arrow);
-            tokenG.setColor(Color.darkGray);
-            tokenG.draw(arrow);
-            tokenG.translate(-cx, -cy);
-            break;
-          case SQUARE:
-            if (zone.getGrid().isIsometric()) {
-              arrow = getFigureFacingArrow(token.getFacing(), footprintBounds.width / 2);
-              cx = location.x + location.scaledWidth / 2;
-              cy = location.y + location.scaledHeight / 2;
+          }
+        } else {
+          // Jamz: Always Visible tokens will get rendered again here to place on top of FoW
+          Area cb = zone.getGrid().getTokenCellArea(tokenBounds);
+          if (GraphicsUtil.intersects(visibleScreenArea, cb)) {
+            // if we can see a portion of the stamp/token, draw the whole thing, defaults to 2/9ths
+            if (zone.getGrid()
+                .checkRegion(
+                    cb.getBounds(), visibleScreenArea, token.getAlwaysVisibleTolerance())) {
+              paintTokenImage(tokenG, workImage, at, opacity);
             } else {
-              int facing = token.getFacing();
-              while (facing < 0) {
-                facing += 360;
-              } // TODO: this should really be done in Token.setFacing() but I didn't want to take
-              // the chance
-              // of breaking something, so change this when it's safe to break stuff
-              facing %= 360;
-              arrow = getSquareFacingArrow(facing, footprintBounds.width / 2);
-
-              cx = location.x + location.scaledWidth / 2;
-              cy = location.y + location.scaledHeight / 2;
-
-              // Find the edge of the image
-              // TODO: Man, this is horrible, there's gotta be a better way to do this
-              double xp = location.scaledWidth / 2;
-              double yp = location.scaledHeight / 2;
-              if (facing >= 45 && facing <= 135 || facing >= 225 && facing <= 315) {
-                xp = (int) (yp / Math.tan(Math.toRadians(facing)));
-                if (facing > 180) {
-                  xp = -xp;
-                  yp = -yp;
-                }
-              } else {
-                yp = (int) (xp * Math.tan(Math.toRadians(facing)));
-                if (facing > 90 && facing < 270) {
-                  xp = -xp;
-                  yp = -yp;
-                }
-              }
-              cx += xp;
-              cy -= yp;
+              // else draw the clipped stamp/token
+              // This will only show the part of the token that does not have VBL on it
+              // as any VBL on the token will block LOS, affecting the clipping.
+              Area cellArea = new Area(visibleScreenArea);
+              cellArea.intersect(cb);
+              tokenG.setClip(cellArea);
+              paintTokenImage(tokenG, workImage, at, opacity);
             }
-
-            tokenG.translate(cx, cy);
-            tokenG.setColor(Color.yellow);
-            tokenG.fill(arrow);
-            tokenG.setColor(Color.darkGray);
-            tokenG.draw(arrow);
-            tokenG.translate(-cx, -cy);
-            break;
-        }
-      }
-      timer.stop("tokenlist-8");
-
-      timer.start("tokenlist-9");
-      // Set up the graphics so that the overlay can just be painted.
-      Graphics2D locg =
-          (Graphics2D)
-              tokenG.create(
-                  (int) tokenBounds.getBounds().getX(),
-                  (int) tokenBounds.getBounds().getY(),
-                  (int) tokenBounds.getBounds().getWidth(),
-                  (int) tokenBounds.getBounds().getHeight());
-      Rectangle bounds =
-          new Rectangle(
-              0,
-              0,
-              (int) tokenBounds.getBounds().getWidth(),
-              (int) tokenBounds.getBounds().getHeight());
-
-      // Check each of the set values
-      for (String state : MapTool.getCampaign().getTokenStatesMap().keySet()) {
-        Object stateValue = token.getState(state);
-        AbstractTokenOverlay overlay = MapTool.getCampaign().getTokenStatesMap().get(state);
-        if (stateValue instanceof AbstractTokenOverlay) {
-          overlay = (AbstractTokenOverlay) stateValue;
-        }
-        if (overlay == null
-            || overlay.isMouseover() && token != tokenUnderMouse
-            || !overlay.showPlayer(token, MapTool.getPlayer())) {
-          continue;
+          }
         }
-        overlay.paintOverlay(locg, token, bounds, stateValue);
-      }
-      timer.stop("tokenlist-9");
+        timer.stop("tokenlist-7");
 
-      timer.start("tokenlist-10");
-
-      for (String bar : MapTool.getCampaign().getTokenBarsMap().keySet()) {
-        Object barValue = token.getState(bar);
-        BarTokenOverlay overlay = MapTool.getCampaign().getTokenBarsMap().get(bar);
-        if (overlay == null
-            || overlay.isMouseover() && token != tokenUnderMouse
-            || !overlay.showPlayer(token, MapTool.getPlayer())) {
-          continue;
+        timer.start("tokenlist-8");
+        if (facingArrow != null) {
+          paintFacingArrow(tokenG, token, facingArrow);
         }
+        timer.stop("tokenlist-8");
 
-        overlay.paintOverlay(locg, token, bounds, barValue);
-      } // endfor
-      locg.dispose();
-      timer.stop("tokenlist-10");
+        paintTokenOverlays(tokenG, token, tokenBounds);
+      } else {
+        // fallthrough normal token rendered against visible area, along with everything drawn on
+        // top of it, from a sprite
+        timer.start("tokenlist-sprite");
+        paintTokenSprite(tokenG, token, imageId, location, workImage, at, opacity, facingArrow);
+        timer.stop("tokenlist-sprite");
+      }
 
       timer.start("tokenlist-11");
       // Keep track of which tokens have been drawn so we can perform post-processing on them later
@@ -3413,6 +3330,270 @@ public void addTokens(
     requestFocusInWindow();
   }
 
+  /**
+   * Works out where the facing arrow of a token is drawn.
+   *
+   * @param token the token.
+   * @param location where the token is on screen.
+   * @param footprintBounds the bounds of the token's footprint.
+   * @return the arrow in screen coordinates, or {@code null} if no arrow is drawn for the token.
+   */
+  private @Nullable Shape getFacingArrow(
+      Token token, TokenLocation location, Rectangle footprintBounds) {
+    if (!token.hasFacing()) {
+      return null;
+    }
+
+    Shape arrow;
+    double cx = location.x + location.scaledWidth / 2;
+    double cy = location.y + location.scaledHeight / 2;
+    switch (token.getShape()) {
+      case FIGURE:
+        if (token.getHasImageTable() && AppPreferences.getForceFacingArrow() == false) {
+          return null;
+        }
+        arrow = getFigureFacingArrow(token.getFacing(), footprintBounds.width / 2);
+
+        if (!zone.getGrid().isIsometric()) {
+          arrow = getCircleFacingArrow(token.getFacing(), footprintBounds.width / 2);
+        }
+        break;
+      case TOP_DOWN:
+        if (AppPreferences.getForceFacingArrow() == false) {
+          return null;
+        }
+      case CIRCLE:
+        arrow = getCircleFacingArrow(token.getFacing(), footprintBounds.width / 2);
+        if (zone.getGrid().isIsometric()) {
+          arrow = getFigureFacingArrow(token.getFacing(), footprintBounds.width / 2);
+        }
+        break;
+      case SQUARE:
+        if (zone.getGrid().isIsometric()) {
+          arrow = getFigureFacingArrow(token.getFacing(), footprintBounds.width / 2);
+        } else {
+          int facing = token.getFacing();
+          while (facing < 0) {
+            facing += 360;
+          } // TODO: this should really be done in Token.setFacing() but I didn't want to take
+          // the chance
+          // of breaking something, so change this when it's safe to break stuff
+          facing %= 360;
+          arrow = getSquareFacingArrow(facing, footprintBounds.width / 2);
+
+          // Find the edge of the image
+          // TODO: Man, this is horrible, there's gotta be a better way to do this
+          double xp = location.scaledWidth / 2;
+          double yp = location.scaledHeight / 2;
+          if (facing >= 45 && facing <= 135 || facing >= 225 && facing <= 315) {
+            xp = (int) (yp / Math.tan(Math.toRadians(facing)));
+            if (facing > 180) {
+              xp = -xp;
+              yp = -yp;
+            }
+          } else {
+            yp = (int) (xp * Math.tan(Math.toRadians(facing)));
+            if (facing > 90 && facing < 270) {
+              xp = -xp;
+              yp = -yp;
+            }
+          }
+          cx += xp;
+          cy -= yp;
+        }
+        break;
+      default:
+        return null;
+    }
+    return AffineTransform.getTranslateInstance(cx, cy).createTransformedShape(arrow);
+  }
+
+  private void paintFacingArrow(Graphics2D g, Token token, Shape arrow) {
+    if (token.getShape() == Token.TokenShape.FIGURE && token.getFacing() >= 0) {
+      g.setColor(ZoneRendererConstants.TRANSLUCENT_YELLOW);
+    } else {
+      g.setColor(Color.yellow);
+    }
+    g.fill(arrow);
+    g.setColor(Color.darkGray);
+    g.draw(arrow);
+  }
+
+  private void paintTokenImage(
+      Graphics2D g, BufferedImage image, AffineTransform at, float opacity) {
+    Composite oldComposite = g.getComposite();
+    if (opacity < 1.0f) {
+      g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, opacity));
+    }
+    g.drawImage(image, at, this);
+    g.setComposite(oldComposite);
+  }
+
+  /** Paints the states and bars of a token over it. */
+  private void paintTokenOverlays(Graphics2D tokenG, Token token, Area tokenBounds) {
+    final var timer = CodeTimer.get();
+
+    timer.start("tokenlist-9");
+    // Set up the graphics so that the overlay can just be painted.
+    Graphics2D locg =
+        (Graphics2D)
+            tokenG.create(
+                (int) tokenBounds.getBounds().getX(),
+                (int) tokenBounds.getBounds().getY(),
+                (int) tokenBounds.getBounds().getWidth(),
+                (int) tokenBounds.getBounds().getHeight());
+    Rectangle bounds =
+        new Rectangle(
+            0,
+            0,
+            (int) tokenBounds.getBounds().getWidth(),
+            (int) tokenBounds.getBounds().getHeight());
+
+    // Check each of the set values
+    for (String state : MapTool.getCampaign().getTokenStatesMap().keySet()) {
+      Object stateValue = token.getState(state);
+      AbstractTokenOverlay overlay = MapTool.getCampaign().getTokenStatesMap().get(state);
+      if (stateValue instanceof AbstractTokenOverlay) {
+        overlay = (AbstractTokenOverlay) stateValue;
+      }
+      if (overlay == null
+          || overlay.isMouseover() && token != tokenUnderMouse
+          || !overlay.showPlayer(token, MapTool.getPlayer())) {
+        continue;
+      }
+      overlay.paintOverlay(locg, token, bounds, stateValue);
+    }
+    timer.stop("tokenlist-9");
+
+    timer.start("tokenlist-10");
+
+    for (String bar : MapTool.getCampaign().getTokenBarsMap().keySet()) {
+      Object barValue = token.getState(bar);
+      BarTokenOverlay overlay = MapTool.getCampaign().getTokenBarsMap().get(bar);
+      if (overlay == null
+          || overlay.isMouseover() && token != tokenUnderMouse
+          || !overlay.showPlayer(token, MapTool.getPlayer())) {
+        continue;
+      }
+
+      overlay.paintOverlay(locg, token, bounds, barValue);
+    } // endfor
+    locg.dispose();
+    timer.stop("tokenlist-10");
+  }
+
+  /** Paints a token with its halo, facing arrow, states and bars. */
+  private void paintToken(
+      Graphics2D g,
+      Token token,
+      TokenLocation location,
+      BufferedImage image,
+      AffineTransform at,
+      float opacity,
+      Shape facingArrow) {
+    haloRenderer.renderHalo(g, token, location);
+    paintTokenImage(g, image, at, opacity);
+    if (facingArrow != null) {
+      paintFacingArrow(g, token, facingArrow);
+    }
+    paintTokenOverlays(g, token, location.bounds);
+  }
+
+  /**
+   * Paints a token with its halo, facing arrow, states and bars from a sprite in {@link
+   * #tokenSprites}, painting the sprite first if the token has changed since it was last painted.
+   *
+   * <p>The sprite is painted in the same pixels the token would be, so that drawing it is the same
+   * as painting the token, give or take the eighth of a pixel the sprite is rounded to. Graphics
+   * that aren't in whole screen pixels, such as on scaled displays, moving tokens, tokens whose
+   * image is still loading and tokens that have just changed paint the token directly.
+   */
+  private void paintTokenSprite(
+      Graphics2D g,
+      Token token,
+      MD5Key imageId,
+      TokenLocation location,
+      BufferedImage image,
+      AffineTransform at,
+      float opacity,
+      Shape facingArrow) {
+    final var transform = g.getTransform();
+    if ((transform.getType() & ~AffineTransform.TYPE_TRANSLATION) != 0
+        || transform.getTranslateX() != Math.rint(transform.getTranslateX())
+        || transform.getTranslateY() != Math.rint(transform.getTranslateY())
+        || image == ImageManager.TRANSFERING_IMAGE
+        || isTokenMoving(token)) {
+      paintToken(g, token, location, image, at, opacity, facingArrow);
+      return;
+    }
+
+    final var originX = (int) Math.floor(location.x);
+    final var originY = (int) Math.floor(location.y);
+    final var fractionX = TokenSpriteCache.quantize(location.x - originX);
+    final var fractionY = TokenSpriteCache.quantize(location.y - originY);
+    final var haloLineWidth = token.hasHalo() ? AppPreferences.getHaloLineWidth() : 0;
+    final var key =
+        new TokenSpriteCache.Key(
+            token.getId(),
+            imageId,
+            image.getWidth(),
+            image.getHeight(),
+            getScale(),
+            location.scaledWidth,
+            location.scaledHeight,
+            fractionX,
+            fractionY,
+            opacity,
+            token == tokenUnderMouse,
+            haloLineWidth,
+            AppPreferences.getForceFacingArrow(),
+            zone.getGrid().isIsometric());
+
+    var sprite = tokenSprites.get(key);
+    if (sprite == null) {
+      if (!tokenSprites.shouldPaint(key)) {
+        paintToken(g, token, location, image, at, opacity, facingArrow);
+        return;
+      }
+
+      final var drawn =
+          at.createTransformedShape(new Rectangle(image.getWidth(), image.getHeight()))
+              .getBounds2D();
+      drawn.add(location.bounds.getBounds2D());
+      if (facingArrow != null) {
+        drawn.add(facingArrow.getBounds2D());
+      }
+      // Leave room for the halo and the outline of the arrow, which are stroked.
+      final var stroke = g.getStroke();
+      final var lineWidth =
+          Math.max(haloLineWidth, stroke instanceof BasicStroke basic ? basic.getLineWidth() : 1);
+      final var margin = (int) Math.ceil(lineWidth) + 1;
+      final var minX = (int) Math.floor(drawn.getMinX()) - margin;
+      final var minY = (int) Math.floor(drawn.getMinY()) - margin;
+      final var width = (int) Math.ceil(drawn.getMaxX()) + margin - minX;
+      final var height = (int) Math.ceil(drawn.getMaxY()) + margin - minY;
+      if ((long) width * height > TokenSpriteCache.MAX_SPRITE_PIXELS) {
+        paintToken(g, token, location, image, at, opacity, facingArrow);
+        return;
+      }
+
+      final var spriteImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+      final var spriteG = spriteImage.createGraphics();
+      spriteG.setRenderingHints(g.getRenderingHints());
+      spriteG.setStroke(stroke);
+      spriteG.setFont(g.getFont());
+      // Paint the token where the rounded fractions put it, so the sprite suits them all.
+      spriteG.translate(
+          -minX + originX + fractionX - location.x, -minY + originY + fractionY - location.y);
+      paintToken(spriteG, token, location, image, at, opacity, facingArrow);
+      spriteG.dispose();
+
+      sprite = new TokenSpriteCache.Sprite(spriteImage, minX - originX, minY - originY);
+      tokenSprites.put(key, sprite);
+    }
+    g.drawImage(sprite.image(), originX + sprite.offsetX(), originY + sprite.offsetY(), null);
+  }
+
   /**
    * Checks to see if token has an image table and references that if the token has a facing
    * otherwise uses basic image
@@ -3421,28 +3602,39 @@ public void addTokens(
    * @return BufferedImage
    */
   private BufferedImage getTokenImage(Token token) {
-    BufferedImage image = null;
-    // Get the basic image
+    // Adds this as observer so we can repaint once the image is ready. Fixes #1700.
+    return ImageManager.getImage(getTokenImageId(token), this);
+  }
+
+  /**
+   * Checks to see if token has an image table and references that if the token has a facing
+   * otherwise uses basic image
+   *
+   * @param token the token to get the image asset of.
+   * @return the asset of the image to draw for the token.
+   */
+  private MD5Key getTokenImageId(Token token) {
     if (token.getHasImageTable() && token.hasFacing() && token.getImageTableName() != null) {
       LookupTable lookupTable =
           MapTool.getCampaign().getLookupTableMap().get(token.getImageTableName());
-      if (lookupTable != null) {
+      if (lookupTable != null && !lookupTable.getPickOnce()) {
+        // Looks the facing up directly, as evaluating it as a roll is too slow for every frame.
+        LookupEntry result = lookupTable.getLookupDirect(token.getFacing());
+        if (result != null) {
+          return result.getImageId();
+        }
+      } else if (lookupTable != null) {
         try {
           LookupEntry result = lookupTable.getLookup(token.getFacing().toString());
           if (result != null) {
-            image = ImageManager.getImage(result.getImageId(), this);
+            return result.getImageId();
           }
         } catch (ParserException p) {
           // do nothing
         }
       }
     }
-
-    if (image == null) {
-      // Adds this as observer so we can repaint once the image is ready. Fixes #1700.
-      image = ImageManager.getImage(token.getImageAssetId(), this);
-    }
-    return image;
+    return token.getImageAssetId();
   }
 
   /*
@@ -3550,8 +3742,8 @@ private void onTopologyChanged(TopologyChanged event) {
       return;
     }
 
+    // The zone view works out which of its vision and lights the change affects.
     flushFog();
-    flushLight();
     MapTool.getFrame().updateTokenTree(); // for any event
     repaintDebouncer.dispatch();
   }
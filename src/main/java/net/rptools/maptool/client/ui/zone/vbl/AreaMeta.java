@@ -17,6 +17,7 @@
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import javax.annotation.Nullable;
 import net.rptools.lib.GeometryUtil;
 import org.locationtech.jts.algorithm.InteriorPointArea;
 import org.locationtech.jts.algorithm.Orientation;
@@ -33,6 +34,9 @@
 
 /** Represents the boundary of a piece of topology. */
 public class AreaMeta {
+  /** Rings with fewer segments than this are searched directly rather than through an index. */
+  private static final int MIN_INDEXED_SEGMENTS = 32;
+
   private final Coordinate[] vertices;
 
   // region These fields are built from `vertices` and exist only for performance reasons.
@@ -41,6 +45,9 @@ public class AreaMeta {
   private final Envelope boundingBox;
   private final boolean isOcean;
 
+  /** Finds the segments near the vision, for rings large enough to be worth it. */
+  private final @Nullable SegmentBvh segmentIndex;
+
   // endregion
 
   /**
@@ -53,6 +60,7 @@ public AreaMeta() {
     this.interiorPoint = new Coordinate(0, 0);
     this.boundingBox = null;
     this.isOcean = true;
+    this.segmentIndex = null;
   }
 
   public AreaMeta(LinearRing ring) {
@@ -65,6 +73,8 @@ public AreaMeta(LinearRing ring) {
         InteriorPointArea.getInteriorPoint(GeometryUtil.getGeometryFactory().createPolygon(ring));
     boundingBox = CoordinateArrays.envelope(vertices);
     isOcean = Orientation.isCCW(vertices);
+    segmentIndex =
+        vertices.length - 1 >= MIN_INDEXED_SEGMENTS ? new SegmentBvh(vertices) : null;
   }
 
   public double getBoundingBoxArea() {
@@ -123,6 +133,13 @@ public List<LineString> getFacingSegments(
     if (vertices.length == 0) {
       return Collections.emptyList();
     }
+    final var visionEnvelope = vision.getGeometry().getEnvelopeInternal();
+    if (!boundingBox.intersects(visionEnvelope)) {
+      return Collections.emptyList();
+    }
+    // Only segments near the vision can intersect it, so the rest are not looked at.
+    final var candidates = segmentIndex == null ? null : segmentIndex.query(visionEnvelope);
+    final var candidateCount = candidates == null ? vertices.length - 1 : candidates.length;
 
     final var requiredOrientation =
         facing == Facing.ISLAND_SIDE_FACES_ORIGIN
@@ -131,17 +148,20 @@ public List<LineString> getFacingSegments(
     List<LineString> segments = new ArrayList<>();
     List<Coordinate> currentSegmentPoints = new ArrayList<>();
 
-    Coordinate current = null;
-    for (Coordinate coordinate : vertices) {
+    int previousIndex = -1;
+    for (int i = 0; i < candidateCount; ++i) {
       assert currentSegmentPoints.size() == 0 || currentSegmentPoints.size() >= 2;
 
-      final var previous = current;
-      current = coordinate;
-      if (previous == null) {
-        continue;
+      final var index = candidates == null ? i : candidates[i];
+      if (index != previousIndex + 1 && !currentSegmentPoints.isEmpty()) {
+        // Segments were skipped, so the existing segment can't be extended.
+        segments.add(
+            geometryFactory.createLineString(currentSegmentPoints.toArray(Coordinate[]::new)));
+        currentSegmentPoints.clear();
       }
+      previousIndex = index;
 
-      final var faceLineSegment = new LineSegment(previous, coordinate);
+      final var faceLineSegment = new LineSegment(vertices[index], vertices[index + 1]);
       final var orientation = faceLineSegment.orientationIndex(origin);
       final var shouldIncludeFace =
           (orientation == requiredOrientation)
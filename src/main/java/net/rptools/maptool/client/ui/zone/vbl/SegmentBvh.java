@@ -0,0 +1,222 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone.vbl;
+
+import java.util.Arrays;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+
+/**
+ * A bounding volume hierarchy over the segments of a ring, for finding the segments near an area
+ * without looking at all of them.
+ *
+ * <p>Segment {@code i} is the segment from vertex {@code i} to vertex {@code i + 1}. The hierarchy
+ * is built once and never changes, so it can be queried from several threads at once.
+ */
+final class SegmentBvh {
+  /** The most segments a leaf holds. */
+  private static final int LEAF_SIZE = 8;
+
+  private final Coordinate[] vertices;
+
+  /** The segment indices, ordered so that each node covers a contiguous range. */
+  private final int[] segments;
+
+  // region Nodes, stored as parallel arrays. Node 0 is the root.
+
+  private final double[] minX;
+  private final double[] minY;
+  private final double[] maxX;
+  private final double[] maxY;
+
+  /** The index of the first child of an inner node, or -1 for a leaf. The second child follows. */
+  private final int[] firstChild;
+
+  /** The start of the range in {@link #segments} covered by a node. */
+  private final int[] start;
+
+  /** The end (exclusive) of the range in {@link #segments} covered by a node. */
+  private final int[] end;
+
+  // endregion
+
+  private int nodeCount;
+
+  /**
+   * Builds the hierarchy for the segments between consecutive vertices.
+   *
+   * @param vertices the vertices of the segments.
+   */
+  SegmentBvh(Coordinate[] vertices) {
+    this.vertices = vertices;
+
+    final var segmentCount = Math.max(0, vertices.length - 1);
+    segments = new int[segmentCount];
+    for (int i = 0; i < segmentCount; ++i) {
+      segments[i] = i;
+    }
+
+    // A leaf holds at least half of LEAF_SIZE segments, which bounds the number of nodes.
+    final var capacity = 2 * (segmentCount / (LEAF_SIZE / 2) + 1);
+    minX = new double[capacity];
+    minY = new double[capacity];
+    maxX = new double[capacity];
+    maxY = new double[capacity];
+    firstChild = new int[capacity];
+    start = new int[capacity];
+    end = new int[capacity];
+
+    nodeCount = 1;
+    build(0, 0, segmentCount);
+  }
+
+  /**
+   * Finds the segments whose bounding box intersects an envelope.
+   *
+   * @param envelope the area to look in.
+   * @return the indices of the segments, in ascending order.
+   */
+  int[] query(Envelope envelope) {
+    var result = new int[16];
+    var resultSize = 0;
+
+    final var stack = new int[64];
+    var stackSize = 0;
+    stack[stackSize++] = 0;
+    while (stackSize > 0) {
+      final var node = stack[--stackSize];
+      if (!intersects(node, envelope)) {
+        continue;
+      }
+
+      if (firstChild[node] >= 0) {
+        stack[stackSize++] = firstChild[node];
+        stack[stackSize++] = firstChild[node] + 1;
+        continue;
+      }
+
+      for (int i = start[node]; i < end[node]; ++i) {
+        final var segment = segments[i];
+        if (segmentIntersects(segment, envelope)) {
+          if (resultSize == result.length) {
+            result = Arrays.copyOf(result, result.length * 2);
+          }
+          result[resultSize++] = segment;
+        }
+      }
+    }
+
+    result = Arrays.copyOf(result, resultSize);
+    Arrays.sort(result);
+    return result;
+  }
+
+  private void build(int node, int from, int to) {
+    var nodeMinX = Double.POSITIVE_INFINITY;
+    var nodeMinY = Double.POSITIVE_INFINITY;
+    var nodeMaxX = Double.NEGATIVE_INFINITY;
+    var nodeMaxY = Double.NEGATIVE_INFINITY;
+    for (int i = from; i < to; ++i) {
+      final var p0 = vertices[segments[i]];
+      final var p1 = vertices[segments[i] + 1];
+      nodeMinX = Math.min(nodeMinX, Math.min(p0.x, p1.x));
+      nodeMinY = Math.min(nodeMinY, Math.min(p0.y, p1.y));
+      nodeMaxX = Math.max(nodeMaxX, Math.max(p0.x, p1.x));
+      nodeMaxY = Math.max(nodeMaxY, Math.max(p0.y, p1.y));
+    }
+    minX[node] = nodeMinX;
+    minY[node] = nodeMinY;
+    maxX[node] = nodeMaxX;
+    maxY[node] = nodeMaxY;
+    start[node] = from;
+    end[node] = to;
+
+    if (to - from <= LEAF_SIZE) {
+      firstChild[node] = -1;
+      return;
+    }
+
+    // Split at the median of the segment midpoints along the longer side.
+    final var splitOnX = nodeMaxX - nodeMinX >= nodeMaxY - nodeMinY;
+    final var middle = (from + to) >>> 1;
+    select(from, to, middle, splitOnX);
+
+    final var child = nodeCount;
+    nodeCount += 2;
+    firstChild[node] = child;
+    build(child, from, middle);
+    build(child + 1, middle, to);
+  }
+
+  /**
+   * Partially sorts a range of {@link #segments} so that the {@code nth} element is the one that
+   * would be there if the range were sorted by midpoint.
+   */
+  private void select(int from, int to, int nth, boolean byX) {
+    var left = from;
+    var right = to - 1;
+    while (left < right) {
+      final var pivot = midpoint(segments[(left + right) >>> 1], byX);
+      var i = left;
+      var j = right;
+      while (i <= j) {
+        while (midpoint(segments[i], byX) < pivot) {
+          ++i;
+        }
+        while (midpoint(segments[j], byX) > pivot) {
+          --j;
+        }
+        if (i <= j) {
+          final var swap = segments[i];
+          segments[i] = segments[j];
+          segments[j] = swap;
+          ++i;
+          --j;
+        }
+      }
+
+      if (nth <= j) {
+        right = j;
+      } else if (nth >= i) {
+        left = i;
+      } else {
+        return;
+      }
+    }
+  }
+
+  /** Twice the midpoint of a segment along one axis, which orders the same as the midpoint. */
+  private double midpoint(int segment, boolean byX) {
+    final var p0 = vertices[segment];
+    final var p1 = vertices[segment + 1];
+    return byX ? p0.x + p1.x : p0.y + p1.y;
+  }
+
+  private boolean intersects(int node, Envelope envelope) {
+    return !(minX[node] > envelope.getMaxX()
+        || maxX[node] < envelope.getMinX()
+        || minY[node] > envelope.getMaxY()
+        || maxY[node] < envelope.getMinY());
+  }
+
+  private boolean segmentIntersects(int segment, Envelope envelope) {
+    final var p0 = vertices[segment];
+    final var p1 = vertices[segment + 1];
+    return !(Math.min(p0.x, p1.x) > envelope.getMaxX()
+        || Math.max(p0.x, p1.x) < envelope.getMinX()
+        || Math.min(p0.y, p1.y) > envelope.getMaxY()
+        || Math.max(p0.y, p1.y) < envelope.getMinY());
+  }
+}
@@ -0,0 +1,477 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone.vbl;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+import javax.annotation.Nullable;
+import net.rptools.lib.GeometryUtil;
+import net.rptools.maptool.model.Zone;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+
+/**
+ * The cells of a square grid that are potentially visible from each other cell, through Wall VBL.
+ *
+ * <p>The field is built once for some Wall VBL, which takes a while, and then answers whether a
+ * point can be seen from the center of a cell without solving any {@link VisibilityProblem}. It is
+ * only meant for topology that doesn't change, such as the walls of a prepared dungeon.
+ *
+ * <p>A cell is visible from another if any of it can be seen from the center of the other, ignoring
+ * vision range, lights and any topology other than the Wall VBL the field was built for. More
+ * topology only blocks more, so a cell that is not visible can't be seen by any token whose vision
+ * center is the center of the other cell. The field covers the bounds of the Wall VBL and a cell
+ * around them. What can be seen from a cell is bounded if it doesn't reach the edge of the field.
+ */
+public final class VisibilityField {
+  /** Identifies the format of {@link #write(OutputStream)}. */
+  private static final int MAGIC = 0x56495346;
+
+  private static final int FORMAT_VERSION = 1;
+
+  /**
+   * The most cells a field may have. Each cell may see all the others, so the bitsets of a field
+   * can take up to {@code MAX_CELLS}² bits, which is 32 MiB at this size.
+   */
+  public static final int MAX_CELLS = 128 * 128;
+
+  /**
+   * The cells visible from a cell, as a bitset over a rectangle of cells.
+   *
+   * @param minColumn The first column of the rectangle.
+   * @param minRow The first row of the rectangle.
+   * @param columns The width of the rectangle, in cells. {@code 0} if nothing is visible.
+   * @param rows The height of the rectangle, in cells. {@code 0} if nothing is visible.
+   * @param isBounded Whether everything visible is within the field.
+   * @param bits A bit for each cell of the rectangle, row by row.
+   */
+  private record Cell(
+      int minColumn, int minRow, int columns, int rows, boolean isBounded, long[] bits) {
+    /** A cell whose center is inside Wall VBL, so nothing is visible from it. */
+    static final Cell BLIND = new Cell(0, 0, 0, 0, true, new long[0]);
+
+    boolean isVisible(int column, int row) {
+      if (column < minColumn
+          || row < minRow
+          || column >= minColumn + columns
+          || row >= minRow + rows) {
+        return false;
+      }
+      final var index = (row - minRow) * columns + (column - minColumn);
+      return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+  }
+
+  private final int cellSize;
+  private final int offsetX;
+  private final int offsetY;
+
+  /** The grid column of the first column of the field. */
+  private final int firstColumn;
+
+  /** The grid row of the first row of the field. */
+  private final int firstRow;
+
+  private final int columns;
+  private final int rows;
+  private final Cell[] cells;
+
+  private VisibilityField(
+      int cellSize,
+      int offsetX,
+      int offsetY,
+      int firstColumn,
+      int firstRow,
+      int columns,
+      int rows) {
+    this.cellSize = cellSize;
+    this.offsetX = offsetX;
+    this.offsetY = offsetY;
+    this.firstColumn = firstColumn;
+    this.firstRow = firstRow;
+    this.columns = columns;
+    this.rows = rows;
+    this.cells = new Cell[columns * rows];
+  }
+
+  /**
+   * Counts the cells of the field for some Wall VBL, to check it against {@link #MAX_CELLS} before
+   * building it.
+   *
+   * @param wallBounds the bounds of the Wall VBL.
+   * @param cellSize the width and height of the grid cells.
+   * @param offsetX the x offset of the grid.
+   * @param offsetY the y offset of the grid.
+   * @return the number of cells.
+   */
+  public static long countCells(Rectangle wallBounds, int cellSize, int offsetX, int offsetY) {
+    final var columns =
+        Math.floorDiv(wallBounds.x + wallBounds.width - offsetX, cellSize)
+            - Math.floorDiv(wallBounds.x - offsetX, cellSize)
+            + 3L;
+    final var rows =
+        Math.floorDiv(wallBounds.y + wallBounds.height - offsetY, cellSize)
+            - Math.floorDiv(wallBounds.y - offsetY, cellSize)
+            + 3L;
+    return columns * rows;
+  }
+
+  /**
+   * Builds the field for some Wall VBL. The cells are solved in parallel.
+   *
+   * @param wallVbl the Wall VBL.
+   * @param wallBounds the bounds of the Wall VBL.
+   * @param cellSize the width and height of the grid cells.
+   * @param offsetX the x offset of the grid.
+   * @param offsetY the y offset of the grid.
+   * @return the field.
+   * @throws IllegalArgumentException if the field would have more than {@link #MAX_CELLS} cells.
+   */
+  public static VisibilityField build(
+      AreaTree wallVbl, Rectangle wallBounds, int cellSize, int offsetX, int offsetY) {
+    return build(wallVbl, wallBounds, cellSize, offsetX, offsetY, () -> false);
+  }
+
+  /**
+   * Builds the field for some Wall VBL. The cells are solved in parallel, on the fork join pool the
+   * caller is running in or else the common pool.
+   *
+   * @param wallVbl the Wall VBL.
+   * @param wallBounds the bounds of the Wall VBL.
+   * @param cellSize the width and height of the grid cells.
+   * @param offsetX the x offset of the grid.
+   * @param offsetY the y offset of the grid.
+   * @param isCancelled checked before solving each cell, to stop building a field that is no
+   *     longer wanted.
+   * @return the field.
+   * @throws IllegalArgumentException if the field would have more than {@link #MAX_CELLS} cells.
+   * @throws CancellationException if {@code isCancelled} returned {@code true}.
+   */
+  public static VisibilityField build(
+      AreaTree wallVbl,
+      Rectangle wallBounds,
+      int cellSize,
+      int offsetX,
+      int offsetY,
+      BooleanSupplier isCancelled) {
+    final var cellCount = countCells(wallBounds, cellSize, offsetX, offsetY);
+    if (cellCount > MAX_CELLS) {
+      throw new IllegalArgumentException(
+          "A visibility field of " + cellCount + " cells is larger than " + MAX_CELLS);
+    }
+
+    final var firstColumn = Math.floorDiv(wallBounds.x - offsetX, cellSize) - 1;
+    final var firstRow = Math.floorDiv(wallBounds.y - offsetY, cellSize) - 1;
+    final var lastColumn = Math.floorDiv(wallBounds.x + wallBounds.width - offsetX, cellSize) + 1;
+    final var lastRow = Math.floorDiv(wallBounds.y + wallBounds.height - offsetY, cellSize) + 1;
+    final var field =
+        new VisibilityField(
+            cellSize,
+            offsetX,
+            offsetY,
+            firstColumn,
+            firstRow,
+            lastColumn - firstColumn + 1,
+            lastRow - firstRow + 1);
+
+    final var geometryFactory = GeometryUtil.getGeometryFactory();
+    final var fieldGeometry =
+        PreparedGeometryFactory.prepare(
+            geometryFactory.toGeometry(
+                field.getEnvelope(0, 0, field.columns - 1, field.rows - 1)));
+    IntStream.range(0, field.cells.length)
+        .parallel()
+        .forEach(
+            index -> {
+              if (isCancelled.getAsBoolean()) {
+                throw new CancellationException("The visibility field is no longer wanted");
+              }
+              field.cells[index] = field.solve(index, wallVbl, fieldGeometry);
+            });
+    return field;
+  }
+
+  /**
+   * @param origin a vision center.
+   * @return {@code true} if {@code origin} is the center of a cell of the field that is inside Wall
+   *     VBL, so that nothing is visible from it.
+   */
+  public boolean isBlind(Point origin) {
+    final var index = indexOf(origin);
+    return index >= 0 && cells[index] == Cell.BLIND;
+  }
+
+  /**
+   * Finds the bounds of what can be seen from a vision center, so that vision can be limited to
+   * them before solving it.
+   *
+   * @param origin a vision center.
+   * @return the bounds of the cells visible from {@code origin}, or {@code null} if {@code origin}
+   *     isn't the center of a cell of the field or what it sees isn't bounded.
+   */
+  public @Nullable Rectangle getVisibleBounds(Point origin) {
+    final var index = indexOf(origin);
+    if (index < 0) {
+      return null;
+    }
+    final var cell = cells[index];
+    if (!cell.isBounded()) {
+      return null;
+    }
+    return new Rectangle(
+        offsetX + (firstColumn + cell.minColumn()) * cellSize,
+        offsetY + (firstRow + cell.minRow()) * cellSize,
+        cell.columns() * cellSize,
+        cell.rows() * cellSize);
+  }
+
+  /**
+   * Checks whether Wall VBL hides a point from a vision center.
+   *
+   * @param origin a vision center.
+   * @param x the x coordinate of the point.
+   * @param y the y coordinate of the point.
+   * @return {@code true} if the point is certainly hidden from {@code origin}. {@code false} if it
+   *     might be visible, or if the field doesn't know because {@code origin} isn't the center of a
+   *     cell of the field.
+   */
+  public boolean isHidden(Point origin, double x, double y) {
+    final var index = indexOf(origin);
+    if (index < 0) {
+      return false;
+    }
+    final var cell = cells[index];
+    final var column = (int) Math.floor((x - offsetX) / cellSize) - firstColumn;
+    final var row = (int) Math.floor((y - offsetY) / cellSize) - firstRow;
+    if (column < 0 || row < 0 || column >= columns || row >= rows) {
+      // Outside the field, only bounded cells are known not to see the point.
+      return cell.isBounded();
+    }
+    return !cell.isVisible(column, row);
+  }
+
+  /**
+   * @return the index of the cell whose center is {@code origin}, or {@code -1} if there is none.
+   */
+  private int indexOf(Point origin) {
+    final var column = Math.floorDiv(origin.x - offsetX, cellSize) - firstColumn;
+    final var row = Math.floorDiv(origin.y - offsetY, cellSize) - firstRow;
+    if (column < 0 || row < 0 || column >= columns || row >= rows) {
+      return -1;
+    }
+    final var center = centerOf(column, row);
+    if (center.x != origin.x || center.y != origin.y) {
+      return -1;
+    }
+    return row * columns + column;
+  }
+
+  /** The center of a cell, rounded the same way as the vision center of a token in the cell. */
+  private Point centerOf(int column, int row) {
+    return new Point(
+        offsetX + (firstColumn + column) * cellSize + cellSize / 2,
+        offsetY + (firstRow + row) * cellSize + cellSize / 2);
+  }
+
+  /** @return the envelope of a range of cells of the field, inclusive. */
+  private Envelope getEnvelope(int fromColumn, int fromRow, int toColumn, int toRow) {
+    return new Envelope(
+        offsetX + (double) (firstColumn + fromColumn) * cellSize,
+        offsetX + (double) (firstColumn + toColumn + 1) * cellSize,
+        offsetY + (double) (firstRow + fromRow) * cellSize,
+        offsetY + (double) (firstRow + toRow + 1) * cellSize);
+  }
+
+  private Cell solve(int index, AreaTree wallVbl, PreparedGeometry fieldGeometry) {
+    final var geometryFactory = GeometryUtil.getGeometryFactory();
+    final var origin = centerOf(index % columns, index / columns);
+
+    final var accumulator = new VisionBlockingAccumulator(geometryFactory, origin, fieldGeometry);
+    if (!accumulator.add(Zone.TopologyType.WALL_VBL, wallVbl)) {
+      return Cell.BLIND;
+    }
+    final var problem =
+        new VisibilityProblem(geometryFactory, new Coordinate(origin.x, origin.y), fieldGeometry);
+    for (var string : accumulator.getVisionBlockingSegments()) {
+      problem.add(string);
+    }
+    final var visible = problem.solve();
+    if (visible == null) {
+      // Nothing blocks vision, so everything is visible.
+      final var bits = new long[(columns * rows + 63) >>> 6];
+      for (int i = 0; i < columns * rows; ++i) {
+        bits[i >>> 6] |= 1L << i;
+      }
+      return new Cell(0, 0, columns, rows, false, bits);
+    }
+
+    final var prepared = PreparedGeometryFactory.prepare(visible);
+    final var envelope = visible.getEnvelopeInternal();
+    final var fromColumn = clamp((envelope.getMinX() - offsetX) / cellSize - firstColumn, columns);
+    final var toColumn = clamp((envelope.getMaxX() - offsetX) / cellSize - firstColumn, columns);
+    final var fromRow = clamp((envelope.getMinY() - offsetY) / cellSize - firstRow, rows);
+    final var toRow = clamp((envelope.getMaxY() - offsetY) / cellSize - firstRow, rows);
+    return toCell(geometryFactory, prepared, fromColumn, fromRow, toColumn, toRow);
+  }
+
+  /** Finds the cells within a range that intersect the visible area, and packs them into bits. */
+  private Cell toCell(
+      GeometryFactory geometryFactory,
+      PreparedGeometry visible,
+      int fromColumn,
+      int fromRow,
+      int toColumn,
+      int toRow) {
+    final var width = toColumn - fromColumn + 1;
+    final var height = toRow - fromRow + 1;
+    final var isVisible = new boolean[width * height];
+    var minColumn = Integer.MAX_VALUE;
+    var minRow = Integer.MAX_VALUE;
+    var maxColumn = Integer.MIN_VALUE;
+    var maxRow = Integer.MIN_VALUE;
+    for (int row = fromRow; row <= toRow; ++row) {
+      for (int column = fromColumn; column <= toColumn; ++column) {
+        final var cellGeometry = geometryFactory.toGeometry(getEnvelope(column, row, column, row));
+        if (visible.intersects(cellGeometry)) {
+          isVisible[(row - fromRow) * width + (column - fromColumn)] = true;
+          minColumn = Math.min(minColumn, column);
+          minRow = Math.min(minRow, row);
+          maxColumn = Math.max(maxColumn, column);
+          maxRow = Math.max(maxRow, row);
+        }
+      }
+    }
+    if (minColumn > maxColumn) {
+      return new Cell(0, 0, 0, 0, true, new long[0]);
+    }
+
+    final var cellColumns = maxColumn - minColumn + 1;
+    final var cellRows = maxRow - minRow + 1;
+    final var bits = new long[(cellColumns * cellRows + 63) >>> 6];
+    for (int row = minRow; row <= maxRow; ++row) {
+      for (int column = minColumn; column <= maxColumn; ++column) {
+        if (isVisible[(row - fromRow) * width + (column - fromColumn)]) {
+          final var index = (row - minRow) * cellColumns + (column - minColumn);
+          bits[index >>> 6] |= 1L << index;
+        }
+      }
+    }
+    final var isBounded =
+        minColumn > 0 && minRow > 0 && maxColumn < columns - 1 && maxRow < rows - 1;
+    return new Cell(minColumn, minRow, cellColumns, cellRows, isBounded, bits);
+  }
+
+  private static int clamp(double value, int size) {
+    return Math.max(0, Math.min(size - 1, (int) Math.floor(value)));
+  }
+
+  /**
+   * Writes the field, so that it can be {@link #read(InputStream) read} again instead of being
+   * built.
+   *
+   * @param out where to write the field.
+   * @throws IOException if the field could not be written.
+   */
+  public void write(OutputStream out) throws IOException {
+    final var data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    data.writeInt(FORMAT_VERSION);
+    data.writeInt(cellSize);
+    data.writeInt(offsetX);
+    data.writeInt(offsetY);
+    data.writeInt(firstColumn);
+    data.writeInt(firstRow);
+    data.writeInt(columns);
+    data.writeInt(rows);
+    for (final var cell : cells) {
+      data.writeBoolean(cell == Cell.BLIND);
+      if (cell == Cell.BLIND) {
+        continue;
+      }
+      data.writeInt(cell.minColumn());
+      data.writeInt(cell.minRow());
+      data.writeInt(cell.columns());
+      data.writeInt(cell.rows());
+      data.writeBoolean(cell.isBounded());
+      data.writeInt(cell.bits().length);
+      for (final var bits : cell.bits()) {
+        data.writeLong(bits);
+      }
+    }
+    data.flush();
+  }
+
+  /**
+   * Reads a field that was {@link #write(OutputStream) written}.
+   *
+   * @param in where to read the field from.
+   * @return the field.
+   * @throws IOException if the field could not be read, or was written in another format.
+   */
+  public static VisibilityField read(InputStream in) throws IOException {
+    final var data = new DataInputStream(in);
+    if (data.readInt() != MAGIC || data.readInt() != FORMAT_VERSION) {
+      throw new IOException("Not a visibility field of the current format");
+    }
+    final var cellSize = data.readInt();
+    final var offsetX = data.readInt();
+    final var offsetY = data.readInt();
+    final var firstColumn = data.readInt();
+    final var firstRow = data.readInt();
+    final var columns = data.readInt();
+    final var rows = data.readInt();
+    if (columns < 0 || rows < 0 || (long) columns * rows > MAX_CELLS) {
+      throw new IOException("Corrupt visibility field");
+    }
+    final var field =
+        new VisibilityField(cellSize, offsetX, offsetY, firstColumn, firstRow, columns, rows);
+    for (int i = 0; i < field.cells.length; ++i) {
+      if (data.readBoolean()) {
+        field.cells[i] = Cell.BLIND;
+        continue;
+      }
+      final var minColumn = data.readInt();
+      final var minRow = data.readInt();
+      final var cellColumns = data.readInt();
+      final var cellRows = data.readInt();
+      final var isBounded = data.readBoolean();
+      final var bitsLength = data.readInt();
+      if (cellColumns < 0
+          || cellRows < 0
+          || cellColumns > columns
+          || cellRows > rows
+          || bitsLength != (cellColumns * cellRows + 63) >>> 6) {
+        throw new IOException("Corrupt visibility field");
+      }
+      final var bits = new long[bitsLength];
+      for (int j = 0; j < bits.length; ++j) {
+        bits[j] = data.readLong();
+      }
+      field.cells[i] = new Cell(minColumn, minRow, cellColumns, cellRows, isBounded, bits);
+    }
+    return field;
+  }
+}
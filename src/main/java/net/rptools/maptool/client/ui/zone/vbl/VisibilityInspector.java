@@ -91,6 +91,20 @@ public void mouseWheelMoved(MouseWheelEvent e) {
         });
   }
 
+  /**
+   * The topology of a scene to inspect.
+   *
+   * @param wallVbl the wall VBL.
+   * @param hillVbl the hill VBL.
+   * @param pitVbl the pit VBL.
+   * @param coverVbl the cover VBL.
+   */
+  record Scene(Area wallVbl, Area hillVbl, Area pitVbl, Area coverVbl) {}
+
+  public void setTopology(Scene scene) {
+    setTopology(scene.wallVbl(), scene.hillVbl(), scene.pitVbl(), scene.coverVbl());
+  }
+
   public void setTopology(Area wallVbl, Area hillVbl, Area pitVbl, Area coverVbl) {
     this.toplogyAreas.clear();
     this.toplogyAreas.put(Zone.TopologyType.WALL_VBL, wallVbl);
@@ -200,10 +214,10 @@ public static void main(String[] args) {
     f.add(panel);
     f.setVisible(true);
 
-    SwingUtilities.invokeLater(() -> buildRepeatedSquaredTopology(panel));
+    SwingUtilities.invokeLater(() -> panel.setTopology(buildRepeatedSquaredTopology()));
   }
 
-  private static void buildRepeatedSquaredTopology(VisibilityInspector visibilityInspector) {
+  static Scene buildRepeatedSquaredTopology() {
     Area wallArea = new Area();
     Area hillArea = new Area();
     Area pitArea = new Area();
@@ -226,10 +240,10 @@ private static void buildRepeatedSquaredTopology(VisibilityInspector visibilityI
         }
       }
     }
-    visibilityInspector.setTopology(wallArea, hillArea, pitArea, coverArea);
+    return new Scene(wallArea, hillArea, pitArea, coverArea);
   }
 
-  private static void buildTripleIntersectionTopology(VisibilityInspector visibilityInspector) {
+  static Scene buildTripleIntersectionTopology() {
     Area wallArea = new Area();
     Area hillArea = new Area();
     Area pitArea = new Area();
@@ -241,10 +255,10 @@ private static void buildTripleIntersectionTopology(VisibilityInspector visibili
     hillArea.add(new Area(new Polygon(new int[] {250, 450, 450}, new int[] {450, 450, 250}, 3)));
     pitArea.add(new Area(new Polygon(new int[] {275, 325, 325}, new int[] {350, 150, 550}, 3)));
 
-    visibilityInspector.setTopology(wallArea, hillArea, pitArea, coverArea);
+    return new Scene(wallArea, hillArea, pitArea, coverArea);
   }
 
-  private static void buildSinglePillarTopology(VisibilityInspector visibilityInspector) {
+  static Scene buildSinglePillarTopology() {
     Area wallArea = new Area();
     Area hillArea = new Area();
     Area pitArea = new Area();
@@ -255,6 +269,6 @@ private static void buildSinglePillarTopology(VisibilityInspector visibilityInsp
     final var pillar = new Area(new Rectangle(300, 300, 50, 50));
     wallArea.add(pillar);
 
-    visibilityInspector.setTopology(wallArea, hillArea, pitArea, coverArea);
+    return new Scene(wallArea, hillArea, pitArea, coverArea);
   }
 }
@@ -14,8 +14,22 @@
  */
 package net.rptools.maptool.common;
 
+import net.rptools.clientserver.simple.connection.PrioritizedChannel;
+
 public class MapToolConstants {
-  public enum Channel {
-    IMAGE
+  public enum Channel implements PrioritizedChannel {
+    /** Asset transfers, which must not hold up token and chat traffic. */
+    IMAGE(Priority.BULK);
+
+    private final Priority priority;
+
+    Channel(Priority priority) {
+      this.priority = priority;
+    }
+
+    @Override
+    public Priority getPriority() {
+      return priority;
+    }
   }
 }
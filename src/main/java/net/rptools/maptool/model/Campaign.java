@@ -45,8 +45,11 @@
 public class Campaign {
   private GUID id = new GUID();
 
-  /** The {@link Zone}s that make up this {@code Campaign}. */
-  private final Map<GUID, Zone> zones =
+  /**
+   * The {@link Zone}s that make up this {@code Campaign}. Not final as campaign journals store the
+   * zones separately from the campaign, see {@link net.rptools.maptool.util.PersistenceUtil}.
+   */
+  private Map<GUID, Zone> zones =
       Collections.synchronizedMap(new LinkedHashMap<GUID, Zone>());
 
   private String name; // the name of the campaign, to be displayed in the MapToolFrame title bar
@@ -120,6 +123,9 @@ public Campaign() {
   }
 
   private Object readResolve() {
+    if (zones == null) {
+      zones = Collections.synchronizedMap(new LinkedHashMap<GUID, Zone>());
+    }
     if (exportSettings == null) {
       exportSettings = new HashMap<>();
     }
@@ -15,12 +15,25 @@
 package net.rptools.maptool.model;
 
 import java.awt.geom.Area;
+import java.io.Serial;
+import javax.annotation.Nullable;
 
-/** Stores the exposed area of a token. */
+/**
+ * Stores the exposed area of a token.
+ *
+ * <p>The exposed area is either kept as an {@link Area}, or as a {@link FogBitmap} when the zone
+ * uses bitmap fog. In the latter case the area is built from the bitmap when asked for.
+ */
 public class ExposedAreaMetaData {
-  /** Area exposed so far. */
+  /**
+   * Area exposed so far. When there is a {@link #fogBitmap}, this is only a cache of its area and
+   * is {@code null} until needed.
+   */
   private Area exposedAreaHistory;
 
+  /** The cells exposed so far, or {@code null} if the exposed area is kept as an area. */
+  private @Nullable FogBitmap fogBitmap;
+
   public ExposedAreaMetaData() {
     exposedAreaHistory = new Area();
   }
@@ -29,26 +42,141 @@ public ExposedAreaMetaData(Area area) {
     exposedAreaHistory = new Area(area);
   }
 
-  public Area getExposedAreaHistory() {
-    // if (exposedAreaHistory == null) {
-    // exposedAreaHistory = new Area();
-    // }
+  /**
+   * Creates metadata that keeps the exposed area as a bitmap.
+   *
+   * @param fogBitmap the cells exposed so far. It is not copied.
+   */
+  public ExposedAreaMetaData(FogBitmap fogBitmap) {
+    this.fogBitmap = fogBitmap;
+  }
+
+  public ExposedAreaMetaData(ExposedAreaMetaData other) {
+    if (other.fogBitmap != null) {
+      fogBitmap = new FogBitmap(other.fogBitmap);
+    } else {
+      exposedAreaHistory = new Area(other.exposedAreaHistory);
+    }
+  }
+
+  /**
+   * Creates empty metadata for a zone.
+   *
+   * @param fogCellSize the size of the fog cells of the zone, or {@code 0} to keep the exposed area
+   *     as an area.
+   * @return the new metadata.
+   */
+  public static ExposedAreaMetaData create(int fogCellSize) {
+    if (fogCellSize > 0) {
+      return new ExposedAreaMetaData(new FogBitmap(fogCellSize));
+    }
+    return new ExposedAreaMetaData();
+  }
+
+  /**
+   * @return the cells exposed so far, or {@code null} if the exposed area is kept as an area.
+   */
+  public @Nullable FogBitmap getFogBitmap() {
+    return fogBitmap;
+  }
+
+  /**
+   * @param fogCellSize the size of the fog cells, or {@code 0} to keep the exposed area as an area.
+   * @return this metadata if it already uses {@code fogCellSize}, otherwise a copy that does.
+   */
+  public ExposedAreaMetaData withFogCellSize(int fogCellSize) {
+    final var currentCellSize = fogBitmap == null ? 0 : fogBitmap.getCellSize();
+    if (currentCellSize == fogCellSize) {
+      return this;
+    }
+    final var converted = create(fogCellSize);
+    converted.addToExposedAreaHistory(getExposedAreaHistory());
+    return converted;
+  }
+
+  public synchronized Area getExposedAreaHistory() {
+    if (exposedAreaHistory == null) {
+      exposedAreaHistory = fogBitmap == null ? new Area() : fogBitmap.toArea();
+    }
     return exposedAreaHistory;
   }
 
-  public void addToExposedAreaHistory(Area newArea) {
+  /**
+   * Looks up whether a point has been exposed. When the exposed area is kept as a bitmap, this does
+   * not need to build the area.
+   *
+   * @param x the x coordinate of the point, in zone pixels.
+   * @param y the y coordinate of the point, in zone pixels.
+   * @return {@code true} if the point has been exposed.
+   */
+  public boolean isExposed(double x, double y) {
+    if (fogBitmap != null) {
+      return fogBitmap.isExposed(x, y);
+    }
+    return getExposedAreaHistory().contains(x, y);
+  }
+
+  public synchronized void addToExposedAreaHistory(Area newArea) {
     if (newArea != null && !newArea.isEmpty()) {
-      exposedAreaHistory.add(newArea);
+      if (fogBitmap != null) {
+        fogBitmap.add(newArea);
+        exposedAreaHistory = null;
+      } else {
+        exposedAreaHistory.add(newArea);
+      }
+    }
+  }
+
+  /**
+   * Adds the exposed area of other metadata. When both keep the exposed area as bitmaps of the same
+   * cell size, this is a cheap union of the bitmaps.
+   *
+   * @param other the metadata whose exposed area to add.
+   */
+  public void addToExposedAreaHistory(ExposedAreaMetaData other) {
+    final var otherBitmap = other.getFogBitmap();
+    if (otherBitmap == null || fogBitmap == null) {
+      addToExposedAreaHistory(other.getExposedAreaHistory());
+      return;
+    }
+    synchronized (this) {
+      fogBitmap.add(otherBitmap);
+      exposedAreaHistory = null;
     }
   }
 
-  public void removeExposedAreaHistory(Area newArea) {
+  public synchronized void removeExposedAreaHistory(Area newArea) {
     if (newArea != null && !newArea.isEmpty()) {
-      exposedAreaHistory.subtract(newArea);
+      if (fogBitmap != null) {
+        fogBitmap.subtract(newArea);
+        exposedAreaHistory = null;
+      } else {
+        exposedAreaHistory.subtract(newArea);
+      }
     }
   }
 
-  public void clearExposedAreaHistory() {
+  public synchronized void clearExposedAreaHistory() {
+    if (fogBitmap != null) {
+      fogBitmap.clear();
+    }
     exposedAreaHistory = new Area();
   }
+
+  @Serial
+  private Object writeReplace() {
+    if (fogBitmap == null) {
+      return this;
+    }
+    // The area can always be built again from the bitmap, so only save the bitmap.
+    return new ExposedAreaMetaData(fogBitmap);
+  }
+
+  @Serial
+  private Object readResolve() {
+    if (fogBitmap == null && exposedAreaHistory == null) {
+      exposedAreaHistory = new Area();
+    }
+    return this;
+  }
 }
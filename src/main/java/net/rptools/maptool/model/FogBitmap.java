@@ -0,0 +1,457 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import com.google.protobuf.ByteString;
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.rptools.maptool.server.proto.FogBitmapDto;
+
+/**
+ * The exposed cells of a zone, as an alternative to an {@link Area} that grows with every exposure.
+ *
+ * <p>The zone is divided into square cells of {@link #getCellSize()} zone pixels, which can be
+ * smaller than the grid cells for finer fog. The cells are grouped into tiles, and only the tiles
+ * with some exposed cell exist. Each row of a tile is a {@code long} with a bit for each cell, so
+ * looking up a point is constant time and adding another bitmap is a bitwise or.
+ *
+ * <p>A shape exposes the cells whose center it covers. The size of the bitmap only depends on how
+ * much of the zone is exposed, and not on how many times it has been exposed.
+ */
+public final class FogBitmap {
+  /** The width and height of a tile, in cells. One row of a tile fits in a {@code long}. */
+  private static final int TILE_CELLS = Long.SIZE;
+
+  private final int cellSize;
+
+  /** The rows of each tile with an exposed cell, keyed by {@link #key(long, long)}. */
+  private transient Map<Long, long[]> tiles = new HashMap<>();
+
+  /**
+   * The tiles, {@link #encode() run-length encoded}. Only set in the copy that is serialized, see
+   * {@link #writeReplace()}.
+   */
+  private byte[] runs;
+
+  /**
+   * @param cellSize the width and height of a cell, in zone pixels.
+   */
+  public FogBitmap(int cellSize) {
+    if (cellSize <= 0) {
+      throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+    }
+    this.cellSize = cellSize;
+  }
+
+  public FogBitmap(FogBitmap other) {
+    this(other.cellSize);
+    synchronized (other) {
+      other.tiles.forEach((key, rows) -> tiles.put(key, rows.clone()));
+    }
+  }
+
+  /**
+   * @return the width and height of a cell, in zone pixels.
+   */
+  public int getCellSize() {
+    return cellSize;
+  }
+
+  public synchronized boolean isEmpty() {
+    return tiles.isEmpty();
+  }
+
+  /**
+   * Looks up whether a point is exposed.
+   *
+   * @param x the x coordinate of the point, in zone pixels.
+   * @param y the y coordinate of the point, in zone pixels.
+   * @return {@code true} if the cell containing the point is exposed.
+   */
+  public synchronized boolean isExposed(double x, double y) {
+    final var cellX = (long) Math.floor(x / cellSize);
+    final var cellY = (long) Math.floor(y / cellSize);
+    final var tileX = Math.floorDiv(cellX, TILE_CELLS);
+    final var tileY = Math.floorDiv(cellY, TILE_CELLS);
+    final var rows = tiles.get(key(tileX, tileY));
+    if (rows == null) {
+      return false;
+    }
+    final var row = rows[(int) Math.floorMod(cellY, TILE_CELLS)];
+    return (row & (1L << Math.floorMod(cellX, TILE_CELLS))) != 0;
+  }
+
+  /**
+   * Exposes the cells whose center is in a shape.
+   *
+   * @param shape the shape to expose.
+   */
+  public synchronized void add(Shape shape) {
+    forEachTile(
+        shape,
+        (tileX, tileY, mask) -> {
+          final var key = key(tileX, tileY);
+          final var rows = tiles.get(key);
+          if (rows == null) {
+            if (!isEmpty(mask)) {
+              tiles.put(key, mask);
+            }
+            return;
+          }
+          for (int row = 0; row < TILE_CELLS; ++row) {
+            rows[row] |= mask[row];
+          }
+        });
+  }
+
+  /**
+   * Exposes the cells exposed in another bitmap. This is much cheaper than adding its area.
+   *
+   * @param other the bitmap whose exposed cells to expose.
+   */
+  public void add(FogBitmap other) {
+    if (other.cellSize != cellSize) {
+      add(other.toArea());
+      return;
+    }
+
+    final Map<Long, long[]> otherTiles = new HashMap<>();
+    synchronized (other) {
+      other.tiles.forEach((key, rows) -> otherTiles.put(key, rows.clone()));
+    }
+    synchronized (this) {
+      otherTiles.forEach(
+          (key, otherRows) ->
+              tiles.merge(
+                  key,
+                  otherRows,
+                  (rows, ignored) -> {
+                    for (int row = 0; row < TILE_CELLS; ++row) {
+                      rows[row] |= otherRows[row];
+                    }
+                    return rows;
+                  }));
+    }
+  }
+
+  /**
+   * Hides the cells whose center is in a shape.
+   *
+   * @param shape the shape to hide.
+   */
+  public synchronized void subtract(Shape shape) {
+    forEachTile(
+        shape,
+        (tileX, tileY, mask) -> {
+          final var key = key(tileX, tileY);
+          final var rows = tiles.get(key);
+          if (rows == null) {
+            return;
+          }
+          for (int row = 0; row < TILE_CELLS; ++row) {
+            rows[row] &= ~mask[row];
+          }
+          if (isEmpty(rows)) {
+            tiles.remove(key);
+          }
+        });
+  }
+
+  public synchronized void clear() {
+    tiles.clear();
+  }
+
+  /**
+   * Builds the area covered by the exposed cells.
+   *
+   * <p>Horizontal runs of exposed cells are merged with identical runs in the rows below them, so
+   * the area is made of as few rectangles as the tiles allow.
+   *
+   * @return the exposed area.
+   */
+  public synchronized Area toArea() {
+    final var path = new Path2D.Double(Path2D.WIND_NON_ZERO);
+    tiles.forEach(
+        (key, rows) -> {
+          final var originX = tileX(key) * TILE_CELLS;
+          final var originY = tileY(key) * TILE_CELLS;
+
+          // The runs of the previous row that are still growing downwards, as start and end pairs,
+          // with the row each started in.
+          var open = new ArrayList<long[]>();
+          for (int row = 0; row <= TILE_CELLS; ++row) {
+            final var bits = row < TILE_CELLS ? rows[row] : 0L;
+            final var next = new ArrayList<long[]>();
+            for (final var run : runsOf(bits)) {
+              long[] continued = null;
+              for (final var candidate : open) {
+                if (candidate[0] == run[0] && candidate[1] == run[1]) {
+                  continued = candidate;
+                  break;
+                }
+              }
+              if (continued != null) {
+                open.remove(continued);
+                next.add(continued);
+              } else {
+                next.add(new long[] {run[0], run[1], row});
+              }
+            }
+            for (final var closed : open) {
+              path.append(
+                  new Rectangle.Double(
+                      (originX + closed[0]) * cellSize,
+                      (originY + closed[2]) * cellSize,
+                      (closed[1] - closed[0]) * (double) cellSize,
+                      (row - closed[2]) * (double) cellSize),
+                  false);
+            }
+            open = next;
+          }
+        });
+    return new Area(path);
+  }
+
+  /** @return the runs of set bits in a row, as start and end (exclusive) pairs. */
+  private static List<long[]> runsOf(long bits) {
+    final var result = new ArrayList<long[]>();
+    var column = 0;
+    while (bits != 0) {
+      final var start = Long.numberOfTrailingZeros(bits);
+      final var inverted = ~(bits >>> start);
+      final var length = inverted == 0 ? TILE_CELLS - start : Long.numberOfTrailingZeros(inverted);
+      result.add(new long[] {column + start, column + start + length});
+      if (start + length >= TILE_CELLS) {
+        break;
+      }
+      bits >>>= start + length;
+      column += start + length;
+    }
+    return result;
+  }
+
+  /**
+   * Run-length encodes the tiles.
+   *
+   * <p>Each tile is its position followed by the lengths of the alternating runs of hidden and
+   * exposed cells, row by row, starting with hidden cells. All numbers are variable length, and the
+   * positions are zigzag encoded.
+   *
+   * @return the encoded tiles.
+   */
+  public synchronized byte[] encode() {
+    final var out = new ByteArrayOutputStream();
+    tiles.forEach(
+        (key, rows) -> {
+          writeVarLong(out, zigzag(tileX(key)));
+          writeVarLong(out, zigzag(tileY(key)));
+
+          var exposed = false;
+          var runLength = 0;
+          for (final var bits : rows) {
+            for (int column = 0; column < TILE_CELLS; ++column) {
+              if ((((bits >>> column) & 1) != 0) == exposed) {
+                ++runLength;
+              } else {
+                writeVarLong(out, runLength);
+                exposed = !exposed;
+                runLength = 1;
+              }
+            }
+          }
+          writeVarLong(out, runLength);
+        });
+    return out.toByteArray();
+  }
+
+  /**
+   * Decodes tiles that were {@link #encode() run-length encoded}.
+   *
+   * @param cellSize the width and height of a cell, in zone pixels.
+   * @param encoded the encoded tiles.
+   * @return the bitmap with the tiles.
+   */
+  public static FogBitmap decode(int cellSize, byte[] encoded) {
+    final var bitmap = new FogBitmap(cellSize);
+    final var position = new int[] {0};
+    while (position[0] < encoded.length) {
+      final var tileX = unzigzag(readVarLong(encoded, position));
+      final var tileY = unzigzag(readVarLong(encoded, position));
+      final var rows = new long[TILE_CELLS];
+
+      var exposed = false;
+      var cell = 0;
+      while (cell < TILE_CELLS * TILE_CELLS) {
+        final var runLength = readVarLong(encoded, position);
+        if (runLength < 0 || runLength > TILE_CELLS * TILE_CELLS - cell) {
+          throw new IllegalArgumentException("Invalid run length: " + runLength);
+        }
+        if (exposed) {
+          for (int i = cell; i < cell + runLength; ++i) {
+            rows[i / TILE_CELLS] |= 1L << (i % TILE_CELLS);
+          }
+        }
+        cell += (int) runLength;
+        exposed = !exposed;
+      }
+      if (!isEmpty(rows)) {
+        bitmap.tiles.put(key(tileX, tileY), rows);
+      }
+    }
+    return bitmap;
+  }
+
+  public static FogBitmap fromDto(FogBitmapDto dto) {
+    return decode(dto.getCellSize(), dto.getRuns().toByteArray());
+  }
+
+  public FogBitmapDto toDto() {
+    return FogBitmapDto.newBuilder()
+        .setCellSize(cellSize)
+        .setRuns(ByteString.copyFrom(encode()))
+        .build();
+  }
+
+  @Serial
+  private Object writeReplace() {
+    // Keep the campaign file small by saving the run-length encoding rather than the tiles.
+    final var serialized = new FogBitmap(cellSize);
+    serialized.runs = encode();
+    return serialized;
+  }
+
+  @Serial
+  private Object readResolve() {
+    return decode(cellSize, runs == null ? new byte[0] : runs);
+  }
+
+  private interface TileConsumer {
+    void accept(long tileX, long tileY, long[] mask);
+  }
+
+  /**
+   * Calls {@code consumer} with the cells whose center is in a shape, for each tile the bounds of
+   * the shape overlap.
+   */
+  private void forEachTile(Shape shape, TileConsumer consumer) {
+    final Rectangle bounds = shape.getBounds();
+    if (bounds.isEmpty()) {
+      return;
+    }
+
+    final var image = new BufferedImage(TILE_CELLS, TILE_CELLS, BufferedImage.TYPE_BYTE_GRAY);
+    final var pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    final var g = image.createGraphics();
+    try {
+      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+      g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+
+      final var tileSize = (long) TILE_CELLS * cellSize;
+      final var minX = Math.floorDiv((long) bounds.x, tileSize);
+      final var minY = Math.floorDiv((long) bounds.y, tileSize);
+      final var maxX = Math.floorDiv((long) bounds.x + bounds.width, tileSize);
+      final var maxY = Math.floorDiv((long) bounds.y + bounds.height, tileSize);
+      for (var tileX = minX; tileX <= maxX; ++tileX) {
+        for (var tileY = minY; tileY <= maxY; ++tileY) {
+          g.setTransform(new AffineTransform());
+          g.setColor(Color.BLACK);
+          g.fillRect(0, 0, TILE_CELLS, TILE_CELLS);
+
+          // Pixels are filled when their center is inside, so each cell is sampled at its center.
+          final var transform = AffineTransform.getScaleInstance(1.0 / cellSize, 1.0 / cellSize);
+          transform.translate(-tileX * tileSize, -tileY * tileSize);
+          g.setTransform(transform);
+          g.setColor(Color.WHITE);
+          g.fill(shape);
+
+          final var mask = new long[TILE_CELLS];
+          for (int i = 0; i < pixels.length; ++i) {
+            if (pixels[i] != 0) {
+              mask[i / TILE_CELLS] |= 1L << (i % TILE_CELLS);
+            }
+          }
+          consumer.accept(tileX, tileY, mask);
+        }
+      }
+    } finally {
+      g.dispose();
+    }
+  }
+
+  private static boolean isEmpty(long[] rows) {
+    for (final var row : rows) {
+      if (row != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long key(long tileX, long tileY) {
+    return (tileX << 32) | (tileY & 0xFFFFFFFFL);
+  }
+
+  private static long tileX(long key) {
+    return key >> 32;
+  }
+
+  private static long tileY(long key) {
+    return (int) key;
+  }
+
+  private static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unzigzag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static void writeVarLong(ByteArrayOutputStream out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  private static long readVarLong(byte[] in, int[] position) {
+    long value = 0;
+    for (int shift = 0; shift < Long.SIZE; shift += 7) {
+      if (position[0] >= in.length) {
+        throw new IllegalArgumentException("Truncated fog runs");
+      }
+      final var b = in[position[0]++];
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Malformed fog runs");
+  }
+}
@@ -41,6 +41,9 @@ public class LookupTable {
   // table must be reset().
   private @Nonnull Boolean pickOnce = false;
 
+  /** The entries by roll, made when first needed and dropped whenever the entries change. */
+  private transient volatile @Nullable Intervals intervals;
+
   public static final String NO_PICKS_LEFT = "NO_PICKS_LEFT";
 
   public LookupTable() {}
@@ -61,10 +64,12 @@ public void setRoll(String roll) {
 
   public void clearEntries() {
     entryList.clear();
+    intervals = null;
   }
 
   public void addEntry(int min, int max, String result, MD5Key imageId) {
     entryList.add(new LookupEntry(min, max, result, imageId));
+    intervals = null;
   }
 
   public LookupEntry getLookup() throws ParserException {
@@ -131,6 +136,25 @@ public LookupEntry getLookupDirect(String roll) throws ParserException {
     return entry;
   }
 
+  /**
+   * Returns the entry in the table matching an integer roll without filtering for picked entries.
+   * This gives the same entry as {@link #getLookupDirect(String)} for the roll, but doesn't
+   * evaluate an expression or allocate, so it is cheap enough to call for every token on every
+   * frame.
+   *
+   * @param roll the roll. Rolls outside the range of the table are treated as its lowest or
+   *     highest roll.
+   * @return the last entry in the table matching the roll, or {@code null} if there is none.
+   */
+  public @Nullable LookupEntry getLookupDirect(int roll) {
+    var intervals = this.intervals;
+    if (intervals == null) {
+      intervals = new Intervals(entryList);
+      this.intervals = intervals;
+    }
+    return intervals.get(roll);
+  }
+
   private LookupEntry getStandardLookup(String roll) throws ParserException {
     int tableResult = 0;
     LookupEntry retEntry = null;
@@ -139,13 +163,7 @@ private LookupEntry getStandardLookup(String roll) throws ParserException {
       Result result = expressionParser.evaluate(roll);
       tableResult = Integer.parseInt(result.getValue().toString());
 
-      tableResult = constrainRoll(tableResult);
-
-      for (LookupEntry entry : entryList) {
-        if (tableResult >= entry.min && tableResult <= entry.max) {
-          retEntry = entry;
-        }
-      }
+      retEntry = getLookupDirect(tableResult);
 
     } catch (NumberFormatException nfe) {
       throw new ParserException("Error lookup up value: " + tableResult);
@@ -173,27 +191,6 @@ private LookupEntry getPickOnceLookup(String roll) throws ParserException {
     }
   }
 
-  private int constrainRoll(int val) {
-    int minmin = Integer.MAX_VALUE;
-    int maxmax = Integer.MIN_VALUE;
-
-    for (LookupEntry entry : entryList) {
-      if (entry.min < minmin) {
-        minmin = entry.min;
-      }
-      if (entry.max > maxmax) {
-        maxmax = entry.max;
-      }
-    }
-    if (val > maxmax) {
-      val = maxmax;
-    }
-    if (val < minmin) {
-      val = minmin;
-    }
-    return val;
-  }
-
   private String getDefaultRoll() {
     if (getPickOnce()) {
       // For Pick Once tables this returns a random pick from those entries in the list that
@@ -364,6 +361,67 @@ public String toString() {
     return builder.toString();
   }
 
+  /**
+   * The entries of a table split into intervals of rolls, each with the entry matching the rolls in
+   * the interval, so that the entry for a roll can be found by binary search.
+   */
+  private static final class Intervals {
+    /** The lowest and highest rolls of the table. Other rolls are moved into this range. */
+    private final int minRoll;
+
+    private final int maxRoll;
+
+    /** The first roll of each interval, in increasing order. */
+    private final long[] starts;
+
+    /** The entry matching the rolls of each interval, or {@code null} if none does. */
+    private final LookupEntry[] entries;
+
+    Intervals(List<LookupEntry> entryList) {
+      int min = Integer.MAX_VALUE;
+      int max = Integer.MIN_VALUE;
+      var bounds = new TreeSet<Long>();
+      for (LookupEntry entry : entryList) {
+        min = Math.min(min, entry.min);
+        max = Math.max(max, entry.max);
+        bounds.add((long) entry.min);
+        bounds.add(entry.max + 1L);
+      }
+      minRoll = min;
+      maxRoll = max;
+
+      starts = new long[bounds.size()];
+      entries = new LookupEntry[bounds.size()];
+      int i = 0;
+      for (long start : bounds) {
+        starts[i] = start;
+        // When entries overlap the last one in the table wins.
+        for (LookupEntry entry : entryList) {
+          if (start >= entry.min && start <= entry.max) {
+            entries[i] = entry;
+          }
+        }
+        ++i;
+      }
+    }
+
+    @Nullable
+    LookupEntry get(int roll) {
+      if (roll > maxRoll) {
+        roll = maxRoll;
+      }
+      if (roll < minRoll) {
+        roll = minRoll;
+      }
+      int index = Arrays.binarySearch(starts, roll);
+      if (index < 0) {
+        // The interval before the insertion point.
+        index = -index - 2;
+      }
+      return index < 0 ? null : entries[index];
+    }
+  }
+
   public static class LookupEntry {
 
     private int min;
@@ -0,0 +1,255 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds tokens by location without going through all tokens of a {@link Zone}.
+ *
+ * <p>Each layer is divided into square buckets, and each token is put into every bucket its bounds
+ * overlap. A query then only has to look at the tokens in the buckets it overlaps. Tokens that
+ * would span a lot of buckets, such as background maps, are kept in a separate list per layer that
+ * every query looks at.
+ *
+ * <p>The index doesn't notice when a token changes, tokens have to be put again after being moved
+ * or resized.
+ */
+public class TokenSpatialIndex {
+  /** The default size of the buckets, in zone pixels. */
+  public static final int DEFAULT_BUCKET_SIZE = 512;
+
+  /** Tokens spanning more buckets than this in either direction go into the large token list. */
+  private static final int MAX_BUCKET_SPAN = 8;
+
+  /**
+   * Where a token is in the index.
+   *
+   * @param token the token.
+   * @param layer the layer the token was put on.
+   * @param bounds the bounds the token was put with.
+   * @param large whether the token is in the large token list rather than in buckets.
+   */
+  private record Entry(Token token, Zone.Layer layer, Rectangle bounds, boolean large) {}
+
+  /** The buckets of a layer, plus the tokens too large to put into buckets. */
+  private static class LayerIndex {
+    private final Map<Long, List<Entry>> buckets = new HashMap<>();
+    private final List<Entry> large = new ArrayList<>();
+  }
+
+  private final int bucketSize;
+  private final Map<GUID, Entry> entries = new HashMap<>();
+  private final Map<Zone.Layer, LayerIndex> layers = new EnumMap<>(Zone.Layer.class);
+
+  public TokenSpatialIndex() {
+    this(DEFAULT_BUCKET_SIZE);
+  }
+
+  /**
+   * @param bucketSize the size of the buckets, in zone pixels.
+   */
+  public TokenSpatialIndex(int bucketSize) {
+    if (bucketSize <= 0) {
+      throw new IllegalArgumentException("Bucket size must be positive: " + bucketSize);
+    }
+    this.bucketSize = bucketSize;
+  }
+
+  /**
+   * Adds a token to the index, or updates where it is if it already is in the index.
+   *
+   * @param token the token.
+   * @param layer the layer of the token.
+   * @param bounds the area the token covers, in zone coordinates.
+   */
+  public void put(Token token, Zone.Layer layer, Rectangle bounds) {
+    remove(token.getId());
+
+    var copy =
+        new Rectangle(bounds.x, bounds.y, Math.max(1, bounds.width), Math.max(1, bounds.height));
+    int minX = bucket(copy.x);
+    int minY = bucket(copy.y);
+    int maxX = bucket((long) copy.x + copy.width - 1);
+    int maxY = bucket((long) copy.y + copy.height - 1);
+    boolean large = maxX - minX >= MAX_BUCKET_SPAN || maxY - minY >= MAX_BUCKET_SPAN;
+
+    var entry = new Entry(token, layer, copy, large);
+    entries.put(token.getId(), entry);
+    var layerIndex = layers.computeIfAbsent(layer, l -> new LayerIndex());
+    if (large) {
+      layerIndex.large.add(entry);
+      return;
+    }
+    for (int x = minX; x <= maxX; x++) {
+      for (int y = minY; y <= maxY; y++) {
+        layerIndex.buckets.computeIfAbsent(key(x, y), k -> new ArrayList<>(4)).add(entry);
+      }
+    }
+  }
+
+  /**
+   * Removes a token from the index.
+   *
+   * @param tokenId the id of the token.
+   */
+  public void remove(GUID tokenId) {
+    var entry = entries.remove(tokenId);
+    if (entry == null) {
+      return;
+    }
+    var layerIndex = layers.get(entry.layer());
+    if (entry.large()) {
+      layerIndex.large.remove(entry);
+      return;
+    }
+    var bounds = entry.bounds();
+    int maxX = bucket((long) bounds.x + bounds.width - 1);
+    int maxY = bucket((long) bounds.y + bounds.height - 1);
+    for (int x = bucket(bounds.x); x <= maxX; x++) {
+      for (int y = bucket(bounds.y); y <= maxY; y++) {
+        long key = key(x, y);
+        var bucket = layerIndex.buckets.get(key);
+        bucket.remove(entry);
+        if (bucket.isEmpty()) {
+          layerIndex.buckets.remove(key);
+        }
+      }
+    }
+  }
+
+  public void clear() {
+    entries.clear();
+    layers.clear();
+  }
+
+  /**
+   * @return the number of tokens in the index.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Finds the tokens on a layer whose bounds intersect an area.
+   *
+   * @param layer the layer.
+   * @param area the area, in zone coordinates.
+   * @return the tokens, in no particular order.
+   */
+  public List<Token> getTokens(Zone.Layer layer, Rectangle area) {
+    var result = new ArrayList<Token>();
+    var layerIndex = layers.get(layer);
+    if (layerIndex == null || area.width <= 0 || area.height <= 0) {
+      return result;
+    }
+    for (var entry : layerIndex.large) {
+      if (entry.bounds().intersects(area)) {
+        result.add(entry.token());
+      }
+    }
+
+    int minX = bucket(area.x);
+    int minY = bucket(area.y);
+    int maxX = bucket((long) area.x + area.width - 1);
+    int maxY = bucket((long) area.y + area.height - 1);
+    if ((long) (maxX - minX + 1) * (maxY - minY + 1) > layerIndex.buckets.size()) {
+      // The area covers more buckets than there are, so only look at those that exist.
+      for (var bucket : layerIndex.buckets.entrySet()) {
+        long key = bucket.getKey();
+        int x = (int) (key >> 32);
+        int y = (int) key;
+        if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+          addIntersecting(bucket.getValue(), x, y, minX, minY, area, result);
+        }
+      }
+      return result;
+    }
+    for (int x = minX; x <= maxX; x++) {
+      for (int y = minY; y <= maxY; y++) {
+        var bucket = layerIndex.buckets.get(key(x, y));
+        if (bucket != null) {
+          addIntersecting(bucket, x, y, minX, minY, area, result);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Finds the tokens on a layer whose bounds contain a point.
+   *
+   * @param layer the layer.
+   * @param x the x coordinate of the point, in zone coordinates.
+   * @param y the y coordinate of the point, in zone coordinates.
+   * @return the tokens, in no particular order.
+   */
+  public List<Token> getTokensAt(Zone.Layer layer, int x, int y) {
+    var result = new ArrayList<Token>();
+    var layerIndex = layers.get(layer);
+    if (layerIndex == null) {
+      return result;
+    }
+    for (var entry : layerIndex.large) {
+      if (entry.bounds().contains(x, y)) {
+        result.add(entry.token());
+      }
+    }
+    var bucket = layerIndex.buckets.get(key(bucket(x), bucket(y)));
+    if (bucket != null) {
+      for (var entry : bucket) {
+        if (entry.bounds().contains(x, y)) {
+          result.add(entry.token());
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Adds the tokens of a bucket that intersect an area. A token in several buckets is only added
+   * from the first of its buckets that is within the area, so it is only added once.
+   */
+  private void addIntersecting(
+      List<Entry> bucket,
+      int bucketX,
+      int bucketY,
+      int minX,
+      int minY,
+      Rectangle area,
+      List<Token> result) {
+    for (var entry : bucket) {
+      var bounds = entry.bounds();
+      if (Math.max(bucket(bounds.x), minX) == bucketX
+          && Math.max(bucket(bounds.y), minY) == bucketY
+          && bounds.intersects(area)) {
+        result.add(entry.token());
+      }
+    }
+  }
+
+  private int bucket(long coordinate) {
+    return (int) Math.floorDiv(coordinate, bucketSize);
+  }
+
+  private static long key(int x, int y) {
+    return ((long) x << 32) | (y & 0xFFFFFFFFL);
+  }
+}
@@ -412,11 +412,35 @@ public String toString() {
   /** Token list ordered by Z. */
   private final List<Token> tokenOrderedList = new LinkedList<Token>();
 
+  /**
+   * Index of the tokens by location, see {@link #getTokensInBounds(Layer, Rectangle)}. Built when
+   * first needed, and built again when the grid changes as the bounds of tokens depend on it.
+   *
+   * <p>Tokens are looked up from other threads than the one changing the zone, e.g. by the
+   * renderer, so the index is built under the zone's lock and used under its own.
+   */
+  private transient volatile @Nullable IndexedTokens tokenIndex;
+
+  /** The grid settings token bounds depend on. */
+  private record IndexedGrid(Grid grid, int size, int offsetX, int offsetY) {}
+
+  /** A token index, and the grid it was built for. */
+  private record IndexedTokens(IndexedGrid grid, TokenSpatialIndex index) {}
+
   private InitiativeList initiativeList = new InitiativeList(this);
 
-  /** The global exposed area. */
+  /** The global exposed area. Left empty when {@link #exposedFog} is used instead. */
   private Area exposedArea = new Area();
 
+  /**
+   * The size of the cells of bitmap fog, in zone pixels, or {@code 0} if exposed areas are kept as
+   * areas. See {@link FogBitmap}.
+   */
+  private int fogCellSize;
+
+  /** The global exposed area when using bitmap fog, otherwise {@code null}. */
+  private @Nullable ExposedAreaMetaData exposedFog;
+
   private boolean hasFog;
   private DrawablePaint fogPaint;
   private transient UndoPerZone undo;
@@ -661,6 +685,7 @@ public Zone(Zone zone, boolean keepIds) {
     imageScaleX = zone.imageScaleX;
     imageScaleY = zone.imageScaleY;
     playerAlias = zone.playerAlias;
+    fogCellSize = zone.fogCellSize;
 
     for (final var entry : drawablesByLayer.entrySet()) {
       entry.getValue().addAll(zone.drawablesByLayer.get(entry.getKey()));
@@ -731,6 +756,7 @@ public Zone(Zone zone, boolean keepIds) {
 
     boardPosition = (Point) zone.boardPosition.clone();
     exposedArea = (Area) zone.exposedArea.clone();
+    exposedFog = zone.exposedFog == null ? null : new ExposedAreaMetaData(zone.exposedFog);
     topology = (Area) zone.topology.clone();
     hillVbl = (Area) zone.hillVbl.clone();
     pitVbl = (Area) zone.pitVbl.clone();
@@ -903,20 +929,20 @@ public boolean isPointVisible(ZonePoint point, PlayerView view) {
     if (!hasFog() || view.isGMView()) {
       return true;
     }
+    if (isExposed(point.x, point.y)) {
+      return true;
+    }
     if (MapTool.getServerPolicy().isUseIndividualFOW() && getVisionType() != VisionType.OFF) {
-      Area combined = new Area(exposedArea);
       if (view.isUsingTokenView()) {
         for (Token tok : view.getTokens()) { // only owned and HasSight tokens are returned
           ExposedAreaMetaData meta = exposedAreaMeta.get(tok.getExposedAreaGUID());
-          if (meta != null) {
-            combined.add(meta.getExposedAreaHistory());
+          if (meta != null && meta.isExposed(point.x, point.y)) {
+            return true;
           }
         }
       }
-      return combined.contains(point.x, point.y);
-    } else {
-      return exposedArea.contains(point.x, point.y);
     }
+    return false;
   }
 
   public boolean isEmpty() {
@@ -962,7 +988,7 @@ public boolean isTokenVisible(Token token) {
 
     // Token is visible, and there is fog
     Rectangle tokenSize = token.getBounds(this);
-    Area combined = new Area(exposedArea);
+    Area combined = new Area(getExposedArea());
     PlayerView view = MapTool.getFrame().getZoneRenderer(this).getPlayerView();
     if (MapTool.getServerPolicy().isUseIndividualFOW() && getVisionType() != VisionType.OFF) {
       // Jamz: Lets change the logic a bit looking for ownerships
@@ -998,7 +1024,7 @@ public boolean isTokenFootprintVisible(Token token) {
     // Token is visible, and there is fog
     Rectangle tokenSize = token.getBounds(this);
     Area tokenFootprint = getGrid().getTokenCellArea(tokenSize);
-    Area combined = new Area(exposedArea);
+    Area combined = new Area(getExposedArea());
     PlayerView view = MapTool.getFrame().getZoneRenderer(this).getPlayerView();
     if (MapTool.getServerPolicy().isUseIndividualFOW() && getVisionType() != VisionType.OFF) {
       if (view.isUsingTokenView()) {
@@ -1045,7 +1071,7 @@ public void addTopology(Area area, TopologyType topologyType) {
         };
     topology.add(area);
 
-    new MapToolEventBus().getMainEventBus().post(new TopologyChanged(this));
+    new MapToolEventBus().getMainEventBus().post(new TopologyChanged(this, area.getBounds()));
   }
 
   public void addTopology(Area area) {
@@ -1071,7 +1097,7 @@ public void removeTopology(Area area, TopologyType topologyType) {
         };
     topology.subtract(area);
 
-    new MapToolEventBus().getMainEventBus().post(new TopologyChanged(this));
+    new MapToolEventBus().getMainEventBus().post(new TopologyChanged(this, area.getBounds()));
   }
 
   public void removeTopology(Area area) {
@@ -1092,6 +1118,9 @@ public void tokenTopologyChanged() {
    * @param token the token that changed
    */
   public void tokenChanged(Token token) {
+    if (tokenMap.containsKey(token.getId())) {
+      updateTokenIndex(token);
+    }
     new MapToolEventBus()
         .getMainEventBus()
         .post(new TokensChanged(this, Collections.singletonList(token)));
@@ -1122,6 +1151,9 @@ public void tokenPanelChanged(Token token) {
    */
   public void clearExposedArea(boolean globalOnly) {
     exposedArea = new Area();
+    if (exposedFog != null) {
+      exposedFog.clearExposedAreaHistory();
+    }
     if (!globalOnly) {
       exposedAreaMeta.clear();
     }
@@ -1169,7 +1201,7 @@ public void exposeArea(Area area, Token tok) {
         GUID tea = tok.getExposedAreaGUID();
         ExposedAreaMetaData meta = exposedAreaMeta.get(tea);
         if (meta == null) {
-          meta = new ExposedAreaMetaData();
+          meta = createExposedAreaMetaData();
           exposedAreaMeta.put(tea, meta);
         }
         meta.addToExposedAreaHistory(area);
@@ -1185,7 +1217,7 @@ public void exposeArea(Area area, Token tok) {
         return; // FJE Added so that TEA isn't added to the GEA, below.
       }
     }
-    exposedArea.add(area);
+    addExposedArea(area);
     new MapToolEventBus().getMainEventBus().post(new FogChanged(this));
   }
 
@@ -1204,7 +1236,7 @@ public void exposeArea(Area area, Set<GUID> selectedToks) {
       // Why is this done here and then again below???
       // And just because Vision==Off doesn't mean we aren't doing IF...
       // Jamz: if this exposedArea isn't done then it breaks getExposedTokens when vision is off...
-      exposedArea.add(area);
+      addExposedArea(area);
     }
     if (selectedToks != null
         && !selectedToks.isEmpty()
@@ -1227,7 +1259,7 @@ public void exposeArea(Area area, Set<GUID> selectedToks) {
           GUID tea = tok.getExposedAreaGUID();
           meta = exposedAreaMeta.get(tea);
           if (meta == null) {
-            meta = new ExposedAreaMetaData();
+            meta = createExposedAreaMetaData();
             exposedAreaMeta.put(tea, meta);
           }
           meta.addToExposedAreaHistory(area);
@@ -1235,7 +1267,7 @@ public void exposeArea(Area area, Set<GUID> selectedToks) {
       }
     } else {
       // Not using IF so add the EA to the GEA instead of a TEA.
-      exposedArea.add(area);
+      addExposedArea(area);
     }
     new MapToolEventBus().getMainEventBus().post(new FogChanged(this));
   }
@@ -1263,7 +1295,7 @@ public void setFogArea(Area area, Set<GUID> selectedToks) {
         }
         ExposedAreaMetaData meta = exposedAreaMeta.get(tok.getExposedAreaGUID());
         if (meta == null) {
-          meta = new ExposedAreaMetaData();
+          meta = createExposedAreaMetaData();
         }
         meta.clearExposedAreaHistory();
         meta.addToExposedAreaHistory(area);
@@ -1272,8 +1304,8 @@ public void setFogArea(Area area, Set<GUID> selectedToks) {
         putToken(tok);
       }
     } else {
-      exposedArea.reset();
-      exposedArea.add(area);
+      resetExposedArea();
+      addExposedArea(area);
     }
     new MapToolEventBus().getMainEventBus().post(new FogChanged(this));
   }
@@ -1283,7 +1315,7 @@ public void hideArea(Area area, Set<GUID> selectedToks) {
       return;
     }
     if (getVisionType() == VisionType.OFF) {
-      exposedArea.subtract(area);
+      subtractExposedArea(area);
     }
     if (selectedToks != null
         && !selectedToks.isEmpty()
@@ -1302,7 +1334,7 @@ public void hideArea(Area area, Set<GUID> selectedToks) {
         }
         ExposedAreaMetaData meta = exposedAreaMeta.get(tok.getExposedAreaGUID());
         if (meta == null) {
-          meta = new ExposedAreaMetaData();
+          meta = createExposedAreaMetaData();
         }
         meta.removeExposedAreaHistory(area);
         exposedAreaMeta.put(tok.getExposedAreaGUID(), meta);
@@ -1310,7 +1342,7 @@ public void hideArea(Area area, Set<GUID> selectedToks) {
         putToken(tok);
       }
     } else {
-      exposedArea.subtract(area);
+      subtractExposedArea(area);
     }
     new MapToolEventBus().getMainEventBus().post(new FogChanged(this));
   }
@@ -1333,7 +1365,7 @@ public ZonePoint getNearestVertex(ZonePoint point) {
    * @return the exposed area
    */
   public Area getExposedArea(PlayerView view) {
-    Area combined = new Area(exposedArea);
+    Area combined = new Area(getExposedArea());
 
     // Don't need to worry about StrictTokenOwnership since the PlayerView only contains tokens we
     // own by calling
@@ -1361,9 +1393,92 @@ public Area getExposedArea(PlayerView view) {
    * @return Area object representing exposed fog area visible to all tokens
    */
   public Area getExposedArea() {
+    if (exposedFog != null) {
+      return exposedFog.getExposedAreaHistory();
+    }
     return exposedArea;
   }
 
+  /**
+   * Looks up whether a point is in the global exposed area. With bitmap fog this does not need to
+   * build the area.
+   *
+   * @param x the x coordinate of the point, in zone pixels.
+   * @param y the y coordinate of the point, in zone pixels.
+   * @return {@code true} if the point is in the global exposed area.
+   */
+  public boolean isExposed(double x, double y) {
+    if (exposedFog != null) {
+      return exposedFog.isExposed(x, y);
+    }
+    return exposedArea.contains(x, y);
+  }
+
+  private void addExposedArea(Area area) {
+    if (exposedFog != null) {
+      exposedFog.addToExposedAreaHistory(area);
+    } else {
+      exposedArea.add(area);
+    }
+  }
+
+  private void subtractExposedArea(Area area) {
+    if (exposedFog != null) {
+      exposedFog.removeExposedAreaHistory(area);
+    } else {
+      exposedArea.subtract(area);
+    }
+  }
+
+  private void resetExposedArea() {
+    if (exposedFog != null) {
+      exposedFog.clearExposedAreaHistory();
+    } else {
+      exposedArea.reset();
+    }
+  }
+
+  /**
+   * @return the size of the cells of bitmap fog, in zone pixels, or {@code 0} if exposed areas are
+   *     kept as areas.
+   */
+  public int getFogCellSize() {
+    return fogCellSize;
+  }
+
+  /**
+   * Sets whether exposed areas are kept as {@link FogBitmap bitmaps}, and at what resolution. The
+   * exposed areas so far are converted, which loses detail finer than the cells.
+   *
+   * @param fogCellSize the size of the fog cells, in zone pixels, or {@code 0} to keep exposed
+   *     areas as areas.
+   */
+  public void setFogCellSize(int fogCellSize) {
+    fogCellSize = Math.max(0, fogCellSize);
+    if (fogCellSize == this.fogCellSize) {
+      return;
+    }
+
+    final var global = exposedFog == null ? new ExposedAreaMetaData(exposedArea) : exposedFog;
+    this.fogCellSize = fogCellSize;
+    if (fogCellSize > 0) {
+      exposedFog = global.withFogCellSize(fogCellSize);
+      exposedArea = new Area();
+    } else {
+      exposedArea = new Area(global.getExposedAreaHistory());
+      exposedFog = null;
+    }
+    exposedAreaMeta.replaceAll((guid, meta) -> meta.withFogCellSize(this.fogCellSize));
+    new MapToolEventBus().getMainEventBus().post(new FogChanged(this));
+  }
+
+  /**
+   * @return new empty exposed area metadata, which keeps the exposed area the way this zone does.
+   */
+  public ExposedAreaMetaData createExposedAreaMetaData() {
+    return ExposedAreaMetaData.create(fogCellSize);
+  }
+
   public double getUnitsPerCell() {
     return Math.max(unitsPerCell, 0);
   }
@@ -1551,6 +1666,7 @@ public void putToken(Token token) {
     tokenOrderedList.remove(token);
     tokenOrderedList.add(token);
     tokenOrderedList.sort(TOKEN_Z_ORDER_COMPARATOR);
+    updateTokenIndex(token);
 
     if (newToken) {
       new MapToolEventBus()
@@ -1602,6 +1718,7 @@ public void putTokens(List<Token> tokens) {
     tokenOrderedList.removeAll(tokens);
     tokenOrderedList.addAll(tokens);
     tokenOrderedList.sort(TOKEN_Z_ORDER_COMPARATOR);
+    tokens.forEach(this::updateTokenIndex);
 
     if (!addedTokens.isEmpty()) {
       new MapToolEventBus().getMainEventBus().post(new TokensAdded(this, addedTokens));
@@ -1620,6 +1737,7 @@ public void removeToken(GUID id) {
     Token token = tokenMap.remove(id);
     if (token != null) {
       tokenOrderedList.remove(token);
+      removeFromTokenIndex(id);
       new MapToolEventBus()
           .getMainEventBus()
           .post(new TokensRemoved(this, Collections.singletonList(token)));
@@ -1638,6 +1756,7 @@ public void removeTokens(List<GUID> ids) {
         Token token = tokenMap.remove(id);
         if (token != null) {
           tokenOrderedList.remove(token);
+          removeFromTokenIndex(id);
           removedTokens.add(token);
         }
       }
@@ -1787,6 +1906,117 @@ public List<Token> getTokensFiltered(Filter filter) {
     return Collections.unmodifiableList(copy);
   }
 
+  /**
+   * Returns the tokens on a layer that overlap an area. Unlike {@link #getTokensFiltered(Filter)}
+   * this uses an index, so only tokens near the area are looked at.
+   *
+   * <p>Tokens are matched by the area they cover when drawn: figures by the full height of their
+   * image, and tokens with a facing by the area they could cover when rotated, so the result may
+   * include tokens just outside the area.
+   *
+   * @param layer the layer.
+   * @param bounds the area, in zone coordinates.
+   * @return the tokens, ordered by Z.
+   */
+  public List<Token> getTokensInBounds(Layer layer, Rectangle bounds) {
+    var index = getTokenIndex();
+    List<Token> tokens;
+    synchronized (index) {
+      tokens = index.getTokens(layer, bounds);
+    }
+    tokens.sort(TOKEN_Z_ORDER_COMPARATOR);
+    return Collections.unmodifiableList(tokens);
+  }
+
+  /**
+   * Returns the tokens on a layer that cover a point, see {@link #getTokensInBounds(Layer,
+   * Rectangle)}.
+   *
+   * @param layer the layer.
+   * @param point the point.
+   * @return the tokens, ordered by Z.
+   */
+  public List<Token> getTokensAt(Layer layer, ZonePoint point) {
+    var index = getTokenIndex();
+    List<Token> tokens;
+    synchronized (index) {
+      tokens = index.getTokensAt(layer, point.x, point.y);
+    }
+    tokens.sort(TOKEN_Z_ORDER_COMPARATOR);
+    return Collections.unmodifiableList(tokens);
+  }
+
+  private TokenSpatialIndex getTokenIndex() {
+    var indexedGrid = new IndexedGrid(grid, grid.getSize(), grid.getOffsetX(), grid.getOffsetY());
+    var indexed = tokenIndex;
+    if (indexed == null || !indexed.grid().equals(indexedGrid)) {
+      synchronized (this) {
+        indexed = tokenIndex;
+        if (indexed == null || !indexed.grid().equals(indexedGrid)) {
+          var index = new TokenSpatialIndex();
+          for (Token token : tokenOrderedList) {
+            index.put(token, token.getLayer(), getIndexBounds(token));
+          }
+          indexed = new IndexedTokens(indexedGrid, index);
+          tokenIndex = indexed;
+        }
+      }
+    }
+    return indexed.index();
+  }
+
+  private synchronized void updateTokenIndex(Token token) {
+    var indexed = tokenIndex;
+    if (indexed != null) {
+      var bounds = getIndexBounds(token);
+      synchronized (indexed.index()) {
+        indexed.index().put(token, token.getLayer(), bounds);
+      }
+    }
+  }
+
+  private synchronized void removeFromTokenIndex(GUID id) {
+    var indexed = tokenIndex;
+    if (indexed != null) {
+      synchronized (indexed.index()) {
+        indexed.index().remove(id);
+      }
+    }
+  }
+
+  /**
+   * @return the area a token covers when drawn, including what it may cover when rotated to its
+   *     facing.
+   */
+  private Rectangle getIndexBounds(Token token) {
+    Rectangle bounds = token.getBounds(this);
+    if (token.getShape() == Token.TokenShape.FIGURE && token.getWidth() > 0) {
+      // Figures are drawn as tall as their image, up from the bottom of their bounds, see
+      // ZoneRenderer.renderTokens().
+      int height = (int) Math.ceil(token.getHeight() * (double) bounds.width / token.getWidth());
+      if (height > bounds.height) {
+        bounds.y -= height - bounds.height;
+        bounds.height = height;
+      }
+    }
+    if (!token.hasFacing() || token.getShape() != Token.TokenShape.TOP_DOWN) {
+      return bounds;
+    }
+    // Top down tokens are rotated around their anchor, see ZoneRenderer.renderTokens().
+    Point anchor = token.getAnchor();
+    double centerX = bounds.getCenterX() - anchor.x;
+    double centerY = bounds.getCenterY() - anchor.y;
+    double dx =
+        Math.max(Math.abs(bounds.getMinX() - centerX), Math.abs(bounds.getMaxX() - centerX));
+    double dy =
+        Math.max(Math.abs(bounds.getMinY() - centerY), Math.abs(bounds.getMaxY() - centerY));
+    double radius = Math.hypot(dx, dy);
+    int x = (int) Math.floor(centerX - radius);
+    int y = (int) Math.floor(centerY - radius);
+    return new Rectangle(
+        x, y, (int) Math.ceil(centerX + radius) - x, (int) Math.ceil(centerY + radius) - y);
+  }
+
   public List<Token> getTokensOnLayer(Layer layer) {
     return getTokensOnLayer(layer, true);
   }
@@ -2130,6 +2360,9 @@ protected Object readResolve() {
     if (exposedAreaMeta == null) {
       exposedAreaMeta = new HashMap<GUID, ExposedAreaMetaData>();
     }
+    if (fogCellSize > 0 && exposedFog == null) {
+      exposedFog = createExposedAreaMetaData();
+    }
     // 1.3b70 -> 1.3b71
     // These two variables were added
     if (drawBoard == false) {
@@ -2243,7 +2476,7 @@ public ExposedAreaMetaData getExposedAreaMetaData(GUID tokenExposedAreaGUID) {
     if (meta != null) {
       return meta;
     }
-    meta = new ExposedAreaMetaData();
+    meta = createExposedAreaMetaData();
     exposedAreaMeta.put(tokenExposedAreaGUID, meta);
     return meta;
   }
@@ -2321,8 +2554,17 @@ public static Zone fromDto(ZoneDto dto) {
             (id, area) ->
                 zone.exposedAreaMeta.put(
                     GUID.valueOf(id), new ExposedAreaMetaData(Mapper.map(area))));
+    dto.getExposedFogMetaMap()
+        .forEach(
+            (id, fog) ->
+                zone.exposedAreaMeta.put(
+                    GUID.valueOf(id), new ExposedAreaMetaData(FogBitmap.fromDto(fog))));
     zone.initiativeList = InitiativeList.fromDto(dto.getInitiative());
     zone.exposedArea = Mapper.map(dto.getExposedArea());
+    zone.fogCellSize = dto.getFogCellSize();
+    if (dto.hasExposedFog()) {
+      zone.exposedFog = new ExposedAreaMetaData(FogBitmap.fromDto(dto.getExposedFog()));
+    }
     zone.hasFog = dto.getHasFog();
     zone.fogPaint = DrawablePaint.fromDto(dto.getFogPaint());
     zone.topology = Mapper.map(dto.getTopology());
@@ -2387,10 +2629,19 @@ public ZoneDto toDto() {
           if (id == null) {
             return;
           }
-          dto.putExposedAreaMeta(id.toString(), Mapper.map(area.getExposedAreaHistory()));
+          final var fog = area.getFogBitmap();
+          if (fog != null) {
+            dto.putExposedFogMeta(id.toString(), fog.toDto());
+          } else {
+            dto.putExposedAreaMeta(id.toString(), Mapper.map(area.getExposedAreaHistory()));
+          }
         });
     dto.setInitiative(initiativeList.toDto());
     dto.setExposedArea(Mapper.map(exposedArea));
+    dto.setFogCellSize(fogCellSize);
+    if (exposedFog != null && exposedFog.getFogBitmap() != null) {
+      dto.setExposedFog(exposedFog.getFogBitmap().toDto());
+    }
     dto.setHasFog(hasFog);
     dto.setTopology(Mapper.map(topology));
     if (fogPaint == null) { // Account for old campaigns without fog paint
@@ -14,6 +14,24 @@
  */
 package net.rptools.maptool.model.zones;
 
+import java.awt.Rectangle;
+import javax.annotation.Nullable;
 import net.rptools.maptool.model.Zone;
 
-public record TopologyChanged(Zone zone) {}
+/**
+ * Posted when the topology of a zone changes.
+ *
+ * @param zone the zone.
+ * @param mapTopologyBounds the bounds of the map topology that was added or removed, or {@code
+ *     null} if only token topology changed.
+ */
+public record TopologyChanged(Zone zone, @Nullable Rectangle mapTopologyBounds) {
+  /**
+   * Creates the event for a change to the topology of tokens.
+   *
+   * @param zone the zone.
+   */
+  public TopologyChanged(Zone zone) {
+    this(zone, null);
+  }
+}
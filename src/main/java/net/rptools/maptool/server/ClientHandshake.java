@@ -33,6 +33,7 @@
 import javax.swing.*;
 import net.rptools.clientserver.simple.MessageHandler;
 import net.rptools.clientserver.simple.connection.Connection;
+import net.rptools.clientserver.simple.connection.MessageCompressor;
 import net.rptools.lib.MD5Key;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.language.I18N;
@@ -125,7 +126,8 @@ public void startHandshake() throws ExecutionException, InterruptedException {
         ClientInitMsg.newBuilder()
             .setPlayerName(player.getName())
             .setVersion(MapTool.getVersion())
-            .setPublicKeyMd5(md5key.toString());
+            .setPublicKeyMd5(md5key.toString())
+            .setCompressionDictionaryId(MessageCompressor.getDictionaryId());
     var handshakeMsg = HandshakeMsg.newBuilder().setClientInitMsg(clientInitMsg).build();
 
     sendMessage(handshakeMsg);
@@ -308,6 +310,9 @@ private void handle(UseAuthTypeMsg useAuthTypeMsg)
   }
 
   private void handle(ConnectionSuccessfulMsg connectionSuccessfulMsg) throws IOException {
+    var dictionaryId = connectionSuccessfulMsg.getCompressionDictionaryId();
+    connection.setCompressionDictionaryEnabled(
+        dictionaryId != 0 && dictionaryId == MessageCompressor.getDictionaryId());
     var policy = ServerPolicy.fromDto(connectionSuccessfulMsg.getServerPolicyDto());
     MapTool.setServerPolicy(policy);
     player.setRole(connectionSuccessfulMsg.getRoleDto() == RoleDto.GM ? Role.GM : Role.PLAYER);
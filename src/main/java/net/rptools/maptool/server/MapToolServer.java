@@ -16,12 +16,18 @@
 
 import static net.rptools.maptool.model.player.PlayerDatabaseFactory.PlayerDatabaseType.PERSONAL_SERVER;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.awt.EventQueue;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.swing.SwingUtilities;
 import net.rptools.clientserver.simple.connection.Connection;
 import net.rptools.clientserver.simple.server.ServerObserver;
@@ -36,6 +42,7 @@
 import net.rptools.maptool.model.player.PlayerDatabase;
 import net.rptools.maptool.model.player.PlayerDatabaseFactory;
 import net.rptools.maptool.server.proto.Message;
+import net.rptools.maptool.server.proto.StartAssetTransferMsg;
 import net.rptools.maptool.server.proto.UpdateAssetTransferMsg;
 import net.rptools.maptool.transfer.AssetProducer;
 import net.rptools.maptool.transfer.AssetTransferManager;
@@ -59,7 +66,18 @@ public class MapToolServer {
       Collections.synchronizedMap(new HashMap<String, Connection>());
   private final AssetProducerThread assetProducerThread;
 
-  private Campaign campaign;
+  /** Asset transfers the asset producer thread has yet to start, keyed by connection id. */
+  private final Queue<Entry<String, AssetProducer>> newAssetProducers =
+      new ConcurrentLinkedQueue<>();
+
+  /**
+   * Single writer for {@link #campaign}. Client changes are applied here rather than on the EDT so
+   * that they don't wait behind the host's painting. This is {@code null} for a personal server, as
+   * its campaign is the same object as the local client's and must only be changed on the EDT.
+   */
+  private final ExecutorService campaignExecutor;
+
+  private volatile Campaign campaign;
   private ServerPolicy policy;
   private HeartbeatThread heartbeatThread;
 
@@ -72,6 +90,17 @@ public MapToolServer(ServerConfig config, ServerPolicy policy, PlayerDatabase pl
 
     campaign = new Campaign();
 
+    if (config.isPersonalServer()) {
+      campaignExecutor = null;
+    } else {
+      campaignExecutor =
+          Executors.newSingleThreadExecutor(
+              new ThreadFactoryBuilder()
+                  .setNameFormat("MapToolServer.CampaignExecutor")
+                  .setDaemon(true)
+                  .build());
+    }
+
     assetProducerThread = new AssetProducerThread();
     assetProducerThread.start();
 
@@ -110,9 +139,16 @@ public void releaseClientConnection(String id) {
     connectionMap.remove(id);
   }
 
+  /**
+   * Starts sending an asset to a client. The header of the asset is sent by the asset producer
+   * thread ahead of the chunks, as sending on the asset channel may wait for the client to catch
+   * up, and the caller may be a thread shared by all clients.
+   *
+   * @param connectionId the id of the client connection.
+   * @param producer the producer of the asset.
+   */
   public void addAssetProducer(String connectionId, AssetProducer producer) {
-    AssetTransferManager manager = assetManagerMap.get(connectionId);
-    manager.addProducer(producer);
+    newAssetProducers.add(Map.entry(connectionId, producer));
   }
 
   public void addObserver(ServerObserver observer) {
@@ -155,6 +191,27 @@ public Campaign getCampaign() {
     return campaign;
   }
 
+  /**
+   * Runs a task that reads or changes the server campaign. Tasks run one at a time in the order
+   * they were submitted.
+   *
+   * @param task the task to run.
+   */
+  public void runOnCampaignThread(Runnable task) {
+    if (campaignExecutor == null) {
+      EventQueue.invokeLater(task);
+      return;
+    }
+    campaignExecutor.execute(
+        () -> {
+          try {
+            task.run();
+          } catch (Exception e) {
+            log.error("Error updating server campaign", e);
+          }
+        });
+  }
+
   public ServerPolicy getPolicy() {
     return policy;
   }
@@ -175,6 +232,9 @@ public void stop() {
     if (assetProducerThread != null) {
       assetProducerThread.shutdown();
     }
+    if (campaignExecutor != null) {
+      campaignExecutor.shutdown();
+    }
   }
 
   private static final Random random = new Random();
@@ -273,6 +333,7 @@ public AssetProducerThread() {
     @Override
     public void run() {
       while (!stop) {
+        startAssetTransfers();
         Entry<String, AssetTransferManager> entryForException = null;
         try {
           boolean lookForMore = false;
@@ -303,6 +364,31 @@ public void run() {
       }
     }
 
+    /** Sends the headers of new asset transfers, and then lets their chunks be sent. */
+    private void startAssetTransfers() {
+      Entry<String, AssetProducer> started;
+      while ((started = newAssetProducers.poll()) != null) {
+        var connectionId = started.getKey();
+        var producer = started.getValue();
+        AssetTransferManager manager = assetManagerMap.get(connectionId);
+        if (manager == null) {
+          // The client has gone.
+          continue;
+        }
+        try {
+          var msg = StartAssetTransferMsg.newBuilder().setHeader(producer.getHeader().toDto());
+          getConnection()
+              .sendMessage(
+                  connectionId,
+                  MapToolConstants.Channel.IMAGE,
+                  Message.newBuilder().setStartAssetTransferMsg(msg).build());
+          manager.addProducer(producer);
+        } catch (Exception e) {
+          log.warn("Couldn't start asset transfer for " + connectionId, e);
+        }
+      }
+    }
+
     public void shutdown() {
       stop = true;
     }
@@ -113,10 +113,13 @@ public void connectionAdded(Connection conn) {
         .getConnection()
         .broadcastMessage(Message.newBuilder().setPlayerConnectedMsg(msg).build());
 
-    var msg2 = SetCampaignMsg.newBuilder().setCampaign(server.getCampaign().toDto());
-    server
-        .getConnection()
-        .sendMessage(conn.getId(), Message.newBuilder().setSetCampaignMsg(msg2).build());
+    server.runOnCampaignThread(
+        () -> {
+          var msg2 = SetCampaignMsg.newBuilder().setCampaign(server.getCampaign().toDto());
+          server
+              .getConnection()
+              .sendMessage(conn.getId(), Message.newBuilder().setSetCampaignMsg(msg2).build());
+        });
   }
 
   public void connectionRemoved(Connection conn) {
@@ -138,7 +141,7 @@ public void sendMessage(String id, Message message) {
             + id
             + ": "
             + message.getMessageTypeCase());
-    connection.sendMessage(id, message.toByteArray());
+    connection.sendMessage(id, null, message.toByteArray(), MessageCoalescing.keyFor(message));
   }
 
   public void sendMessage(String id, Object channel, Message message) {
@@ -151,12 +154,14 @@ public void sendMessage(String id, Object channel, Message message) {
             + " ("
             + channel.toString()
             + ")");
-    connection.sendMessage(id, channel, message.toByteArray());
+    connection.sendMessage(
+        id, channel, message.toByteArray(), MessageCoalescing.keyFor(message));
   }
 
   public void broadcastMessage(Message message) {
     log.debug(server.getConfig().getServerName() + " broadcast: " + message.getMessageTypeCase());
-    connection.broadcastMessage(message.toByteArray());
+    connection.broadcastMessage(
+        new String[0], message.toByteArray(), MessageCoalescing.keyFor(message));
   }
 
   public void broadcastMessage(String[] exclude, Message message) {
@@ -166,7 +171,8 @@ public void broadcastMessage(String[] exclude, Message message) {
             + message.getMessageTypeCase()
             + " except to "
             + String.join(",", exclude));
-    connection.broadcastMessage(exclude, message.toByteArray());
+    connection.broadcastMessage(
+        exclude, message.toByteArray(), MessageCoalescing.keyFor(message));
   }
 
   public void open() throws IOException {
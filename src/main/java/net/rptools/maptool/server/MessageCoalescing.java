@@ -0,0 +1,101 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.server;
+
+import java.util.EnumSet;
+import java.util.Set;
+import net.rptools.maptool.server.proto.Message;
+import net.rptools.maptool.server.proto.Message.MessageTypeCase;
+import net.rptools.maptool.server.proto.TokenUpdateDto;
+
+/**
+ * Decides which messages may be coalesced while they wait to be sent, see {@link
+ * net.rptools.clientserver.simple.connection.Connection#sendMessage(Object, byte[], Object)}.
+ *
+ * <p>Only messages that carry the complete latest value of something are coalesced, such as a
+ * token's position while it is being dragged. Anything whose effect depends on what was sent
+ * before it (adding owners, macros, light sources, etc.) always goes out. That includes whole
+ * tokens, as their versions form a chain that {@link TokenPatches patches} build on.
+ */
+public final class MessageCoalescing {
+  /** Token updates that set a value outright, so only the latest one matters. */
+  private static final Set<TokenUpdateDto> COALESCED_TOKEN_UPDATES =
+      EnumSet.of(
+          TokenUpdateDto.setXY,
+          TokenUpdateDto.setX,
+          TokenUpdateDto.setY,
+          TokenUpdateDto.setFacing,
+          TokenUpdateDto.setScaleX,
+          TokenUpdateDto.setScaleY,
+          TokenUpdateDto.setScaleXY,
+          TokenUpdateDto.setTokenOpacity,
+          TokenUpdateDto.setHaloColor,
+          TokenUpdateDto.setLabel,
+          TokenUpdateDto.setNotes,
+          TokenUpdateDto.setGMNotes,
+          TokenUpdateDto.setName,
+          TokenUpdateDto.setGMName);
+
+  /** Token updates that set a named value outright, the name being the first value. */
+  private static final Set<TokenUpdateDto> COALESCED_NAMED_TOKEN_UPDATES =
+      EnumSet.of(TokenUpdateDto.setState, TokenUpdateDto.setProperty);
+
+  /**
+   * Identifies what a message updates. Messages with equal keys supersede each other.
+   *
+   * @param type the type of the message.
+   * @param zoneId the zone the message is about, or an empty string.
+   * @param targetId the token or player the message is about.
+   * @param detail which part of the target is updated, or an empty string.
+   */
+  private record Key(MessageTypeCase type, String zoneId, String targetId, String detail) {}
+
+  private MessageCoalescing() {}
+
+  /**
+   * Returns the key a message can be coalesced by.
+   *
+   * @param message the message.
+   * @return the coalescing key, or {@code null} if the message must always be sent.
+   */
+  public static Object keyFor(Message message) {
+    var type = message.getMessageTypeCase();
+    return switch (type) {
+      case MOVE_POINTER_MSG -> new Key(type, "", message.getMovePointerMsg().getPlayer(), "");
+      case UPDATE_TOKEN_MOVE_MSG -> {
+        var msg = message.getUpdateTokenMoveMsg();
+        yield new Key(type, msg.getZoneGuid(), msg.getKeyTokenId(), "");
+      }
+      case UPDATE_TOKEN_PROPERTY_MSG -> {
+        var msg = message.getUpdateTokenPropertyMsg();
+        var property = msg.getProperty();
+        if (COALESCED_TOKEN_UPDATES.contains(property)) {
+          yield new Key(type, msg.getZoneGuid(), msg.getTokenGuid(), property.name());
+        }
+        if (COALESCED_NAMED_TOKEN_UPDATES.contains(property)
+            && msg.getValuesCount() > 0
+            && msg.getValues(0).hasStringValue()) {
+          yield new Key(
+              type,
+              msg.getZoneGuid(),
+              msg.getTokenGuid(),
+              property.name() + ":" + msg.getValues(0).getStringValue());
+        }
+        yield null;
+      }
+      default -> null;
+    };
+  }
+}
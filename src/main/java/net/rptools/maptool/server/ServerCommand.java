@@ -67,6 +67,15 @@ default void removeTopology(GUID zoneGUID, Area area, Zone.TopologyTypeSet topol
 
   void getZone(GUID zoneGUID);
 
+  /**
+   * Asks the server to send the full state of a token, e.g. when a token patch could not be
+   * applied.
+   *
+   * @param zoneGUID the id of the zone the token is on.
+   * @param tokenGUID the id of the token.
+   */
+  void getToken(GUID zoneGUID, GUID tokenGUID);
+
   void putZone(Zone zone);
 
   void removeZone(GUID zoneGUID);
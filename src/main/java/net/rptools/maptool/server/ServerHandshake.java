@@ -31,6 +31,7 @@
 import javax.swing.SwingUtilities;
 import net.rptools.clientserver.simple.MessageHandler;
 import net.rptools.clientserver.simple.connection.Connection;
+import net.rptools.clientserver.simple.connection.MessageCompressor;
 import net.rptools.lib.MD5Key;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.language.I18N;
@@ -108,6 +109,9 @@ public class ServerHandshake implements Handshake, MessageHandler {
 
   private MD5Key playerPublicKeyMD5;
 
+  /** The id of the client's message compression dictionary, 0 if it has none. */
+  private long clientDictionaryId;
+
   private final boolean useEasyConnect;
 
   /**
@@ -356,15 +360,20 @@ private void handle(ClientAuthMsg clientAuthMessage)
 
   private void sendConnectionSuccessful() throws ExecutionException, InterruptedException {
     var server = MapTool.getServer();
+    // Only use the message dictionary if the client has the very same one.
+    long dictionaryId = MessageCompressor.getDictionaryId();
+    boolean useDictionary = dictionaryId != 0 && dictionaryId == clientDictionaryId;
     var connectionSuccessfulMsg =
         ConnectionSuccessfulMsg.newBuilder()
             .setRoleDto(getPlayer().isGM() ? RoleDto.GM : RoleDto.PLAYER)
             .setServerPolicyDto(server.getPolicy().toDto())
             .setGameDataDto(new DataStoreManager().toDto().get())
-            .setAddOnLibraryListDto(new LibraryManager().addOnLibrariesToDto().get());
+            .setAddOnLibraryListDto(new LibraryManager().addOnLibrariesToDto().get())
+            .setCompressionDictionaryId(useDictionary ? dictionaryId : 0);
     var handshakeMsg =
         HandshakeMsg.newBuilder().setConnectionSuccessfulMsg(connectionSuccessfulMsg).build();
     sendMessage(handshakeMsg);
+    connection.setCompressionDictionaryEnabled(useDictionary);
     setCurrentState(State.Success);
     notifyObservers();
   }
@@ -403,6 +412,7 @@ private void handle(ClientInitMsg clientInitMsg)
     }
 
     playerPublicKeyMD5 = new MD5Key(clientInitMsg.getPublicKeyMd5());
+    clientDictionaryId = clientInitMsg.getCompressionDictionaryId();
 
     try {
       setPlayer(playerDatabase.getPlayer(clientInitMsg.getPlayerName()));
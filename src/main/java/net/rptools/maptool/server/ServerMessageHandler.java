@@ -25,11 +25,11 @@
 import net.rptools.clientserver.simple.MessageHandler;
 import net.rptools.lib.MD5Key;
 import net.rptools.maptool.client.ClientMessageHandler;
+import net.rptools.maptool.client.DebounceExecutor;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.client.ServerCommandClientImpl;
 import net.rptools.maptool.client.ui.zone.FogUtil;
 import net.rptools.maptool.client.ui.zone.renderer.ZoneRenderer;
-import net.rptools.maptool.common.MapToolConstants;
 import net.rptools.maptool.events.MapToolEventBus;
 import net.rptools.maptool.model.*;
 import net.rptools.maptool.model.InitiativeList.TokenInitiative;
@@ -53,12 +53,24 @@
  * command through {@link ClientMessageHandler ClientMethodHandler}. Updating the server itself is
  * important as new client receive the server's campaign data when connecting.
  *
+ * <p>Changes to the server campaign are applied through {@link
+ * MapToolServer#runOnCampaignThread(Runnable)} so they are not queued behind painting on the EDT.
+ * Anything that touches the host's UI is posted to the EDT separately.
+ *
  * @author drice *
  */
 public class ServerMessageHandler implements MessageHandler {
   private final MapToolServer server;
   private static final Logger log = LogManager.getLogger(ServerMessageHandler.class);
 
+  /** Coalesces toolbox refreshes on the EDT when several policy changes arrive in a burst. */
+  private final DebounceExecutor toolboxUpdateDebouncer =
+      new DebounceExecutor(
+          100, () -> EventQueue.invokeLater(() -> MapTool.getFrame().getToolbox().updateTools()));
+
+  /** The last synchronised state of each token, for applying token patches. */
+  private final TokenSyncState tokenSyncState = new TokenSyncState();
+
   public ServerMessageHandler(MapToolServer server) {
     this.server = server;
   }
@@ -100,10 +112,7 @@ public void handleMessage(String id, byte[] message) {
           sendToAllClients(msg);
           handle(msg.getDrawMsg());
         }
-        case EDIT_TOKEN_MSG -> {
-          handle(id, msg.getEditTokenMsg());
-          sendToClients(id, msg);
-        }
+        case EDIT_TOKEN_MSG -> handle(id, msg.getEditTokenMsg(), msg);
         case ENFORCE_NOTIFICATION_MSG,
             ENFORCE_ZONE_MSG,
             ENFORCE_ZONE_VIEW_MSG,
@@ -136,6 +145,7 @@ public void handleMessage(String id, byte[] message) {
           sendToAllClients(msg);
         }
         case GET_ASSET_MSG -> handle(id, msg.getGetAssetMsg());
+        case GET_TOKEN_MSG -> handle(id, msg.getGetTokenMsg());
         case GET_ZONE_MSG -> handle(id, msg.getGetZoneMsg());
         case HEARTBEAT_MSG -> {
           /* nothing yet */
@@ -150,10 +160,7 @@ public void handleMessage(String id, byte[] message) {
           handle(msg.getPutLabelMsg());
           sendToClients(id, msg);
         }
-        case PUT_TOKEN_MSG -> {
-          handle(id, msg.getPutTokenMsg());
-          sendToClients(id, msg);
-        }
+        case PUT_TOKEN_MSG -> handle(id, msg.getPutTokenMsg(), msg);
         case PUT_ZONE_MSG -> {
           handle(msg.getPutZoneMsg());
           sendToClients(id, msg);
@@ -184,6 +191,7 @@ public void handleMessage(String id, byte[] message) {
           sendToAllClients(msg);
         }
         case SEND_TOKENS_TO_BACK_MSG -> handle(msg.getSendTokensToBackMsg());
+        case TOKEN_PATCH_MSG -> handle(id, msg.getTokenPatchMsg(), msg);
         case SET_CAMPAIGN_MSG -> {
           handle(msg.getSetCampaignMsg());
           sendToClients(id, msg);
@@ -266,41 +274,43 @@ public void handleMessage(String id, byte[] message) {
   }
 
   private void handle(UpdateExposedAreaMetaMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           Zone zone = server.getCampaign().getZone(GUID.valueOf(msg.getZoneGuid()));
+          ExposedAreaMetaData meta =
+              msg.hasFog()
+                  ? new ExposedAreaMetaData(FogBitmap.fromDto(msg.getFog()))
+                  : new ExposedAreaMetaData(Mapper.map(msg.getArea()));
           zone.setExposedAreaMetaData(
               msg.hasTokenGuid() ? GUID.valueOf(msg.getTokenGuid().getValue()) : null,
-              new ExposedAreaMetaData(Mapper.map(msg.getArea()))); // update the server
+              meta); // update the server
         });
   }
 
   private void handle(UpdateGmMacrosMsg msg) {
+    var campaignMacros =
+        msg.getMacrosList().stream()
+            .map(MacroButtonProperties::fromDto)
+            .collect(Collectors.toList());
+    server.runOnCampaignThread(
+        () -> server.getCampaign().setGmMacroButtonPropertiesArray(campaignMacros));
     EventQueue.invokeLater(
-        () -> {
-          var campaignMacros =
-              msg.getMacrosList().stream()
-                  .map(MacroButtonProperties::fromDto)
-                  .collect(Collectors.toList());
-          MapTool.getCampaign().setGmMacroButtonPropertiesArray(campaignMacros);
-          server.getCampaign().setGmMacroButtonPropertiesArray(campaignMacros);
-        });
+        () -> MapTool.getCampaign().setGmMacroButtonPropertiesArray(campaignMacros));
   }
 
   private void handle(UpdateCampaignMacrosMsg msg) {
+    var campaignMacros =
+        msg.getMacrosList().stream()
+            .map(MacroButtonProperties::fromDto)
+            .collect(Collectors.toList());
+    server.runOnCampaignThread(
+        () -> server.getCampaign().setMacroButtonPropertiesArray(campaignMacros));
     EventQueue.invokeLater(
-        () -> {
-          var campaignMacros =
-              msg.getMacrosList().stream()
-                  .map(MacroButtonProperties::fromDto)
-                  .collect(Collectors.toList());
-          MapTool.getCampaign().setMacroButtonPropertiesArray(campaignMacros);
-          server.getCampaign().setMacroButtonPropertiesArray(campaignMacros);
-        });
+        () -> MapTool.getCampaign().setMacroButtonPropertiesArray(campaignMacros));
   }
 
   private void handle(UpdateTokenInitiativeMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           Zone zone = server.getCampaign().getZone(GUID.valueOf(msg.getZoneGuid()));
           var tokenId = GUID.valueOf(msg.getTokenGuid());
@@ -320,23 +330,25 @@ private void handle(UpdateTokenInitiativeMsg msg) {
   }
 
   private void handle(UpdateInitiativeMsg msg) {
-    EventQueue.invokeLater(
-        () -> {
-          if (msg.hasList()) {
+    if (msg.hasList()) {
+      server.runOnCampaignThread(
+          () -> {
             var list = InitiativeList.fromDto(msg.getList());
             if (list.getZone() == null) return;
             Zone zone = server.getCampaign().getZone(list.getZone().getId());
             zone.setInitiativeList(list);
-          } else if (msg.hasOwnerPermission()) {
-            MapTool.getFrame()
-                .getInitiativePanel()
-                .setOwnerPermissions(msg.getOwnerPermission().getValue());
-          }
-        });
+          });
+    } else if (msg.hasOwnerPermission()) {
+      EventQueue.invokeLater(
+          () ->
+              MapTool.getFrame()
+                  .getInitiativePanel()
+                  .setOwnerPermissions(msg.getOwnerPermission().getValue()));
+    }
   }
 
   private void handle(UpdateCampaignMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           server
               .getCampaign()
@@ -345,11 +357,11 @@ private void handle(UpdateCampaignMsg msg) {
   }
 
   private void handle(SetServerPolicyMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           server.updateServerPolicy(
               ServerPolicy.fromDto(msg.getPolicy())); // updates the server policy, fixes #1648
-          MapTool.getFrame().getToolbox().updateTools();
+          toolboxUpdateDebouncer.dispatch();
         });
   }
 
@@ -367,7 +379,7 @@ private void handle(UndoDrawMsg msg) {
     // or flushing it entirely in the new zone. We'll save all of this for a separate patch against
     // 1.3 or
     // for 1.4.
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           Zone zone = server.getCampaign().getZone(GUID.valueOf(msg.getZoneGuid()));
           zone.removeDrawable(GUID.valueOf(msg.getDrawableGuid()));
@@ -375,7 +387,7 @@ private void handle(UndoDrawMsg msg) {
   }
 
   private void handle(SetZoneVisibilityMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           server
               .getCampaign()
@@ -385,7 +397,7 @@ private void handle(SetZoneVisibilityMsg msg) {
   }
 
   private void handle(UpdateTokenPropertyMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           Zone zone = server.getCampaign().getZone(GUID.valueOf(msg.getZoneGuid()));
           Token token = zone.getToken(GUID.valueOf(msg.getTokenGuid()));
@@ -397,7 +409,7 @@ private void handle(UpdateTokenPropertyMsg msg) {
   }
 
   private void handle(UpdateDrawingMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           Zone zone = server.getCampaign().getZone(GUID.valueOf(msg.getZoneGuid()));
           zone.updateDrawable(DrawnElement.fromDto(msg.getDrawing()), Pen.fromDto(msg.getPen()));
@@ -405,7 +417,7 @@ private void handle(UpdateDrawingMsg msg) {
   }
 
   private void handle(SetZoneHasFowMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           Zone zone = server.getCampaign().getZone(GUID.valueOf(msg.getZoneGuid()));
           zone.setHasFog(msg.getHasFow());
@@ -413,7 +425,7 @@ private void handle(SetZoneHasFowMsg msg) {
   }
 
   private void handle(SetZoneGridSizeMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           Zone zone = server.getCampaign().getZone(GUID.valueOf(msg.getZoneGuid()));
           Grid grid = zone.getGrid();
@@ -424,7 +436,7 @@ private void handle(SetZoneGridSizeMsg msg) {
   }
 
   private void handle(SetVisionTypeMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           Zone zone = server.getCampaign().getZone(GUID.valueOf(msg.getZoneGuid()));
           zone.setVisionType(VisionType.valueOf(msg.getVision().name()));
@@ -432,7 +444,7 @@ private void handle(SetVisionTypeMsg msg) {
   }
 
   private void handle(SetFowMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           Zone zone = server.getCampaign().getZone(GUID.valueOf(msg.getZoneGuid()));
           var area = Mapper.map(msg.getArea());
@@ -443,21 +455,22 @@ private void handle(SetFowMsg msg) {
   }
 
   private void handle(SetCampaignNameMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           server.getCampaign().setName(msg.getName());
         });
   }
 
   private void handle(SetCampaignMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
+          tokenSyncState.clear();
           server.setCampaign(Campaign.fromDto(msg.getCampaign()));
         });
   }
 
   private void handle(SendTokensToBackMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           var zoneGuid = GUID.valueOf(msg.getZoneGuid());
           var tokens =
@@ -467,7 +480,7 @@ private void handle(SendTokensToBackMsg msg) {
   }
 
   private void handle(RenameZoneMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           var zoneGUID = GUID.valueOf(msg.getZoneGuid());
           var name = msg.getName();
@@ -479,22 +492,25 @@ private void handle(RenameZoneMsg msg) {
   }
 
   private void handle(RemoveZoneMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           var zoneGUID = GUID.valueOf(msg.getZoneGuid());
           var zone = server.getCampaign().getZone(zoneGUID);
           server.getCampaign().removeZone(zoneGUID);
 
           // Now we have fire off adding the tokens in the zone
-          new MapToolEventBus()
-              .getMainEventBus()
-              .post(new TokensRemoved(zone, zone.getAllTokens()));
-          new MapToolEventBus().getMainEventBus().post(new ZoneRemoved(zone));
+          EventQueue.invokeLater(
+              () -> {
+                new MapToolEventBus()
+                    .getMainEventBus()
+                    .post(new TokensRemoved(zone, zone.getAllTokens()));
+                new MapToolEventBus().getMainEventBus().post(new ZoneRemoved(zone));
+              });
         });
   }
 
   private void handle(RemoveTopologyMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           var zoneGUID = GUID.valueOf(msg.getZoneGuid());
           var area = Mapper.map(msg.getArea());
@@ -505,31 +521,36 @@ private void handle(RemoveTopologyMsg msg) {
   }
 
   private void handle(RemoveTokensMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           var zoneGUID = GUID.valueOf(msg.getZoneGuid());
           var tokenGUIDs =
               msg.getTokenGuidList().stream().map(GUID::valueOf).collect(Collectors.toList());
           Zone zone = server.getCampaign().getZone(zoneGUID);
           zone.removeTokens(tokenGUIDs); // remove server tokens
+          tokenGUIDs.forEach(id -> tokenSyncState.remove(id.toString()));
         });
   }
 
   private void handle(RemoveTokenMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           var zoneGUID = GUID.valueOf(msg.getZoneGuid());
           var tokenGUID = GUID.valueOf(msg.getTokenGuid());
           var zone = server.getCampaign().getZone(zoneGUID);
           zone.removeToken(tokenGUID); // remove server tokens
+          tokenSyncState.remove(tokenGUID.toString());
         });
   }
 
   private void handle(RemoveLabelMsg msg) {
-    var zoneGUID = GUID.valueOf(msg.getZoneGuid());
-    var labelGUID = GUID.valueOf(msg.getLabelGuid());
-    var zone = server.getCampaign().getZone(zoneGUID);
-    zone.removeLabel(labelGUID);
+    server.runOnCampaignThread(
+        () -> {
+          var zoneGUID = GUID.valueOf(msg.getZoneGuid());
+          var labelGUID = GUID.valueOf(msg.getLabelGuid());
+          var zone = server.getCampaign().getZone(zoneGUID);
+          zone.removeLabel(labelGUID);
+        });
   }
 
   private void handle(RemoveAssetMsg msg) {
@@ -537,19 +558,24 @@ private void handle(RemoveAssetMsg msg) {
   }
 
   private void handle(PutZoneMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           final var zone = Zone.fromDto(msg.getZone());
           server.getCampaign().putZone(zone);
 
           // Now we have fire off adding the tokens in the zone
-          new MapToolEventBus().getMainEventBus().post(new ZoneAdded(zone));
-          new MapToolEventBus().getMainEventBus().post(new TokensAdded(zone, zone.getAllTokens()));
+          EventQueue.invokeLater(
+              () -> {
+                new MapToolEventBus().getMainEventBus().post(new ZoneAdded(zone));
+                new MapToolEventBus()
+                    .getMainEventBus()
+                    .post(new TokensAdded(zone, zone.getAllTokens()));
+              });
         });
   }
 
   private void handle(PutLabelMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           Zone zone = server.getCampaign().getZone(GUID.valueOf(msg.getZoneGuid()));
           zone.putLabel(Label.fromDto(msg.getLabel()));
@@ -557,14 +583,14 @@ private void handle(PutLabelMsg msg) {
   }
 
   private void handle(PutAssetMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           AssetManager.putAsset(Asset.fromDto(msg.getAsset()));
         });
   }
 
   private void handle(HideFowMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           var zoneGUID = GUID.valueOf(msg.getZoneGuid());
           var area = Mapper.map(msg.getArea());
@@ -577,7 +603,8 @@ private void handle(HideFowMsg msg) {
   }
 
   private void handle(String id, GetZoneMsg msg) {
-    getZone(id, GUID.valueOf(msg.getZoneGuid()));
+    // Read on the campaign thread so the client sees every change queued before its request.
+    server.runOnCampaignThread(() -> getZone(id, GUID.valueOf(msg.getZoneGuid())));
   }
 
   private void handle(String id, GetAssetMsg msg) {
@@ -585,6 +612,7 @@ private void handle(String id, GetAssetMsg msg) {
   }
 
   private void handle(ExposePcAreaMsg msg) {
+    // Works on the host's renderer rather than the server campaign, so it stays on the EDT.
     EventQueue.invokeLater(
         () -> {
           var zoneGUID = GUID.valueOf(msg.getZoneGuid());
@@ -594,7 +622,7 @@ private void handle(ExposePcAreaMsg msg) {
   }
 
   private void handle(ExposeFowMsg msg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           var zoneGUID = GUID.valueOf(msg.getZoneGuid());
           Zone zone = server.getCampaign().getZone(zoneGUID);
@@ -605,26 +633,109 @@ private void handle(ExposeFowMsg msg) {
         });
   }
 
-  private void handle(String clientId, PutTokenMsg putTokenMsg) {
-    EventQueue.invokeLater(
+  private void handle(String clientId, PutTokenMsg putTokenMsg, Message msg) {
+    // Forwarded from the campaign thread so token messages go out in the order they are applied.
+    server.runOnCampaignThread(
         () -> {
           var zoneGUID = GUID.valueOf(putTokenMsg.getZoneGuid());
           var token = Token.fromDto(putTokenMsg.getToken());
+          tokenSyncState.put(
+              token.getId().toString(), putTokenMsg.getTokenVersion(), putTokenMsg.getToken());
           putToken(clientId, zoneGUID, token);
+          sendToClients(clientId, msg);
         });
   }
 
-  private void handle(String clientId, EditTokenMsg editTokenMsg) {
-    EventQueue.invokeLater(
+  private void handle(String clientId, EditTokenMsg editTokenMsg, Message msg) {
+    server.runOnCampaignThread(
         () -> {
           var zoneGUID = GUID.valueOf(editTokenMsg.getZoneGuid());
           var token = Token.fromDto(editTokenMsg.getToken());
+          tokenSyncState.put(
+              token.getId().toString(), editTokenMsg.getTokenVersion(), editTokenMsg.getToken());
           putToken(clientId, zoneGUID, token);
+          sendToClients(clientId, msg);
         });
   }
 
+  private void handle(String clientId, TokenPatchMsg patchMsg, Message msg) {
+    server.runOnCampaignThread(
+        () -> {
+          var zoneGUID = GUID.valueOf(patchMsg.getZoneGuid());
+          var tokenId = patchMsg.getTokenGuid();
+          var base = tokenSyncState.get(tokenId, patchMsg.getBaseVersion());
+          if (base != null) {
+            var dto = TokenPatches.apply(base, patchMsg);
+            tokenSyncState.put(tokenId, patchMsg.getTokenVersion(), dto);
+            putToken(clientId, zoneGUID, Token.fromDto(dto));
+            sendToClients(clientId, msg);
+            return;
+          }
+
+          // The sender patched a state we no longer have, most likely because someone else
+          // changed the token at the same time. Apply the changed fields to what we have and
+          // resend the whole token to everyone, including the sender.
+          Zone zone = server.getCampaign().getZone(zoneGUID);
+          Token current = zone == null ? null : zone.getToken(GUID.valueOf(tokenId));
+          if (current == null) {
+            log.debug("Ignoring patch for token " + tokenId + " which no longer exists");
+            return;
+          }
+          var dto = TokenPatches.apply(current.toDto(), patchMsg);
+          tokenSyncState.put(tokenId, patchMsg.getTokenVersion(), dto);
+          putToken(clientId, zoneGUID, Token.fromDto(dto));
+          sendToAllClients(
+              tokenMessage(zoneGUID, dto, patchMsg.getTokenVersion(), patchMsg.getEdit()));
+        });
+  }
+
+  private void handle(String id, GetTokenMsg msg) {
+    server.runOnCampaignThread(
+        () -> {
+          var zoneGUID = GUID.valueOf(msg.getZoneGuid());
+          Zone zone = server.getCampaign().getZone(zoneGUID);
+          Token token = zone == null ? null : zone.getToken(GUID.valueOf(msg.getTokenGuid()));
+          if (token == null) {
+            return;
+          }
+          var dto = token.toDto();
+          // Send the token as it is now, since property updates and other edits change it without
+          // a new version. It still goes out under the version everyone else holds, so that their
+          // next patches apply here too: a patch carries every field that changed since that
+          // version, and any other field is the same in both. Only a token that was never
+          // synchronised gets a new version.
+          var synced = tokenSyncState.get(msg.getTokenGuid());
+          if (synced != null) {
+            server
+                .getConnection()
+                .sendMessage(id, tokenMessage(zoneGUID, dto, synced.version(), false));
+            return;
+          }
+          long version = TokenSyncState.newVersion();
+          tokenSyncState.put(msg.getTokenGuid(), version, dto);
+          server.getConnection().sendMessage(id, tokenMessage(zoneGUID, dto, version, false));
+        });
+  }
+
+  private static Message tokenMessage(GUID zoneGUID, TokenDto token, long version, boolean edit) {
+    if (edit) {
+      var msg =
+          EditTokenMsg.newBuilder()
+              .setZoneGuid(zoneGUID.toString())
+              .setToken(token)
+              .setTokenVersion(version);
+      return Message.newBuilder().setEditTokenMsg(msg).build();
+    }
+    var msg =
+        PutTokenMsg.newBuilder()
+            .setZoneGuid(zoneGUID.toString())
+            .setToken(token)
+            .setTokenVersion(version);
+    return Message.newBuilder().setPutTokenMsg(msg).build();
+  }
+
   private void handle(DrawMsg drawMsg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           var zoneGuid = GUID.valueOf(drawMsg.getZoneGuid());
           var pen = Pen.fromDto(drawMsg.getPen());
@@ -635,7 +746,7 @@ private void handle(DrawMsg drawMsg) {
   }
 
   private void handle(ClearExposedAreaMsg clearExposedAreaMsg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           var zoneGUID = GUID.valueOf(clearExposedAreaMsg.getZoneGuid());
           var globalOnly = clearExposedAreaMsg.getGlobalOnly();
@@ -645,7 +756,7 @@ private void handle(ClearExposedAreaMsg clearExposedAreaMsg) {
   }
 
   private void handle(ClearAllDrawingsMsg clearAllDrawingsMsg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           var zoneGUID = GUID.valueOf(clearAllDrawingsMsg.getZoneGuid());
           var layer = Zone.Layer.valueOf(clearAllDrawingsMsg.getLayer());
@@ -656,18 +767,21 @@ private void handle(ClearAllDrawingsMsg clearAllDrawingsMsg) {
   }
 
   private void handle(ChangeZoneDisplayNameMsg changeZoneDisplayNameMsg, Message msg) {
-    var zoneGUID = GUID.valueOf(changeZoneDisplayNameMsg.getZoneGuid());
-    var name = changeZoneDisplayNameMsg.getName();
+    server.runOnCampaignThread(
+        () -> {
+          var zoneGUID = GUID.valueOf(changeZoneDisplayNameMsg.getZoneGuid());
+          var name = changeZoneDisplayNameMsg.getName();
 
-    Zone zone = server.getCampaign().getZone(zoneGUID);
-    if (zone != null) {
-      zone.setPlayerAlias(name);
-      sendToAllClients(msg);
-    }
+          Zone zone = server.getCampaign().getZone(zoneGUID);
+          if (zone != null) {
+            zone.setPlayerAlias(name);
+            sendToAllClients(msg);
+          }
+        });
   }
 
   private void handle(BringTokensToFrontMsg bringTokensToFrontMsg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           var zoneGuid = GUID.valueOf(bringTokensToFrontMsg.getZoneGuid());
           var tokenSet =
@@ -679,7 +793,7 @@ private void handle(BringTokensToFrontMsg bringTokensToFrontMsg) {
   }
 
   private void handle(AddTopologyMsg addTopologyMsg) {
-    EventQueue.invokeLater(
+    server.runOnCampaignThread(
         () -> {
           var zoneGUID = GUID.valueOf(addTopologyMsg.getZoneGuid());
           var area = Mapper.map(addTopologyMsg.getArea());
@@ -750,13 +864,6 @@ private void getAsset(String id, MD5Key assetID) {
               assetID,
               AssetManager.getAssetInfo(assetID).getProperty(AssetManager.NAME),
               AssetManager.getAssetCacheFile(assetID));
-      var msg = StartAssetTransferMsg.newBuilder().setHeader(producer.getHeader().toDto());
-      server
-          .getConnection()
-          .sendMessage(
-              id,
-              MapToolConstants.Channel.IMAGE,
-              Message.newBuilder().setStartAssetTransferMsg(msg).build());
       server.addAssetProducer(id, producer);
 
     } catch (IllegalArgumentException iae) {
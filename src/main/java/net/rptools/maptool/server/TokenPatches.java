@@ -0,0 +1,86 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.server;
+
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import java.util.Objects;
+import net.rptools.maptool.server.proto.TokenDto;
+import net.rptools.maptool.server.proto.TokenPatchMsg;
+
+/**
+ * Creates and applies field level patches between two states of a {@link TokenDto}, so a small
+ * change to a large token doesn't mean sending the whole token again.
+ *
+ * <p>Fields are compared as a whole, so a change to one property sends the whole property map.
+ * That is still far less than the macros, light sources, states and so on that make up the rest of
+ * a scripted token.
+ */
+public final class TokenPatches {
+  private TokenPatches() {}
+
+  /**
+   * Creates a patch that turns {@code base} into {@code updated}. The caller still has to set the
+   * zone, token and versions of the patch.
+   *
+   * @param base the state of the token the receiver already has.
+   * @param updated the new state of the token.
+   * @return the patch.
+   */
+  public static TokenPatchMsg.Builder diff(TokenDto base, TokenDto updated) {
+    var patch = TokenPatchMsg.newBuilder();
+    var changes = TokenDto.newBuilder();
+    for (FieldDescriptor field : TokenDto.getDescriptor().getFields()) {
+      if (isSame(field, base, updated)) {
+        continue;
+      }
+      patch.addChangedFields(field.getNumber());
+      if (field.isRepeated() || updated.hasField(field)) {
+        changes.setField(field, updated.getField(field));
+      }
+    }
+    return patch.setChanges(changes);
+  }
+
+  /**
+   * Applies a patch created by {@link #diff(TokenDto, TokenDto)}.
+   *
+   * @param base the state of the token the patch was created against.
+   * @param patch the patch.
+   * @return the patched token.
+   */
+  public static TokenDto apply(TokenDto base, TokenPatchMsg patch) {
+    var builder = base.toBuilder();
+    var changes = patch.getChanges();
+    for (int number : patch.getChangedFieldsList()) {
+      FieldDescriptor field = TokenDto.getDescriptor().findFieldByNumber(number);
+      if (field == null) {
+        // Sent by a newer version with fields we don't know about, nothing we can do with it.
+        continue;
+      }
+      builder.clearField(field);
+      if (field.isRepeated() || changes.hasField(field)) {
+        builder.setField(field, changes.getField(field));
+      }
+    }
+    return builder.build();
+  }
+
+  private static boolean isSame(FieldDescriptor field, TokenDto a, TokenDto b) {
+    if (!field.isRepeated() && field.hasPresence() && a.hasField(field) != b.hasField(field)) {
+      return false;
+    }
+    return Objects.equals(a.getField(field), b.getField(field));
+  }
+}
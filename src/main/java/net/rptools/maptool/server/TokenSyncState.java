@@ -0,0 +1,94 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.server;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import net.rptools.maptool.server.proto.TokenDto;
+
+/**
+ * The last state of each token that was sent or received in full or as a patch, along with the
+ * version identifying it. A {@link net.rptools.maptool.server.proto.TokenPatchMsg} can only be
+ * applied by someone holding the state it was created against.
+ *
+ * <p>Versions are random rather than counted, so whoever changes a token can pick the new version
+ * without having to ask the server for it. Version 0 means a token is unversioned.
+ */
+public class TokenSyncState {
+  /**
+   * A synchronised state of a token.
+   *
+   * @param version the version of the state.
+   * @param token the token.
+   */
+  public record SyncedToken(long version, TokenDto token) {}
+
+  private final Map<String, SyncedToken> tokens = new ConcurrentHashMap<>();
+
+  /**
+   * @return a new version, never 0.
+   */
+  public static long newVersion() {
+    long version;
+    do {
+      version = ThreadLocalRandom.current().nextLong();
+    } while (version == 0);
+    return version;
+  }
+
+  /**
+   * @param tokenId the id of the token.
+   * @return the last synchronised state of the token, or {@code null} if there is none.
+   */
+  public SyncedToken get(String tokenId) {
+    return tokens.get(tokenId);
+  }
+
+  /**
+   * Returns the last synchronised state of a token, if it has the given version.
+   *
+   * @param tokenId the id of the token.
+   * @param version the version.
+   * @return the token, or {@code null} if the last synchronised state has a different version.
+   */
+  public TokenDto get(String tokenId, long version) {
+    var synced = tokens.get(tokenId);
+    return synced != null && version != 0 && synced.version() == version ? synced.token() : null;
+  }
+
+  /**
+   * Records the state of a token after it has been sent or received.
+   *
+   * @param tokenId the id of the token.
+   * @param version the version, or 0 to forget the token.
+   * @param token the token.
+   */
+  public void put(String tokenId, long version, TokenDto token) {
+    if (version == 0) {
+      tokens.remove(tokenId);
+    } else {
+      tokens.put(tokenId, new SyncedToken(version, token));
+    }
+  }
+
+  public void remove(String tokenId) {
+    tokens.remove(tokenId);
+  }
+
+  public void clear() {
+    tokens.clear();
+  }
+}
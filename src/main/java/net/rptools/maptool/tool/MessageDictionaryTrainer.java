@@ -0,0 +1,91 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.tool;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictTrainer;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import net.rptools.clientserver.simple.connection.MessageCompressor;
+
+/**
+ * Trains the Zstd dictionary used to compress client/server messages.
+ *
+ * <p>Record a capture by running a server and some clients with {@code
+ * -Dmaptool.messageCapture=<file>} while playing a typical session, then run:
+ *
+ * <pre>
+ *   MessageDictionaryTrainer &lt;capture file&gt; [output file] [dictionary size]
+ * </pre>
+ *
+ * The output defaults to the bundled dictionary resource. Clients and servers only use the
+ * dictionary with each other if both have the same one, so a retrained dictionary only takes effect
+ * between releases that both ship it.
+ */
+public class MessageDictionaryTrainer {
+  private static final String DEFAULT_OUTPUT =
+      "src/main/resources" + MessageCompressor.DICTIONARY_RESOURCE;
+  private static final int DEFAULT_DICTIONARY_SIZE = 32 * 1024;
+  private static final long MAX_SAMPLE_BUFFER_SIZE = 100 * 1024 * 1024;
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println(
+          "Usage: MessageDictionaryTrainer <capture file> [output file] [dictionary size]");
+      System.exit(1);
+    }
+    Path output = Path.of(args.length > 1 ? args[1] : DEFAULT_OUTPUT);
+    int dictionarySize = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_DICTIONARY_SIZE;
+
+    Path capture = Path.of(args[0]);
+    int sampleBufferSize = (int) Math.min(Files.size(capture), MAX_SAMPLE_BUFFER_SIZE);
+    var trainer = new ZstdDictTrainer(sampleBufferSize, dictionarySize);
+    int samples = 0;
+    try (var in = new DataInputStream(new BufferedInputStream(new FileInputStream(args[0])))) {
+      while (true) {
+        byte[] message;
+        try {
+          message = new byte[in.readInt()];
+          in.readFully(message);
+        } catch (EOFException e) {
+          break;
+        }
+        if (!trainer.addSample(message)) {
+          // The sample buffer is full, train on what we have.
+          break;
+        }
+        samples++;
+      }
+    }
+
+    byte[] dictionary = trainer.trainSamples();
+    Files.createDirectories(output.toAbsolutePath().getParent());
+    Files.write(output, dictionary);
+    System.out.println(
+        "Trained dictionary "
+            + Zstd.getDictIdFromDict(dictionary)
+            + " ("
+            + dictionary.length
+            + " bytes) from "
+            + samples
+            + " messages, written to "
+            + output);
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.util;
+
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+import javax.annotation.Nullable;
+import net.rptools.lib.MD5Key;
+
+/**
+ * The images loaded for assets by {@link ImageManager}, kept within a memory budget by evicting
+ * the least recently used.
+ *
+ * <p>Images that weigh nothing, such as the placeholders of images still being loaded, are never
+ * evicted, and neither are pinned images. This class is not thread safe.
+ */
+final class ImageCache {
+  /** The images, in order of last use. */
+  private final LinkedHashMap<MD5Key, BufferedImage> images = new LinkedHashMap<>(16, 0.75f, true);
+
+  private final ToLongFunction<BufferedImage> weigher;
+
+  /** The memory used by the images, in bytes. */
+  private long bytes = 0;
+
+  /** Images that are not evicted, because the current map needs them. */
+  private Set<MD5Key> pinned = Set.of();
+
+  private long evictions = 0;
+
+  /**
+   * @param weigher gives the memory used by an image, in bytes.
+   */
+  ImageCache(ToLongFunction<BufferedImage> weigher) {
+    this.weigher = weigher;
+  }
+
+  /**
+   * Gets an image, which makes it the most recently used.
+   *
+   * @param assetId the asset of the image.
+   * @return the image, or {@code null} if it isn't in the cache.
+   */
+  @Nullable
+  BufferedImage get(MD5Key assetId) {
+    return images.get(assetId);
+  }
+
+  /**
+   * Puts an image into the cache, then evicts the least recently used images until the cache fits
+   * in the budget again. The image that was put is never evicted.
+   *
+   * @param assetId the asset of the image.
+   * @param image the image.
+   * @param budget the memory the images and {@code otherBytes} may use, in bytes.
+   * @param otherBytes gives the memory used alongside the images, in bytes. Only called if the
+   *     image weighs anything.
+   * @param onEvict called with each evicted asset, returning how much of {@code otherBytes} was
+   *     freed along with it.
+   */
+  void put(
+      MD5Key assetId,
+      BufferedImage image,
+      long budget,
+      LongSupplier otherBytes,
+      ToLongFunction<MD5Key> onEvict) {
+    final var weight = weigh(image);
+    bytes += weight - weigh(images.put(assetId, image));
+    if (weight == 0) {
+      return;
+    }
+
+    var usedBytes = bytes + otherBytes.getAsLong();
+    final var iterator = images.entrySet().iterator();
+    while (usedBytes > budget && iterator.hasNext()) {
+      final var entry = iterator.next();
+      final var id = entry.getKey();
+      final var entryWeight = weigh(entry.getValue());
+      if (entryWeight == 0 || id.equals(assetId) || pinned.contains(id)) {
+        continue;
+      }
+      iterator.remove();
+      bytes -= entryWeight;
+      usedBytes -= entryWeight + onEvict.applyAsLong(id);
+      ++evictions;
+    }
+  }
+
+  /**
+   * @param assetId the asset of the image to remove.
+   */
+  void remove(MD5Key assetId) {
+    bytes -= weigh(images.remove(assetId));
+  }
+
+  void clear() {
+    images.clear();
+    bytes = 0;
+  }
+
+  /**
+   * @return the assets of the images in the cache.
+   */
+  Set<MD5Key> getAssetIds() {
+    return new HashSet<>(images.keySet());
+  }
+
+  /**
+   * @param assetIds the assets whose images are never evicted, replacing those pinned before.
+   */
+  void setPinned(Set<MD5Key> assetIds) {
+    pinned = Set.copyOf(assetIds);
+  }
+
+  /**
+   * @return the memory used by the images, in bytes.
+   */
+  long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * @return the number of images evicted to stay within the budget.
+   */
+  long getEvictions() {
+    return evictions;
+  }
+
+  private long weigh(@Nullable BufferedImage image) {
+    return image == null ? 0 : weigher.applyAsLong(image);
+  }
+}
@@ -14,6 +14,7 @@
  */
 package net.rptools.maptool.util;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.awt.image.BufferedImage;
 import java.awt.image.ImageObserver;
 import java.net.URL;
@@ -22,8 +23,10 @@
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 import net.rptools.lib.MD5Key;
 import net.rptools.lib.image.ImageUtil;
+import net.rptools.maptool.client.AppPreferences;
 import net.rptools.maptool.client.ui.theme.Images;
 import net.rptools.maptool.client.ui.theme.RessourceManager;
 import net.rptools.maptool.model.Asset;
@@ -47,10 +50,17 @@
 public class ImageManager {
   private static final Logger log = LogManager.getLogger(ImageManager.class);
 
-  /** Cache of images loaded for assets. */
-  private static final Map<MD5Key, BufferedImage> imageMap = new HashMap<MD5Key, BufferedImage>();
+  /** Cache of images loaded for assets. Guarded by {@link #imageLoaderMutex}. */
+  private static final ImageCache imageMap = new ImageCache(ImageManager::getCacheWeight);
 
-  /** Additional Soft-reference Cache of images that allows best . */
+  private static final AtomicLong cacheHits = new AtomicLong();
+  private static final AtomicLong cacheMisses = new AtomicLong();
+
+  /**
+   * Additional Soft-reference Cache of images, so that images flushed from {@link #imageMap} can
+   * come back without being loaded again. Images evicted to stay within the budget are dropped
+   * from it too, as they would otherwise come straight back.
+   */
   private static final Map<MD5Key, BufferedImage> backupImageMap =
       new ReferenceMap(
           AbstractReferenceMap.ReferenceStrength.HARD, AbstractReferenceMap.ReferenceStrength.SOFT);
@@ -72,6 +82,14 @@ public class ImageManager {
 
   private static final Object imageLoaderMutex = new Object();
 
+  /** Mip pyramids of the images drawn smaller than their size, made as they are needed. */
+  private static final Map<MD5Key, MipPyramid> mipPyramids = new ConcurrentHashMap<>();
+
+  /** Thread pool for making the levels of {@link #mipPyramids} in the background. */
+  private static final ExecutorService mipmapBuilder =
+      Executors.newSingleThreadExecutor(
+          new ThreadFactoryBuilder().setNameFormat("mipmap-builder-%d").setDaemon(true).build());
+
   /**
    * A Map containing sets of observers for each asset id. Observers are notified when the image is
    * done loading.
@@ -84,13 +102,28 @@ public class ImageManager {
     BROKEN_IMAGE = RessourceManager.getImage(Images.BROKEN);
   }
 
+  /**
+   * The statistics of the image cache.
+   *
+   * @param hits the number of images that were already loaded when asked for.
+   * @param misses the number of images that had to be loaded when asked for.
+   * @param evictions the number of images dropped to stay within the memory budget.
+   * @param usedBytes the memory used by the loaded images and their mip pyramids.
+   * @param budgetBytes the memory the loaded images and their mip pyramids may use.
+   */
+  public record CacheStatistics(
+      long hits, long misses, long evictions, long usedBytes, long budgetBytes) {}
+
   /**
    * Remove all images from the image cache. The observers and image load hints are not flushed. The
    * same observers will be notified when the image is reloaded, and the same hints will be used for
    * loading.
    */
   public static void flush() {
-    imageMap.clear();
+    synchronized (imageLoaderMutex) {
+      imageMap.clear();
+    }
+    mipPyramids.clear();
   }
 
   /**
@@ -111,11 +144,13 @@ public static BufferedImage getImageAndWait(MD5Key assetId) {
    */
   public static void flush(Set<MD5Key> exceptionSet) {
     synchronized (imageLoaderMutex) {
-      for (MD5Key id : new HashSet<MD5Key>(imageMap.keySet())) {
+      for (MD5Key id : imageMap.getAssetIds()) {
         if (!exceptionSet.contains(id)) {
-          imageMap.remove(id);
+          removeImage(id);
         }
       }
+      // Pyramids may outlive their image in the cache while it is still drawn.
+      mipPyramids.keySet().retainAll(exceptionSet);
     }
   }
 
@@ -184,18 +219,21 @@ public static BufferedImage getImage(
     synchronized (imageLoaderMutex) {
       BufferedImage image = imageMap.get(assetId);
       if (image != null && image != TRANSFERING_IMAGE) {
+        cacheHits.incrementAndGet();
         return image;
       }
 
       // check if the soft reference still resolves image
       image = backupImageMap.get(assetId);
       if (image != null) {
-        imageMap.put(assetId, image);
+        cacheHits.incrementAndGet();
+        putImage(assetId, image);
         return image;
       }
 
+      cacheMisses.incrementAndGet();
       // Make note that we're currently processing it
-      imageMap.put(assetId, TRANSFERING_IMAGE);
+      putImage(assetId, TRANSFERING_IMAGE);
 
       // Make sure we are informed when it's done loading
       addObservers(assetId, observers);
@@ -341,7 +379,136 @@ public static void flushImage(Asset asset) {
    */
   public static void flushImage(MD5Key assetId) {
     // LATER: investigate how this effects images that are already in progress
+    synchronized (imageLoaderMutex) {
+      removeImage(assetId);
+    }
+  }
+
+  /**
+   * Keeps the images of some assets loaded, however much memory the other images need. They are
+   * still dropped by {@link #flush()} and {@link #flushImage(MD5Key)}.
+   *
+   * @param assetIds the assets, replacing those pinned before.
+   */
+  public static void pinImages(Set<MD5Key> assetIds) {
+    synchronized (imageLoaderMutex) {
+      imageMap.setPinned(assetIds);
+    }
+  }
+
+  /**
+   * @return the statistics of the image cache since MapTool started.
+   */
+  public static CacheStatistics getCacheStatistics() {
+    final long usedBytes;
+    final long evictions;
+    synchronized (imageLoaderMutex) {
+      usedBytes = imageMap.getBytes();
+      evictions = imageMap.getEvictions();
+    }
+    return new CacheStatistics(
+        cacheHits.get(),
+        cacheMisses.get(),
+        evictions,
+        usedBytes + getMipmapMemoryUsage(),
+        getCacheBudget());
+  }
+
+  /**
+   * @return the memory the loaded images and their mip pyramids may use, in bytes.
+   */
+  private static long getCacheBudget() {
+    final var budgetMB = AppPreferences.getImageCacheBudgetMB();
+    if (budgetMB <= 0) {
+      return Runtime.getRuntime().maxMemory() / 4;
+    }
+    return budgetMB * 1024L * 1024L;
+  }
+
+  /** @return the memory used by an image in {@link #imageMap}, in bytes. */
+  private static long getCacheWeight(BufferedImage image) {
+    if (image == TRANSFERING_IMAGE || image == BROKEN_IMAGE) {
+      return 0;
+    }
+    return MipPyramid.getBytes(image);
+  }
+
+  /**
+   * Puts an image into {@link #imageMap}, and evicts the least recently used images that aren't
+   * pinned until the images fit in the budget again. Must hold {@link #imageLoaderMutex}.
+   */
+  private static void putImage(MD5Key assetId, BufferedImage image) {
+    imageMap.put(
+        assetId,
+        image,
+        getCacheBudget(),
+        ImageManager::getMipmapMemoryUsage,
+        id -> {
+          backupImageMap.remove(id);
+          final var pyramid = mipPyramids.remove(id);
+          return pyramid == null ? 0 : pyramid.getBytes();
+        });
+  }
+
+  /** Removes an image from {@link #imageMap}. Must hold {@link #imageLoaderMutex}. */
+  private static void removeImage(MD5Key assetId) {
     imageMap.remove(assetId);
+    mipPyramids.remove(assetId);
+  }
+
+  /**
+   * Returns a copy of an asset's image that is about the size the image will be drawn at. The
+   * copies are halved in size one after the other, and the returned copy is the smallest that is
+   * still at least as large as the drawn size. Drawing it is cheaper than scaling the whole image
+   * down, and avoids the aliasing of scaling down by more than half at once.
+   *
+   * <p>The copies are made in the background. Until the right copy is ready, the closest larger one
+   * is returned, and the observer is notified once the right one is ready.
+   *
+   * @param assetId the asset of the image.
+   * @param image the image of the asset, as returned by {@link #getImage(MD5Key,
+   *     ImageObserver...)}.
+   * @param scale the size the image will be drawn at, relative to its size.
+   * @param observer notified when a better copy is ready, or {@code null}.
+   * @return the copy to draw, which may be {@code image} itself.
+   */
+  public static BufferedImage getMipmap(
+      MD5Key assetId, BufferedImage image, double scale, ImageObserver observer) {
+    if (assetId == null
+        || image == TRANSFERING_IMAGE
+        || image == BROKEN_IMAGE
+        || !(scale > 0)
+        || scale >= 1) {
+      return image;
+    }
+
+    // A pyramid of an image that has since been loaded again is useless.
+    final var pyramid =
+        mipPyramids.compute(
+            assetId,
+            (id, existing) ->
+                existing != null && existing.getSource() == image
+                    ? existing
+                    : new MipPyramid(image));
+    final var level = pyramid.getLevelFor(scale);
+    final var mipmap = pyramid.getLevel(level);
+    if (mipmap != null) {
+      return mipmap;
+    }
+
+    // If a build is already running, it picks up the level and the observer.
+    if (pyramid.request(level, observer)) {
+      mipmapBuilder.execute(pyramid::buildRequested);
+    }
+    return pyramid.getNearest(level);
+  }
+
+  /**
+   * @return the memory used by the mip pyramids of images, not counting the images themselves, in
+   *     bytes.
+   */
+  public static long getMipmapMemoryUsage() {
+    return mipPyramids.values().stream().mapToLong(MipPyramid::getBytes).sum();
   }
 
   /**
@@ -383,7 +550,10 @@ public BackgroundImageLoader(Asset asset, Map<String, Object> hints) {
     /** Load the asset raw image data and notify observers that the image is loaded. */
     public void run() {
       log.debug("Loading asset: " + asset.getMD5Key());
-      BufferedImage image = imageMap.get(asset.getMD5Key());
+      BufferedImage image;
+      synchronized (imageLoaderMutex) {
+        image = imageMap.get(asset.getMD5Key());
+      }
 
       if (image != null && image != TRANSFERING_IMAGE) {
         // We've somehow already loaded this image
@@ -427,7 +597,7 @@ public void run() {
 
       synchronized (imageLoaderMutex) {
         // Replace placeholder with actual image
-        imageMap.put(asset.getMD5Key(), image);
+        putImage(asset.getMD5Key(), image);
         backupImageMap.put(asset.getMD5Key(), image);
         notifyObservers(asset, image);
       }
@@ -0,0 +1,250 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.util;
+
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.ImageObserver;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.annotation.Nullable;
+
+/**
+ * Copies of an image, each half the width and height of the one before. Drawing the copy nearest
+ * in size to the drawn size is much cheaper than scaling the whole image down, and looks better.
+ *
+ * <p>Level {@code 0} is the image itself. The other levels are only made when {@link #build(int)}
+ * or {@link #buildRequested()} is called, which is meant to be done in the background.
+ */
+final class MipPyramid {
+  private final BufferedImage source;
+
+  /** The levels made so far. Level {@code 0} is the source. */
+  private final AtomicReferenceArray<BufferedImage> levels;
+
+  /** Whether a build has been started and has not yet finished. */
+  private final AtomicBoolean isBuilding = new AtomicBoolean();
+
+  /** The largest level asked for with {@link #request(int, ImageObserver)}. */
+  private final AtomicInteger requestedLevel = new AtomicInteger();
+
+  /** Observers to tell once the levels asked for have been made. */
+  private final Set<ImageObserver> observers = ConcurrentHashMap.newKeySet();
+
+  MipPyramid(BufferedImage source) {
+    this.source = source;
+    this.levels = new AtomicReferenceArray<>(getMaxLevel(source) + 1);
+    this.levels.set(0, source);
+  }
+
+  /**
+   * @return the image the pyramid is made from.
+   */
+  BufferedImage getSource() {
+    return source;
+  }
+
+  /**
+   * @return the smallest level, where the shorter side of the image is a single pixel.
+   */
+  static int getMaxLevel(BufferedImage image) {
+    final var shorterSide = Math.max(1, Math.min(image.getWidth(), image.getHeight()));
+    return 31 - Integer.numberOfLeadingZeros(shorterSide);
+  }
+
+  /**
+   * Finds the smallest level that is still at least as large as the image will be drawn.
+   *
+   * @param scale the size the image will be drawn at, relative to the size of the source.
+   * @return the level.
+   */
+  int getLevelFor(double scale) {
+    if (!(scale > 0) || scale >= 1) {
+      return 0;
+    }
+    final var level = (int) Math.floor(-Math.log(scale) / Math.log(2));
+    return Math.min(level, levels.length() - 1);
+  }
+
+  /**
+   * @param level the level.
+   * @return the image of the level, or {@code null} if it hasn't been made yet.
+   */
+  @Nullable
+  BufferedImage getLevel(int level) {
+    return levels.get(level);
+  }
+
+  /**
+   * Finds the level that is closest to a level without being smaller, of those made so far.
+   *
+   * @param level the level wanted.
+   * @return the image of the level, or of the closest larger level made so far.
+   */
+  BufferedImage getNearest(int level) {
+    for (int i = level; i > 0; --i) {
+      final var image = levels.get(i);
+      if (image != null) {
+        return image;
+      }
+    }
+    return source;
+  }
+
+  /**
+   * Claims the right to build the pyramid, so that only one build runs at a time.
+   *
+   * @return {@code true} if the caller should call {@link #build(int)}.
+   */
+  boolean startBuilding() {
+    return isBuilding.compareAndSet(false, true);
+  }
+
+  /**
+   * Makes any missing levels up to a level, each from the one before it.
+   *
+   * @param level the last level to make.
+   */
+  void build(int level) {
+    try {
+      makeLevels(level);
+    } finally {
+      isBuilding.set(false);
+    }
+  }
+
+  /**
+   * Asks for a level to be made by {@link #buildRequested()}. If a build is already running, it
+   * makes the level and tells the observer as well.
+   *
+   * @param level the level wanted.
+   * @param observer told once the level has been made, or {@code null}.
+   * @return {@code true} if no build was running and the caller should call {@link
+   *     #buildRequested()}.
+   */
+  boolean request(int level, @Nullable ImageObserver observer) {
+    // The level goes in before the observer, so that a build that sees the observer makes it.
+    requestedLevel.accumulateAndGet(level, Math::max);
+    if (observer != null) {
+      observers.add(observer);
+    }
+    return startBuilding();
+  }
+
+  /**
+   * Makes the levels asked for with {@link #request(int, ImageObserver)} and tells the observers,
+   * for as long as more are asked for. Must only be called after {@link #request(int,
+   * ImageObserver)} returned {@code true}.
+   */
+  void buildRequested() {
+    do {
+      final var waiting = new ArrayList<ImageObserver>();
+      for (var iterator = observers.iterator(); iterator.hasNext(); ) {
+        waiting.add(iterator.next());
+        iterator.remove();
+      }
+      final var level = requestedLevel.get();
+      try {
+        makeLevels(level);
+      } finally {
+        isBuilding.set(false);
+      }
+
+      final var built = getNearest(level);
+      for (final var observer : waiting) {
+        observer.imageUpdate(
+            built, ImageObserver.ALLBITS, 0, 0, built.getWidth(), built.getHeight());
+      }
+      // Anything asked for while the build was finishing is up to this build, unless another one
+      // was started for it in the meantime.
+    } while (hasPendingRequests() && startBuilding());
+  }
+
+  private boolean hasPendingRequests() {
+    final var level = Math.min(requestedLevel.get(), levels.length() - 1);
+    return !observers.isEmpty() || levels.get(level) == null;
+  }
+
+  private void makeLevels(int level) {
+    var previous = source;
+    for (int i = 1; i <= Math.min(level, levels.length() - 1); ++i) {
+      var image = levels.get(i);
+      if (image == null) {
+        image = halve(previous);
+        levels.set(i, image);
+      }
+      previous = image;
+    }
+  }
+
+  /**
+   * @return the memory used by the levels other than the source, in bytes.
+   */
+  long getBytes() {
+    long bytes = 0;
+    for (int i = 1; i < levels.length(); ++i) {
+      final var image = levels.get(i);
+      if (image != null) {
+        bytes += getBytes(image);
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * @param image an image.
+   * @return the memory used by the pixels of the image, in bytes.
+   */
+  static long getBytes(BufferedImage image) {
+    final var buffer = image.getRaster().getDataBuffer();
+    return (long) buffer.getSize()
+        * buffer.getNumBanks()
+        * DataBuffer.getDataTypeSize(buffer.getDataType())
+        / 8;
+  }
+
+  /** Makes a copy of an image at half its width and height, averaging each 2x2 block of pixels. */
+  private static BufferedImage halve(BufferedImage image) {
+    final var type =
+        switch (image.getType()) {
+          case BufferedImage.TYPE_INT_RGB,
+              BufferedImage.TYPE_INT_ARGB,
+              BufferedImage.TYPE_INT_ARGB_PRE -> image.getType();
+          default ->
+              image.getColorModel().hasAlpha()
+                  ? BufferedImage.TYPE_INT_ARGB
+                  : BufferedImage.TYPE_INT_RGB;
+        };
+    final var half =
+        new BufferedImage(
+            Math.max(1, image.getWidth() / 2), Math.max(1, image.getHeight() / 2), type);
+    final var g = half.createGraphics();
+    try {
+      // At exactly half the size, bilinear sampling falls between four pixels and averages them.
+      g.setRenderingHint(
+          RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      g.drawImage(image, 0, 0, half.getWidth(), half.getHeight(), null);
+    } finally {
+      g.dispose();
+    }
+    return half;
+  }
+}
@@ -15,22 +15,33 @@
 package net.rptools.maptool.util;
 
 import com.google.protobuf.util.JsonFormat;
+import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.converters.ConversionException;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -41,6 +52,7 @@
 import net.rptools.lib.MD5Key;
 import net.rptools.lib.ModelVersionManager;
 import net.rptools.lib.image.ImageUtil;
+import net.rptools.lib.io.JournalFile;
 import net.rptools.lib.io.PackedFile;
 import net.rptools.maptool.client.AppConstants;
 import net.rptools.maptool.client.AppPreferences;
@@ -75,6 +87,8 @@
 import net.rptools.maptool.model.transform.campaign.TokenPropertyMapTransform;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.function.IOConsumer;
+import org.apache.commons.io.function.IOFunction;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -98,6 +112,15 @@ public class PersistenceUtil {
 
   private static final String GAME_DATA_FILE = GAME_DATA_DIR + "game-data.json";
 
+  /** The files of a campaign saved as a {@link JournalFile}, as opposed to a {@link PackedFile}. */
+  private static final String JOURNAL_PROPERTIES_FILE = "properties.xml";
+
+  private static final String JOURNAL_CAMPAIGN_FILE = "campaign.xml";
+
+  private static final String JOURNAL_ZONE_LIST_FILE = "zones";
+
+  private static final String JOURNAL_ZONE_DIR = "zones/";
+
   private static final String CAMPAIGN_VERSION = "1.11.0";
 
   // Please add a single note regarding why the campaign version number has been updated:
@@ -386,6 +409,201 @@ public static void saveCampaign(Campaign campaign, File campaignFile) throws IOE
         });
   }
 
+  /**
+   * Saves a campaign to a {@link JournalFile}. Unlike {@link #saveCampaign(Campaign, File)}, which
+   * rewrites the whole campaign file, only the zones and assets that changed since the last save to
+   * the same journal are written. The journal is compacted once replaced entries take up most of
+   * it.
+   *
+   * <p>Journals are used for autosaves, campaigns are still saved and exchanged as {@link
+   * PackedFile}s. Both can be loaded with {@link #loadCampaign(File)}.
+   *
+   * <p>This doesn't touch the UI, so it can run in the background on a snapshot of the campaign.
+   * The XML is streamed straight to the journal, so memory use is bounded by the objects being
+   * saved rather than their serialized form.
+   *
+   * @param persistedCampaign the campaign to save, along with the current zone and view.
+   * @param journalFile the journal to save to. If it exists but isn't a journal it is replaced.
+   * @throws IOException if the campaign can't be saved.
+   */
+  public static void saveCampaignJournal(PersistedCampaign persistedCampaign, File journalFile)
+      throws IOException {
+    CodeTimer.using(
+        "CampaignJournalSave",
+        saveTimer -> {
+          saveTimer.setThreshold(5);
+
+          // An older campaign file can't be appended to, so build a new journal next to it and
+          // only replace it once that is complete.
+          boolean replace = journalFile.exists() && !JournalFile.isJournal(journalFile);
+          File file =
+              replace
+                  ? new File(journalFile.getParentFile(), journalFile.getName() + ".new")
+                  : journalFile;
+          if (replace) {
+            file.delete();
+          }
+
+          try (var journal = new JournalFile(file)) {
+            var xstream = FileUtil.getConfiguredXStream();
+            var live = new HashSet<String>();
+
+            var properties = new HashMap<String, Object>();
+            properties.put(PROP_CAMPAIGN_VERSION, CAMPAIGN_VERSION);
+            properties.put(PROP_VERSION, MapTool.getVersion());
+            putJournalEntry(journal, live, JOURNAL_PROPERTIES_FILE, xml(xstream, properties));
+
+            Campaign campaign = persistedCampaign.campaign;
+            saveTimer.start("Save assets");
+            Set<MD5Key> allAssetIds = campaign.getAllAssetIds();
+            for (MD5Key key : allAssetIds) {
+              persistedCampaign.assetMap.put(key, null);
+            }
+            saveJournalAssets(allAssetIds, journal, live);
+            saveTimer.stop("Save assets");
+
+            saveTimer.start("Save zones");
+            var zoneIds = new ArrayList<String>();
+            int written = 0;
+            for (Zone zone : campaign.getZones()) {
+              String id = zone.getId().toString();
+              zoneIds.add(id);
+              if (putJournalEntry(journal, live, JOURNAL_ZONE_DIR + id, xml(xstream, zone))) {
+                written++;
+              }
+            }
+            putJournalEntry(
+                journal,
+                live,
+                JOURNAL_ZONE_LIST_FILE,
+                String.join("\n", zoneIds).getBytes(StandardCharsets.UTF_8));
+            saveTimer.stop("Save zones");
+            log.debug("Wrote " + written + " of " + zoneIds.size() + " zones to " + file);
+
+            saveTimer.start("Save campaign");
+            var campaignXStream = FileUtil.getConfiguredXStream();
+            campaignXStream.omitField(Campaign.class, "zones");
+            putJournalEntry(
+                journal, live, JOURNAL_CAMPAIGN_FILE, xml(campaignXStream, persistedCampaign));
+            saveTimer.stop("Save campaign");
+
+            saveTimer.start("Save Drop In Libraries");
+            AddOnLibraryListDto libraries;
+            try {
+              libraries = new LibraryManager().addOnLibrariesToDto().get();
+            } catch (InterruptedException | ExecutionException e) {
+              throw new IOException(e);
+            }
+            putJournalEntry(
+                journal,
+                live,
+                DROP_IN_LIBRARY_LIST_FILE,
+                JsonFormat.printer().print(libraries).getBytes(StandardCharsets.UTF_8));
+            for (var library : libraries.getLibrariesList()) {
+              String path = DROP_IN_LIBRARY_ASSET_DIR + library.getMd5Hash();
+              live.add(path);
+              if (!journal.contains(path)) {
+                Asset asset = AssetManager.getAsset(new MD5Key(library.getMd5Hash()));
+                journal.put(path, asset.getData());
+              }
+            }
+            saveTimer.stop("Save Drop In Libraries");
+
+            saveTimer.start("Save Game Data");
+            try {
+              DataStoreManager dataStoreManager = new DataStoreManager();
+              DataStoreDto dto = dataStoreManager.toDto().get();
+              putJournalEntry(
+                  journal,
+                  live,
+                  GAME_DATA_FILE,
+                  JsonFormat.printer().print(dto).getBytes(StandardCharsets.UTF_8));
+              saveJournalAssets(dataStoreManager.getAssets().get(), journal, live);
+            } catch (ExecutionException | InterruptedException e) {
+              throw new IOException(e);
+            }
+            saveTimer.stop("Save Game Data");
+
+            saveTimer.start("Commit");
+            for (String key : journal.keys()) {
+              if (!live.contains(key)) {
+                journal.remove(key);
+              }
+            }
+            journal.commit();
+            saveTimer.stop("Commit");
+
+            if (journal.isCompactionNeeded()) {
+              saveTimer.start("Compact");
+              journal.compact();
+              saveTimer.stop("Compact");
+            }
+          }
+
+          if (replace) {
+            Files.move(file.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+          }
+        });
+  }
+
+  /** Returns a writer that streams the XML of an object, for {@link JournalFile#put}. */
+  private static IOConsumer<OutputStream> xml(XStream xstream, Object object) {
+    return out -> {
+      var writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+      xstream.toXML(object, writer);
+      writer.flush();
+    };
+  }
+
+  /**
+   * Writes an entry to a journal if it changed, and marks it as still in use.
+   *
+   * @return {@code true} if the entry was written.
+   */
+  private static boolean putJournalEntry(
+      JournalFile journal, Set<String> live, String path, byte[] data) throws IOException {
+    live.add(path);
+    return journal.put(path, data);
+  }
+
+  private static boolean putJournalEntry(
+      JournalFile journal, Set<String> live, String path, IOConsumer<OutputStream> writer)
+      throws IOException {
+    live.add(path);
+    return journal.put(path, writer);
+  }
+
+  /**
+   * Writes the assets that aren't in a journal yet. Assets never change, so those already in the
+   * journal are skipped without reading them.
+   */
+  private static void saveJournalAssets(
+      Collection<MD5Key> assetIds, JournalFile journal, Set<String> live) throws IOException {
+    for (MD5Key assetId : assetIds) {
+      if (assetId == null) continue;
+
+      String path = ASSET_DIR + assetId;
+      live.add(path);
+      if (journal.contains(path)) {
+        continue;
+      }
+      Asset asset = AssetManager.getAsset(assetId);
+      if (asset == null) {
+        log.error("AssetId " + assetId + " not found while saving?!");
+        live.remove(path);
+        continue;
+      }
+
+      var bytes = new ByteArrayOutputStream(asset.getData().length + 256);
+      try (var out = new DataOutputStream(bytes)) {
+        out.writeUTF(asset.getName());
+        out.writeUTF(asset.getType().name());
+        out.write(asset.getData());
+      }
+      journal.put(path, bytes.toByteArray());
+    }
+  }
+
   /*
    * A public function because I think it should be called when a campaign is opened as well so if it is opened then closed without saving, there is still a preview created; however, the rendering
    * of the campaign appears to complete after AppActions.loadCampaign returns, causing the preview to always appear as black if this method is called from within loadCampaign. Either need to find
@@ -426,6 +644,21 @@ public static File getCampaignThumbnailFile(String fileName) {
   public static PersistedCampaign loadCampaign(File campaignFile) throws IOException {
     PersistedCampaign persistedCampaign = null;
 
+    if (JournalFile.isJournal(campaignFile)) {
+      try {
+        persistedCampaign = loadCampaignJournal(campaignFile);
+      } catch (OutOfMemoryError oom) {
+        MapTool.showError("Out of memory while reading campaign.", oom);
+        return null;
+      } catch (RuntimeException rte) {
+        MapTool.showError("PersistenceUtil.error.campaignRead", rte);
+      }
+      if (persistedCampaign == null) {
+        MapTool.showWarning("PersistenceUtil.warn.campaignNotLoaded");
+      }
+      return persistedCampaign;
+    }
+
     // Try the new way first
     try (PackedFile pakFile = new PackedFile(campaignFile)) {
       pakFile.setModelVersionManager(campaignVersionManager);
@@ -461,8 +694,8 @@ public static PersistedCampaign loadCampaign(File campaignFile) throws IOExcepti
         }
 
         new CampaignManager().clearCampaignData();
-        loadGameData(pakFile);
-        loadAddOnLibraries(pakFile);
+        loadGameData(fileReader(pakFile));
+        loadAddOnLibraries(fileReader(pakFile));
 
         // for (Entry<String, Map<GUID, LightSource>> entry :
         // persistedCampaign.campaign.getLightSourcesMap().entrySet()) {
@@ -493,6 +726,78 @@ public static PersistedCampaign loadCampaign(File campaignFile) throws IOExcepti
     return persistedCampaign;
   }
 
+  /**
+   * Loads a campaign saved with {@link #saveCampaignJournal(PersistedCampaign, File)}.
+   *
+   * @param journalFile the journal to load.
+   * @return the campaign, or {@code null} if it is from an incompatible version.
+   * @throws IOException if the journal can't be read.
+   */
+  private static PersistedCampaign loadCampaignJournal(File journalFile) throws IOException {
+    try (var journal = new JournalFile(journalFile)) {
+      var xstream = FileUtil.getConfiguredXStream();
+      byte[] propertyData = journal.get(JOURNAL_PROPERTIES_FILE);
+      if (propertyData == null) {
+        throw new FileNotFoundException(JOURNAL_PROPERTIES_FILE);
+      }
+      var properties =
+          (Map<?, ?>) xstream.fromXML(new String(propertyData, StandardCharsets.UTF_8));
+      String progVersion = (String) properties.get(PROP_VERSION);
+      if (!versionCheck(progVersion)) return null;
+      String campaignVersion = (String) properties.get(PROP_CAMPAIGN_VERSION);
+
+      var campaignXStream = FileUtil.getConfiguredXStream();
+      campaignXStream.omitField(Campaign.class, "zones");
+      var persistedCampaign =
+          (PersistedCampaign)
+              fromJournalXml(campaignXStream, journal, JOURNAL_CAMPAIGN_FILE, campaignVersion);
+
+      byte[] zoneList = journal.get(JOURNAL_ZONE_LIST_FILE);
+      String zoneIds = zoneList == null ? "" : new String(zoneList, StandardCharsets.UTF_8);
+      for (String id : zoneIds.split("\n")) {
+        if (id.isEmpty()) continue;
+        var zone = (Zone) fromJournalXml(xstream, journal, JOURNAL_ZONE_DIR + id, campaignVersion);
+        persistedCampaign.campaign.putZone(zone);
+      }
+
+      for (String path : journal.keys()) {
+        if (!path.startsWith(ASSET_DIR)) continue;
+        if (AssetManager.hasAsset(new MD5Key(path.substring(ASSET_DIR.length())))) continue;
+
+        try (var in = new DataInputStream(new ByteArrayInputStream(journal.get(path)))) {
+          String name = in.readUTF();
+          Type type = Type.valueOf(in.readUTF());
+          AssetManager.putAsset(Asset.createAsset(name, in.readAllBytes(), type));
+        } catch (IllegalArgumentException e) {
+          log.error("Asset '" + path + "' has an unknown type, not restored.", e);
+        }
+      }
+      for (Zone zone : persistedCampaign.campaign.getZones()) {
+        zone.optimize();
+      }
+
+      new CampaignManager().clearCampaignData();
+      loadGameData(journal::get);
+      loadAddOnLibraries(journal::get);
+      return persistedCampaign;
+    }
+  }
+
+  private static Object fromJournalXml(
+      XStream xstream, JournalFile journal, String path, String campaignVersion)
+      throws IOException {
+    byte[] data = journal.get(path);
+    if (data == null) {
+      throw new FileNotFoundException(path);
+    }
+    String xml = new String(data, StandardCharsets.UTF_8);
+    if (campaignVersionManager.isTransformationRequired(campaignVersion)) {
+      xml = campaignVersionManager.transform(xml, campaignVersion);
+      xstream.ignoreUnknownElements();
+    }
+    return xstream.fromXML(xml);
+  }
+
   private static String getThumbFilename(PackedFile pakFile) throws IOException {
     if ((MapTool.getThumbnailSize().width > 50 || MapTool.getThumbnailSize().height > 50)
         && pakFile.hasFile(Token.FILE_THUMBNAIL_LARGE)) return Token.FILE_THUMBNAIL_LARGE;
@@ -676,24 +981,25 @@ private static void loadAssets(Collection<MD5Key> assetIds, PackedFile pakFile)
   /**
    * Loads the add-on libraries from the campaign file.
    *
-   * @param packedFile the file to load from.
+   * @param reader reads a file from the campaign file, returning {@code null} if it doesn't exist.
    * @throws IOException if there is a problem reading the add-o library information.
    */
-  private static void loadAddOnLibraries(PackedFile packedFile) throws IOException {
+  private static void loadAddOnLibraries(IOFunction<String, byte[]> reader) throws IOException {
     var libraryManager = new LibraryManager();
-    if (!packedFile.hasFile(DROP_IN_LIBRARY_LIST_FILE)) {
+    byte[] listData = reader.apply(DROP_IN_LIBRARY_LIST_FILE);
+    if (listData == null) {
       return; // No Libraries to import
     }
     var builder = AddOnLibraryListDto.newBuilder();
-    JsonFormat.parser()
-        .merge(
-            new InputStreamReader(packedFile.getFileAsInputStream(DROP_IN_LIBRARY_LIST_FILE)),
-            builder);
+    JsonFormat.parser().merge(new String(listData, StandardCharsets.UTF_8), builder);
     var listDto = builder.build();
 
     for (var library : listDto.getLibrariesList()) {
       String libraryData = DROP_IN_LIBRARY_ASSET_DIR + library.getMd5Hash();
-      byte[] bytes = packedFile.getFileAsInputStream(libraryData).readAllBytes();
+      byte[] bytes = reader.apply(libraryData);
+      if (bytes == null) {
+        throw new FileNotFoundException(libraryData);
+      }
       String libraryNamespace = library.getDetails().getNamespace();
       Asset asset = Type.MTLIB.getFactory().apply(libraryNamespace, bytes);
       if (!AssetManager.hasAsset(asset)) {
@@ -728,15 +1034,14 @@ private static void saveAddOnLibraries(PackedFile packedFile) throws IOException
     }
   }
 
-  private static void loadGameData(PackedFile packedFile) throws IOException {
-
-    if (!packedFile.hasFile(GAME_DATA_FILE)) {
+  private static void loadGameData(IOFunction<String, byte[]> reader) throws IOException {
+    byte[] gameData = reader.apply(GAME_DATA_FILE);
+    if (gameData == null) {
       return; // No game data to import
     }
 
     var builder = DataStoreDto.newBuilder();
-    JsonFormat.parser()
-        .merge(new InputStreamReader(packedFile.getFileAsInputStream(GAME_DATA_FILE)), builder);
+    JsonFormat.parser().merge(new String(gameData, StandardCharsets.UTF_8), builder);
     var dataStoreDto = builder.build();
 
     try {
@@ -747,6 +1052,24 @@ private static void loadGameData(PackedFile packedFile) throws IOException {
     }
   }
 
+  /**
+   * Returns a reader for the files in a {@link PackedFile}, for {@link
+   * #loadAddOnLibraries(IOFunction)} and {@link #loadGameData(IOFunction)}.
+   *
+   * @param packedFile the file to read from.
+   * @return the reader.
+   */
+  private static IOFunction<String, byte[]> fileReader(PackedFile packedFile) {
+    return path -> {
+      if (!packedFile.hasFile(path)) {
+        return null;
+      }
+      try (InputStream is = packedFile.getFileAsInputStream(path)) {
+        return is.readAllBytes();
+      }
+    };
+  }
+
   private static void saveGameData(PackedFile packedFile) throws IOException {
     // Remove all the game data from the packed file first.
     for (String path : packedFile.getPaths()) {
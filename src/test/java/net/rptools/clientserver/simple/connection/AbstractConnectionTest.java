@@ -0,0 +1,143 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple.connection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import net.rptools.clientserver.simple.connection.PrioritizedChannel.Priority;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class AbstractConnectionTest {
+  private static final PrioritizedChannel BULK = () -> Priority.BULK;
+
+  private static final long STALL_TIMEOUT_MILLIS = 200;
+
+  /** A connection that only sends when told to, with a queue of 100 bytes, 50 of them for bulk. */
+  private static final class HeldConnection extends AbstractConnection {
+    private volatile boolean closed = false;
+
+    private HeldConnection() {
+      super(100, 50, STALL_TIMEOUT_MILLIS);
+    }
+
+    @Override
+    protected void onMessageQueued() {}
+
+    @Override
+    public void open() {}
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+
+    @Override
+    public boolean isAlive() {
+      return !closed;
+    }
+
+    @Override
+    public String getId() {
+      return "held";
+    }
+
+    @Override
+    public String getError() {
+      return null;
+    }
+  }
+
+  private static void send(AbstractConnection connection, Object channel, int size) {
+    connection.sendCompressedMessage(channel, new byte[size], null);
+  }
+
+  @Test
+  @DisplayName("A full queue that is still sending takes more messages.")
+  void testFullButDraining() {
+    var connection = new HeldConnection();
+    send(connection, null, 80);
+    send(connection, null, 80);
+    assertTrue(connection.isAlive());
+
+    assertNotNull(connection.nextMessage());
+    send(connection, null, 500);
+    assertTrue(connection.isAlive());
+    assertEquals(2, countMessages(connection));
+  }
+
+  @Test
+  @DisplayName("An empty queue takes a message larger than the queue, however long it was idle.")
+  void testLargeMessage() throws InterruptedException {
+    var connection = new HeldConnection();
+    Thread.sleep(STALL_TIMEOUT_MILLIS * 2);
+    send(connection, null, 500);
+    send(connection, null, 10);
+    assertTrue(connection.isAlive());
+    assertEquals(2, countMessages(connection));
+  }
+
+  @Test
+  @DisplayName("A full queue that has sent nothing for a while closes the connection.")
+  void testFullAndStalled() throws InterruptedException {
+    var connection = new HeldConnection();
+    send(connection, null, 80);
+    Thread.sleep(STALL_TIMEOUT_MILLIS * 2);
+
+    // Room is left in the queue, so the connection is kept.
+    send(connection, null, 10);
+    assertTrue(connection.isAlive());
+
+    send(connection, null, 80);
+    assertFalse(connection.isAlive());
+    assertEquals(2, countMessages(connection));
+  }
+
+  @Test
+  @DisplayName("Bulk senders wait for room while the queue sends.")
+  void testBulkWaitsForRoom() throws Exception {
+    var connection = new HeldConnection();
+    send(connection, BULK, 40);
+    var blocked = CompletableFuture.runAsync(() -> send(connection, BULK, 40));
+    Thread.sleep(STALL_TIMEOUT_MILLIS / 4);
+    assertFalse(blocked.isDone());
+
+    assertNotNull(connection.nextMessage());
+    blocked.get(STALL_TIMEOUT_MILLIS * 10, TimeUnit.MILLISECONDS);
+    assertTrue(connection.isAlive());
+    assertEquals(1, countMessages(connection));
+  }
+
+  @Test
+  @DisplayName("Bulk senders give up and close the connection once the queue stalls.")
+  void testBulkStalled() throws Exception {
+    var connection = new HeldConnection();
+    send(connection, BULK, 40);
+    CompletableFuture.runAsync(() -> send(connection, BULK, 40))
+        .get(STALL_TIMEOUT_MILLIS * 10, TimeUnit.MILLISECONDS);
+    assertFalse(connection.isAlive());
+    assertEquals(1, countMessages(connection));
+  }
+
+  private static int countMessages(AbstractConnection connection) {
+    int count = 0;
+    while (connection.nextMessage() != null) {
+      count++;
+    }
+    return count;
+  }
+}
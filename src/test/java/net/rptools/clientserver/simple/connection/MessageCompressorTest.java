@@ -0,0 +1,61 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple.connection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class MessageCompressorTest {
+  /** A chat message much like those sent in play. */
+  private static final byte[] CHAT =
+      ("<div class='say'><table class='ava-msg'><tr valign='top'><td class='avatar'></td>"
+              + "<td class='message'><span class='prefix'>Goblin 3:</span> I attack the hero!"
+              + "</td></tr></table></div>")
+          .getBytes(StandardCharsets.UTF_8);
+
+  @Test
+  @DisplayName("The bundled message dictionary is loaded.")
+  void testDictionaryLoaded() {
+    assertNotEquals(0, MessageCompressor.getDictionaryId());
+  }
+
+  @Test
+  @DisplayName("Messages come back unchanged in every encoding.")
+  void testRoundTrip() {
+    var small = "hi".getBytes(StandardCharsets.UTF_8);
+    var raw = MessageCompressor.compress(small, true);
+    assertEquals(MessageCompressor.ENCODING_RAW, raw[0]);
+    assertArrayEquals(small, MessageCompressor.inflate(raw));
+
+    var plain = MessageCompressor.compress(CHAT, false);
+    assertEquals(MessageCompressor.ENCODING_ZSTD, plain[0]);
+    assertArrayEquals(CHAT, MessageCompressor.inflate(plain));
+
+    var withDictionary = MessageCompressor.compress(CHAT, true);
+    assertEquals(MessageCompressor.ENCODING_ZSTD_DICTIONARY, withDictionary[0]);
+    assertArrayEquals(CHAT, MessageCompressor.inflate(withDictionary));
+  }
+
+  @Test
+  @DisplayName("The dictionary makes typical messages smaller.")
+  void testDictionaryHelps() {
+    assertTrue(
+        MessageCompressor.compress(CHAT, true).length
+            < MessageCompressor.compress(CHAT, false).length);
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple.connection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import net.rptools.clientserver.simple.connection.PrioritizedChannel.Priority;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class OutboundMessageQueueTest {
+  private static final PrioritizedChannel BULK = () -> Priority.BULK;
+
+  private static byte[] message(int id) {
+    return new byte[] {(byte) id};
+  }
+
+  @Test
+  @DisplayName("Messages on one channel are sent in order.")
+  void testFifoWithinChannel() {
+    var queue = new OutboundMessageQueue();
+    for (int i = 0; i < 5; i++) {
+      queue.add(null, message(i));
+    }
+    for (int i = 0; i < 5; i++) {
+      assertArrayEquals(message(i), queue.poll());
+    }
+    assertNull(queue.poll());
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  @DisplayName("Interactive messages go ahead of bulk messages.")
+  void testInteractiveBeforeBulk() {
+    var queue = new OutboundMessageQueue();
+    queue.add(BULK, message(100));
+    queue.add(null, message(1));
+    queue.add(null, message(2));
+
+    assertArrayEquals(message(1), queue.poll());
+    assertArrayEquals(message(2), queue.poll());
+    assertArrayEquals(message(100), queue.poll());
+  }
+
+  @Test
+  @DisplayName("Bulk messages are not starved by interactive traffic.")
+  void testBulkNotStarved() {
+    var queue = new OutboundMessageQueue();
+    queue.add(BULK, message(100));
+    for (int i = 0; i < OutboundMessageQueue.BULK_INTERVAL * 2; i++) {
+      queue.add(null, message(i));
+    }
+
+    for (int i = 0; i < OutboundMessageQueue.BULK_INTERVAL; i++) {
+      assertArrayEquals(message(i), queue.poll());
+    }
+    assertArrayEquals(message(100), queue.poll());
+  }
+
+  @Test
+  @DisplayName("Queue statistics track depth and size per channel.")
+  void testStats() {
+    var queue = new OutboundMessageQueue();
+    queue.add(null, new byte[10]);
+    queue.add(null, new byte[20]);
+    queue.add(BULK, new byte[5]);
+
+    assertEquals(35, queue.getBytes());
+    var stats = queue.getStats();
+    assertEquals(2, stats.get(null).depth());
+    assertEquals(30, stats.get(null).bytes());
+    assertEquals(Priority.BULK, stats.get(BULK).priority());
+
+    queue.poll();
+    queue.poll();
+    stats = queue.getStats();
+    assertEquals(0, stats.get(null).depth());
+    assertEquals(2, stats.get(null).maxDepth());
+    assertEquals(5, queue.getBytes());
+  }
+
+  @Test
+  @DisplayName("A waiting message is dropped when one with the same key is added.")
+  void testCoalescing() {
+    var queue = new OutboundMessageQueue();
+    queue.add(null, message(1), "token");
+    queue.add(null, message(2));
+    queue.add(null, message(3), "token");
+    queue.add(null, message(4), "other");
+
+    assertEquals(3, queue.getStats().get(null).depth());
+    assertEquals(1, queue.getStats().get(null).coalesced());
+    assertArrayEquals(message(2), queue.poll());
+    assertArrayEquals(message(3), queue.poll());
+    assertArrayEquals(message(4), queue.poll());
+    assertNull(queue.poll());
+
+    // Once sent, a message can no longer be superseded.
+    queue.add(null, message(5), "token");
+    assertArrayEquals(message(5), queue.poll());
+    queue.add(null, message(6), "token");
+    assertArrayEquals(message(6), queue.poll());
+    assertTrue(queue.isEmpty());
+    assertEquals(0, queue.getBytes());
+  }
+}
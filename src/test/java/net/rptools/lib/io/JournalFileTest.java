@@ -0,0 +1,163 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib.io;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalFileTest {
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  @DisplayName("Committed entries are read back after reopening.")
+  void testCommitAndReopen(@TempDir File tempDir) throws IOException {
+    File f = new File(tempDir, "journal");
+    try (var journal = new JournalFile(f)) {
+      journal.put("a", bytes("first"));
+      journal.put("b", bytes("second"));
+      journal.commit();
+      journal.put("a", bytes("replaced"));
+      journal.remove("b");
+      journal.commit();
+    }
+
+    assertTrue(JournalFile.isJournal(f));
+    try (var journal = new JournalFile(f)) {
+      assertArrayEquals(bytes("replaced"), journal.get("a"));
+      assertFalse(journal.contains("b"));
+      assertNull(journal.get("b"));
+      assertEquals(1, journal.keys().size());
+    }
+  }
+
+  @Test
+  @DisplayName("Anything written after the last commit is discarded.")
+  void testUncommittedDiscarded(@TempDir File tempDir) throws IOException {
+    File f = new File(tempDir, "journal");
+    long committedSize;
+    try (var journal = new JournalFile(f)) {
+      journal.put("a", bytes("kept"));
+      journal.commit();
+      committedSize = journal.getSize();
+      journal.put("a", bytes("lost"));
+    }
+    assertEquals(committedSize, f.length());
+
+    // Simulate a crash part way through writing a record.
+    try (var raf = new RandomAccessFile(f, "rw")) {
+      raf.seek(raf.length());
+      raf.write(new byte[] {1, 0, 0, 0, 1, 'a', 0, 0, 0, 9, 'x'});
+    }
+    try (var journal = new JournalFile(f)) {
+      assertArrayEquals(bytes("kept"), journal.get("a"));
+      assertEquals(committedSize, journal.getSize());
+    }
+  }
+
+  @Test
+  @DisplayName("Unchanged entries are not written again.")
+  void testUnchangedPut(@TempDir File tempDir) throws IOException {
+    try (var journal = new JournalFile(new File(tempDir, "journal"))) {
+      assertTrue(journal.put("a", bytes("data")));
+      journal.commit();
+      long size = journal.getSize();
+
+      assertFalse(journal.put("a", bytes("data")));
+      journal.commit();
+      assertEquals(size, journal.getSize());
+    }
+  }
+
+  @Test
+  @DisplayName("Streamed entries are written once and skipped when unchanged.")
+  void testStreamedPut(@TempDir File tempDir) throws IOException {
+    File f = new File(tempDir, "journal");
+    try (var journal = new JournalFile(f)) {
+      assertTrue(journal.put("a", out -> out.write(bytes("streamed"))));
+      journal.commit();
+      long size = journal.getSize();
+
+      assertFalse(journal.put("a", bytes("streamed")));
+      assertFalse(journal.put("a", out -> out.write(bytes("streamed"))));
+      assertEquals(size, journal.getSize());
+
+      assertThrows(
+          IOException.class,
+          () ->
+              journal.put(
+                  "b",
+                  out -> {
+                    out.write(bytes("partial"));
+                    throw new IOException("failed");
+                  }));
+      assertEquals(size, journal.getSize());
+      assertFalse(journal.contains("b"));
+    }
+
+    try (var journal = new JournalFile(f)) {
+      assertArrayEquals(bytes("streamed"), journal.get("a"));
+    }
+  }
+
+  @Test
+  @DisplayName("Compaction drops replaced entries and keeps live ones.")
+  void testCompact(@TempDir File tempDir) throws IOException {
+    File f = new File(tempDir, "journal");
+    var large = new byte[256 * 1024];
+    try (var journal = new JournalFile(f)) {
+      journal.put("kept", bytes("kept"));
+      for (int i = 0; i < 8; i++) {
+        large[0] = (byte) i;
+        journal.put("large", large);
+        journal.commit();
+      }
+      assertTrue(journal.isCompactionNeeded());
+
+      journal.compact();
+      assertFalse(journal.isCompactionNeeded());
+      assertEquals(journal.getLiveSize(), journal.getSize());
+      assertArrayEquals(large, journal.get("large"));
+    }
+
+    try (var journal = new JournalFile(f)) {
+      assertArrayEquals(bytes("kept"), journal.get("kept"));
+      assertArrayEquals(large, journal.get("large"));
+    }
+  }
+
+  @Test
+  @DisplayName("Other files are not mistaken for journals.")
+  void testNotJournal(@TempDir File tempDir) throws IOException {
+    File f = new File(tempDir, "packed");
+    try (var zip = new ZipOutputStream(new FileOutputStream(f))) {
+      zip.putNextEntry(new ZipEntry("a"));
+      zip.write(bytes("data"));
+    }
+    assertFalse(JournalFile.isJournal(f));
+    assertThrows(IOException.class, () -> new JournalFile(f));
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Rectangle;
+import java.util.List;
+import net.rptools.maptool.model.drawing.DrawnElement;
+import net.rptools.maptool.model.drawing.Pen;
+import net.rptools.maptool.model.drawing.ShapeDrawable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class DrawnElementIndexTest {
+  private static DrawnElement rectangle(int x, int y, int width, int height) {
+    return new DrawnElement(new ShapeDrawable(new Rectangle(x, y, width, height)), new Pen());
+  }
+
+  @Test
+  @DisplayName("Elements are found by area in drawing order, each only once.")
+  void testGetElements() {
+    var small = rectangle(10, 10, 20, 20);
+    var spanning = rectangle(50, 50, 300, 300);
+    var large = rectangle(-5000, -5000, 10000, 10000);
+    var far = rectangle(-800, 900, 20, 20);
+    var index = new DrawnElementIndex(List.of(large, spanning, far, small), 100);
+
+    assertEquals(List.of(large, spanning, small), index.getElements(new Rectangle(0, 0, 400, 400)));
+    assertEquals(List.of(large, small), index.getElements(new Rectangle(0, 0, 40, 40)));
+    assertEquals(List.of(large, far), index.getElements(new Rectangle(-900, 800, 200, 200)));
+
+    // Larger than all the buckets in use.
+    assertEquals(
+        List.of(large, spanning, far, small),
+        index.getElements(new Rectangle(-10000, -10000, 20000, 20000)));
+    assertEquals(List.of(), index.getElements(new Rectangle(6000, 6000, 10, 10)));
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LightingCompositeTest {
+  @Test
+  @DisplayName("The Vector API blenders give the same pixels as the scalar blenders.")
+  void testVectorBlendersMatchScalar() {
+    assumeTrue(LightingComposite.isVectorApiAvailable());
+
+    var random = new Random(1);
+    var pairs =
+        new LightingComposite.Blender[][] {
+          {
+            new LightingComposite.ScreenBlender(),
+            LightingComposite.createVectorBlender("ScreenBlender")
+          },
+          {
+            new LightingComposite.ConstrainedBrightenBlender(),
+            LightingComposite.createVectorBlender("ConstrainedBrightenBlender")
+          }
+        };
+    for (var pair : pairs) {
+      assertNotNull(pair[1]);
+      // Lengths that do and don't fill whole vectors.
+      for (int samples : new int[] {0, 1, 7, 8, 13, 100, 4096}) {
+        var srcPixels = random.ints(samples).toArray();
+        var dstPixels = random.ints(samples).toArray();
+        var expected = dstPixels.clone();
+        pair[0].blendRow(expected, srcPixels.clone(), samples);
+        pair[1].blendRow(dstPixels, srcPixels.clone(), samples);
+        assertArrayEquals(expected, dstPixels);
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Blending bands of rows in parallel gives the same image as blending in one go.")
+  void testParallelComposeMatchesSequential() {
+    var random = new Random(2);
+    var src = new BufferedImage(700, 500, BufferedImage.TYPE_INT_ARGB);
+    var sequential = new BufferedImage(700, 500, BufferedImage.TYPE_INT_ARGB);
+    var parallel = new BufferedImage(700, 500, BufferedImage.TYPE_INT_ARGB);
+    for (int y = 0; y < 500; ++y) {
+      for (int x = 0; x < 700; ++x) {
+        src.setRGB(x, y, random.nextInt());
+        var dst = random.nextInt();
+        sequential.setRGB(x, y, dst);
+        parallel.setRGB(x, y, dst);
+      }
+    }
+
+    var blender = new LightingComposite.ScreenBlender();
+    new LightingComposite(blender, false)
+        .createContext(src.getColorModel(), sequential.getColorModel(), null)
+        .compose(src.getRaster(), sequential.getRaster(), sequential.getRaster());
+    new LightingComposite(blender, true)
+        .createContext(src.getColorModel(), parallel.getColorModel(), null)
+        .compose(src.getRaster(), parallel.getRaster(), parallel.getRaster());
+
+    assertArrayEquals(
+        ((DataBufferInt) sequential.getRaster().getDataBuffer()).getData(),
+        ((DataBufferInt) parallel.getRaster().getDataBuffer()).getData());
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.geom.Area;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Random;
+import net.rptools.maptool.client.ui.zone.Illuminator.LitArea;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LumensRasterTest {
+  @Test
+  @DisplayName("The strongest light or darkness wins, and darkness wins over equal light.")
+  void testStrongestWins() {
+    var raster = new LumensRaster(4);
+    var light = new LitArea(10, new Area(new Rectangle2D.Double(0, 0, 100, 100)));
+    var darkness = new LitArea(-10, new Area(new Rectangle2D.Double(50, 0, 100, 100)));
+    var strongLight = new LitArea(20, new Area(new Rectangle2D.Double(120, 0, 100, 100)));
+    raster.add(light);
+    raster.add(darkness);
+    raster.add(strongLight);
+
+    assertEquals(10, raster.getLumens(10, 10));
+    assertEquals(-10, raster.getLumens(70, 10));
+    assertEquals(20, raster.getLumens(130, 10));
+    assertEquals(0, raster.getLumens(10, 500));
+    assertTrue(raster.isLit(10, 10));
+    assertFalse(raster.isLit(70, 10));
+
+    raster.remove(darkness);
+    assertEquals(10, raster.getLumens(70, 10));
+    assertEquals(0, raster.getLumens(110, 10));
+  }
+
+  @Test
+  @DisplayName("Lookups match the lit areas at the centers of cells.")
+  void testMatchesAreas() {
+    var random = new Random(3);
+    var cellSize = 5;
+    var raster = new LumensRaster(cellSize);
+    var litAreas = new ArrayList<LitArea>();
+    for (int i = 0; i < 40; ++i) {
+      var lumens = (1 + random.nextInt(6)) * (random.nextBoolean() ? 1 : -1);
+      var shape =
+          new Rectangle2D.Double(
+              random.nextInt(1200) - 300,
+              random.nextInt(1200) - 300,
+              random.nextInt(400) + 10,
+              random.nextInt(400) + 10);
+      var litArea = new LitArea(lumens, new Area(shape));
+      litAreas.add(litArea);
+      raster.add(litArea);
+    }
+    for (int i = 0; i < 10; ++i) {
+      raster.remove(litAreas.remove(random.nextInt(litAreas.size())));
+    }
+
+    for (int x = -400; x < 1400; x += cellSize) {
+      for (int y = -400; y < 1400; y += cellSize) {
+        var expected = 0;
+        for (var litArea : litAreas) {
+          if (litArea.area().contains(x + cellSize / 2., y + cellSize / 2.)) {
+            expected = LumensRaster.stronger(expected, litArea.lumens());
+          }
+        }
+        assertEquals(expected, raster.getLumens(x + 1, y + 1), "at " + x + ", " + y);
+      }
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import net.rptools.lib.MD5Key;
+import net.rptools.maptool.model.GUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TokenSpriteCacheTest {
+  private static final MD5Key IMAGE = new MD5Key("image");
+
+  private static TokenSpriteCache.Key newKey(GUID tokenId, double scale) {
+    return new TokenSpriteCache.Key(
+        tokenId, IMAGE, 100, 100, scale, 50, 50, 0.25, 0.5, 1.0f, false, 0, false, false);
+  }
+
+  /** A sprite that weighs 400 bytes. */
+  private static TokenSpriteCache.Sprite newSprite() {
+    return new TokenSpriteCache.Sprite(
+        new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB_PRE), -1, -1);
+  }
+
+  @Test
+  @DisplayName("A sprite is found by an equal key, and only painted for a key asked for twice.")
+  void testHit() {
+    var cache = new TokenSpriteCache();
+    var tokenId = new GUID();
+    var key = newKey(tokenId, 1.0);
+
+    assertNull(cache.get(key));
+    assertFalse(cache.shouldPaint(key));
+    assertTrue(cache.shouldPaint(newKey(tokenId, 1.0)));
+
+    var sprite = newSprite();
+    cache.put(key, sprite);
+    assertSame(sprite, cache.get(newKey(tokenId, 1.0)));
+    assertNull(cache.get(newKey(tokenId, 2.0)));
+    assertFalse(cache.shouldPaint(newKey(tokenId, 2.0)));
+  }
+
+  @Test
+  @DisplayName("Invalidating a token drops all of its sprites and only its sprites.")
+  void testInvalidate() {
+    var cache = new TokenSpriteCache();
+    var tokenId = new GUID();
+    var otherId = new GUID();
+    cache.put(newKey(tokenId, 1.0), newSprite());
+    cache.put(newKey(tokenId, 2.0), newSprite());
+    var other = newSprite();
+    cache.put(newKey(otherId, 1.0), other);
+
+    cache.invalidate(tokenId);
+    assertNull(cache.get(newKey(tokenId, 1.0)));
+    assertNull(cache.get(newKey(tokenId, 2.0)));
+    assertSame(other, cache.get(newKey(otherId, 1.0)));
+
+    // A sprite put again after invalidating is kept, and can be invalidated again.
+    cache.put(newKey(tokenId, 1.0), newSprite());
+    assertNotNull(cache.get(newKey(tokenId, 1.0)));
+    cache.invalidate(tokenId);
+    assertNull(cache.get(newKey(tokenId, 1.0)));
+
+    cache.invalidateAll();
+    assertNull(cache.get(newKey(otherId, 1.0)));
+  }
+
+  @Test
+  @DisplayName("Going over the memory budget evicts the least recently used sprites.")
+  void testEviction() {
+    var cache = new TokenSpriteCache(1200);
+    var tokenId = new GUID();
+    cache.put(newKey(tokenId, 1.0), newSprite());
+    cache.put(newKey(tokenId, 2.0), newSprite());
+    cache.put(newKey(tokenId, 3.0), newSprite());
+
+    // Using the first makes the second the least recently used.
+    assertNotNull(cache.get(newKey(tokenId, 1.0)));
+    cache.put(newKey(tokenId, 4.0), newSprite());
+
+    assertNotNull(cache.get(newKey(tokenId, 1.0)));
+    assertNull(cache.get(newKey(tokenId, 2.0)));
+    assertNotNull(cache.get(newKey(tokenId, 3.0)));
+    assertNotNull(cache.get(newKey(tokenId, 4.0)));
+
+    // Evicted sprites are no longer indexed by token, so invalidating still drops the rest.
+    cache.invalidate(tokenId);
+    assertNull(cache.get(newKey(tokenId, 1.0)));
+    assertNull(cache.get(newKey(tokenId, 4.0)));
+  }
+
+  @Test
+  @DisplayName("Fractions of a pixel are rounded to quarters.")
+  void testQuantize() {
+    assertEquals(0.0, TokenSpriteCache.quantize(0.1));
+    assertEquals(0.25, TokenSpriteCache.quantize(0.2));
+    assertEquals(0.75, TokenSpriteCache.quantize(0.7));
+    assertEquals(1.0, TokenSpriteCache.quantize(0.9));
+  }
+}
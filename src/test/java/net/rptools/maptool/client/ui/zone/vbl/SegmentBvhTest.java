@@ -0,0 +1,52 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone.vbl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+
+class SegmentBvhTest {
+  @Test
+  @DisplayName("Queries find the same segments as checking every segment.")
+  void testQueryMatchesLinearSearch() {
+    var random = new Random(1);
+    for (int vertexCount : new int[] {0, 2, 9, 100, 5000}) {
+      var vertices = new Coordinate[vertexCount];
+      for (int i = 0; i < vertexCount; ++i) {
+        vertices[i] = new Coordinate(random.nextInt(1000), random.nextInt(1000));
+      }
+      var bvh = new SegmentBvh(vertices);
+
+      for (int q = 0; q < 100; ++q) {
+        double x = random.nextInt(1000);
+        double y = random.nextInt(1000);
+        double size = random.nextInt(200);
+        var envelope = new Envelope(x, x + size, y, y + size);
+
+        var expected =
+            IntStream.range(0, Math.max(0, vertexCount - 1))
+                .filter(i -> envelope.intersects(vertices[i], vertices[i + 1]))
+                .toArray();
+        assertArrayEquals(expected, bvh.query(envelope));
+      }
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone.vbl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class VisibilityFieldTest {
+  private static final int CELL_SIZE = 50;
+
+  /** Two rooms of 160x200 and 210x200, with a wall between them. */
+  private static Area twoRooms() {
+    var walls = new Area(new Rectangle(-10, -10, 420, 220));
+    walls.subtract(new Area(new Rectangle(0, 0, 400, 200)));
+    walls.add(new Area(new Rectangle(160, 0, 30, 200)));
+    return walls;
+  }
+
+  private static VisibilityField build(Area walls) {
+    return VisibilityField.build(new AreaTree(walls), walls.getBounds(), CELL_SIZE, 0, 0);
+  }
+
+  @Test
+  @DisplayName("Walls hide one room from the other.")
+  void testRooms() {
+    var field = build(twoRooms());
+    var left = new Point(75, 75);
+    var right = new Point(275, 125);
+
+    assertFalse(field.isHidden(left, 100, 150));
+    assertTrue(field.isHidden(left, 300, 100));
+    assertFalse(field.isHidden(right, 380, 20));
+    assertTrue(field.isHidden(right, 20, 20));
+    // Outside of the rooms altogether.
+    assertTrue(field.isHidden(left, 1000, 1000));
+
+    var bounds = field.getVisibleBounds(left);
+    assertNotNull(bounds);
+    assertTrue(bounds.contains(new Rectangle(0, 0, 160, 200)));
+    assertFalse(bounds.contains(300, 100));
+
+    assertTrue(field.isBlind(new Point(175, 75)));
+    assertFalse(field.isBlind(left));
+    // Not the center of a cell, so the field doesn't know.
+    assertFalse(field.isHidden(new Point(76, 75), 300, 100));
+    assertNull(field.getVisibleBounds(new Point(76, 75)));
+  }
+
+  @Test
+  @DisplayName("A field that was written is read back the same.")
+  void testWriteAndRead() throws IOException {
+    var field = build(twoRooms());
+    var out = new ByteArrayOutputStream();
+    field.write(out);
+    var read = VisibilityField.read(new ByteArrayInputStream(out.toByteArray()));
+
+    for (int originX = -25; originX < 450; originX += CELL_SIZE) {
+      for (int originY = -25; originY < 250; originY += CELL_SIZE) {
+        var origin = new Point(originX, originY);
+        assertEquals(field.isBlind(origin), read.isBlind(origin));
+        assertEquals(field.getVisibleBounds(origin), read.getVisibleBounds(origin));
+        for (int x = -40; x < 450; x += 20) {
+          for (int y = -40; y < 250; y += 20) {
+            assertEquals(field.isHidden(origin, x, y), read.isHidden(origin, x, y));
+          }
+        }
+      }
+    }
+
+    assertThrows(
+        IOException.class, () -> VisibilityField.read(new ByteArrayInputStream(new byte[8])));
+  }
+
+  @Test
+  @DisplayName("A build that is no longer wanted stops.")
+  void testCancelledBuild() {
+    var walls = twoRooms();
+    assertThrows(
+        CancellationException.class,
+        () ->
+            VisibilityField.build(
+                new AreaTree(walls), walls.getBounds(), CELL_SIZE, 0, 0, () -> true));
+  }
+
+  @Test
+  @DisplayName("A field with too many cells is not built.")
+  void testTooLarge() {
+    var walls = new Area(new Rectangle(0, 0, 200 * CELL_SIZE, 200 * CELL_SIZE));
+    assertTrue(
+        VisibilityField.countCells(walls.getBounds(), CELL_SIZE, 0, 0) > VisibilityField.MAX_CELLS);
+    assertThrows(IllegalArgumentException.class, () -> build(walls));
+  }
+}
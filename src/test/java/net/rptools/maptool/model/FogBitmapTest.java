@@ -0,0 +1,83 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class FogBitmapTest {
+  private static final int CELL_SIZE = 10;
+
+  @Test
+  @DisplayName("Cells are exposed where the exposed area covers their center.")
+  void testMatchesArea() {
+    var random = new Random(3);
+    var bitmap = new FogBitmap(CELL_SIZE);
+    var expected = new Area();
+    for (int i = 0; i < 40; ++i) {
+      var rectangle =
+          new Rectangle(
+              random.nextInt(2000) - 1000,
+              random.nextInt(2000) - 1000,
+              random.nextInt(300),
+              random.nextInt(300));
+      if (i % 4 == 3) {
+        bitmap.subtract(new Area(rectangle));
+        expected.subtract(new Area(rectangle));
+      } else {
+        bitmap.add(new Area(rectangle));
+        expected.add(new Area(rectangle));
+      }
+    }
+
+    var fromBitmap = bitmap.toArea();
+    for (int x = -1100; x < 1400; x += CELL_SIZE) {
+      for (int y = -1100; y < 1400; y += CELL_SIZE) {
+        var isExposed = expected.contains(x + CELL_SIZE / 2.0, y + CELL_SIZE / 2.0);
+        assertEquals(isExposed, bitmap.isExposed(x + 1, y + 1), "at " + x + ", " + y);
+        assertEquals(isExposed, fromBitmap.contains(x + CELL_SIZE / 2.0, y + CELL_SIZE / 2.0));
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Run-length encoding and adding bitmaps keep the exposed cells.")
+  void testEncodeAndUnion() {
+    var first = new FogBitmap(CELL_SIZE);
+    first.add(new Rectangle(-655, 20, 1000, 30));
+    var second = new FogBitmap(CELL_SIZE);
+    second.add(new Rectangle(100, -400, 50, 900));
+
+    var decoded = FogBitmap.decode(CELL_SIZE, first.encode());
+    assertEquals(first.toArea().getBounds(), decoded.toArea().getBounds());
+
+    decoded.add(second);
+    for (int x = -1000; x < 1000; x += CELL_SIZE) {
+      for (int y = -1000; y < 1000; y += CELL_SIZE) {
+        assertEquals(
+            first.isExposed(x, y) || second.isExposed(x, y),
+            decoded.isExposed(x, y),
+            "at " + x + ", " + y);
+      }
+    }
+
+    assertTrue(FogBitmap.decode(CELL_SIZE, new FogBitmap(CELL_SIZE).encode()).isEmpty());
+  }
+}
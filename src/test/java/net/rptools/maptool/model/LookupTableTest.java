@@ -0,0 +1,77 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import net.rptools.maptool.model.LookupTable.LookupEntry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LookupTableTest {
+  @Test
+  @DisplayName("Integer rolls find the last matching entry, moving rolls into the table's range.")
+  void testLookupDirect() {
+    var table = new LookupTable();
+    assertNull(table.getLookupDirect(1));
+
+    table.addEntry(1, 3, "low", null);
+    table.addEntry(6, 10, "high", null);
+    table.addEntry(8, 8, "eight", null);
+
+    assertEquals("low", table.getLookupDirect(1).getValue());
+    assertEquals("low", table.getLookupDirect(3).getValue());
+    assertNull(table.getLookupDirect(4));
+    assertEquals("high", table.getLookupDirect(7).getValue());
+    assertEquals("eight", table.getLookupDirect(8).getValue());
+    assertEquals("high", table.getLookupDirect(9).getValue());
+    assertEquals("low", table.getLookupDirect(Integer.MIN_VALUE).getValue());
+    assertEquals("high", table.getLookupDirect(Integer.MAX_VALUE).getValue());
+
+    table.addEntry(-5, 20, "all", null);
+    assertEquals("all", table.getLookupDirect(8).getValue());
+    assertEquals("all", table.getLookupDirect(-100).getValue());
+
+    table.clearEntries();
+    assertNull(table.getLookupDirect(8));
+  }
+
+  @Test
+  @DisplayName("Integer rolls find the same entries as checking every entry.")
+  void testLookupDirectMatchesScan() {
+    var random = new Random(42);
+    for (int t = 0; t < 50; ++t) {
+      var table = new LookupTable();
+      for (int i = random.nextInt(10); i >= 0; --i) {
+        int min = random.nextInt(60) - 20;
+        table.addEntry(min, min + random.nextInt(15), "entry" + i, null);
+      }
+
+      int minRoll = table.getEntryList().stream().mapToInt(LookupEntry::getMin).min().getAsInt();
+      int maxRoll = table.getEntryList().stream().mapToInt(LookupEntry::getMax).max().getAsInt();
+      for (int roll = -40; roll < 80; ++roll) {
+        int constrained = Math.max(minRoll, Math.min(maxRoll, roll));
+        LookupEntry expected = null;
+        for (var entry : table.getEntryList()) {
+          if (constrained >= entry.getMin() && constrained <= entry.getMax()) {
+            expected = entry;
+          }
+        }
+        assertSame(expected, table.getLookupDirect(roll), "roll " + roll);
+      }
+    }
+  }
+}
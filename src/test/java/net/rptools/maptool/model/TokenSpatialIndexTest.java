@@ -0,0 +1,65 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Rectangle;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TokenSpatialIndexTest {
+  @Test
+  @DisplayName("Tokens are found by area and point, and not after being moved away.")
+  void testPutMoveRemove() {
+    var index = new TokenSpatialIndex(100);
+    var token = new Token();
+    index.put(token, Zone.Layer.TOKEN, new Rectangle(10, 10, 50, 50));
+
+    assertEquals(List.of(token), index.getTokens(Zone.Layer.TOKEN, new Rectangle(0, 0, 20, 20)));
+    assertEquals(List.of(token), index.getTokensAt(Zone.Layer.TOKEN, 30, 30));
+    assertTrue(index.getTokens(Zone.Layer.OBJECT, new Rectangle(0, 0, 20, 20)).isEmpty());
+
+    index.put(token, Zone.Layer.TOKEN, new Rectangle(-500, -500, 50, 50));
+    assertEquals(1, index.size());
+    assertTrue(index.getTokensAt(Zone.Layer.TOKEN, 30, 30).isEmpty());
+    assertEquals(List.of(token), index.getTokensAt(Zone.Layer.TOKEN, -480, -480));
+
+    index.remove(token.getId());
+    assertEquals(0, index.size());
+    assertTrue(index.getTokensAt(Zone.Layer.TOKEN, -480, -480).isEmpty());
+  }
+
+  @Test
+  @DisplayName("Tokens spanning several buckets are only returned once.")
+  void testSpanningTokens() {
+    var index = new TokenSpatialIndex(100);
+    var spanning = new Token();
+    var large = new Token();
+    index.put(spanning, Zone.Layer.TOKEN, new Rectangle(50, 50, 200, 200));
+    index.put(large, Zone.Layer.TOKEN, new Rectangle(0, 0, 5000, 5000));
+
+    var found = index.getTokens(Zone.Layer.TOKEN, new Rectangle(0, 0, 400, 400));
+    assertEquals(2, found.size());
+    assertTrue(found.containsAll(List.of(spanning, large)));
+
+    // Larger than all the buckets in use.
+    found = index.getTokens(Zone.Layer.TOKEN, new Rectangle(-10000, -10000, 20000, 20000));
+    assertEquals(2, found.size());
+
+    assertEquals(List.of(large), index.getTokensAt(Zone.Layer.TOKEN, 4000, 4000));
+  }
+}
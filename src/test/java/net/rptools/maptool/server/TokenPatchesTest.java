@@ -0,0 +1,87 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.protobuf.StringValue;
+import net.rptools.maptool.server.proto.TokenDto;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TokenPatchesTest {
+  private static TokenDto base() {
+    return TokenDto.newBuilder()
+        .setId("token")
+        .setName("Goblin")
+        .setX(10)
+        .setY(20)
+        .setLabel(StringValue.of("label"))
+        .addOwnerList("gm")
+        .putProperties("HP", "7")
+        .putProperties("AC", "15")
+        .build();
+  }
+
+  @Test
+  @DisplayName("Only changed fields are included in a patch.")
+  void testDiffOnlyChangedFields() {
+    var updated = base().toBuilder().setX(11).putProperties("HP", "6").build();
+    var patch = TokenPatches.diff(base(), updated).build();
+
+    assertEquals(2, patch.getChangedFieldsCount());
+    assertEquals(11, patch.getChanges().getX());
+    assertEquals("", patch.getChanges().getName());
+    assertEquals(updated, TokenPatches.apply(base(), patch));
+  }
+
+  @Test
+  @DisplayName("Fields that are cleared or emptied are cleared by the patch.")
+  void testClearedFields() {
+    var updated =
+        base().toBuilder().clearLabel().clearOwnerList().removeProperties("AC").setX(0).build();
+    var patch = TokenPatches.diff(base(), updated).build();
+    var patched = TokenPatches.apply(base(), patch);
+
+    assertFalse(patched.hasLabel());
+    assertEquals(0, patched.getOwnerListCount());
+    assertEquals(0, patched.getX());
+    assertEquals(updated, patched);
+  }
+
+  @Test
+  @DisplayName("An unchanged token gives an empty patch.")
+  void testNoChanges() {
+    var patch = TokenPatches.diff(base(), base()).build();
+
+    assertEquals(0, patch.getChangedFieldsCount());
+    assertEquals(base(), TokenPatches.apply(base(), patch));
+  }
+
+  @Test
+  @DisplayName("Moving a token with many properties sends a small fraction of the token.")
+  void testPatchSize() {
+    var builder = base().toBuilder();
+    for (int i = 0; i < 200; ++i) {
+      builder.putProperties("Property" + i, "A value that is about as long as a short macro " + i);
+    }
+    var token = builder.build();
+    var moved = token.toBuilder().setX(100).setY(200).build();
+    var patch = TokenPatches.diff(token, moved).build();
+
+    assertTrue(patch.getSerializedSize() * 100 < moved.getSerializedSize());
+    assertEquals(moved, TokenPatches.apply(token, patch));
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import net.rptools.lib.MD5Key;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ImageCacheTest {
+  /** Stands in for an image that is still loading. */
+  private static final BufferedImage LOADING = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+
+  private static final MD5Key A = new MD5Key("a");
+  private static final MD5Key B = new MD5Key("b");
+  private static final MD5Key C = new MD5Key("c");
+  private static final MD5Key D = new MD5Key("d");
+
+  /** Weighs images by their number of pixels, and {@link #LOADING} as nothing. */
+  private static ImageCache newCache() {
+    return new ImageCache(
+        image -> image == LOADING ? 0 : (long) image.getWidth() * image.getHeight());
+  }
+
+  /** An image that weighs 100. */
+  private static BufferedImage newImage() {
+    return new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+  }
+
+  private static void put(ImageCache cache, MD5Key id, BufferedImage image, long budget) {
+    cache.put(id, image, budget, () -> 0, evicted -> 0);
+  }
+
+  @Test
+  @DisplayName("Going over budget evicts the least recently used images first.")
+  void testEvictsLeastRecentlyUsed() {
+    var cache = newCache();
+    var a = newImage();
+    put(cache, A, a, 300);
+    put(cache, B, newImage(), 300);
+    put(cache, C, newImage(), 300);
+    assertEquals(300, cache.getBytes());
+    assertEquals(0, cache.getEvictions());
+
+    // Using A makes B the least recently used.
+    assertSame(a, cache.get(A));
+    put(cache, D, newImage(), 300);
+
+    assertEquals(Set.of(A, C, D), cache.getAssetIds());
+    assertNull(cache.get(B));
+    assertEquals(300, cache.getBytes());
+    assertEquals(1, cache.getEvictions());
+  }
+
+  @Test
+  @DisplayName("Pinned images, images still loading and the image just put are kept.")
+  void testKeepsPinnedAndInUse() {
+    var cache = newCache();
+    cache.setPinned(Set.of(A));
+    put(cache, A, newImage(), 200);
+    put(cache, B, LOADING, 200);
+    put(cache, C, newImage(), 200);
+    put(cache, D, newImage(), 200);
+
+    // C is the only image that could go.
+    assertEquals(Set.of(A, B, D), cache.getAssetIds());
+    assertEquals(200, cache.getBytes());
+
+    // Only D can go, so the cache stays over budget rather than drop the new image.
+    var c = newImage();
+    put(cache, C, c, 100);
+    assertEquals(Set.of(A, B, C), cache.getAssetIds());
+    assertSame(c, cache.get(C));
+    assertSame(LOADING, cache.get(B));
+    assertEquals(200, cache.getBytes());
+    assertEquals(2, cache.getEvictions());
+  }
+
+  @Test
+  @DisplayName("Memory freed along with evicted images counts towards the budget.")
+  void testOtherBytes() {
+    var cache = newCache();
+    put(cache, A, newImage(), 1000);
+    put(cache, B, newImage(), 1000);
+
+    // With 200 of pyramids, the images take the cache to 500 of 400.
+    List<MD5Key> evicted = new ArrayList<>();
+    cache.put(
+        C,
+        newImage(),
+        400,
+        () -> 200,
+        id -> {
+          evicted.add(id);
+          return 100;
+        });
+
+    assertEquals(List.of(A), evicted);
+    assertEquals(Set.of(B, C), cache.getAssetIds());
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class MipPyramidTest {
+  @Test
+  @DisplayName("The level for a scale is the smallest that is still large enough.")
+  void testLevelFor() {
+    var pyramid = new MipPyramid(new BufferedImage(1024, 256, BufferedImage.TYPE_INT_ARGB));
+
+    assertEquals(0, pyramid.getLevelFor(2));
+    assertEquals(0, pyramid.getLevelFor(1));
+    assertEquals(0, pyramid.getLevelFor(0.6));
+    assertEquals(1, pyramid.getLevelFor(0.5));
+    assertEquals(2, pyramid.getLevelFor(0.2));
+    // The shorter side is a single pixel at level 8.
+    assertEquals(8, pyramid.getLevelFor(0.0001));
+    assertEquals(0, pyramid.getLevelFor(0));
+  }
+
+  @Test
+  @DisplayName("Levels are made on demand, halving the image each time.")
+  void testBuild() {
+    var source = new BufferedImage(100, 60, BufferedImage.TYPE_INT_ARGB);
+    for (int x = 0; x < source.getWidth(); ++x) {
+      for (int y = 0; y < source.getHeight(); ++y) {
+        source.setRGB(x, y, (x + y) % 2 == 0 ? 0xffffffff : 0xff000000);
+      }
+    }
+    var pyramid = new MipPyramid(source);
+
+    assertNull(pyramid.getLevel(2));
+    assertSame(source, pyramid.getNearest(2));
+    assertEquals(0, pyramid.getBytes());
+
+    assertTrue(pyramid.startBuilding());
+    assertFalse(pyramid.startBuilding());
+    pyramid.build(2);
+    assertTrue(pyramid.startBuilding());
+    pyramid.build(0);
+
+    var level1 = pyramid.getLevel(1);
+    var level2 = pyramid.getLevel(2);
+    assertNotNull(level1);
+    assertNotNull(level2);
+    assertNull(pyramid.getLevel(3));
+    assertSame(level2, pyramid.getNearest(4));
+    assertEquals(50, level1.getWidth());
+    assertEquals(30, level1.getHeight());
+    assertEquals(25, level2.getWidth());
+    assertEquals(15, level2.getHeight());
+    assertEquals(4L * (50 * 30 + 25 * 15), pyramid.getBytes());
+
+    // A checkerboard averages to grey.
+    var grey = level1.getRGB(10, 10) & 0xff;
+    assertTrue(grey > 100 && grey < 155, "grey was " + grey);
+  }
+
+  @Test
+  @DisplayName("Levels asked for while a build is running are made by it, and observers are told.")
+  void testRequest() {
+    var pyramid = new MipPyramid(new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB));
+    List<BufferedImage> updates = new ArrayList<>();
+    ImageObserver observer =
+        (image, flags, x, y, width, height) -> {
+          updates.add((BufferedImage) image);
+          return false;
+        };
+
+    assertTrue(pyramid.request(1, observer));
+    // The build hasn't run yet, so the next request is left to it.
+    assertFalse(pyramid.request(3, observer));
+    assertFalse(pyramid.request(2, null));
+    pyramid.buildRequested();
+
+    assertNotNull(pyramid.getLevel(3));
+    assertEquals(List.of(pyramid.getLevel(3)), updates);
+
+    // Once the build is done, a request starts a new one.
+    assertTrue(pyramid.request(4, null));
+    pyramid.buildRequested();
+    assertNotNull(pyramid.getLevel(4));
+    assertEquals(1, updates.size());
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.zone;
+
+import static jdk.incubator.vector.VectorOperators.LSHL;
+import static jdk.incubator.vector.VectorOperators.LSHR;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Versions of the {@link LightingComposite} blenders that blend several pixels at once using the
+ * Vector API.
+ *
+ * <p>Each lane holds one ARGB pixel, and the components are pulled out into their own vectors for
+ * the blend math. The results are the same as the scalar blenders, pixel for pixel. Whole vectors
+ * are blended without masks, and only the last partial vector of a row uses one.
+ *
+ * <p>Nothing here may be used unless {@link LightingComposite#isVectorApiAvailable()}.
+ */
+final class VectorBlenders {
+  private VectorBlenders() {}
+
+  private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+  /** Renormalizes products of bytes, as {@code LightingComposite.renormalize()} does. */
+  private static IntVector renormalize(IntVector x) {
+    return x.add(x.lanewise(LSHR, 8)).lanewise(LSHR, 8);
+  }
+
+  private static IntVector component(IntVector pixels, int shift) {
+    return pixels.lanewise(LSHR, shift).and(0xFF);
+  }
+
+  private static IntVector pack(IntVector r, IntVector g, IntVector b) {
+    return r.lanewise(LSHL, 16).or(g.lanewise(LSHL, 8)).or(b);
+  }
+
+  /** The Vector API version of {@link LightingComposite.ScreenBlender}. */
+  static final class ScreenBlender implements LightingComposite.Blender {
+    public void blendRow(int[] dstPixels, int[] srcPixels, int samples) {
+      final var species = SPECIES;
+      final var bound = species.loopBound(samples);
+      int x = 0;
+      for (; x < bound; x += species.length()) {
+        final var srcPixel = IntVector.fromArray(species, srcPixels, x);
+        final var dstPixel = IntVector.fromArray(species, dstPixels, x);
+        blendPixels(dstPixel, srcPixel).intoArray(dstPixels, x);
+      }
+      if (x < samples) {
+        final var mask = species.indexInRange(x, samples);
+        final var srcPixel = IntVector.fromArray(species, srcPixels, x, mask);
+        final var dstPixel = IntVector.fromArray(species, dstPixels, x, mask);
+        blendPixels(dstPixel, srcPixel).intoArray(dstPixels, x, mask);
+      }
+    }
+
+    private static IntVector blendPixels(IntVector dstPixel, IntVector srcPixel) {
+      final var resultR = blend(component(dstPixel, 16), component(srcPixel, 16));
+      final var resultG = blend(component(dstPixel, 8), component(srcPixel, 8));
+      final var resultB = blend(component(dstPixel, 0), component(srcPixel, 0));
+
+      // This keeps the light alpha around instead of the base.
+      return srcPixel.add(pack(resultR, resultG, resultB));
+    }
+
+    private static IntVector blend(IntVector dstC, IntVector srcC) {
+      return renormalize(srcC.neg().add(255).mul(dstC));
+    }
+  }
+
+  /** The Vector API version of {@link LightingComposite.ConstrainedBrightenBlender}. */
+  static final class ConstrainedBrightenBlender implements LightingComposite.Blender {
+    public void blendRow(int[] dstPixels, int[] srcPixels, int samples) {
+      final var species = SPECIES;
+      final var bound = species.loopBound(samples);
+      int x = 0;
+      for (; x < bound; x += species.length()) {
+        final var srcPixel = IntVector.fromArray(species, srcPixels, x);
+        final var dstPixel = IntVector.fromArray(species, dstPixels, x);
+        blendPixels(dstPixel, srcPixel).intoArray(dstPixels, x);
+      }
+      if (x < samples) {
+        final var mask = species.indexInRange(x, samples);
+        final var srcPixel = IntVector.fromArray(species, srcPixels, x, mask);
+        final var dstPixel = IntVector.fromArray(species, dstPixels, x, mask);
+        blendPixels(dstPixel, srcPixel).intoArray(dstPixels, x, mask);
+      }
+    }
+
+    private static IntVector blendPixels(IntVector dstPixel, IntVector srcPixel) {
+      final var resultR = blend(component(dstPixel, 16), component(srcPixel, 16));
+      final var resultG = blend(component(dstPixel, 8), component(srcPixel, 8));
+      final var resultB = blend(component(dstPixel, 0), component(srcPixel, 0));
+
+      // This deliberately keeps the bottom alpha around.
+      return dstPixel.add(pack(resultR, resultG, resultB));
+    }
+
+    private static IntVector blend(IntVector dstC, IntVector srcC) {
+      final var headroom = dstC.neg().add(255).blend(dstC, dstC.lt(128));
+      return renormalize(srcC.mul(headroom));
+    }
+  }
+}